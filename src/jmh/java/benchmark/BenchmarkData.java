@@ -0,0 +1,64 @@
+package benchmark;
+
+import model.Book;
+import model.Loan;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic datasets shared by the JMH benchmarks. Seeded, so every run and every fork measures
+ * the same rows.
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42;
+    private static final String[] CATEGORIES = {"Fiction", "History", "Science", "Children", "Poetry", "Travel"};
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+    // Prevents instantiation
+    private BenchmarkData() {}
+
+    // Some titles need CSV quoting, some are non-ASCII
+    public static List<Book> books(int rows) {
+        Random random = new Random(SEED);
+        List<Book> books = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String title = switch (i % 10) {
+                case 0 -> "The \"Complete\" Works, Vol. " + i;
+                case 1 -> "Cien años de soledad " + i;
+                default -> "Title number " + i;
+            };
+            int total = 1 + random.nextInt(30);
+            books.add(new Book(String.format("978%010d", i), title, "Author " + random.nextInt(5000),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], BigDecimal.valueOf(1000 + random.nextInt(9000), 2),
+                    total, random.nextInt(total + 1), random.nextInt(50) != 0, null));
+        }
+        return books;
+    }
+
+    // Active loans; about two thirds overdue by up to 60 days
+    public static List<Loan> loans(int rows) {
+        Random random = new Random(SEED);
+        List<Loan> loans = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            LocalDate due = TODAY.plusDays(20 - random.nextInt(80));
+            LocalDate loanDate = due.minusDays(7);
+            loans.add(new Loan(i + 1, String.format("978%010d", random.nextInt(Math.max(1, rows))), 1 + random.nextInt(10_000),
+                    Timestamp.valueOf(loanDate.atTime(10, 30)), Date.valueOf(due), null, null, false));
+        }
+        return loans;
+    }
+
+    /**
+     * @return The fixed "today" the loans were generated against (return date for fine calculations)
+     */
+    public static Date today() {
+        return Date.valueOf(TODAY);
+    }
+}
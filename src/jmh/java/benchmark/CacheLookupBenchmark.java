@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import util.RecentKeysCache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecentKeysCache lookups (the idempotency check in front of every loan registration and return):
+ * hits, misses, and hits from 4 threads sharing the cache's lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheLookupBenchmark {
+
+    @Param({"1000", "100000"})
+    public int keys;
+
+    private RecentKeysCache<String> cache;
+    private String[] present;
+    private String[] absent;
+
+    @Setup
+    public void setUp() {
+        cache = new RecentKeysCache<>("jmh", keys, 3_600_000L);
+        present = new String[keys];
+        absent = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            present[i] = "key-" + i;
+            absent[i] = "missing-" + i;
+            cache.put(present[i], "result-" + i);
+        }
+    }
+
+    @Benchmark
+    public String hit() {
+        return cache.get(present[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public String miss() {
+        return cache.get(absent[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String hitContended() {
+        return cache.get(present[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import model.Book;
+import model.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.CSVExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVExporter.exportBooks / exportOverdueLoans from in-memory lists to a temporary file,
+ * plain and gzip-compressed. Includes the file I/O, as the export screens do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvExportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private List<Book> books;
+    private List<Loan> loans;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        books = BenchmarkData.books(rows);
+        loans = BenchmarkData.loans(rows);
+        file = File.createTempFile("jmh-export", compress ? ".csv.gz" : ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public long exportBooks() throws IOException {
+        CSVExporter.exportBooks(books, file.getPath(), compress);
+        return file.length();
+    }
+
+    @Benchmark
+    public long exportOverdueLoans() throws IOException {
+        CSVExporter.exportOverdueLoans(loans, file.getPath(), compress);
+        return file.length();
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import model.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import service.impl.LoanServiceImpl;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanServiceImpl.calculateFine over a batch of loans (the per-row cost of the overdue report
+ * and of every return). No database: the DAOs are not used by the calculation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FineCalculationBenchmark {
+
+    @Param({"100", "10000"})
+    public int loans;
+
+    private LoanServiceImpl loanService;
+    private Date[] dueDates;
+    private Date returnDate;
+
+    @Setup
+    public void setUp() {
+        loanService = new LoanServiceImpl(null, null, null, null, null);
+        List<Loan> data = BenchmarkData.loans(loans);
+        dueDates = data.stream().map(Loan::getDueDate).toArray(Date[]::new);
+        returnDate = BenchmarkData.today();
+    }
+
+    @Benchmark
+    public void calculateFines(Blackhole blackhole) {
+        for (Date dueDate : dueDates) {
+            blackhole.consume(loanService.calculateFine(dueDate, returnDate));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package benchmark;
+
+import model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.CSVExporter;
+import util.CSVImporter;
+import util.JsonLinesExporter;
+import util.JsonLinesReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON Lines encoder and parser against the CSV ones on the same catalog (no database needed),
+ * file I/O included. CSV parsing uses import.parallelism threads, JSON Lines parsing is sequential.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonLinesBenchmark {
+
+    private static final String[] CSV_HEADER = CSVExporter.BOOKS_HEADER.trim().split(",");
+
+    @Param({"100000"})
+    public int rows;
+
+    private List<Book> books;
+    private File csv;
+    private File jsonl;
+    private File out;
+
+    @Setup
+    public void setUp() throws IOException {
+        books = BenchmarkData.books(rows);
+        csv = File.createTempFile("jmh-books", ".csv");
+        jsonl = File.createTempFile("jmh-books", JsonLinesExporter.FILE_EXTENSION);
+        out = File.createTempFile("jmh-books-out", ".tmp");
+        CSVExporter.exportBooks(books, csv.getPath(), false);
+        JsonLinesExporter.exportBooks(books, jsonl.getPath(), false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv.toPath());
+        Files.deleteIfExists(jsonl.toPath());
+        Files.deleteIfExists(out.toPath());
+    }
+
+    @Benchmark
+    public long writeCsv() throws IOException {
+        CSVExporter.exportBooks(books, out.getPath(), false);
+        return out.length();
+    }
+
+    @Benchmark
+    public long writeJsonLines() throws IOException {
+        JsonLinesExporter.exportBooks(books, out.getPath(), false);
+        return out.length();
+    }
+
+    @Benchmark
+    public long readCsv(Blackhole blackhole) throws Exception {
+        return CSVImporter.read(csv.getPath(), CSV_HEADER, (records, bytesRead, totalBytes) -> consume(records, blackhole));
+    }
+
+    @Benchmark
+    public long readJsonLines(Blackhole blackhole) throws Exception {
+        return JsonLinesReader.read(jsonl.getPath(), JsonLinesExporter.BOOK_FIELDS,
+                (records, bytesRead, totalBytes) -> consume(records, blackhole));
+    }
+
+    private static void consume(List<CSVImporter.CSVRecord> records, Blackhole blackhole) {
+        for (CSVImporter.CSVRecord record : records) {
+            if (record.getError() != null) {
+                throw new IllegalStateException("Line " + record.getLineNumber() + ": " + record.getError());
+            }
+            blackhole.consume(record.getFields());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import dao.BookDAOImpl;
+import dao.StockMovementDAOImpl;
+import exception.BusinessException;
+import exception.ExistingISBNException;
+import model.Book;
+import model.StockMovement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import service.impl.BookServiceImpl;
+import util.DBConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loan/return throughput on the stock counter of a single hot title, single-row counter against
+ * striped stock. Every operation is one loan (-1) or one return (+1) with its ledger entry, committed
+ * on its own like LoanServiceImpl does (the stock row stays locked until the commit). Needs the
+ * database configured in config.properties; db.pool.size should be at least the thread count
+ * (-Djmh.args="-jvmArgsAppend -Ddb.pool.size=40").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class StockContentionBenchmark {
+
+    private static final String BENCH_ISBN = "BENCH-HOT-0001";
+    private static final int COPIES = 1_000_000;
+
+    // 0 = single-row counter
+    @Param({"0", "16"})
+    public int shards;
+
+    private BookDAOImpl bookDAO;
+    private StockMovementDAOImpl stockMovementDAO;
+
+    @Setup
+    public void setUp() throws SQLException, BusinessException, ExistingISBNException {
+        bookDAO = new BookDAOImpl();
+        stockMovementDAO = new StockMovementDAOImpl();
+        if (bookDAO.findByIsbn(BENCH_ISBN) == null) {
+            new BookServiceImpl(bookDAO, stockMovementDAO).register(new Book(BENCH_ISBN, "Contention Benchmark",
+                    "NovaBook", "Benchmark", BigDecimal.ONE, COPIES, COPIES, true, null));
+        }
+        bookDAO.disableStockSharding(BENCH_ISBN);
+        if (shards > 0) {
+            bookDAO.enableStockSharding(BENCH_ISBN, shards);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        bookDAO.disableStockSharding(BENCH_ISBN);
+    }
+
+    // One connection per benchmark thread; loans and returns alternate so the stock stays level
+    @State(Scope.Thread)
+    public static class Client {
+        Connection conn;
+        int change = -1;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            conn.rollback();
+            conn.setAutoCommit(true);
+            conn.close();
+        }
+    }
+
+    @Benchmark
+    public boolean loanOrReturn(Client client) throws SQLException {
+        boolean updated = bookDAO.updateStock(BENCH_ISBN, client.change, client.conn);
+        if (updated) {
+            stockMovementDAO.append(new StockMovement(BENCH_ISBN, client.change, client.change < 0 ? "LOAN" : "RETURN", null),
+                    client.conn);
+            client.change = -client.change;
+        }
+        client.conn.commit();
+        return updated;
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import model.Book;
+import model.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import view.UIHelper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UIHelper text tables, built for every list screen (books, active and overdue loans).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableFormatBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int rows;
+
+    private List<Book> books;
+    private List<Loan> loans;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkData.books(rows);
+        loans = BenchmarkData.loans(rows);
+    }
+
+    @Benchmark
+    public String formatBooksTable() {
+        return UIHelper.formatBooksTable(books);
+    }
+
+    @Benchmark
+    public String formatLoansTable() {
+        return UIHelper.formatLoansTable(loans);
+    }
+}
@@ -0,0 +1,117 @@
+package dao;
+
+import benchmark.BenchmarkData;
+import model.Book;
+import model.Loan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookDAOImpl.mapResultSetToBook / LoanDAOImpl.mapResultSetToLoan over in-memory result sets
+ * (JDK CachedRowSet, which resolves column labels like a driver does). In this package because the
+ * mappers are package-private; no database needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetMapperBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    private final BookDAOImpl bookDAO = new BookDAOImpl();
+    private final LoanDAOImpl loanDAO = new LoanDAOImpl();
+    private CachedRowSet bookRows;
+    private CachedRowSet loanRows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        bookRows = newRowSet(new String[]{"isbn", "title", "author", "category", "reference_price",
+                        "total_copies", "available_copies", "is_active", "content_hash"},
+                new int[]{Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DECIMAL,
+                        Types.INTEGER, Types.INTEGER, Types.BOOLEAN, Types.VARCHAR});
+        for (Book book : BenchmarkData.books(rows)) {
+            bookRows.moveToInsertRow();
+            bookRows.updateString(1, book.getIsbn());
+            bookRows.updateString(2, book.getTitle());
+            bookRows.updateString(3, book.getAuthor());
+            bookRows.updateString(4, book.getCategory());
+            bookRows.updateBigDecimal(5, book.getReferencePrice());
+            bookRows.updateInt(6, book.getTotalCopies());
+            bookRows.updateInt(7, book.getAvailableCopies());
+            bookRows.updateBoolean(8, book.isActive());
+            bookRows.updateString(9, "0123456789abcdef0123456789abcdef");
+            bookRows.insertRow();
+        }
+        bookRows.moveToCurrentRow();
+
+        loanRows = newRowSet(new String[]{"id", "book_isbn", "partner_id", "loan_date", "due_date",
+                        "return_date", "fine", "is_returned"},
+                new int[]{Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.DATE,
+                        Types.DATE, Types.DECIMAL, Types.BOOLEAN});
+        for (Loan loan : BenchmarkData.loans(rows)) {
+            loanRows.moveToInsertRow();
+            loanRows.updateInt(1, loan.getId());
+            loanRows.updateString(2, loan.getBookIsbn());
+            loanRows.updateInt(3, loan.getPartnerId());
+            loanRows.updateTimestamp(4, loan.getLoanDate());
+            loanRows.updateDate(5, loan.getDueDate());
+            loanRows.updateNull(6);
+            loanRows.updateNull(7);
+            loanRows.updateBoolean(8, false);
+            loanRows.insertRow();
+        }
+        loanRows.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public void mapBooks(Blackhole blackhole) throws SQLException {
+        bookRows.beforeFirst();
+        while (bookRows.next()) {
+            blackhole.consume(bookDAO.mapResultSetToBook(bookRows));
+        }
+    }
+
+    @Benchmark
+    public void mapLoans(Blackhole blackhole) throws SQLException {
+        loanRows.beforeFirst();
+        while (loanRows.next()) {
+            blackhole.consume(loanDAO.mapResultSetToLoan(loanRows));
+        }
+    }
+
+    private static CachedRowSet newRowSet(String[] columns, int[] types) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+            metaData.setNullable(i + 1, RowSetMetaDataImpl.columnNullable);
+        }
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        return rowSet;
+    }
+}
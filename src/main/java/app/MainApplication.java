@@ -8,6 +8,12 @@ import view.LoginView;
 import view.PrincipalMenuView;
 import model.User;
 import util.AppLogger;
+import util.BackgroundScheduler;
+import util.ConfigLoader;
+import util.DBConnection;
+import util.FlightEvents;
+import util.MetricsRegistry;
+import util.Tracer;
 
 /**
  * Main application entry point.
@@ -22,32 +28,63 @@ public class MainApplication {
         try {
             AppLogger.logInfo("=== NovaBook System Starting ===");
 
-            // Initialize DAOs
-            IBookDAO bookDAO = new BookDAOImpl();
-            IUserDAO userDAO = new UserDAOImpl();
-            IPartnerDAO partnerDAO = new PartnerDAOImpl();
-            ILoanDAO loanDAO = new LoanDAOImpl();
-
-            // Initialize Services
-            IBookService bookService = new BookServiceImpl(bookDAO);
-            IUserService userService = new UserServiceImpl(userDAO);
-            IPartnerService partnerService = new PartnerServiceImpl(partnerDAO);
-            ILoanService loanService = new LoanServiceImpl(loanDAO, bookDAO, partnerDAO);
+            // Initialize DAOs (with jfr.daoEvents.enabled, each call emits a JFR event while a flight
+            // recording is running; each call is a span of the request's trace when the request is sampled)
+            IBookDAO bookDAO = instrument(IBookDAO.class, new BookDAOImpl());
+            IUserDAO userDAO = instrument(IUserDAO.class, new UserDAOImpl());
+            IPartnerDAO partnerDAO = instrument(IPartnerDAO.class, new PartnerDAOImpl());
+            ILoanDAO loanDAO = instrument(ILoanDAO.class, new LoanDAOImpl());
+            IStockMovementDAO stockMovementDAO = instrument(IStockMovementDAO.class, new StockMovementDAOImpl());
+            IIdempotencyDAO idempotencyDAO = instrument(IIdempotencyDAO.class, new IdempotencyDAOImpl());
+            IExportWatermarkDAO watermarkDAO = instrument(IExportWatermarkDAO.class, new ExportWatermarkDAOImpl());
+
+            // Initialize Services (traced)
+            IBookService bookService = Tracer.traced(IBookService.class, new BookServiceImpl(bookDAO, stockMovementDAO));
+            IUserService userService = Tracer.traced(IUserService.class, new UserServiceImpl(userDAO));
+            IPartnerService partnerService = Tracer.traced(IPartnerService.class, new PartnerServiceImpl(partnerDAO));
+            ILoanService loanService = Tracer.traced(ILoanService.class,
+                    new LoanServiceImpl(loanDAO, bookDAO, partnerDAO, stockMovementDAO, idempotencyDAO));
+            IStockLedgerService stockLedgerService = Tracer.traced(IStockLedgerService.class, new StockLedgerServiceImpl(stockMovementDAO));
+            IExportService exportService = Tracer.traced(IExportService.class,
+                    new ExportServiceImpl(bookDAO, loanDAO, partnerDAO, userDAO, watermarkDAO));
+            IExportJobService exportJobService = Tracer.traced(IExportJobService.class, new ExportJobServiceImpl(bookDAO, loanDAO));
 
             // Initialize Controllers
             BookController bookController = new BookController(bookService);
             UserController userController = new UserController(userService);
             PartnerController partnerController = new PartnerController(partnerService);
             LoanController loanController = new LoanController(loanService);
+            StockController stockController = new StockController(stockLedgerService);
+            ExportController exportController = new ExportController(exportService, exportJobService);
 
             AppLogger.logInfo("All dependencies initialized successfully.");
 
+            // Loan gauges for JMX (novabook:type=Loans), counted at most once per cache period
+            long gaugeCacheMillis = ConfigLoader.getIntProperty("metrics.jmx.dbGaugeCacheSeconds", 30) * 1000L;
+            MetricsRegistry.group("type=Loans")
+                    .cachedGauge("ActiveLoans", "Loans not returned yet", gaugeCacheMillis, loanService::countActiveLoans)
+                    .cachedGauge("OverdueLoans", "Active loans past their due date", gaugeCacheMillis, loanService::countOverdueLoans);
+
+            // Striped stock for the configured hot titles (no-op for titles already sharded)
+            int stockShards = ConfigLoader.getIntProperty("stock.sharding.shards", 8);
+            for (String hotIsbn : ConfigLoader.getProperty("stock.sharding.hotIsbns", "").split(",")) {
+                if (!hotIsbn.isBlank()) {
+                    bookController.enableStockSharding(hotIsbn.trim(), stockShards);
+                }
+            }
+
+            // Background jobs
+            BackgroundScheduler.scheduleEvery("stock-snapshot-compaction", stockController::compactSnapshots,
+                    ConfigLoader.getIntProperty("stock.snapshot.intervalMinutes", 15));
+            BackgroundScheduler.scheduleEvery("idempotency-key-purge", loanController::purgeExpiredIdempotencyKeys,
+                    ConfigLoader.getIntProperty("idempotency.purgeIntervalMinutes", 60));
+
             // Start Login Flow
             LoginView loginView = new LoginView(userController);
             currentUser = loginView.showLogin();
 
             if (currentUser != null) {
-                AppLogger.logSuccess("User Login", "User: " + currentUser.getUsername() + " | Role: " + currentUser.getRole());
+                AppLogger.logSuccess("User Login", "User: {} | Role: {}", currentUser.getUsername(), currentUser.getRole());
 
                 // Show Main Menu
                 PrincipalMenuView mainMenu = new PrincipalMenuView(
@@ -55,16 +92,22 @@ public class MainApplication {
                         bookController,
                         userController,
                         partnerController,
-                        loanController
+                        loanController,
+                        exportController
                 );
                 mainMenu.showMainMenu();
 
-                AppLogger.logInfo("User logged out: " + currentUser.getUsername());
+                AppLogger.logInfo("User logged out: {}", currentUser.getUsername());
             } else {
                 AppLogger.logWarning("Login cancelled by user.");
             }
 
+            exportJobService.shutdown();
+            BackgroundScheduler.shutdown();
+            DBConnection.shutdown();
+            MetricsRegistry.shutdown();
             AppLogger.logInfo("=== NovaBook System Shutdown ===");
+            AppLogger.shutdown();
 
         } catch (Exception e) {
             AppLogger.logError("Critical error in MainApplication", e);
@@ -72,6 +115,11 @@ public class MainApplication {
         }
     }
 
+    // Wraps a DAO for JFR events and tracing (each wrapper is only installed if enabled)
+    private static <T> T instrument(Class<T> type, T dao) {
+        return FlightEvents.instrument(type, Tracer.traced(type, dao));
+    }
+
     public static User getCurrentUser() {
         return currentUser;
     }
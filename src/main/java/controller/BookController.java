@@ -2,8 +2,12 @@ package controller;
 
 import service.IBookService;
 import model.Book;
+import model.ImportResult;
 import exception.BusinessException;
 import util.AppLogger;
+import util.CSVImporter;
+import util.EndpointMetrics;
+import util.EndpointTimer;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -30,13 +34,14 @@ public class BookController {
      * @throws SQLException Database access error.
      */
     public Book registerBook(Book book) throws Exception {
-        AppLogger.logHttpRequest("POST", "/NovaBook/books", "Registering book: " + book.getIsbn());
-        try {
+        AppLogger.logHttpRequest("POST", "/NovaBook/books", "Registering book: {}", book.getIsbn());
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/books")) {
             Book registered = bookService.register(book);
-            AppLogger.logSuccess("Book Registration", "ISBN: " + registered.getIsbn() + " - " + registered.getTitle());
+            AppLogger.logSuccess("Book Registration", "ISBN: {} - {}", registered.getIsbn(), registered.getTitle());
+            timer.success();
             return registered;
         } catch (Exception e) {
-            AppLogger.logError("POST /NovaBook/books - Failed to register book: " + book.getIsbn(), e);
+            AppLogger.logError("POST /NovaBook/books - Failed to register book: {}", book.getIsbn(), e);
             throw e;
         }
     }
@@ -49,15 +54,16 @@ public class BookController {
      * @throws SQLException Database access error.
      */
     public boolean updateBook(Book book) throws Exception {
-        AppLogger.logHttpRequest("PATCH", "/NovaBook/books/" + book.getIsbn(), "Updating book");
-        try {
+        AppLogger.logHttpRequest("PATCH", "/NovaBook/books/{}", "Updating book", book.getIsbn());
+        try (EndpointTimer timer = EndpointMetrics.start("PATCH /NovaBook/books/{isbn}")) {
             boolean updated = bookService.update(book);
             if (updated) {
-                AppLogger.logSuccess("Book Update", "ISBN: " + book.getIsbn());
+                AppLogger.logSuccess("Book Update", "ISBN: {}", book.getIsbn());
             }
+            timer.success();
             return updated;
         } catch (Exception e) {
-            AppLogger.logError("PATCH /NovaBook/books/" + book.getIsbn() + " - Failed", e);
+            AppLogger.logError("PATCH /NovaBook/books/{} - Failed", book.getIsbn(), e);
             throw e;
         }
     }
@@ -69,14 +75,17 @@ public class BookController {
      * @throws SQLException Database access error.
      */
     public Book findBookByIsbn(String isbn) throws SQLException {
-        AppLogger.logHttpRequest("GET", "/NovaBook/books/" + isbn, "Fetching book");
-        Book book = bookService.findByIsbn(isbn);
-        if (book != null) {
-            AppLogger.logInfo("Book found: " + book.getTitle());
-        } else {
-            AppLogger.logWarning("Book not found with ISBN: " + isbn);
+        AppLogger.logHttpRequest("GET", "/NovaBook/books/{}", "Fetching book", isbn);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books/{isbn}")) {
+            Book book = bookService.findByIsbn(isbn);
+            if (book != null) {
+                AppLogger.logInfo("Book found: {}", book.getTitle());
+            } else {
+                AppLogger.logWarning("Book not found with ISBN: {}", isbn);
+            }
+            timer.success();
+            return book;
         }
-        return book;
     }
 
     /**
@@ -86,15 +95,65 @@ public class BookController {
      * @throws SQLException Database access error.
      */
     public boolean deactivateBook(String isbn) throws SQLException {
-        AppLogger.logHttpRequest("DELETE", "/NovaBook/books/" + isbn, "Deactivating book");
-        try {
+        AppLogger.logHttpRequest("DELETE", "/NovaBook/books/{}", "Deactivating book", isbn);
+        try (EndpointTimer timer = EndpointMetrics.start("DELETE /NovaBook/books/{isbn}")) {
             boolean deactivated = bookService.updateStatus(isbn, false);
             if (deactivated) {
-                AppLogger.logSuccess("Book Deactivation", "ISBN: " + isbn);
+                AppLogger.logSuccess("Book Deactivation", "ISBN: {}", isbn);
             }
+            timer.success();
             return deactivated;
         } catch (Exception e) {
-            AppLogger.logError("DELETE /NovaBook/books/" + isbn + " - Failed", e);
+            AppLogger.logError("DELETE /NovaBook/books/{} - Failed", isbn, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Bulk import of books from a CSV file in the export layout, or a JSON Lines file (.jsonl).
+     * Rejected rows are written to a "_rejected.csv" file next to the input.
+     * @param filePath The CSV or JSON Lines file to import.
+     * @param listener Progress callback (may be null).
+     * @return Counts of inserted, updated and rejected rows.
+     * @throws Exception SQL or I/O error (invalid rows do not fail the import).
+     */
+    public ImportResult importBooks(String filePath, CSVImporter.ProgressListener listener) throws Exception {
+        AppLogger.logHttpRequest("POST", "/NovaBook/books/import", "Importing books from {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.startBatch("POST /NovaBook/books/import")) {
+            ImportResult result = bookService.importBooks(filePath, CSVImporter.rejectedFilePath(filePath), listener);
+            AppLogger.logSuccess("Book Import", "Inserted: {}, updated: {}, rejected: {} ({} ms)",
+                    result.getInserted(), result.getUpdated(), result.getRejected(), result.getElapsedMillis());
+            timer.success();
+            return result;
+        } catch (Exception e) {
+            AppLogger.logError("POST /NovaBook/books/import - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Nightly supplier sync: writes only new or changed titles (by content hash) and deactivates
+     * titles missing from the feed. Rejected rows go to a "_rejected.csv" file next to the input.
+     * @param filePath The supplier CSV file (books export layout).
+     * @param listener Progress callback (may be null).
+     * @return Counts of inserted, updated, unchanged, deactivated and rejected rows.
+     * @throws Exception SQL or I/O error (invalid rows do not fail the sync).
+     */
+    public ImportResult syncCatalog(String filePath, CSVImporter.ProgressListener listener) throws Exception {
+        AppLogger.logHttpRequest("PUT", "/NovaBook/books/catalog", "Syncing catalog from {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.startBatch("PUT /NovaBook/books/catalog")) {
+            ImportResult result = bookService.syncCatalog(filePath, CSVImporter.rejectedFilePath(filePath), listener);
+            AppLogger.logSuccess("Catalog Sync", "Inserted: {}, updated: {}, unchanged: {}, deactivated: {}, rejected: {} ({} ms)",
+                    result.getInserted(), result.getUpdated(), result.getUnchanged(), result.getDeactivated(),
+                    result.getRejected(), result.getElapsedMillis());
+            if (result.getDeactivationsSkipped() > 0) {
+                AppLogger.logWarning("Catalog Sync: {} titles missing from the feed were left active (over sync.maxDeactivationPercent).",
+                        result.getDeactivationsSkipped());
+            }
+            timer.success();
+            return result;
+        } catch (Exception e) {
+            AppLogger.logError("PUT /NovaBook/books/catalog - Failed", e);
             throw e;
         }
     }
@@ -108,9 +167,12 @@ public class BookController {
      */
     public List<Book> getAllBooks() throws SQLException {
         AppLogger.logHttpRequest("GET", "/NovaBook/books", "Fetching all books");
-        List<Book> books = bookService.findAll();
-        AppLogger.logInfo("Retrieved " + books.size() + " books");
-        return books;
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books")) {
+            List<Book> books = bookService.findAll();
+            AppLogger.logInfo("Retrieved {} books", books.size());
+            timer.success();
+            return books;
+        }
     }
 
     /**
@@ -120,9 +182,57 @@ public class BookController {
      * @throws SQLException Database access error.
      */
     public List<Book> filterBooksByCategory(String category) throws SQLException {
-        AppLogger.logHttpRequest("GET", "/NovaBook/books?category=" + category, "Filtering by category");
-        List<Book> books = bookService.filterByCategory(category);
-        AppLogger.logInfo("Found " + books.size() + " books in category: " + category);
-        return books;
+        AppLogger.logHttpRequest("GET", "/NovaBook/books?category={}", "Filtering by category", category);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books?category={category}")) {
+            List<Book> books = bookService.filterByCategory(category);
+            AppLogger.logInfo("Found {} books in category: {}", books.size(), category);
+            timer.success();
+            return books;
+        }
+    }
+
+    // --- Stock Mode Endpoints ---
+
+    /**
+     * Enables striped stock for a hot title (loans spread over several counter rows).
+     * @param isbn The ISBN of the book.
+     * @param shards Number of shards.
+     * @return True if the title was switched to striped stock.
+     * @throws Exception Business or SQL error.
+     */
+    public boolean enableStockSharding(String isbn, int shards) throws Exception {
+        AppLogger.logHttpRequest("PUT", "/NovaBook/books/{}/stock/shards", "Enabling striped stock ({} shards)", isbn, shards);
+        try (EndpointTimer timer = EndpointMetrics.start("PUT /NovaBook/books/{isbn}/stock/shards")) {
+            boolean enabled = bookService.enableStockSharding(isbn, shards);
+            if (enabled) {
+                AppLogger.logSuccess("Striped Stock Enabled", "ISBN: {} - {} shards", isbn, shards);
+            }
+            timer.success();
+            return enabled;
+        } catch (Exception e) {
+            AppLogger.logError("PUT /NovaBook/books/{}/stock/shards - Failed", isbn, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a title to the single-row stock counter.
+     * @param isbn The ISBN of the book.
+     * @return True if the title was switched back.
+     * @throws SQLException Database access error.
+     */
+    public boolean disableStockSharding(String isbn) throws SQLException {
+        AppLogger.logHttpRequest("DELETE", "/NovaBook/books/{}/stock/shards", "Disabling striped stock", isbn);
+        try (EndpointTimer timer = EndpointMetrics.start("DELETE /NovaBook/books/{isbn}/stock/shards")) {
+            boolean disabled = bookService.disableStockSharding(isbn);
+            if (disabled) {
+                AppLogger.logSuccess("Striped Stock Disabled", "ISBN: {}", isbn);
+            }
+            timer.success();
+            return disabled;
+        } catch (SQLException e) {
+            AppLogger.logError("DELETE /NovaBook/books/{}/stock/shards - Failed", isbn, e);
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package controller;
+
+import model.ExportJob;
+import service.IExportJobService;
+import service.IExportService;
+import util.AppLogger;
+import util.CSVExporter;
+import util.ColumnarExporter;
+import util.ConfigLoader;
+import util.JsonLinesExporter;
+import util.EndpointMetrics;
+import util.EndpointTimer;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Controller for data export operations (CSV files).
+ */
+public class ExportController {
+
+    private final IExportService exportService;
+    private final IExportJobService exportJobService;
+
+    public ExportController(IExportService exportService, IExportJobService exportJobService) {
+        this.exportService = exportService;
+        this.exportJobService = exportJobService;
+    }
+
+    /**
+     * Exports the whole catalog to a CSV file, streaming rows from the database.
+     * @param filePath Destination file.
+     * @param compress Whether to gzip the file while it is written.
+     * @return The number of books exported.
+     * @throws Exception SQL or I/O error.
+     */
+    public long exportBooks(String filePath, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/books.csv", "Exporting books to {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/books.csv")) {
+            long rows = exportService.exportBooksToCsv(filePath, compress);
+            AppLogger.logSuccess("Books Export", "Exported {} books to {}", rows, filePath);
+            timer.success();
+            return rows;
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/books.csv - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Exports the overdue loans to a CSV file, streaming rows from the database.
+     * @param filePath Destination file.
+     * @param compress Whether to gzip the file while it is written.
+     * @return The number of overdue loans exported.
+     * @throws Exception SQL or I/O error.
+     */
+    public long exportOverdueLoans(String filePath, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/overdue-loans.csv", "Exporting overdue loans to {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/overdue-loans.csv")) {
+            long rows = exportService.exportOverdueLoansToCsv(filePath, compress);
+            AppLogger.logSuccess("Overdue Loans Export", "Exported {} overdue loans to {}", rows, filePath);
+            timer.success();
+            return rows;
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/overdue-loans.csv - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Nightly extract: exports books and loans into a directory, each table split into
+     * key ranges exported in parallel.
+     * @param directory Destination directory (created if missing).
+     * @return The number of books and loans exported, in that order.
+     * @throws Exception SQL or I/O error.
+     */
+    public long[] exportNightlyExtract(String directory) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/nightly", "Nightly extract to {}", directory);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/nightly")) {
+            File dir = new File(directory);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            int parts = ConfigLoader.getIntProperty("export.parallelParts", 8);
+            long books = exportService.exportBooksParallel(new File(dir, "books.csv").getPath(), parts);
+            long loans = exportService.exportLoansParallel(new File(dir, "loans.csv").getPath(), parts);
+            AppLogger.logSuccess("Nightly Extract", "Exported {} books and {} loans to {}", books, loans, directory);
+            timer.success();
+            return new long[]{books, loans};
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/nightly - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Delta export: writes the books, partners and loans changed since the previous delta run
+     * into timestamped files (books_delta_yyyyMMdd_HHmmss.csv, ...) in a directory.
+     * @param directory Destination directory (created if missing).
+     * @param compress Whether to gzip the files while they are written.
+     * @return The number of books, partners and loans exported, in that order.
+     * @throws Exception SQL or I/O error.
+     */
+    public long[] exportDelta(String directory, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/delta", "Delta export to {}", directory);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/delta")) {
+            File dir = new File(directory);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            String suffix = "_delta_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
+                    + ".csv" + (compress ? CSVExporter.GZIP_SUFFIX : "");
+            long books = exportService.exportBooksDelta(new File(dir, "books" + suffix).getPath(), compress);
+            long partners = exportService.exportPartnersDelta(new File(dir, "partners" + suffix).getPath(), compress);
+            long loans = exportService.exportLoansDelta(new File(dir, "loans" + suffix).getPath(), compress);
+            AppLogger.logSuccess("Delta Export", "Exported {} books, {} partners and {} loans to {}",
+                    books, partners, loans, directory);
+            timer.success();
+            return new long[]{books, partners, loans};
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/delta - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * JSON Lines export: writes books, partners, loans and users (without passwords) into a directory,
+     * one object per line (books.jsonl, ...).
+     * @param directory Destination directory (created if missing).
+     * @param compress Whether to gzip the files while they are written.
+     * @return The number of books, partners, loans and users exported, in that order.
+     * @throws Exception SQL or I/O error.
+     */
+    public long[] exportJsonLines(String directory, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/jsonl", "JSON Lines export to {}", directory);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/jsonl")) {
+            File dir = new File(directory);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            String suffix = JsonLinesExporter.FILE_EXTENSION + (compress ? CSVExporter.GZIP_SUFFIX : "");
+            long books = exportService.exportBooksJson(new File(dir, "books" + suffix).getPath(), compress);
+            long partners = exportService.exportPartnersJson(new File(dir, "partners" + suffix).getPath(), compress);
+            long loans = exportService.exportLoansJson(new File(dir, "loans" + suffix).getPath(), compress);
+            long users = exportService.exportUsersJson(new File(dir, "users" + suffix).getPath(), compress);
+            AppLogger.logSuccess("JSON Lines Export", "Exported {} books, {} partners, {} loans and {} users to {}",
+                    books, partners, loans, users, directory);
+            timer.success();
+            return new long[]{books, partners, loans, users};
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/jsonl - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Analytics snapshot: writes books.nbc and loans.nbc (columnar format) into a directory.
+     * @param directory Destination directory (created if missing).
+     * @return The number of books and loans exported, in that order.
+     * @throws Exception SQL or I/O error.
+     */
+    public long[] exportAnalyticsSnapshot(String directory) throws Exception {
+        AppLogger.logHttpRequest("GET", "/NovaBook/exports/snapshot", "Columnar snapshot to {}", directory);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/exports/snapshot")) {
+            File dir = new File(directory);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            long books = exportService.exportBooksColumnar(new File(dir, "books" + ColumnarExporter.FILE_EXTENSION).getPath());
+            long loans = exportService.exportLoansColumnar(new File(dir, "loans" + ColumnarExporter.FILE_EXTENSION).getPath());
+            AppLogger.logSuccess("Columnar Snapshot", "Exported {} books and {} loans to {}", books, loans, directory);
+            timer.success();
+            return new long[]{books, loans};
+        } catch (Exception e) {
+            AppLogger.logError("GET /NovaBook/exports/snapshot - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a background export of the whole catalog.
+     * @param filePath Destination file.
+     * @param compress Whether to gzip the file while it is written.
+     * @return The queued job (progress is updated while it runs).
+     * @throws Exception If the job queue is full.
+     */
+    public ExportJob submitBooksExport(String filePath, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("POST", "/NovaBook/export-jobs/books", "Queueing books export to {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/export-jobs/books")) {
+            ExportJob job = exportJobService.submitBooksExport(filePath, compress);
+            AppLogger.logSuccess("Export Job Queued", "Job #{}: books to {}", job.getId(), filePath);
+            timer.success();
+            return job;
+        } catch (Exception e) {
+            AppLogger.logError("POST /NovaBook/export-jobs/books - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a background export of the overdue loans.
+     * @param filePath Destination file.
+     * @param compress Whether to gzip the file while it is written.
+     * @return The queued job (progress is updated while it runs).
+     * @throws Exception If the job queue is full.
+     */
+    public ExportJob submitOverdueLoansExport(String filePath, boolean compress) throws Exception {
+        AppLogger.logHttpRequest("POST", "/NovaBook/export-jobs/overdue-loans", "Queueing overdue loans export to {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/export-jobs/overdue-loans")) {
+            ExportJob job = exportJobService.submitOverdueLoansExport(filePath, compress);
+            AppLogger.logSuccess("Export Job Queued", "Job #{}: overdue loans to {}", job.getId(), filePath);
+            timer.success();
+            return job;
+        } catch (Exception e) {
+            AppLogger.logError("POST /NovaBook/export-jobs/overdue-loans - Failed", e);
+            throw e;
+        }
+    }
+
+    /**
+     * Lists queued, running and recently finished export jobs.
+     * @return The jobs, oldest first.
+     */
+    public List<ExportJob> listExportJobs() {
+        AppLogger.logHttpRequest("GET", "/NovaBook/export-jobs", "Fetching export jobs");
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/export-jobs")) {
+            List<ExportJob> jobs = exportJobService.listJobs();
+            timer.success();
+            return jobs;
+        }
+    }
+
+    /**
+     * Cancels a queued or running export job.
+     * @param jobId Job to cancel.
+     * @throws Exception If the job does not exist or has already finished.
+     */
+    public void cancelExportJob(int jobId) throws Exception {
+        AppLogger.logHttpRequest("DELETE", "/NovaBook/export-jobs/{}", "Cancelling export job", jobId);
+        try (EndpointTimer timer = EndpointMetrics.start("DELETE /NovaBook/export-jobs/{id}")) {
+            exportJobService.cancel(jobId);
+            AppLogger.logSuccess("Export Job Cancel", "Cancellation requested for job #{}", jobId);
+            timer.success();
+        } catch (Exception e) {
+            AppLogger.logError("DELETE /NovaBook/export-jobs/{} - Failed", jobId, e);
+            throw e;
+        }
+    }
+}
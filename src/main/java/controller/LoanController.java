@@ -5,6 +5,8 @@ import service.impl.LoanServiceImpl;
 import dao.LoanDAOImpl;
 import model.Loan;
 import exception.BusinessException;
+import util.EndpointMetrics;
+import util.EndpointTimer;
 
 import java.sql.Date;
 import java.sql.SQLException;
@@ -32,8 +34,28 @@ public class LoanController {
      * @throws Exception Business or SQL error.
      */
     public Loan registerLoan(Loan loan) throws Exception {
-        // The service layer handles all business logic and the JDBC transaction.
-        return loanService.registerLoan(loan);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/loans")) {
+            // The service layer handles all business logic and the JDBC transaction.
+            Loan registered = loanService.registerLoan(loan);
+            timer.success();
+            return registered;
+        }
+    }
+
+    /**
+     * 1b. Registers a new loan with an idempotency key. Clients retrying after a timeout
+     * send the same key and get the original loan back instead of a second loan.
+     * @param loan The Loan object containing partner ID and book ISBN.
+     * @param idempotencyKey Client-generated key identifying this request (max 64 chars).
+     * @return The registered (or previously registered) Loan object.
+     * @throws Exception Business or SQL error.
+     */
+    public Loan registerLoan(Loan loan, String idempotencyKey) throws Exception {
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/loans")) {
+            Loan registered = loanService.registerLoan(loan, idempotencyKey);
+            timer.success();
+            return registered;
+        }
     }
 
     /**
@@ -44,8 +66,42 @@ public class LoanController {
      * @throws Exception Business or SQL error (including overdue fines).
      */
     public boolean processReturn(int loanId, Date returnDate) throws Exception {
-        // The service layer handles transaction, fine calculation, and stock update.
-        return loanService.processReturn(loanId, returnDate);
+        try (EndpointTimer timer = EndpointMetrics.start("PATCH /NovaBook/loans/{id}/return")) {
+            // The service layer handles transaction, fine calculation, and stock update.
+            boolean returned = loanService.processReturn(loanId, returnDate);
+            timer.success();
+            return returned;
+        }
+    }
+
+    /**
+     * 2b. Processes a return with an idempotency key. A retried request with the same key
+     * succeeds without hitting the "already returned" error.
+     * @param loanId The ID of the loan to close.
+     * @param returnDate The actual return date.
+     * @param idempotencyKey Client-generated key identifying this request (max 64 chars).
+     * @return True if the return was (or had already been) processed.
+     * @throws Exception Business or SQL error.
+     */
+    public boolean processReturn(int loanId, Date returnDate, String idempotencyKey) throws Exception {
+        try (EndpointTimer timer = EndpointMetrics.start("PATCH /NovaBook/loans/{id}/return")) {
+            boolean returned = loanService.processReturn(loanId, returnDate, idempotencyKey);
+            timer.success();
+            return returned;
+        }
+    }
+
+    /**
+     * Removes expired idempotency keys (called by the background scheduler).
+     * @return The number of keys removed.
+     * @throws SQLException Database access error.
+     */
+    public int purgeExpiredIdempotencyKeys() throws SQLException {
+        try (EndpointTimer timer = EndpointMetrics.start("DELETE /NovaBook/idempotency-keys?expired=true")) {
+            int purged = loanService.purgeExpiredIdempotencyKeys();
+            timer.success();
+            return purged;
+        }
     }
 
     // --- Reporting Endpoints ---
@@ -56,7 +112,11 @@ public class LoanController {
      * @throws SQLException Database access error.
      */
     public List<Loan> getActiveLoans() throws SQLException {
-        return loanService.findActiveLoans();
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/loans?status=active")) {
+            List<Loan> loans = loanService.findActiveLoans();
+            timer.success();
+            return loans;
+        }
     }
 
     /**
@@ -65,6 +125,10 @@ public class LoanController {
      * @throws SQLException Database access error.
      */
     public List<Loan> getOverdueLoans() throws SQLException {
-        return loanService.findOverdueLoans();
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/loans?status=overdue")) {
+            List<Loan> loans = loanService.findOverdueLoans();
+            timer.success();
+            return loans;
+        }
     }
 }
\ No newline at end of file
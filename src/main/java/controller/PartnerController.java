@@ -1,8 +1,13 @@
 package controller;
 
 import service.IPartnerService;
+import model.ImportResult;
 import model.Partner;
 import exception.BusinessException;
+import util.AppLogger;
+import util.CSVImporter;
+import util.EndpointMetrics;
+import util.EndpointTimer;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -25,7 +30,11 @@ public class PartnerController {
      * @throws SQLException Database access error.
      */
     public Partner registerPartner(Partner partner) throws BusinessException, SQLException {
-        return partnerService.register(partner);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/partners")) {
+            Partner registered = partnerService.register(partner);
+            timer.success();
+            return registered;
+        }
     }
 
     /**
@@ -36,7 +45,11 @@ public class PartnerController {
      * @throws SQLException Database access error.
      */
     public boolean updatePartner(Partner partner) throws BusinessException, SQLException {
-        return partnerService.update(partner);
+        try (EndpointTimer timer = EndpointMetrics.start("PATCH /NovaBook/partners/{id}")) {
+            boolean updated = partnerService.update(partner);
+            timer.success();
+            return updated;
+        }
     }
 
     /**
@@ -46,7 +59,11 @@ public class PartnerController {
      * @throws SQLException Database access error.
      */
     public Partner findPartnerById(int id) throws SQLException {
-        return partnerService.findById(id);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/partners/{id}")) {
+            Partner partner = partnerService.findById(id);
+            timer.success();
+            return partner;
+        }
     }
 
     /**
@@ -55,6 +72,32 @@ public class PartnerController {
      * @throws SQLException Database access error.
      */
     public List<Partner> getAllPartners() throws SQLException {
-        return partnerService.findAll();
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/partners")) {
+            List<Partner> partners = partnerService.findAll();
+            timer.success();
+            return partners;
+        }
     }
-}
\ No newline at end of file
+
+    /**
+     * Bulk import of partners from a CSV file in the partners layout, or a JSON Lines file (.jsonl).
+     * Rejected rows are written to a "_rejected.csv" file next to the input.
+     * @param filePath The CSV or JSON Lines file to import.
+     * @param listener Progress callback (may be null).
+     * @return Counts of inserted, updated and rejected rows.
+     * @throws Exception SQL or I/O error (invalid rows do not fail the import).
+     */
+    public ImportResult importPartners(String filePath, CSVImporter.ProgressListener listener) throws Exception {
+        AppLogger.logHttpRequest("POST", "/NovaBook/partners/import", "Importing partners from {}", filePath);
+        try (EndpointTimer timer = EndpointMetrics.startBatch("POST /NovaBook/partners/import")) {
+            ImportResult result = partnerService.importPartners(filePath, CSVImporter.rejectedFilePath(filePath), listener);
+            AppLogger.logSuccess("Partner Import", "Inserted: {}, updated: {}, rejected: {} ({} ms)",
+                    result.getInserted(), result.getUpdated(), result.getRejected(), result.getElapsedMillis());
+            timer.success();
+            return result;
+        } catch (Exception e) {
+            AppLogger.logError("POST /NovaBook/partners/import - Failed", e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package controller;
+
+import service.IStockLedgerService;
+import model.StockMovement;
+import util.AppLogger;
+import util.EndpointMetrics;
+import util.EndpointTimer;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Controller for the stock movement ledger (history and point-in-time availability).
+ */
+public class StockController {
+
+    private final IStockLedgerService stockLedgerService;
+
+    public StockController(IStockLedgerService stockLedgerService) {
+        this.stockLedgerService = stockLedgerService;
+    }
+
+    /**
+     * Retrieves every stock movement (loan, return, adjustment) of a book.
+     * @param isbn The ISBN of the book.
+     * @return List of StockMovement objects, oldest first.
+     * @throws SQLException Database access error.
+     */
+    public List<StockMovement> getStockHistory(String isbn) throws SQLException {
+        AppLogger.logHttpRequest("GET", "/NovaBook/books/{}/stock/movements", "Fetching stock history", isbn);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books/{isbn}/stock/movements")) {
+            List<StockMovement> movements = stockLedgerService.getHistory(isbn);
+            AppLogger.logInfo("Retrieved {} stock movements for ISBN: {}", movements.size(), isbn);
+            timer.success();
+            return movements;
+        }
+    }
+
+    /**
+     * Reconstructs the availability of a book at a point in time.
+     * @param isbn The ISBN of the book.
+     * @param at The instant to reconstruct.
+     * @return The available copies at that instant.
+     * @throws SQLException Database access error.
+     */
+    public int getAvailabilityAt(String isbn, Timestamp at) throws SQLException {
+        AppLogger.logHttpRequest("GET", "/NovaBook/books/{}/stock?at={}", "Reconstructing availability", isbn, at);
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books/{isbn}/stock?at={at}")) {
+            int available = stockLedgerService.getAvailabilityAt(isbn, at);
+            timer.success();
+            return available;
+        }
+    }
+
+    /**
+     * Compacts the ledger into snapshots (normally triggered by the background scheduler).
+     * @return The number of snapshot rows written.
+     * @throws SQLException Database access error.
+     */
+    public int compactSnapshots() throws SQLException {
+        AppLogger.logHttpRequest("POST", "/NovaBook/stock/snapshots", "Compacting stock ledger");
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/stock/snapshots")) {
+            int written = stockLedgerService.compactSnapshots();
+            AppLogger.logSuccess("Stock Snapshot Compaction", "{} snapshot(s) written", written);
+            timer.success();
+            return written;
+        } catch (SQLException e) {
+            AppLogger.logError("POST /NovaBook/stock/snapshots - Failed", e);
+            throw e;
+        }
+    }
+}
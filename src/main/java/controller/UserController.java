@@ -3,6 +3,8 @@ package controller;
 import service.IUserService;
 import model.User;
 import exception.BusinessException;
+import util.EndpointMetrics;
+import util.EndpointTimer;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -26,7 +28,11 @@ public class UserController {
      * @throws SQLException Database access error.
      */
     public User login(String username, String password) throws BusinessException, SQLException {
-        return userService.login(username, password);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/auth/login")) {
+            User user = userService.login(username, password);
+            timer.success();
+            return user;
+        }
     }
 
     /**
@@ -37,7 +43,11 @@ public class UserController {
      * @throws SQLException Database access error.
      */
     public User registerUser(User user) throws BusinessException, SQLException {
-        return userService.register(user);
+        try (EndpointTimer timer = EndpointMetrics.start("POST /NovaBook/users")) {
+            User registered = userService.register(user);
+            timer.success();
+            return registered;
+        }
     }
 
     /**
@@ -46,7 +56,11 @@ public class UserController {
      * @throws SQLException Database access error.
      */
     public List<User> getAllUsers() throws SQLException {
-        return userService.findAll();
+        try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/users")) {
+            List<User> users = userService.findAll();
+            timer.success();
+            return users;
+        }
     }
 
     // NOTE: Update and FindById methods are typically included as well.
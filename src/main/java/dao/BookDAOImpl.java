@@ -2,29 +2,76 @@ package dao;
 
 import model.Book;
 import util.DBConnection;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class BookDAOImpl implements IBookDAO {
 
     // SQL Statements
-    private static final String INSERT_SQL = "INSERT INTO books (isbn, title, author, category, reference_price, total_copies, available_copies, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-    private static final String FIND_BY_ISBN_SQL = "SELECT * FROM books WHERE isbn = ?";
-    private static final String FIND_ALL_SQL = "SELECT * FROM books";
-    private static final String UPDATE_SQL = "UPDATE books SET title = ?, author = ?, category = ?, reference_price = ?, total_copies = ?, available_copies = ?, is_active = ? WHERE isbn = ?";
-    private static final String UPDATE_STATUS_SQL = "UPDATE books SET is_active = ? WHERE isbn = ?";
+    private static final String INSERT_SQL = "INSERT INTO books (isbn, title, author, category, reference_price, total_copies, available_copies, is_active, content_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Sharded titles keep their stock in book_stock_shards; the projection sums the shards
+    // so every reader sees the same available_copies column regardless of the stock mode.
+    private static final String SELECT_BOOK_SQL = "SELECT b.isbn, b.title, b.author, b.category, b.reference_price, b.total_copies, b.is_active, b.created_at, b.content_hash, " +
+            "CASE WHEN b.stock_sharded THEN (SELECT COALESCE(SUM(s.available_copies), 0) FROM book_stock_shards s WHERE s.book_isbn = b.isbn) " +
+            "ELSE b.available_copies END AS available_copies FROM books b";
+    private static final String FIND_BY_ISBN_SQL = SELECT_BOOK_SQL + " WHERE b.isbn = ?";
+    private static final String FIND_ALL_SQL = SELECT_BOOK_SQL;
+    private static final String UPDATE_SQL = "UPDATE books SET title = ?, author = ?, category = ?, reference_price = ?, total_copies = ?, available_copies = ?, is_active = ?, content_hash = ? WHERE isbn = ?";
+    // Any change not coming from the supplier feed clears the content hash, so the next sync rewrites the row
+    private static final String UPDATE_STATUS_SQL = "UPDATE books SET is_active = ?, content_hash = NULL WHERE isbn = ?";
 
     // CRITICAL FIX: The SQL for stock update is now part of the Loan transaction.
     // Includes an explicit check (AND available_copies >= -?) to prevent negative stock
     // (-change ensures that if change is -1 (a loan), we check if available_copies >= 1)
-    private static final String UPDATE_STOCK_SQL = "UPDATE books SET available_copies = available_copies + ? WHERE isbn = ? AND available_copies >= -?";
+    // The stock_sharded guard makes a stale shard registry fail safely instead of touching the wrong counter.
+    private static final String UPDATE_STOCK_SQL = "UPDATE books SET available_copies = available_copies + ? WHERE isbn = ? AND available_copies >= -? AND stock_sharded = FALSE";
+
+    // Catalog sync
+    private static final String FIND_CONTENT_HASHES_SQL = "SELECT isbn, content_hash FROM books WHERE isbn IN ";
+    private static final String COUNT_ALL_SQL = "SELECT COUNT(*) FROM books";
+    private static final String FIND_ACTIVE_ISBNS_SQL = "SELECT isbn FROM books WHERE is_active = TRUE";
+
+    private static final String FIND_BY_CATEGORY_SQL = SELECT_BOOK_SQL + " WHERE b.category = ? AND b.is_active = TRUE";
+    private static final String FIND_BY_AUTHOR_SQL = SELECT_BOOK_SQL + " WHERE b.author = ? AND b.is_active = TRUE";
+
+    // Key ranges for parallel exports: NTILE buckets over the primary key index
+    private static final String FIND_ISBN_RANGES_SQL = "SELECT MIN(isbn) AS first_isbn, MAX(isbn) AS last_isbn " +
+            "FROM (SELECT isbn, NTILE(?) OVER (ORDER BY isbn) AS bucket FROM books) t GROUP BY bucket ORDER BY bucket";
+    private static final String FIND_RANGE_SQL = SELECT_BOOK_SQL + " WHERE b.isbn BETWEEN ? AND ? ORDER BY b.isbn";
 
-    private static final String FIND_BY_CATEGORY_SQL = "SELECT * FROM books WHERE category = ? AND is_active = TRUE";
-    private static final String FIND_BY_AUTHOR_SQL = "SELECT * FROM books WHERE author = ? AND is_active = TRUE";
+    // Delta exports: a sharded title's stock lives in book_stock_shards, so shard changes count too
+    private static final String FIND_CHANGED_SQL = SELECT_BOOK_SQL + " WHERE (b.updated_at > ? AND b.updated_at <= ?) " +
+            "OR b.isbn IN (SELECT s.book_isbn FROM book_stock_shards s WHERE s.updated_at > ? AND s.updated_at <= ?)";
 
-    // Utility method to map ResultSet to a Book object
-    private Book mapResultSetToBook(ResultSet rs) throws SQLException {
+    // Striped stock (hot titles)
+    private static final String FIND_SHARDED_SQL = "SELECT book_isbn, COUNT(*) AS shards FROM book_stock_shards GROUP BY book_isbn";
+    private static final String COUNT_SHARDS_SQL = "SELECT COUNT(*) FROM book_stock_shards WHERE book_isbn = ?";
+    private static final String FIND_SHARD_STOCK_SQL = "SELECT shard_no, available_copies FROM book_stock_shards WHERE book_isbn = ?";
+    private static final String LOCK_SHARD_STOCK_SQL = FIND_SHARD_STOCK_SQL + " ORDER BY shard_no FOR UPDATE";
+    private static final String UPDATE_SHARD_STOCK_SQL = "UPDATE book_stock_shards SET available_copies = available_copies + ? WHERE book_isbn = ? AND shard_no = ? AND available_copies >= -?";
+    private static final String LOCK_BOOK_STOCK_SQL = "SELECT available_copies, stock_sharded FROM books WHERE isbn = ? FOR UPDATE";
+    private static final String SUM_SHARDS_FOR_UPDATE_SQL = "SELECT COALESCE(SUM(available_copies), 0) FROM book_stock_shards WHERE book_isbn = ? FOR UPDATE";
+    private static final String INSERT_SHARD_SQL = "INSERT INTO book_stock_shards (book_isbn, shard_no, available_copies) VALUES (?, ?, ?)";
+    private static final String DELETE_SHARDS_SQL = "DELETE FROM book_stock_shards WHERE book_isbn = ?";
+    private static final String SET_SHARDED_SQL = "UPDATE books SET stock_sharded = ?, available_copies = ? WHERE isbn = ?";
+
+    // Shard registry: ISBN -> number of shards. Loaded lazily and corrected whenever a
+    // guarded UPDATE reveals it is stale (another terminal may have changed the mode).
+    private final Map<String, Integer> shardedBooks = new ConcurrentHashMap<>();
+    private volatile boolean shardRegistryLoaded = false;
+
+    // Utility method to map ResultSet to a Book object (package-private for the mapper benchmark)
+    Book mapResultSetToBook(ResultSet rs) throws SQLException {
         Book book = new Book();
         book.setIsbn(rs.getString("isbn"));
         book.setTitle(rs.getString("title"));
@@ -34,13 +81,21 @@ public class BookDAOImpl implements IBookDAO {
         book.setTotalCopies(rs.getInt("total_copies"));
         book.setAvailableCopies(rs.getInt("available_copies"));
         book.setActive(rs.getBoolean("is_active"));
+        book.setContentHash(rs.getString("content_hash"));
         return book;
     }
 
     @Override
     public Book insert(Book book) throws SQLException {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return insert(book, conn);
+        }
+    }
+
+    @Override
+    public Book insert(Book book, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
 
             // ... (parameters setting remains the same)
             ps.setString(1, book.getIsbn());
@@ -51,12 +106,159 @@ public class BookDAOImpl implements IBookDAO {
             ps.setInt(6, book.getTotalCopies());
             ps.setInt(7, book.getAvailableCopies());
             ps.setBoolean(8, book.isActive());
+            ps.setString(9, book.getContentHash());
 
             ps.executeUpdate();
             return book;
         }
     }
 
+    @Override
+    public Map<String, Book> findByIsbnsForUpdate(Collection<String> isbns, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        Map<String, Book> books = new HashMap<>();
+        if (isbns.isEmpty()) {
+            return books;
+        }
+        String sql = SELECT_BOOK_SQL + " WHERE b.isbn IN (" + placeholders(isbns.size()) + ") FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (String isbn : isbns) {
+                ps.setString(index++, isbn);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Book book = mapResultSetToBook(rs);
+                    books.put(book.getIsbn(), book);
+                }
+            }
+        }
+        // The row lock does not cover book_stock_shards: lock the shards of sharded titles too,
+        // and take their availability from the locked rows rather than the snapshot sum
+        for (Book book : books.values()) {
+            if (shardCount(book.getIsbn(), conn) != null) {
+                book.setAvailableCopies(sum(lockShards(book.getIsbn(), conn)));
+            }
+        }
+        return books;
+    }
+
+    @Override
+    public Map<String, String> findContentHashes(Collection<String> isbns) throws SQLException {
+        // Plain read without locks: unchanged titles must cost nothing but this lookup
+        Map<String, String> hashes = new HashMap<>();
+        if (isbns.isEmpty()) {
+            return hashes;
+        }
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_CONTENT_HASHES_SQL + "(" + placeholders(isbns.size()) + ")")) {
+
+            int index = 1;
+            for (String isbn : isbns) {
+                ps.setString(index++, isbn);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    hashes.put(rs.getString("isbn"), rs.getString("content_hash"));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    @Override
+    public long streamActiveIsbns(RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_ACTIVE_ISBNS_SQL)) {
+
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public int updateStatusBatch(List<String> isbns, boolean isActive) throws SQLException {
+        if (isbns.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS_SQL)) {
+
+            for (String isbn : isbns) {
+                ps.setBoolean(1, isActive);
+                ps.setString(2, isbn);
+                ps.addBatch();
+            }
+            int updated = 0;
+            for (int count : ps.executeBatch()) {
+                // Rewritten batches report SUCCESS_NO_INFO (-2) instead of per-row counts
+                updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public void insertBatch(List<Book> books, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        if (books.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (Book book : books) {
+                ps.setString(1, book.getIsbn());
+                ps.setString(2, book.getTitle());
+                ps.setString(3, book.getAuthor());
+                ps.setString(4, book.getCategory());
+                ps.setBigDecimal(5, book.getReferencePrice());
+                ps.setInt(6, book.getTotalCopies());
+                ps.setInt(7, book.getAvailableCopies());
+                ps.setBoolean(8, book.isActive());
+                ps.setString(9, book.getContentHash());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Override
+    public void updateBatch(List<Book> books, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        List<Book> plain = new ArrayList<>();
+        for (Book book : books) {
+            if (shardCount(book.getIsbn(), conn) != null) {
+                update(book, conn); // Striped stock is redistributed row by row
+            } else {
+                plain.add(book);
+            }
+        }
+        if (plain.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
+            for (Book book : plain) {
+                ps.setString(1, book.getTitle());
+                ps.setString(2, book.getAuthor());
+                ps.setString(3, book.getCategory());
+                ps.setBigDecimal(4, book.getReferencePrice());
+                ps.setInt(5, book.getTotalCopies());
+                ps.setInt(6, book.getAvailableCopies());
+                ps.setBoolean(7, book.isActive());
+                ps.setString(8, book.getContentHash());
+                ps.setString(9, book.getIsbn());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     @Override
     public Book findByIsbn(String isbn) throws SQLException {
         try (Connection conn = DBConnection.getConnection();
@@ -87,9 +289,114 @@ public class BookDAOImpl implements IBookDAO {
     }
 
     @Override
-    public boolean update(Book book) throws SQLException {
+    public long streamAll(RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
         try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_ALL_SQL)) {
+
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long countAll() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(COUNT_ALL_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public List<String[]> findIsbnRanges(int parts) throws SQLException {
+        List<String[]> ranges = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_ISBN_RANGES_SQL)) {
+
+            ps.setInt(1, parts);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ranges.add(new String[]{rs.getString("first_isbn"), rs.getString("last_isbn")});
+                }
+            }
+        }
+        return ranges;
+    }
+
+    @Override
+    public long streamRange(String fromIsbn, String toIsbn, RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_RANGE_SQL)) {
+
+            ps.setString(1, fromIsbn);
+            ps.setString(2, toIsbn);
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_CHANGED_SQL)) {
+
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            ps.setTimestamp(3, from);
+            ps.setTimestamp(4, to);
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public boolean update(Book book) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return update(book, conn);
+        }
+    }
+
+    @Override
+    public boolean update(Book book, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        Integer shards = shardCount(book.getIsbn(), conn);
+        if (shards != null) {
+            // Sharded title: the books row keeps 0 and the shards move by the change in availability
+            Book row = copyWithAvailable(book, 0);
+            boolean updated = updateRow(row, conn);
+            if (updated) {
+                adjustShards(book.getIsbn(), book.getAvailableCopies(), conn);
+            }
+            return updated;
+        }
+        return updateRow(book, conn);
+    }
+
+    private boolean updateRow(Book book, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SQL)) {
 
             // ... (parameters setting remains the same)
             ps.setString(1, book.getTitle());
@@ -99,7 +406,8 @@ public class BookDAOImpl implements IBookDAO {
             ps.setInt(5, book.getTotalCopies());
             ps.setInt(6, book.getAvailableCopies());
             ps.setBoolean(7, book.isActive());
-            ps.setString(8, book.getIsbn()); // WHERE clause
+            ps.setString(8, book.getContentHash());
+            ps.setString(9, book.getIsbn()); // WHERE clause
 
             return ps.executeUpdate() > 0;
         }
@@ -109,19 +417,322 @@ public class BookDAOImpl implements IBookDAO {
     // CRITICAL FIX: The method now accepts the Connection object
     public boolean updateStock(String isbn, int change, Connection conn) throws SQLException {
         // NOTE: The Connection is managed (opened/closed/commit/rollback) by the Service layer.
+        Integer shards = shardCount(isbn, conn);
+        if (shards != null) {
+            if (updateShardedStock(isbn, change, shards, conn)) {
+                return true;
+            }
+            // Out of stock, or the registry is stale (another terminal changed the stock mode)
+            Integer refreshed = refreshShardCount(isbn, conn);
+            if (refreshed != null) {
+                return !refreshed.equals(shards) && updateShardedStock(isbn, change, refreshed, conn);
+            }
+            // No longer sharded: fall through to the single-row counter
+        }
+
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_STOCK_SQL)) {
 
             ps.setInt(1, change);             // 1. The value to add/subtract (+1 for return, -1 for loan)
             ps.setString(2, isbn);            // 2. The ISBN for the WHERE clause
             ps.setInt(3, -change);            // 3. CRITICAL: The availability check (e.g., if change is -1, check is >= 1)
 
-            // If executeUpdate returns 0, it means either the ISBN didn't exist OR the
-            // availability check (available_copies >= -change) failed (e.g., stock was 0 when loaning).
-            return ps.executeUpdate() > 0;
+            // If executeUpdate returns 0, it means either the ISBN didn't exist, the
+            // availability check (available_copies >= -change) failed (e.g., stock was 0 when loaning)
+            // or the title has been sharded by another terminal.
+            if (ps.executeUpdate() > 0) {
+                return true;
+            }
         }
+
+        if (shards == null) {
+            Integer refreshed = refreshShardCount(isbn, conn);
+            if (refreshed != null) {
+                return updateShardedStock(isbn, change, refreshed, conn);
+            }
+        }
+        return false;
         // No catch/finally block for connection management, it's handled in the Service layer
     }
 
+    /**
+     * Applies a stock change to one shard of a hot title.
+     * Loans try a random shard first (one statement while the title is well stocked); if it is empty they
+     * read the shard levels without locking and try the non-empty shards in random order, so concurrent
+     * loans on the same title usually lock different rows. Returns go to a random shard.
+     */
+    private boolean updateShardedStock(String isbn, int change, int shards, Connection conn) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (applyShardChange(isbn, random.nextInt(shards), change, conn)) {
+            return true;
+        }
+        if (change >= 0) {
+            return false; // The shard row is gone: the registry is stale
+        }
+
+        // Candidate shards with enough copies (consistent read, no locks taken)
+        int[] candidates = new int[shards];
+        int count = 0;
+        try (PreparedStatement ps = conn.prepareStatement(FIND_SHARD_STOCK_SQL)) {
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && count < shards) {
+                    if (rs.getInt("available_copies") >= -change) {
+                        candidates[count++] = rs.getInt("shard_no");
+                    }
+                }
+            }
+        }
+
+        // Random start, then walk the candidates (a shard may have been drained concurrently)
+        int start = count > 0 ? random.nextInt(count) : 0;
+        for (int i = 0; i < count; i++) {
+            if (applyShardChange(isbn, candidates[(start + i) % count], change, conn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean applyShardChange(String isbn, int shardNo, int change, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SHARD_STOCK_SQL)) {
+            ps.setInt(1, change);
+            ps.setString(2, isbn);
+            ps.setInt(3, shardNo);
+            ps.setInt(4, -change);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public boolean enableStockSharding(String isbn, int shards) throws SQLException {
+        if (shards < 2) {
+            throw new IllegalArgumentException("Stock sharding needs at least 2 shards.");
+        }
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            int available;
+            try (PreparedStatement ps = conn.prepareStatement(LOCK_BOOK_STOCK_SQL)) {
+                ps.setString(1, isbn);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || rs.getBoolean("stock_sharded")) {
+                        conn.rollback();
+                        return false; // Unknown ISBN or already sharded
+                    }
+                    available = rs.getInt("available_copies");
+                }
+            }
+
+            distributeShards(isbn, available, shards, conn);
+            setShardedFlag(isbn, true, 0, conn);
+
+            conn.commit();
+            shardedBooks.put(isbn, shards);
+            return true;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    @Override
+    public boolean disableStockSharding(String isbn) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(LOCK_BOOK_STOCK_SQL)) {
+                ps.setString(1, isbn);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean("stock_sharded")) {
+                        conn.rollback();
+                        shardedBooks.remove(isbn);
+                        return false; // Unknown ISBN or not sharded
+                    }
+                }
+            }
+
+            // Fold the shards back into the books row
+            int available;
+            try (PreparedStatement ps = conn.prepareStatement(SUM_SHARDS_FOR_UPDATE_SQL)) {
+                ps.setString(1, isbn);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    available = rs.getInt(1);
+                }
+            }
+            setShardedFlag(isbn, false, available, conn);
+            try (PreparedStatement ps = conn.prepareStatement(DELETE_SHARDS_SQL)) {
+                ps.setString(1, isbn);
+                ps.executeUpdate();
+            }
+
+            conn.commit();
+            shardedBooks.remove(isbn);
+            return true;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // Splits 'available' evenly across the shards (the first shards take the remainder)
+    private void distributeShards(String isbn, int available, int shards, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SHARD_SQL)) {
+            for (int shard = 0; shard < shards; shard++) {
+                ps.setString(1, isbn);
+                ps.setInt(2, shard);
+                ps.setInt(3, available / shards + (shard < available % shards ? 1 : 0));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Brings the shards of a title to a new total by applying the difference to the locked shard rows
+     * (increments spread evenly, decrements taken from the fullest shards), so loans and returns that
+     * landed on individual shards are kept.
+     */
+    private void adjustShards(String isbn, int available, Connection conn) throws SQLException {
+        int[] levels = lockShards(isbn, conn);
+        int delta = available - sum(levels);
+        if (delta == 0 || levels.length == 0) {
+            return;
+        }
+        int[] changes = new int[levels.length];
+        if (delta > 0) {
+            for (int shard = 0; shard < levels.length; shard++) {
+                changes[shard] = delta / levels.length + (shard < delta % levels.length ? 1 : 0);
+            }
+        } else {
+            for (int remaining = -delta; remaining > 0; remaining--) {
+                int fullest = 0;
+                for (int shard = 1; shard < levels.length; shard++) {
+                    if (levels[shard] + changes[shard] > levels[fullest] + changes[fullest]) {
+                        fullest = shard;
+                    }
+                }
+                changes[fullest]--;
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_SHARD_STOCK_SQL)) {
+            for (int shard = 0; shard < levels.length; shard++) {
+                if (changes[shard] != 0) {
+                    ps.setInt(1, changes[shard]);
+                    ps.setString(2, isbn);
+                    ps.setInt(3, shard);
+                    ps.setInt(4, -changes[shard]);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Locks the shard rows of a title (in shard order, like every other shard lock) and returns their levels
+    private int[] lockShards(String isbn, Connection conn) throws SQLException {
+        List<Integer> levels = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(LOCK_SHARD_STOCK_SQL)) {
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    levels.add(rs.getInt("available_copies"));
+                }
+            }
+        }
+        return levels.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int sum(int[] levels) {
+        int total = 0;
+        for (int level : levels) {
+            total += level;
+        }
+        return total;
+    }
+
+    private void setShardedFlag(String isbn, boolean sharded, int available, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SET_SHARDED_SQL)) {
+            ps.setBoolean(1, sharded);
+            ps.setInt(2, available);
+            ps.setString(3, isbn);
+            ps.executeUpdate();
+        }
+    }
+
+    // Returns the shard count of a sharded title, or null for the regular single-row mode
+    private Integer shardCount(String isbn, Connection conn) throws SQLException {
+        if (!shardRegistryLoaded) {
+            synchronized (shardedBooks) {
+                if (!shardRegistryLoaded) {
+                    try (PreparedStatement ps = conn.prepareStatement(FIND_SHARDED_SQL);
+                         ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            shardedBooks.put(rs.getString("book_isbn"), rs.getInt("shards"));
+                        }
+                    }
+                    shardRegistryLoaded = true;
+                }
+            }
+        }
+        return shardedBooks.get(isbn);
+    }
+
+    private Integer refreshShardCount(String isbn, Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COUNT_SHARDS_SQL)) {
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                int shards = rs.next() ? rs.getInt(1) : 0;
+                if (shards > 0) {
+                    shardedBooks.put(isbn, shards);
+                    return shards;
+                }
+                shardedBooks.remove(isbn);
+                return null;
+            }
+        }
+    }
+
+    private Book copyWithAvailable(Book book, int available) {
+        Book copy = new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(), book.getReferencePrice(),
+                book.getTotalCopies(), available, book.isActive(), book.getCreatedAt());
+        copy.setContentHash(book.getContentHash());
+        return copy;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
     @Override
     public List<Book> filterByCategory(String category) throws SQLException {
         List<Book> books = new ArrayList<>();
@@ -0,0 +1,47 @@
+package dao;
+
+import util.DBConnection;
+import java.sql.*;
+
+public class ExportWatermarkDAOImpl implements IExportWatermarkDAO {
+
+    // SQL Statements
+    private static final String FIND_SQL = "SELECT watermark FROM export_watermarks WHERE feed = ?";
+    private static final String SAVE_SQL = "INSERT INTO export_watermarks (feed, watermark) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE watermark = VALUES(watermark)";
+    private static final String CURRENT_TIME_SQL = "SELECT CURRENT_TIMESTAMP";
+
+    @Override
+    public Timestamp find(String feed) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_SQL)) {
+
+            ps.setString(1, feed);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getTimestamp("watermark") : null;
+            }
+        }
+    }
+
+    @Override
+    public void save(String feed, Timestamp watermark) throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SAVE_SQL)) {
+
+            ps.setString(1, feed);
+            ps.setTimestamp(2, watermark);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public Timestamp currentTime() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(CURRENT_TIME_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package dao;
 
 import model.Book;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.Connection; // Importar Connection
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface IBookDAO {
 
@@ -12,6 +17,21 @@ public interface IBookDAO {
     List<Book> findAll() throws SQLException;
     boolean update(Book book) throws SQLException;
 
+    // Transactional variants: the Connection is controlled by the Service layer
+    // so the book row and its stock ledger entry commit together.
+    Book insert(Book book, Connection conn) throws SQLException;
+    boolean update(Book book, Connection conn) throws SQLException;
+
+    // Bulk import: rows are locked and written in batches inside the Service's transaction
+    Map<String, Book> findByIsbnsForUpdate(Collection<String> isbns, Connection conn) throws SQLException;
+    void insertBatch(List<Book> books, Connection conn) throws SQLException;
+    void updateBatch(List<Book> books, Connection conn) throws SQLException;
+
+    // Catalog sync: stored content hashes (no locks), active ISBNs, and bulk (de)activation
+    Map<String, String> findContentHashes(Collection<String> isbns) throws SQLException;
+    long streamActiveIsbns(RowHandler handler) throws SQLException, IOException;
+    int updateStatusBatch(List<String> isbns, boolean isActive) throws SQLException;
+
     // Filtering requirements
     List<Book> filterByCategory(String category) throws SQLException;
     List<Book> filterByAuthor(String author) throws SQLException;
@@ -29,4 +49,68 @@ public interface IBookDAO {
      * @throws SQLException Database access error.
      */
     boolean updateStock(String isbn, int change, Connection conn) throws SQLException; // <-- CORREGIDO
-}
\ No newline at end of file
+
+    /**
+     * Switches a hot title to striped stock: its available copies are split across
+     * several shard rows so concurrent loans lock different rows.
+     * @param isbn The ISBN of the book.
+     * @param shards Number of shard rows (at least 2).
+     * @return true if the title was switched, false if it is unknown or already sharded.
+     * @throws SQLException Database access error.
+     */
+    boolean enableStockSharding(String isbn, int shards) throws SQLException;
+
+    /**
+     * Folds the shard rows of a title back into books.available_copies.
+     * @param isbn The ISBN of the book.
+     * @return true if the title was switched, false if it is unknown or not sharded.
+     * @throws SQLException Database access error.
+     */
+    boolean disableStockSharding(String isbn) throws SQLException;
+
+    /**
+     * Streams every book through a forward-only cursor without materializing a list.
+     * @param handler Called once per row (same columns as findAll).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamAll(RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Counts the books (progress estimates for background exports).
+     * @return The number of rows in books.
+     * @throws SQLException Database access error.
+     */
+    long countAll() throws SQLException;
+
+    /**
+     * Splits the books table into ISBN ranges of roughly equal row counts (for parallel exports).
+     * @param parts Number of ranges wanted.
+     * @return Inclusive [first ISBN, last ISBN] pairs in key order (fewer if the table is small).
+     * @throws SQLException Database access error.
+     */
+    List<String[]> findIsbnRanges(int parts) throws SQLException;
+
+    /**
+     * Streams the books whose ISBN falls in an inclusive range, in key order.
+     * @param fromIsbn First ISBN of the range.
+     * @param toIsbn Last ISBN of the range.
+     * @param handler Called once per row (same columns as findAll).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamRange(String fromIsbn, String toIsbn, RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Streams the books (including stock changes of sharded titles) changed in a window of updated_at values (delta exports).
+     * @param from Exclusive lower bound (the previous watermark minus the overlap).
+     * @param to Inclusive upper bound (database time when the export started).
+     * @param handler Called once per row (same columns as findAll).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException;
+}
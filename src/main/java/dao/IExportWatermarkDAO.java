@@ -0,0 +1,30 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+public interface IExportWatermarkDAO {
+
+    /**
+     * Finds the database time covered by the last successful run of a delta feed.
+     * @param feed The feed name (e.g. "books").
+     * @return The watermark, or null if the feed never ran.
+     * @throws SQLException Database access error.
+     */
+    Timestamp find(String feed) throws SQLException;
+
+    /**
+     * Stores the watermark of a feed once its file is complete.
+     * @param feed The feed name.
+     * @param watermark The upper bound of the exported window.
+     * @throws SQLException Database access error.
+     */
+    void save(String feed, Timestamp watermark) throws SQLException;
+
+    /**
+     * Reads the database clock, so windows do not depend on the terminal's clock.
+     * @return The current database time.
+     * @throws SQLException Database access error.
+     */
+    Timestamp currentTime() throws SQLException;
+}
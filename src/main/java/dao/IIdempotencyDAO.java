@@ -0,0 +1,51 @@
+package dao;
+
+import model.IdempotencyKey;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface IIdempotencyDAO {
+
+    /**
+     * Finds a key that has not expired yet.
+     * @param key The client-supplied idempotency key.
+     * @return The stored key with the original result, or null.
+     * @throws SQLException Database access error.
+     */
+    IdempotencyKey findActive(String key) throws SQLException;
+
+    /**
+     * Finds a key that has not expired yet, on the caller's connection.
+     * @param key The client-supplied idempotency key.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @return The stored key with the original result, or null.
+     * @throws SQLException Database access error.
+     */
+    IdempotencyKey findActive(String key, Connection conn) throws SQLException;
+
+    /**
+     * Stores a key inside the transaction of the request it deduplicates.
+     * @param idempotencyKey The key and the result of the request.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @return true if stored, false if the key already exists (a concurrent retry won the race).
+     * @throws SQLException Database access error.
+     */
+    boolean insert(IdempotencyKey idempotencyKey, Connection conn) throws SQLException;
+
+    /**
+     * Records the loan a key resulted in, once the request has created it (same transaction as the insert).
+     * @param key The client-supplied idempotency key.
+     * @param loanId The ID of the loan.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @return true if the key was updated.
+     * @throws SQLException Database access error.
+     */
+    boolean updateLoanId(String key, int loanId, Connection conn) throws SQLException;
+
+    /**
+     * Deletes expired keys (TTL purge).
+     * @return The number of keys deleted.
+     * @throws SQLException Database access error.
+     */
+    int deleteExpired() throws SQLException;
+}
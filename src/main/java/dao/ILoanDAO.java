@@ -1,8 +1,11 @@
 package dao;
 
 import model.Loan;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.Connection; // Importar Connection
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.List;
 
 public interface ILoanDAO {
@@ -27,6 +30,15 @@ public interface ILoanDAO {
      */
     Loan findById(int id) throws SQLException;
 
+    /**
+     * Finds a loan record by its unique identifier on the caller's connection.
+     * @param id The ID of the loan to search for.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @return The found Loan object or null.
+     * @throws SQLException Database access error.
+     */
+    Loan findById(int id, Connection conn) throws SQLException;
+
     /**
      * Updates an existing loan to mark it as returned and set fine/date.
      * CRITICAL FIX: Accepts an existing Connection for transaction management.
@@ -55,10 +67,62 @@ public interface ILoanDAO {
      */
     List<Loan> findOverdueLoans() throws SQLException;
 
+    /**
+     * Streams the overdue loans through a forward-only cursor (export without a list in memory).
+     * @param handler Called once per row (all loans columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamOverdueLoans(RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Counts the overdue loans (progress estimates for background exports).
+     * @return The number of loans streamOverdueLoans would return now.
+     * @throws SQLException Database access error.
+     */
+    long countOverdue() throws SQLException;
+
+    /**
+     * Counts the loans not returned yet (monitoring gauge).
+     * @return The number of active loans.
+     * @throws SQLException Database access error.
+     */
+    long countActive() throws SQLException;
+
     /**
      * Retrieves all loan records from the database.
      * @return A list of all Loan objects.
      * @throws SQLException Database access error.
      */
     List<Loan> findAll() throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * Returns the lowest and highest loan ID (for splitting parallel exports into ID ranges).
+     * @return {min, max}, or null if there are no loans.
+     * @throws SQLException Database access error.
+     */
+    int[] findIdBounds() throws SQLException;
+
+    /**
+     * Streams the loans whose ID falls in an inclusive range, in key order.
+     * @param fromId First ID of the range.
+     * @param toId Last ID of the range.
+     * @param handler Called once per row (all loans columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamRange(int fromId, int toId, RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Streams the loans (new loans and returns) changed in a window of updated_at values (delta exports).
+     * @param from Exclusive lower bound (the previous watermark minus the overlap).
+     * @param to Inclusive upper bound (database time when the export started).
+     * @param handler Called once per row (all loan columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException;
+}
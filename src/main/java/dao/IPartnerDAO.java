@@ -1,8 +1,14 @@
 package dao;
 
 import model.Partner;
+import util.RowHandler;
+import java.io.IOException;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface IPartnerDAO {
 
@@ -13,4 +19,43 @@ public interface IPartnerDAO {
 
     // Validation requirement (Check if partner is active)
     boolean isActive(int id) throws SQLException;
-}
\ No newline at end of file
+
+    /**
+     * Streams the partners (deactivations included) changed in a window of updated_at values (delta exports).
+     * @param from Exclusive lower bound (the previous watermark minus the overlap).
+     * @param to Inclusive upper bound (database time when the export started).
+     * @param handler Called once per row (all partner columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Streams every partner through a forward-only cursor (JSON Lines export).
+     * @param handler Called once per row (all partner columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamAll(RowHandler handler) throws SQLException, IOException;
+
+    /**
+     * Returns which of the given emails already belong to a partner, locking those rows (bulk import).
+     * NOTE: The Connection is managed by the caller.
+     * @param emails Emails of the batch.
+     * @param conn Connection of the import transaction.
+     * @return The emails that exist.
+     * @throws SQLException Database access error.
+     */
+    Set<String> findExistingEmailsForUpdate(Collection<String> emails, Connection conn) throws SQLException;
+
+    /**
+     * Inserts the partners, or updates name and status of those whose email exists (bulk import).
+     * NOTE: The Connection is managed by the caller.
+     * @param partners Partners of the batch.
+     * @param conn Connection of the import transaction.
+     * @throws SQLException Database access error.
+     */
+    void upsertByEmailBatch(List<Partner> partners, Connection conn) throws SQLException;
+}
@@ -0,0 +1,56 @@
+package dao;
+
+import model.StockMovement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface IStockMovementDAO {
+
+    /**
+     * Appends a movement to the stock ledger. Rows are never updated or deleted.
+     * Accepts an existing Connection so the movement commits together with the loan/return.
+     * @param movement The movement to record.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @return The movement with its generated ID.
+     * @throws SQLException Database access error.
+     */
+    StockMovement append(StockMovement movement, Connection conn) throws SQLException;
+
+    /**
+     * Appends several movements in one JDBC batch (bulk imports). Generated IDs are not read back.
+     * @param movements The movements to record.
+     * @param conn The JDBC connection controlled by the Service layer.
+     * @throws SQLException Database access error.
+     */
+    void appendBatch(List<StockMovement> movements, Connection conn) throws SQLException;
+
+    /**
+     * Retrieves the full movement history of a book, oldest first.
+     * @param isbn The ISBN of the book.
+     * @return A list of StockMovement objects.
+     * @throws SQLException Database access error.
+     */
+    List<StockMovement> findByIsbn(String isbn) throws SQLException;
+
+    /**
+     * Reconstructs the available copies of a book at a point in time:
+     * the latest snapshot taken at or before that instant plus the movements recorded after it.
+     * @param isbn The ISBN of the book.
+     * @param at The instant to reconstruct.
+     * @return The available copies at that instant.
+     * @throws SQLException Database access error.
+     */
+    int findAvailabilityAt(String isbn, Timestamp at) throws SQLException;
+
+    /**
+     * Materializes a new snapshot for every book with movements since its last snapshot.
+     * Only movements older than the settle window are folded in, so rows of transactions
+     * still in flight are never skipped.
+     * @param settleSeconds Age a movement must have before it is compacted.
+     * @return The number of snapshot rows written.
+     * @throws SQLException Database access error.
+     */
+    int compactSnapshots(int settleSeconds) throws SQLException;
+}
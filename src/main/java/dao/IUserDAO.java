@@ -1,6 +1,8 @@
 package dao;
 
 import model.User;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -16,4 +18,13 @@ public interface IUserDAO {
 
     // Validation requirement
     User findByUsername(String username) throws SQLException;
+
+    /**
+     * Streams every user through a forward-only cursor (JSON Lines export).
+     * @param handler Called once per row (all user columns).
+     * @return The number of rows streamed.
+     * @throws SQLException Database access error.
+     * @throws IOException If the handler fails writing the row.
+     */
+    long streamAll(RowHandler handler) throws SQLException, IOException;
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package dao;
+
+import model.IdempotencyKey;
+import util.DBConnection;
+import java.sql.*;
+
+public class IdempotencyDAOImpl implements IIdempotencyDAO {
+
+    // SQL Statements
+    private static final String FIND_ACTIVE_SQL = "SELECT * FROM idempotency_keys WHERE idem_key = ? AND expires_at > NOW()";
+    private static final String INSERT_SQL = "INSERT INTO idempotency_keys (idem_key, operation, loan_id, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_LOAN_ID_SQL = "UPDATE idempotency_keys SET loan_id = ? WHERE idem_key = ?";
+    // An expired leftover of the same key (not purged yet) must not block the insert
+    private static final String DELETE_EXPIRED_KEY_SQL = "DELETE FROM idempotency_keys WHERE idem_key = ? AND expires_at <= NOW()";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_keys WHERE expires_at <= NOW()";
+
+    private IdempotencyKey mapResultSetToKey(ResultSet rs) throws SQLException {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setKey(rs.getString("idem_key"));
+        key.setOperation(rs.getString("operation"));
+        key.setLoanId(rs.getInt("loan_id"));
+        key.setExpiresAt(rs.getTimestamp("expires_at"));
+        return key;
+    }
+
+    @Override
+    public IdempotencyKey findActive(String key) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return findActive(key, conn);
+        }
+    }
+
+    @Override
+    public IdempotencyKey findActive(String key, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        try (PreparedStatement ps = conn.prepareStatement(FIND_ACTIVE_SQL)) {
+
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToKey(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean insert(IdempotencyKey idempotencyKey, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed (opened/closed/commit/rollback) by the Service layer.
+        try (PreparedStatement ps = conn.prepareStatement(DELETE_EXPIRED_KEY_SQL)) {
+            ps.setString(1, idempotencyKey.getKey());
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+
+            ps.setString(1, idempotencyKey.getKey());
+            ps.setString(2, idempotencyKey.getOperation());
+            ps.setInt(3, idempotencyKey.getLoanId());
+            ps.setTimestamp(4, idempotencyKey.getExpiresAt());
+
+            return ps.executeUpdate() > 0;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // The key is live: a concurrent retry of the same request committed first
+            return false;
+        }
+    }
+
+    @Override
+    public boolean updateLoanId(String key, int loanId, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed (opened/closed/commit/rollback) by the Service layer.
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_LOAN_ID_SQL)) {
+
+            ps.setInt(1, loanId);
+            ps.setString(2, key);
+
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public int deleteExpired() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(DELETE_EXPIRED_SQL)) {
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package dao;
 
 import model.Loan;
 import util.DBConnection;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,11 +15,16 @@ public class LoanDAOImpl implements ILoanDAO {
     private static final String FIND_BY_ID_SQL = "SELECT * FROM loans WHERE id = ?";
     private static final String UPDATE_RETURN_SQL = "UPDATE loans SET return_date = ?, fine = ?, is_returned = TRUE WHERE id = ? AND is_returned = FALSE"; // <-- Added is_returned = FALSE for safety
     private static final String FIND_OVERDUE_SQL = "SELECT * FROM loans WHERE due_date < CURDATE() AND is_returned = FALSE";
+    private static final String COUNT_OVERDUE_SQL = "SELECT COUNT(*) FROM loans WHERE due_date < CURDATE() AND is_returned = FALSE";
     private static final String FIND_ACTIVE_SQL = "SELECT * FROM loans WHERE is_returned = FALSE";
+    private static final String COUNT_ACTIVE_SQL = "SELECT COUNT(*) FROM loans WHERE is_returned = FALSE";
     private static final String FIND_ALL_SQL = "SELECT * FROM loans";
+    private static final String FIND_ID_BOUNDS_SQL = "SELECT MIN(id), MAX(id) FROM loans";
+    private static final String FIND_RANGE_SQL = "SELECT * FROM loans WHERE id BETWEEN ? AND ? ORDER BY id";
+    private static final String FIND_CHANGED_SQL = "SELECT * FROM loans WHERE updated_at > ? AND updated_at <= ? ORDER BY id";
 
-    // Utility method to map a ResultSet row to a Loan object
-    private Loan mapResultSetToLoan(ResultSet rs) throws SQLException {
+    // Utility method to map a ResultSet row to a Loan object (package-private for the mapper benchmark)
+    Loan mapResultSetToLoan(ResultSet rs) throws SQLException {
         Loan loan = new Loan();
         loan.setId(rs.getInt("id"));
         loan.setBookIsbn(rs.getString("book_isbn"));
@@ -63,8 +70,15 @@ public class LoanDAOImpl implements ILoanDAO {
     @Override
     public Loan findById(int id) throws SQLException {
         // Read-only operation, manages its own connection
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(FIND_BY_ID_SQL)) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return findById(id, conn);
+        }
+    }
+
+    @Override
+    public Loan findById(int id, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        try (PreparedStatement ps = conn.prepareStatement(FIND_BY_ID_SQL)) {
 
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -107,6 +121,45 @@ public class LoanDAOImpl implements ILoanDAO {
         return loans;
     }
 
+    @Override
+    public long streamOverdueLoans(RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_OVERDUE_SQL)) {
+
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long countOverdue() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(COUNT_OVERDUE_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Override
+    public long countActive() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(COUNT_ACTIVE_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
     @Override
     public List<Loan> findActiveLoans() throws SQLException {
         // Read-only operation, manages its own connection
@@ -136,4 +189,59 @@ public class LoanDAOImpl implements ILoanDAO {
         }
         return loans;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int[] findIdBounds() throws SQLException {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_ID_BOUNDS_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            rs.next();
+            int min = rs.getInt(1);
+            if (rs.wasNull()) {
+                return null; // Empty table
+            }
+            return new int[]{min, rs.getInt(2)};
+        }
+    }
+
+    @Override
+    public long streamRange(int fromId, int toId, RowHandler handler) throws SQLException, IOException {
+        // Read-only operation, manages its own connection
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_RANGE_SQL)) {
+
+            ps.setInt(1, fromId);
+            ps.setInt(2, toId);
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException {
+        // Read-only operation, manages its own connection
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_CHANGED_SQL)) {
+
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+}
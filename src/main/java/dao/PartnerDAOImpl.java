@@ -2,9 +2,15 @@ package dao;
 
 import model.Partner;
 import util.DBConnection;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PartnerDAOImpl implements IPartnerDAO {
 
@@ -13,6 +19,10 @@ public class PartnerDAOImpl implements IPartnerDAO {
     private static final String FIND_ALL_SQL = "SELECT * FROM partners";
     private static final String UPDATE_SQL = "UPDATE partners SET name = ?, email = ?, is_active = ? WHERE id = ?";
     private static final String IS_ACTIVE_SQL = "SELECT is_active FROM partners WHERE id = ?";
+    private static final String FIND_EXISTING_EMAILS_SQL = "SELECT email FROM partners WHERE email IN (%s) FOR UPDATE";
+    private static final String UPSERT_BY_EMAIL_SQL = "INSERT INTO partners (name, email, is_active) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), is_active = VALUES(is_active)";
+    private static final String FIND_CHANGED_SQL = "SELECT * FROM partners WHERE updated_at > ? AND updated_at <= ? ORDER BY id";
 
     private Partner mapResultSetToPartner(ResultSet rs) throws SQLException {
         Partner partner = new Partner();
@@ -102,4 +112,79 @@ public class PartnerDAOImpl implements IPartnerDAO {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_CHANGED_SQL)) {
+
+            ps.setTimestamp(1, from);
+            ps.setTimestamp(2, to);
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long streamAll(RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_ALL_SQL)) {
+
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<String> findExistingEmailsForUpdate(Collection<String> emails, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        Set<String> existing = new HashSet<>();
+        if (emails.isEmpty()) {
+            return existing;
+        }
+        String sql = String.format(FIND_EXISTING_EMAILS_SQL, String.join(",", Collections.nCopies(emails.size(), "?")));
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (String email : emails) {
+                ps.setString(index++, email);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString("email"));
+                }
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void upsertByEmailBatch(List<Partner> partners, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed by the caller.
+        if (partners.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_BY_EMAIL_SQL)) {
+            for (Partner partner : partners) {
+                ps.setString(1, partner.getName());
+                ps.setString(2, partner.getEmail());
+                ps.setBoolean(3, partner.isActive());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
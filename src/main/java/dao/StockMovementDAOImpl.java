@@ -0,0 +1,165 @@
+package dao;
+
+import model.StockMovement;
+import util.DBConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StockMovementDAOImpl implements IStockMovementDAO {
+
+    // SQL Statements
+    private static final String INSERT_SQL = "INSERT INTO stock_movements (book_isbn, delta, reason, loan_id) VALUES (?, ?, ?, ?)";
+    private static final String FIND_BY_ISBN_SQL = "SELECT * FROM stock_movements WHERE book_isbn = ? ORDER BY id";
+
+    // Latest snapshot taken at or before the requested instant (if any)
+    private static final String FIND_SNAPSHOT_AT_SQL = "SELECT available_copies, last_movement_id FROM stock_snapshots " +
+            "WHERE book_isbn = ? AND snapshot_at <= ? ORDER BY snapshot_at DESC, last_movement_id DESC LIMIT 1";
+    private static final String SUM_MOVEMENTS_AFTER_SQL = "SELECT COALESCE(SUM(delta), 0) FROM stock_movements " +
+            "WHERE book_isbn = ? AND id > ? AND created_at <= ?";
+
+    // Upper bound for compaction: newest movement that is old enough to be committed
+    private static final String COMPACTION_BOUND_SQL = "SELECT COALESCE(MAX(id), 0) FROM stock_movements " +
+            "WHERE created_at < NOW() - INTERVAL ? SECOND";
+
+    // Folds every movement between a book's last snapshot and the bound into a new snapshot row.
+    // snapshot_at is the time of the last folded movement, so point-in-time queries stay exact.
+    private static final String COMPACT_SQL = "INSERT INTO stock_snapshots (book_isbn, available_copies, last_movement_id, snapshot_at) " +
+            "SELECT m.book_isbn, " +
+            "       COALESCE(s.available_copies, 0) + SUM(m.delta), MAX(m.id), MAX(m.created_at) " +
+            "FROM stock_movements m " +
+            "LEFT JOIN (SELECT s1.book_isbn, s1.available_copies, s1.last_movement_id FROM stock_snapshots s1 " +
+            "           JOIN (SELECT book_isbn, MAX(last_movement_id) AS last_id FROM stock_snapshots GROUP BY book_isbn) l " +
+            "             ON l.book_isbn = s1.book_isbn AND l.last_id = s1.last_movement_id) s " +
+            "  ON s.book_isbn = m.book_isbn " +
+            "WHERE m.id > COALESCE(s.last_movement_id, 0) AND m.id <= ? " +
+            "GROUP BY m.book_isbn, s.available_copies";
+
+    // Utility method to map a ResultSet row to a StockMovement object
+    private StockMovement mapResultSetToMovement(ResultSet rs) throws SQLException {
+        StockMovement movement = new StockMovement();
+        movement.setId(rs.getLong("id"));
+        movement.setBookIsbn(rs.getString("book_isbn"));
+        movement.setDelta(rs.getInt("delta"));
+        movement.setReason(rs.getString("reason"));
+        int loanId = rs.getInt("loan_id");
+        movement.setLoanId(rs.wasNull() ? null : loanId);
+        movement.setCreatedAt(rs.getTimestamp("created_at"));
+        return movement;
+    }
+
+    @Override
+    public StockMovement append(StockMovement movement, Connection conn) throws SQLException {
+        // NOTE: The Connection is managed (opened/closed/commit/rollback) by the Service layer.
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+            ps.setString(1, movement.getBookIsbn());
+            ps.setInt(2, movement.getDelta());
+            ps.setString(3, movement.getReason());
+            if (movement.getLoanId() != null) {
+                ps.setInt(4, movement.getLoanId());
+            } else {
+                ps.setNull(4, Types.INTEGER);
+            }
+
+            ps.executeUpdate();
+
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    movement.setId(generatedKeys.getLong(1));
+                }
+            }
+            return movement;
+        }
+    }
+
+    @Override
+    public void appendBatch(List<StockMovement> movements, Connection conn) throws SQLException {
+        if (movements.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            for (StockMovement movement : movements) {
+                ps.setString(1, movement.getBookIsbn());
+                ps.setInt(2, movement.getDelta());
+                ps.setString(3, movement.getReason());
+                if (movement.getLoanId() != null) {
+                    ps.setInt(4, movement.getLoanId());
+                } else {
+                    ps.setNull(4, Types.INTEGER);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Override
+    public List<StockMovement> findByIsbn(String isbn) throws SQLException {
+        List<StockMovement> movements = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(FIND_BY_ISBN_SQL)) {
+
+            ps.setString(1, isbn);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    movements.add(mapResultSetToMovement(rs));
+                }
+            }
+        }
+        return movements;
+    }
+
+    @Override
+    public int findAvailabilityAt(String isbn, Timestamp at) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            int base = 0;
+            long lastMovementId = 0;
+
+            // 1. Start from the latest snapshot before the instant (or from zero if none exists yet)
+            try (PreparedStatement ps = conn.prepareStatement(FIND_SNAPSHOT_AT_SQL)) {
+                ps.setString(1, isbn);
+                ps.setTimestamp(2, at);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        base = rs.getInt("available_copies");
+                        lastMovementId = rs.getLong("last_movement_id");
+                    }
+                }
+            }
+
+            // 2. Replay the movements recorded after that snapshot up to the instant
+            try (PreparedStatement ps = conn.prepareStatement(SUM_MOVEMENTS_AFTER_SQL)) {
+                ps.setString(1, isbn);
+                ps.setLong(2, lastMovementId);
+                ps.setTimestamp(3, at);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return base + rs.getInt(1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int compactSnapshots(int settleSeconds) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            long bound;
+            try (PreparedStatement ps = conn.prepareStatement(COMPACTION_BOUND_SQL)) {
+                ps.setInt(1, settleSeconds);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    bound = rs.getLong(1);
+                }
+            }
+            if (bound == 0) {
+                return 0; // Nothing old enough to compact
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(COMPACT_SQL)) {
+                ps.setLong(1, bound);
+                return ps.executeUpdate();
+            }
+        }
+    }
+}
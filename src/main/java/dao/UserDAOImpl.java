@@ -2,6 +2,8 @@ package dao;
 
 import model.User;
 import util.DBConnection;
+import util.RowHandler;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -131,4 +133,21 @@ public class UserDAOImpl implements IUserDAO {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public long streamAll(RowHandler handler) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = DBConnection.prepareStreaming(conn, FIND_ALL_SQL)) {
+
+            handler.beforeExecute(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+}
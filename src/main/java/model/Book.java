@@ -13,6 +13,7 @@ public class Book {
     private int availableCopies;
     private boolean isActive;
     private Timestamp createdAt;
+    private String contentHash; // SHA-256 of the catalog fields as last synced from the supplier feed (null after manual edits)
 
     public Book() {
     }
@@ -97,6 +98,14 @@ public class Book {
         return createdAt;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
 //    public void setCreatedAt(Timestamp createdAt) {
 //        this.createdAt = createdAt;
 //    } //No creo que se use xd
@@ -0,0 +1,119 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Background export job. Progress fields are written by the job thread and read by the view while it runs.
+public class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final int id;
+    private final String description;
+    private final String filePath;
+    private final LocalDateTime submittedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long rowsWritten;
+    private volatile long bytesWritten; // While running: bytes encoded so far (before gzip); once completed: file size
+    private volatile long estimatedRows = -1; // Row count taken when the job started, -1 until then
+    private volatile String errorMessage;
+
+    public ExportJob(int id, String description, String filePath) {
+        this.id = id;
+        this.description = description;
+        this.filePath = filePath;
+        this.submittedAt = LocalDateTime.now();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public void setEstimatedRows(long estimatedRows) {
+        this.estimatedRows = estimatedRows;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    // Seconds left at the average rate so far, or -1 when it cannot be estimated yet
+    public long getEtaSeconds() {
+        LocalDateTime started = startedAt;
+        long rows = rowsWritten;
+        long total = estimatedRows;
+        if (status != Status.RUNNING || started == null || rows == 0 || total < rows) {
+            return -1;
+        }
+        long elapsedMillis = Duration.between(started, LocalDateTime.now()).toMillis();
+        return elapsedMillis * (total - rows) / rows / 1000;
+    }
+}
@@ -0,0 +1,52 @@
+package model;
+
+import java.sql.Timestamp;
+
+public class IdempotencyKey {
+    private String key;
+    private String operation; // LOAN_REGISTER or LOAN_RETURN
+    private int loanId; // Result of the original request
+    private Timestamp expiresAt;
+
+    public IdempotencyKey() {
+    }
+
+    public IdempotencyKey(String key, String operation, int loanId, Timestamp expiresAt) {
+        this.key = key;
+        this.operation = operation;
+        this.loanId = loanId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public int getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(int loanId) {
+        this.loanId = loanId;
+    }
+
+    public Timestamp getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Timestamp expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,88 @@
+package model;
+
+public class ImportResult {
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private long unchanged; // Catalog sync: rows skipped because their content hash matched
+    private long deactivated; // Catalog sync: active titles missing from the feed
+    private long deactivationsSkipped; // Catalog sync: missing titles left active (over the safety limit)
+    private String rejectedFile; // Null when every row was accepted
+    private long elapsedMillis;
+
+    public ImportResult() {
+    }
+
+    public ImportResult(long inserted, long updated, long rejected, String rejectedFile, long elapsedMillis) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.rejected = rejected;
+        this.rejectedFile = rejectedFile;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public String getRejectedFile() {
+        return rejectedFile;
+    }
+
+    public void setRejectedFile(String rejectedFile) {
+        this.rejectedFile = rejectedFile;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public long getDeactivated() {
+        return deactivated;
+    }
+
+    public void setDeactivated(long deactivated) {
+        this.deactivated = deactivated;
+    }
+
+    public long getDeactivationsSkipped() {
+        return deactivationsSkipped;
+    }
+
+    public void setDeactivationsSkipped(long deactivationsSkipped) {
+        this.deactivationsSkipped = deactivationsSkipped;
+    }
+}
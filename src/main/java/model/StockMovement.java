@@ -0,0 +1,70 @@
+package model;
+
+import java.sql.Timestamp;
+
+public class StockMovement {
+    private long id;
+    private String bookIsbn;
+    private int delta;
+    private String reason; // LOAN, RETURN or ADJUSTMENT
+    private Integer loanId; // Only set for LOAN and RETURN movements
+    private Timestamp createdAt;
+
+    public StockMovement() {
+    }
+
+    public StockMovement(String bookIsbn, int delta, String reason, Integer loanId) {
+        this.bookIsbn = bookIsbn;
+        this.delta = delta;
+        this.reason = reason;
+        this.loanId = loanId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getBookIsbn() {
+        return bookIsbn;
+    }
+
+    public void setBookIsbn(String bookIsbn) {
+        this.bookIsbn = bookIsbn;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public void setDelta(int delta) {
+        this.delta = delta;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Integer getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(Integer loanId) {
+        this.loanId = loanId;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+}
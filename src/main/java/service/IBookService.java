@@ -3,6 +3,9 @@ package service;
 import exception.BusinessException;
 import exception.ExistingISBNException;
 import model.Book;
+import model.ImportResult;
+import util.CSVImporter;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -18,4 +21,19 @@ public interface IBookService {
 
     // Status
     boolean updateStatus(String isbn, boolean isActive) throws SQLException;
-}
\ No newline at end of file
+
+    // Striped stock for hot titles
+    boolean enableStockSharding(String isbn, int shards) throws BusinessException, SQLException;
+    boolean disableStockSharding(String isbn) throws SQLException;
+
+    // Bulk catalog import from a CSV in the export layout (or a .jsonl file with the JSON Lines export
+    // fields): new ISBNs are inserted, known ones updated.
+    // Rows breaking the register/update rules are written to rejectedFilePath instead.
+    ImportResult importBooks(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException;
+
+    // Nightly supplier sync (same layout): only titles whose content hash changed are written, and
+    // active titles missing from the feed are deactivated.
+    ImportResult syncCatalog(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException;
+}
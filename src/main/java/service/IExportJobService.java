@@ -0,0 +1,22 @@
+package service;
+
+import exception.BusinessException;
+import model.ExportJob;
+import java.util.List;
+
+// Interface for background export jobs: exports are queued and run off the UI thread.
+public interface IExportJobService {
+
+    // Queue a CSV export; the job starts when a slot is free. Fails if the queue is full.
+    ExportJob submitBooksExport(String filePath, boolean compress) throws BusinessException;
+    ExportJob submitOverdueLoansExport(String filePath, boolean compress) throws BusinessException;
+
+    // Queued, running and recently finished jobs, oldest first
+    List<ExportJob> listJobs();
+
+    // Cancel a queued or running job (a running job's query is cancelled and its partial file removed)
+    void cancel(int jobId) throws BusinessException;
+
+    // Cancel every job and wait briefly for running ones to clean up
+    void shutdown();
+}
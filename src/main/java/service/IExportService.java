@@ -0,0 +1,37 @@
+package service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+// Interface for data export operations (files are written straight from the database cursor).
+public interface IExportService {
+
+    // Full catalog export; returns the number of books written.
+    // With compress the file is written through a streaming gzip encoder.
+    long exportBooksToCsv(String filePath, boolean compress) throws SQLException, IOException;
+
+    // Overdue loans report; returns the number of loans written
+    long exportOverdueLoansToCsv(String filePath, boolean compress) throws SQLException, IOException;
+
+    // Nightly extracts: the table is split into primary-key ranges exported concurrently
+    // (one pooled connection each) and the parts are concatenated into filePath.
+    long exportBooksParallel(String filePath, int parts) throws SQLException, IOException;
+    long exportLoansParallel(String filePath, int parts) throws SQLException, IOException;
+
+    // Delta feeds: only rows whose updated_at moved since the feed's last successful run, with an Op
+    // column (U = upsert, D = tombstone for deactivated rows). Return the number of rows written.
+    long exportBooksDelta(String filePath, boolean compress) throws SQLException, IOException;
+    long exportPartnersDelta(String filePath, boolean compress) throws SQLException, IOException;
+    long exportLoansDelta(String filePath, boolean compress) throws SQLException, IOException;
+
+    // JSON Lines exports (util.JsonLinesExporter), optionally gzip-compressed; return the number of rows written.
+    // Users are exported without their password hash.
+    long exportBooksJson(String filePath, boolean compress) throws SQLException, IOException;
+    long exportPartnersJson(String filePath, boolean compress) throws SQLException, IOException;
+    long exportLoansJson(String filePath, boolean compress) throws SQLException, IOException;
+    long exportUsersJson(String filePath, boolean compress) throws SQLException, IOException;
+
+    // Analytics snapshots in the columnar format (util.ColumnarWriter); return the number of rows written
+    long exportBooksColumnar(String filePath) throws SQLException, IOException;
+    long exportLoansColumnar(String filePath) throws SQLException, IOException;
+}
@@ -14,13 +14,26 @@ public interface ILoanService {
     // Transaction 1: Register a new loan. Requires cross-DAO operations (Partner, Book, Loan).
     Loan registerLoan(Loan loan) throws BusinessException, SQLException, InvalidPartnerException, InsufficientStockException;
 
+    // Same as above; a retry with the same idempotency key returns the original loan instead of creating another one.
+    Loan registerLoan(Loan loan, String idempotencyKey) throws BusinessException, SQLException, InvalidPartnerException, InsufficientStockException;
+
     // Transaction 2: Process the return of a book.
     boolean processReturn(int loanId, Date returnDate) throws BusinessException, SQLException;
 
+    // Same as above; a retry with the same idempotency key succeeds without processing the return twice.
+    boolean processReturn(int loanId, Date returnDate, String idempotencyKey) throws BusinessException, SQLException;
+
+    // Maintenance: removes idempotency keys past their TTL.
+    int purgeExpiredIdempotencyKeys() throws SQLException;
+
     // Business Logic: Calculates the fine for a late return.
     BigDecimal calculateFine(Date dueDate, Date returnDate);
 
     // Reporting methods
     List<Loan> findActiveLoans() throws SQLException;
     List<Loan> findOverdueLoans() throws SQLException;
+
+    // Monitoring gauges (counts without loading the loans)
+    long countActiveLoans() throws SQLException;
+    long countOverdueLoans() throws SQLException;
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package service;
 
 import exception.BusinessException;
+import model.ImportResult;
 import model.Partner;
+import util.CSVImporter;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -13,4 +16,9 @@ public interface IPartnerService {
 
     // Validation methods (mainly used by LoanService, but public here)
     boolean isActive(int id) throws SQLException;
+
+    // Bulk import from a CSV in the partners layout or a .jsonl file (JSON Lines export fields).
+    // Partners are matched by email: new emails are inserted, known ones get name and status updated.
+    ImportResult importPartners(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException;
 }
\ No newline at end of file
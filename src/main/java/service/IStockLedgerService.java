@@ -0,0 +1,19 @@
+package service;
+
+import model.StockMovement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+// Read side of the append-only stock ledger (history, point-in-time availability, compaction).
+public interface IStockLedgerService {
+
+    // Full movement history of a book, oldest first
+    List<StockMovement> getHistory(String isbn) throws SQLException;
+
+    // Available copies of a book as they were at the given instant
+    int getAvailabilityAt(String isbn, Timestamp at) throws SQLException;
+
+    // Periodic job: materializes snapshots so reconstruction only replays recent movements
+    int compactSnapshots() throws SQLException;
+}
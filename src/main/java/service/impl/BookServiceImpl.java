@@ -1,19 +1,45 @@
 package service.impl;
 
 import dao.IBookDAO;
+import dao.IStockMovementDAO;
 import exception.BusinessException;
 import exception.ExistingISBNException;
 import model.Book;
+import model.ImportResult;
+import model.StockMovement;
 import service.IBookService;
+import util.CSVExporter;
+import util.CSVImporter;
+import util.ConfigLoader;
+import util.JsonLinesExporter;
+import util.JsonLinesReader;
+import util.TransactionTemplate;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class BookServiceImpl implements IBookService {
 
+    private static final String[] IMPORT_HEADER = CSVExporter.BOOKS_HEADER.trim().split(",");
+    private static final int IMPORT_BATCH_SIZE = ConfigLoader.getIntProperty("import.batchSize", 500);
+    private static final int SYNC_MAX_DEACTIVATION_PERCENT = ConfigLoader.getIntProperty("sync.maxDeactivationPercent", 20);
+
     private final IBookDAO bookDAO;
+    private final IStockMovementDAO stockMovementDAO;
 
-    public BookServiceImpl(IBookDAO bookDAO) {
+    public BookServiceImpl(IBookDAO bookDAO, IStockMovementDAO stockMovementDAO) {
         this.bookDAO = bookDAO;
+        this.stockMovementDAO = stockMovementDAO;
     }
 
     @Override
@@ -22,45 +48,47 @@ public class BookServiceImpl implements IBookService {
         if (bookDAO.findByIsbn(book.getIsbn()) != null) {
             throw new ExistingISBNException(book.getIsbn());
         }
-        // Validation: Available copies cannot exceed total copies
-        if (book.getAvailableCopies() > book.getTotalCopies()) {
-            throw new BusinessException("Available copies cannot exceed total copies.");
-        }
-        return bookDAO.insert(book);
+        validateNew(book);
+
+        // Insert the book and its opening stock balance in the ledger atomically
+        return inTransaction("registerBook", conn -> {
+            Book inserted = bookDAO.insert(book, conn);
+            if (book.getAvailableCopies() != 0) {
+                stockMovementDAO.append(new StockMovement(book.getIsbn(), book.getAvailableCopies(), "ADJUSTMENT", null), conn);
+            }
+            return inserted;
+        });
     }
 
     @Override
     public boolean update(Book book) throws BusinessException, SQLException {
-        // 1. Retrieve the existing book data to check current loan status
-        Book existingBook = bookDAO.findByIsbn(book.getIsbn());
-        if (existingBook == null) {
-            throw new BusinessException("Cannot update: Book with ISBN " + book.getIsbn() + " not found.");
-        }
-
-        // 2. Calculate currently loaned copies
-        // Loaned copies = Total copies (old) - Available copies (old)
-        int currentlyLoaned = existingBook.getTotalCopies() - existingBook.getAvailableCopies();
-        int newAvailable = book.getAvailableCopies();
-        int newTotal = book.getTotalCopies();
-
-        // Business Validation 1: New total copies must be enough for currently loaned books.
-        if (newTotal < currentlyLoaned) {
-            throw new BusinessException("Cannot reduce total copies below " + currentlyLoaned + " (currently loaned out).");
-        }
+        // A manual edit no longer matches the supplier feed: clearing the hash makes the next sync rewrite the row.
+        book.setContentHash(null);
+        try {
+            return TransactionTemplate.execute("updateBook", conn -> {
+                // 1. Lock the existing row: a loan or return committing meanwhile must not be overwritten,
+                // and the ledger adjustment must be the change from the locked availability
+                Book existingBook = bookDAO.findByIsbnsForUpdate(List.of(book.getIsbn()), conn).get(book.getIsbn());
+                if (existingBook == null) {
+                    throw new BusinessException("Cannot update: Book with ISBN " + book.getIsbn() + " not found.");
+                }
 
-        // Business Validation 2: New available copies must be enough for currently loaned books.
-        // This prevents creating inconsistency if TotalCopies is increased but Available is not.
-        if (newAvailable < currentlyLoaned) {
-            throw new BusinessException("Available copies cannot be less than " + currentlyLoaned + " copies currently loaned out.");
-        }
+                // 2. Check the new stock figures against the copies currently loaned out
+                validateUpdate(existingBook, book);
 
-        // Business Validation 3: Available copies must not exceed the new total copies.
-        if (newAvailable > newTotal) {
-            throw new BusinessException("Available copies must not exceed total copies (" + newTotal + ").");
+                // 3. Write the row, recording any availability change in the ledger
+                int adjustment = book.getAvailableCopies() - existingBook.getAvailableCopies();
+                boolean updated = bookDAO.update(book, conn);
+                if (updated && adjustment != 0) {
+                    stockMovementDAO.append(new StockMovement(book.getIsbn(), adjustment, "ADJUSTMENT", null), conn);
+                }
+                return updated;
+            });
+        } catch (BusinessException | SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error during updateBook.", e);
         }
-
-        // 3. Delegate to DAO if all validations pass
-        return bookDAO.update(book);
     }
 
     @Override
@@ -87,4 +115,357 @@ public class BookServiceImpl implements IBookService {
     public boolean updateStatus(String isbn, boolean isActive) throws SQLException {
         return bookDAO.updateStatus(isbn, isActive);
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean enableStockSharding(String isbn, int shards) throws BusinessException, SQLException {
+        if (shards < 2) {
+            throw new BusinessException("Striped stock needs at least 2 shards.");
+        }
+        return bookDAO.enableStockSharding(isbn, shards);
+    }
+
+    @Override
+    public boolean disableStockSharding(String isbn) throws SQLException {
+        return bookDAO.disableStockSharding(isbn);
+    }
+
+    @Override
+    public ImportResult importBooks(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException {
+        return runImport(filePath, rejectedFilePath, listener, false);
+    }
+
+    @Override
+    public ImportResult syncCatalog(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException {
+        return runImport(filePath, rejectedFilePath, listener, true);
+    }
+
+    /**
+     * Reads the file in batches. In sync mode each row's content hash is compared with the stored one
+     * first, only new or changed titles are written, and active titles missing from the feed are
+     * deactivated at the end.
+     */
+    private ImportResult runImport(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener,
+                                   boolean sync) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        long[] counts = new long[3]; // inserted, updated, unchanged
+        Map<String, Long> seenIsbns = new HashMap<>(); // ISBN -> first line, to reject duplicates within the file
+        MessageDigest digest = sync ? sha256() : null;
+
+        try (CSVImporter.RejectedRowWriter rejected = CSVImporter.openRejectedRows(rejectedFilePath)) {
+            long[] processed = new long[1];
+            CSVImporter.ChunkHandler handler = (records, bytesRead, totalBytes) -> {
+                for (int from = 0; from < records.size(); from += IMPORT_BATCH_SIZE) {
+                    List<CSVImporter.CSVRecord> batch = records.subList(from, Math.min(records.size(), from + IMPORT_BATCH_SIZE));
+                    importBatch(batch, seenIsbns, rejected, counts, digest);
+                    processed[0] += batch.size();
+                    if (listener != null) {
+                        listener.onProgress(bytesRead, totalBytes, processed[0], rejected.getRows());
+                    }
+                }
+            };
+            if (JsonLinesReader.isJsonLines(filePath)) {
+                JsonLinesReader.read(filePath, JsonLinesExporter.BOOK_FIELDS, handler);
+            } else {
+                CSVImporter.read(filePath, IMPORT_HEADER, handler);
+            }
+
+            ImportResult result = new ImportResult(counts[0], counts[1], rejected.getRows(), null,
+                    System.currentTimeMillis() - start);
+            result.setUnchanged(counts[2]);
+            if (sync) {
+                deactivateMissing(seenIsbns.keySet(), result);
+            }
+
+            rejected.flush(); // Complete the file before reporting it
+            result.setRejectedFile(rejected.getFilePath());
+            result.setElapsedMillis(System.currentTimeMillis() - start);
+            return result;
+
+        } catch (SQLException | IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error during book import.", e);
+        }
+    }
+
+    // Parses a batch, then validates and writes it in one transaction. If the transaction fails
+    // as a whole (e.g. a constraint violation), the rows are retried one by one to isolate the bad ones.
+    private void importBatch(List<CSVImporter.CSVRecord> records, Map<String, Long> seenIsbns,
+                             CSVImporter.RejectedRowWriter rejected, long[] counts, MessageDigest digest)
+            throws SQLException, IOException {
+        List<Book> books = new ArrayList<>();
+        List<CSVImporter.CSVRecord> accepted = new ArrayList<>();
+        for (CSVImporter.CSVRecord record : records) {
+            try {
+                if (record.getError() != null) {
+                    throw new BusinessException(record.getError());
+                }
+                Book book = parseImportRow(record.getFields());
+                Long firstLine = seenIsbns.putIfAbsent(book.getIsbn(), record.getLineNumber());
+                if (firstLine != null) {
+                    throw new BusinessException("Duplicate ISBN " + book.getIsbn() + " (first seen on line " + firstLine + ").");
+                }
+                books.add(book);
+                accepted.add(record);
+            } catch (BusinessException e) {
+                rejected.reject(record, e.getMessage());
+                String[] fields = record.getFields();
+                if (fields.length > 0 && !fields[0].trim().isEmpty()) {
+                    // Still part of the feed: a bad row must not get its title deactivated by a sync
+                    seenIsbns.putIfAbsent(fields[0].trim(), record.getLineNumber());
+                }
+            }
+        }
+
+        boolean sync = digest != null;
+        if (sync) {
+            skipUnchanged(books, accepted, digest, counts);
+        }
+
+        try {
+            applyImport(books, accepted, rejected, counts, sync);
+        } catch (SQLException e) {
+            for (int i = 0; i < books.size(); i++) {
+                try {
+                    applyImport(List.of(books.get(i)), List.of(accepted.get(i)), rejected, counts, sync);
+                } catch (SQLException rowError) {
+                    rejected.reject(accepted.get(i), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    // Sync mode: hashes the incoming rows and drops the ones whose stored hash matches (no lock, no write)
+    private void skipUnchanged(List<Book> books, List<CSVImporter.CSVRecord> records, MessageDigest digest,
+                               long[] counts) throws SQLException {
+        List<String> isbns = new ArrayList<>();
+        for (Book book : books) {
+            book.setContentHash(contentHash(book, digest));
+            isbns.add(book.getIsbn());
+        }
+        Map<String, String> stored = bookDAO.findContentHashes(isbns);
+
+        for (int i = books.size() - 1; i >= 0; i--) {
+            if (books.get(i).getContentHash().equals(stored.get(books.get(i).getIsbn()))) {
+                books.remove(i);
+                records.remove(i);
+                counts[2]++;
+            }
+        }
+    }
+
+    private void applyImport(List<Book> books, List<CSVImporter.CSVRecord> records,
+                             CSVImporter.RejectedRowWriter rejected, long[] counts, boolean sync)
+            throws SQLException, IOException {
+        if (books.isEmpty()) {
+            return;
+        }
+        // Rejections are only reported once the transaction commits (a retried attempt starts over)
+        Map<Integer, String> rejections = new HashMap<>();
+        int[] written = inTransaction(sync ? "syncCatalog" : "importBooks", conn -> {
+            rejections.clear();
+            List<String> isbns = new ArrayList<>();
+            for (Book book : books) {
+                isbns.add(book.getIsbn());
+            }
+            Map<String, Book> existing = bookDAO.findByIsbnsForUpdate(isbns, conn);
+
+            List<Book> inserts = new ArrayList<>();
+            List<Book> updates = new ArrayList<>();
+            List<StockMovement> movements = new ArrayList<>();
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                Book current = existing.get(book.getIsbn());
+                if (sync && current != null) {
+                    // The feed owns the catalog data, not the shelf: availability moves by the change in
+                    // total copies, so copies out on loan stay accounted for
+                    book = withAvailable(book, current.getAvailableCopies() + book.getTotalCopies() - current.getTotalCopies());
+                }
+                try {
+                    if (current == null) {
+                        validateNew(book);
+                    } else if (sync) {
+                        validateSync(current, book);
+                    } else {
+                        validateUpdate(current, book);
+                    }
+                } catch (BusinessException e) {
+                    rejections.put(i, e.getMessage());
+                    continue;
+                }
+                int adjustment = book.getAvailableCopies() - (current != null ? current.getAvailableCopies() : 0);
+                (current == null ? inserts : updates).add(book);
+                if (adjustment != 0) {
+                    movements.add(new StockMovement(book.getIsbn(), adjustment, "ADJUSTMENT", null));
+                }
+            }
+
+            bookDAO.insertBatch(inserts, conn);
+            bookDAO.updateBatch(updates, conn);
+            stockMovementDAO.appendBatch(movements, conn);
+            return new int[]{inserts.size(), updates.size()};
+        });
+
+        counts[0] += written[0];
+        counts[1] += written[1];
+        for (Map.Entry<Integer, String> rejection : rejections.entrySet()) {
+            rejected.reject(records.get(rejection.getKey()), rejection.getValue());
+        }
+    }
+
+    /**
+     * Deactivates active titles absent from the feed, in batches. If more titles than
+     * sync.maxDeactivationPercent of the active catalog would go, nothing is deactivated
+     * (a truncated feed must not empty the catalog); the count is reported instead.
+     */
+    private void deactivateMissing(Set<String> feedIsbns, ImportResult result) throws SQLException, IOException {
+        List<String> missing = new ArrayList<>();
+        long active = bookDAO.streamActiveIsbns(rs -> {
+            String isbn = rs.getString("isbn");
+            if (!feedIsbns.contains(isbn)) {
+                missing.add(isbn);
+            }
+        });
+
+        if (missing.size() > active * SYNC_MAX_DEACTIVATION_PERCENT / 100) {
+            result.setDeactivationsSkipped(missing.size());
+            return;
+        }
+        long deactivated = 0;
+        for (int from = 0; from < missing.size(); from += IMPORT_BATCH_SIZE) {
+            deactivated += bookDAO.updateStatusBatch(missing.subList(from, Math.min(missing.size(), from + IMPORT_BATCH_SIZE)), false);
+        }
+        result.setDeactivated(deactivated);
+    }
+
+    // SHA-256 over the catalog fields the feed controls (availability is ours, not the supplier's)
+    private String contentHash(Book book, MessageDigest digest) {
+        String canonical = book.getIsbn() + '\u001F' + book.getTitle() + '\u001F' + book.getAuthor() + '\u001F'
+                + book.getCategory() + '\u001F' + book.getTotalCopies() + '\u001F'
+                + book.getReferencePrice().setScale(2, RoundingMode.HALF_UP).toPlainString() + '\u001F' + book.isActive();
+        return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available.", e); // Required on every JVM
+        }
+    }
+
+    private Book withAvailable(Book book, int available) {
+        Book copy = new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(), book.getReferencePrice(),
+                book.getTotalCopies(), available, book.isActive(), book.getCreatedAt());
+        copy.setContentHash(book.getContentHash());
+        return copy;
+    }
+
+    // Maps a row of the export layout (ISBN,Title,Author,Category,Total Copies,Available Copies,Reference Price,Active);
+    // JSON Lines records arrive in the same order with is_active as true/false
+    private Book parseImportRow(String[] fields) throws BusinessException {
+        if (fields.length != IMPORT_HEADER.length) {
+            throw new BusinessException("Expected " + IMPORT_HEADER.length + " columns, found " + fields.length + ".");
+        }
+        String isbn = fields[0].trim();
+        String title = fields[1].trim();
+        if (isbn.isEmpty()) {
+            throw new BusinessException("ISBN is required.");
+        }
+        if (title.isEmpty()) {
+            throw new BusinessException("Title is required.");
+        }
+
+        Book book = new Book();
+        book.setIsbn(isbn);
+        book.setTitle(title);
+        book.setAuthor(fields[2].trim());
+        book.setCategory(fields[3].trim());
+        book.setTotalCopies(parseCopies(fields[4], "Total Copies"));
+        book.setAvailableCopies(parseCopies(fields[5], "Available Copies"));
+        try {
+            book.setReferencePrice(new BigDecimal(fields[6].trim()));
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Invalid Reference Price: " + fields[6]);
+        }
+        String status = fields[7].trim();
+        if (status.equalsIgnoreCase("ACTIVE") || status.equals("true")) {
+            book.setActive(true);
+        } else if (status.equalsIgnoreCase("INACTIVE") || status.equals("false")) {
+            book.setActive(false);
+        } else {
+            throw new BusinessException("Active must be ACTIVE or INACTIVE, found: " + status);
+        }
+        return book;
+    }
+
+    private int parseCopies(String value, String column) throws BusinessException {
+        try {
+            int copies = Integer.parseInt(value.trim());
+            if (copies < 0) {
+                throw new BusinessException(column + " cannot be negative.");
+            }
+            return copies;
+        } catch (NumberFormatException e) {
+            throw new BusinessException("Invalid " + column + ": " + value);
+        }
+    }
+
+    // Rules for a new title (shared by register and import)
+    private void validateNew(Book book) throws BusinessException {
+        // Validation: Available copies cannot exceed total copies
+        if (book.getAvailableCopies() > book.getTotalCopies()) {
+            throw new BusinessException("Available copies cannot exceed total copies.");
+        }
+    }
+
+    // Rules for changing the stock of an existing title (shared by update and import)
+    private void validateUpdate(Book existingBook, Book book) throws BusinessException {
+        // Loaned copies = Total copies (old) - Available copies (old)
+        int currentlyLoaned = existingBook.getTotalCopies() - existingBook.getAvailableCopies();
+        int newAvailable = book.getAvailableCopies();
+        int newTotal = book.getTotalCopies();
+
+        // Business Validation 1: New total copies must be enough for currently loaned books.
+        if (newTotal < currentlyLoaned) {
+            throw new BusinessException("Cannot reduce total copies below " + currentlyLoaned + " (currently loaned out).");
+        }
+
+        // Business Validation 2: New available copies must be enough for currently loaned books.
+        // This prevents creating inconsistency if TotalCopies is increased but Available is not.
+        if (newAvailable < currentlyLoaned) {
+            throw new BusinessException("Available copies cannot be less than " + currentlyLoaned + " copies currently loaned out.");
+        }
+
+        // Business Validation 3: Available copies must not exceed the new total copies.
+        if (newAvailable > newTotal) {
+            throw new BusinessException("Available copies must not exceed total copies (" + newTotal + ").");
+        }
+    }
+
+    // Rules for a synced title, whose availability is derived from the change in total copies: copies on
+    // loan may outnumber the ones on the shelf, so only the derived counts themselves are checked
+    private void validateSync(Book existingBook, Book book) throws BusinessException {
+        int currentlyLoaned = existingBook.getTotalCopies() - existingBook.getAvailableCopies();
+
+        if (book.getTotalCopies() < currentlyLoaned) {
+            throw new BusinessException("Cannot reduce total copies below " + currentlyLoaned + " (currently loaned out).");
+        }
+        if (book.getAvailableCopies() < 0) {
+            throw new BusinessException("Available copies cannot be negative.");
+        }
+    }
+
+    // Runs SQL-only work through the transaction template (the callbacks throw nothing else)
+    private <T> T inTransaction(String operation, TransactionTemplate.TransactionCallback<T> work) throws SQLException {
+        try {
+            return TransactionTemplate.execute(operation, work);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error during " + operation + ".", e);
+        }
+    }
+}
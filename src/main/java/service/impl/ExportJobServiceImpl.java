@@ -0,0 +1,338 @@
+package service.impl;
+
+import dao.IBookDAO;
+import dao.ILoanDAO;
+import exception.BusinessException;
+import model.ExportJob;
+import service.IExportJobService;
+import util.AppLogger;
+import util.CSVExporter;
+import util.ConfigLoader;
+import util.FlightEvents;
+import util.MetricsRegistry;
+import util.RowHandler;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs exports in the background. Submitted jobs wait in a bounded queue; a dispatcher starts each
+ * one on its own virtual thread once one of the concurrency slots (each job holds a pooled connection
+ * while it streams) is free. Cancelling a running job cancels its query on the server, so the
+ * streaming cursor closes without reading the rest of the result.
+ */
+public class ExportJobServiceImpl implements IExportJobService {
+
+    private static final int QUEUE_CAPACITY = ConfigLoader.getIntProperty("export.jobs.queueCapacity", 20);
+    private static final int MAX_CONCURRENT = ConfigLoader.getIntProperty("export.jobs.maxConcurrent", 2);
+    // Finished jobs kept for the status screen
+    private static final int HISTORY_SIZE = ConfigLoader.getIntProperty("export.jobs.history", 50);
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+    // Rows are published on every row; the byte count is sampled every this many rows
+    private static final int BYTES_SAMPLE_ROWS = 1024;
+
+    private final IBookDAO bookDAO;
+    private final ILoanDAO loanDAO;
+    private final BlockingQueue<RunningJob> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Semaphore slots = new Semaphore(MAX_CONCURRENT);
+    private final ConcurrentSkipListMap<Integer, RunningJob> jobs = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    // Finished jobs since startup per final status (the job history is pruned)
+    private final ConcurrentMap<ExportJob.Status, LongAdder> finishedCounts = new ConcurrentHashMap<>();
+    private final Thread dispatcher;
+    private volatile boolean shuttingDown;
+
+    // Writes the job's file and returns the number of rows written
+    @FunctionalInterface
+    private interface JobBody {
+        long run(RunningJob job) throws Exception;
+    }
+
+    public ExportJobServiceImpl(IBookDAO bookDAO, ILoanDAO loanDAO) {
+        this.bookDAO = bookDAO;
+        this.loanDAO = loanDAO;
+        this.dispatcher = Thread.ofVirtual().name("export-job-dispatcher").start(this::dispatch);
+        registerMetrics();
+    }
+
+    // novabook:type=ExportJobs (JMX)
+    private void registerMetrics() {
+        MetricsRegistry.group("type=ExportJobs")
+                .gauge("Queued", "Jobs waiting for a slot", queue::size)
+                .gauge("QueueCapacity", "Jobs that can wait before submissions are rejected", () -> QUEUE_CAPACITY)
+                .gauge("Running", "Jobs currently exporting", () -> countJobs(ExportJob.Status.RUNNING))
+                .gauge("MaxConcurrent", "Jobs that can run at the same time", () -> MAX_CONCURRENT)
+                .gauge("Completed", "Jobs completed since startup", () -> finishedCount(ExportJob.Status.COMPLETED))
+                .gauge("Failed", "Jobs failed since startup", () -> finishedCount(ExportJob.Status.FAILED))
+                .gauge("Cancelled", "Jobs cancelled since startup", () -> finishedCount(ExportJob.Status.CANCELLED));
+    }
+
+    private long countJobs(ExportJob.Status status) {
+        return jobs.values().stream().filter(r -> r.job.getStatus() == status).count();
+    }
+
+    private long finishedCount(ExportJob.Status status) {
+        LongAdder count = finishedCounts.get(status);
+        return count == null ? 0 : count.sum();
+    }
+
+    @Override
+    public ExportJob submitBooksExport(String filePath, boolean compress) throws BusinessException {
+        return submit("Books CSV", filePath, running -> {
+            running.job.setEstimatedRows(bookDAO.countAll());
+            try (CSVExporter.BookRowWriter writer = CSVExporter.openBookStream(filePath, compress)) {
+                return bookDAO.streamAll(running.track(writer, writer::getBytesWritten));
+            }
+        });
+    }
+
+    @Override
+    public ExportJob submitOverdueLoansExport(String filePath, boolean compress) throws BusinessException {
+        return submit("Overdue Loans CSV", filePath, running -> {
+            running.job.setEstimatedRows(loanDAO.countOverdue());
+            try (CSVExporter.OverdueLoanRowWriter writer = CSVExporter.openOverdueLoanStream(filePath, compress)) {
+                return loanDAO.streamOverdueLoans(running.track(writer, writer::getBytesWritten));
+            }
+        });
+    }
+
+    @Override
+    public List<ExportJob> listJobs() {
+        List<ExportJob> list = new ArrayList<>();
+        for (RunningJob running : jobs.values()) {
+            list.add(running.job);
+        }
+        return list;
+    }
+
+    @Override
+    public void cancel(int jobId) throws BusinessException {
+        RunningJob running = jobs.get(jobId);
+        if (running == null) {
+            throw new BusinessException("Export job #" + jobId + " not found.");
+        }
+        if (running.job.getStatus().isFinished()) {
+            throw new BusinessException("Export job #" + jobId + " has already finished (" + running.job.getStatus() + ").");
+        }
+        running.cancel();
+        if (queue.remove(running)) {
+            finish(running, ExportJob.Status.CANCELLED, null); // Never started
+        }
+        // Otherwise the dispatcher or the job thread sees the flag and finishes the job
+    }
+
+    @Override
+    public void shutdown() {
+        shuttingDown = true;
+        dispatcher.interrupt();
+        for (RunningJob running : jobs.values()) {
+            if (!running.job.getStatus().isFinished()) {
+                running.cancel();
+            }
+        }
+        queue.clear();
+
+        long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MILLIS;
+        for (RunningJob running : jobs.values()) {
+            Thread thread = running.thread;
+            if (thread == null) {
+                finish(running, ExportJob.Status.CANCELLED, null);
+                continue;
+            }
+            try {
+                // Give cancelled jobs time to close their cursor and remove the partial file
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private ExportJob submit(String description, String filePath, JobBody body) throws BusinessException {
+        if (shuttingDown) {
+            throw new BusinessException("Export jobs are shutting down.");
+        }
+        RunningJob running = new RunningJob(new ExportJob(nextId.getAndIncrement(), description, filePath), body);
+        jobs.put(running.job.getId(), running);
+        if (!queue.offer(running)) {
+            jobs.remove(running.job.getId());
+            throw new BusinessException("Export queue is full (" + QUEUE_CAPACITY + " jobs waiting). Try again later.");
+        }
+        AppLogger.logInfo("Export job #{} queued: {} -> {}", running.job.getId(), description, filePath);
+        return running.job;
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                RunningJob next = queue.take();
+                slots.acquire();
+                if (next.cancelRequested) {
+                    slots.release();
+                    finish(next, ExportJob.Status.CANCELLED, null);
+                    continue;
+                }
+                next.thread = Thread.ofVirtual().name("export-job-" + next.job.getId()).unstarted(() -> {
+                    try {
+                        run(next);
+                    } finally {
+                        slots.release();
+                    }
+                });
+                next.thread.start();
+            }
+        } catch (InterruptedException e) {
+            // Shutdown
+        }
+    }
+
+    private void run(RunningJob running) {
+        ExportJob job = running.job;
+        job.setStartedAt(LocalDateTime.now());
+        job.setStatus(ExportJob.Status.RUNNING);
+        FlightEvents.ExportJobRun event = new FlightEvents.ExportJobRun();
+        event.begin();
+        try {
+            if (running.cancelRequested) {
+                throw new CancellationException();
+            }
+            long rows = running.body.run(running);
+            job.setRowsWritten(rows);
+            Path file = Paths.get(job.getFilePath());
+            if (rows == 0) {
+                Files.deleteIfExists(file); // Header only
+                job.setBytesWritten(0);
+            } else {
+                job.setBytesWritten(Files.size(file)); // Size on disk (compressed size for .gz)
+            }
+            finish(running, ExportJob.Status.COMPLETED, null);
+            AppLogger.logSuccess("Export Job", "#{}: exported {} rows to {}", job.getId(), rows, job.getFilePath());
+        } catch (Exception e) {
+            deletePartialFile(job.getFilePath());
+            if (running.cancelRequested) {
+                finish(running, ExportJob.Status.CANCELLED, null);
+                AppLogger.logInfo("Export job #{} cancelled after {} rows.", job.getId(), job.getRowsWritten());
+            } else {
+                finish(running, ExportJob.Status.FAILED, e.getMessage());
+                AppLogger.logError("Export job #{} failed", job.getId(), e);
+            }
+        } finally {
+            if (event.shouldCommit()) {
+                event.jobId = job.getId();
+                event.description = job.getDescription();
+                event.filePath = job.getFilePath();
+                event.rows = job.getRowsWritten();
+                event.bytes = job.getBytesWritten();
+                event.status = job.getStatus().name();
+                event.commit();
+            }
+        }
+    }
+
+    private void finish(RunningJob running, ExportJob.Status status, String errorMessage) {
+        synchronized (running) {
+            if (running.job.getStatus().isFinished()) {
+                return;
+            }
+            running.job.setFinishedAt(LocalDateTime.now());
+            running.job.setErrorMessage(errorMessage);
+            running.job.setStatus(status);
+        }
+        finishedCounts.computeIfAbsent(status, s -> new LongAdder()).increment();
+        pruneHistory();
+    }
+
+    private void pruneHistory() {
+        long finished = jobs.values().stream().filter(r -> r.job.getStatus().isFinished()).count();
+        Iterator<RunningJob> it = jobs.values().iterator();
+        while (finished > HISTORY_SIZE && it.hasNext()) {
+            if (it.next().job.getStatus().isFinished()) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static void deletePartialFile(String filePath) {
+        try {
+            Files.deleteIfExists(Paths.get(filePath));
+        } catch (IOException e) {
+            AppLogger.logWarning("Could not delete partial export {}: {}", filePath, e.getMessage());
+        }
+    }
+
+    /**
+     * A job plus what is needed to stop it: the cancel flag checked on every row and the
+     * statement currently streaming, cancelled on the server when the job is cancelled.
+     */
+    private static class RunningJob {
+        final ExportJob job;
+        final JobBody body;
+        volatile boolean cancelRequested;
+        volatile Statement statement;
+        volatile Thread thread;
+
+        RunningJob(ExportJob job, JobBody body) {
+            this.job = job;
+            this.body = body;
+        }
+
+        void cancel() {
+            cancelRequested = true;
+            Statement current = statement;
+            if (current != null) {
+                try {
+                    current.cancel();
+                } catch (SQLException e) {
+                    AppLogger.logWarning("Could not cancel the query of export job #{}: {}", job.getId(), e.getMessage());
+                }
+            }
+        }
+
+        // Wraps a row writer to publish progress and stop at the next row once cancelled
+        RowHandler track(RowHandler writer, LongSupplier bytes) {
+            return new RowHandler() {
+                private long rows;
+
+                @Override
+                public void beforeExecute(Statement st) {
+                    statement = st;
+                    if (cancelRequested) {
+                        throw new CancellationException(); // Cancelled before the query was sent
+                    }
+                }
+
+                @Override
+                public void handle(ResultSet rs) throws SQLException, IOException {
+                    if (cancelRequested) {
+                        throw new CancellationException();
+                    }
+                    writer.handle(rs);
+                    job.setRowsWritten(++rows);
+                    if (rows % BYTES_SAMPLE_ROWS == 0) {
+                        job.setBytesWritten(bytes.getAsLong());
+                    }
+                }
+            };
+        }
+    }
+}
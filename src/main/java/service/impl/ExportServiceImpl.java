@@ -0,0 +1,264 @@
+package service.impl;
+
+import dao.IBookDAO;
+import dao.IExportWatermarkDAO;
+import dao.ILoanDAO;
+import dao.IPartnerDAO;
+import dao.IUserDAO;
+import service.IExportService;
+import util.CSVExporter;
+import util.ColumnarExporter;
+import util.ConfigLoader;
+import util.ConnectionPool;
+import util.DBConnection;
+import util.JsonLinesExporter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ExportServiceImpl implements IExportService {
+
+    // Delta windows start this far before the previous watermark, so rows committed late by
+    // transactions that were still open at the last run are picked up (consumers upsert by key).
+    private static final int DELTA_OVERLAP_SECONDS = ConfigLoader.getIntProperty("export.delta.overlapSeconds", 300);
+
+    private final IBookDAO bookDAO;
+    private final ILoanDAO loanDAO;
+    private final IPartnerDAO partnerDAO;
+    private final IUserDAO userDAO;
+    private final IExportWatermarkDAO watermarkDAO;
+
+    public ExportServiceImpl(IBookDAO bookDAO, ILoanDAO loanDAO, IPartnerDAO partnerDAO, IUserDAO userDAO,
+                             IExportWatermarkDAO watermarkDAO) {
+        this.bookDAO = bookDAO;
+        this.loanDAO = loanDAO;
+        this.partnerDAO = partnerDAO;
+        this.userDAO = userDAO;
+        this.watermarkDAO = watermarkDAO;
+    }
+
+    // Exports one key range into a part file and returns the number of rows written
+    @FunctionalInterface
+    private interface PartExport {
+        long export(String partPath) throws SQLException, IOException;
+    }
+
+    // Exports the rows changed in (from, to] and returns the number of rows written
+    @FunctionalInterface
+    private interface DeltaExport {
+        long export(Timestamp from, Timestamp to) throws SQLException, IOException;
+    }
+
+    @Override
+    public long exportBooksToCsv(String filePath, boolean compress) throws SQLException, IOException {
+        // Rows go from the cursor to the file one by one: memory use does not depend on the catalog size
+        try (CSVExporter.BookRowWriter writer = CSVExporter.openBookStream(filePath, compress)) {
+            return bookDAO.streamAll(writer);
+        }
+    }
+
+    @Override
+    public long exportOverdueLoansToCsv(String filePath, boolean compress) throws SQLException, IOException {
+        try (CSVExporter.OverdueLoanRowWriter writer = CSVExporter.openOverdueLoanStream(filePath, compress)) {
+            return loanDAO.streamOverdueLoans(writer);
+        }
+    }
+
+    @Override
+    public long exportBooksDelta(String filePath, boolean compress) throws SQLException, IOException {
+        return exportDelta("books", (from, to) -> {
+            try (CSVExporter.BookRowWriter writer = CSVExporter.openBookDelta(filePath, compress)) {
+                return bookDAO.streamChangedSince(from, to, writer);
+            }
+        });
+    }
+
+    @Override
+    public long exportPartnersDelta(String filePath, boolean compress) throws SQLException, IOException {
+        return exportDelta("partners", (from, to) -> {
+            try (CSVExporter.PartnerRowWriter writer = CSVExporter.openPartnerDelta(filePath, compress)) {
+                return partnerDAO.streamChangedSince(from, to, writer);
+            }
+        });
+    }
+
+    @Override
+    public long exportLoansDelta(String filePath, boolean compress) throws SQLException, IOException {
+        return exportDelta("loans", (from, to) -> {
+            try (CSVExporter.LoanRowWriter writer = CSVExporter.openLoanDelta(filePath, compress)) {
+                return loanDAO.streamChangedSince(from, to, writer);
+            }
+        });
+    }
+
+    /**
+     * Runs a delta feed over (previous watermark - overlap, database now] and moves the watermark
+     * only after the file is complete, so a failed run is simply repeated by the next one.
+     * The first run of a feed exports everything.
+     */
+    private long exportDelta(String feed, DeltaExport export) throws SQLException, IOException {
+        Timestamp to = watermarkDAO.currentTime();
+        Timestamp previous = watermarkDAO.find(feed);
+        Timestamp from = previous != null
+                ? new Timestamp(previous.getTime() - DELTA_OVERLAP_SECONDS * 1000L)
+                : new Timestamp(0);
+
+        long rows = export.export(from, to);
+        watermarkDAO.save(feed, to);
+        return rows;
+    }
+
+    @Override
+    public long exportBooksJson(String filePath, boolean compress) throws SQLException, IOException {
+        try (JsonLinesExporter.BookJsonWriter writer = JsonLinesExporter.openBookStream(filePath, compress)) {
+            return bookDAO.streamAll(writer);
+        }
+    }
+
+    @Override
+    public long exportPartnersJson(String filePath, boolean compress) throws SQLException, IOException {
+        try (JsonLinesExporter.PartnerJsonWriter writer = JsonLinesExporter.openPartnerStream(filePath, compress)) {
+            return partnerDAO.streamAll(writer);
+        }
+    }
+
+    @Override
+    public long exportLoansJson(String filePath, boolean compress) throws SQLException, IOException {
+        try (JsonLinesExporter.LoanJsonWriter writer = JsonLinesExporter.openLoanStream(filePath, compress)) {
+            int[] bounds = loanDAO.findIdBounds();
+            return bounds != null ? loanDAO.streamRange(bounds[0], bounds[1], writer) : 0;
+        }
+    }
+
+    @Override
+    public long exportUsersJson(String filePath, boolean compress) throws SQLException, IOException {
+        try (JsonLinesExporter.UserJsonWriter writer = JsonLinesExporter.openUserStream(filePath, compress)) {
+            return userDAO.streamAll(writer);
+        }
+    }
+
+    @Override
+    public long exportBooksColumnar(String filePath) throws SQLException, IOException {
+        // Column values are collected while the cursor is read; the file is written only once the cursor
+        // is exhausted (a failure midway leaves no snapshot behind)
+        try (ColumnarExporter.BookColumnWriter writer = ColumnarExporter.openBookSnapshot(filePath)) {
+            long rows = bookDAO.streamAll(writer);
+            writer.finish();
+            return rows;
+        }
+    }
+
+    @Override
+    public long exportLoansColumnar(String filePath) throws SQLException, IOException {
+        try (ColumnarExporter.LoanColumnWriter writer = ColumnarExporter.openLoanSnapshot(filePath)) {
+            int[] bounds = loanDAO.findIdBounds();
+            long rows = bounds != null ? loanDAO.streamRange(bounds[0], bounds[1], writer) : 0;
+            writer.finish();
+            return rows;
+        }
+    }
+
+    @Override
+    public long exportBooksParallel(String filePath, int parts) throws SQLException, IOException {
+        List<PartExport> tasks = new ArrayList<>();
+        for (String[] range : bookDAO.findIsbnRanges(parts)) {
+            tasks.add(partPath -> {
+                try (CSVExporter.BookRowWriter writer = CSVExporter.openBookPart(partPath)) {
+                    return bookDAO.streamRange(range[0], range[1], writer);
+                }
+            });
+        }
+        return runParts(filePath, CSVExporter.BOOKS_HEADER, tasks);
+    }
+
+    @Override
+    public long exportLoansParallel(String filePath, int parts) throws SQLException, IOException {
+        List<PartExport> tasks = new ArrayList<>();
+        int[] bounds = loanDAO.findIdBounds();
+        if (bounds != null) {
+            // Equal-width ID ranges (IDs are dense auto-increment values)
+            long span = (long) bounds[1] - bounds[0] + 1;
+            int count = (int) Math.max(1, Math.min(parts, span));
+            for (int i = 0; i < count; i++) {
+                int from = (int) (bounds[0] + span * i / count);
+                int to = (int) (bounds[0] + span * (i + 1) / count - 1);
+                tasks.add(partPath -> {
+                    try (CSVExporter.LoanRowWriter writer = CSVExporter.openLoanPart(partPath)) {
+                        return loanDAO.streamRange(from, to, writer);
+                    }
+                });
+            }
+        }
+        return runParts(filePath, CSVExporter.LOANS_HEADER, tasks);
+    }
+
+    /**
+     * Runs the part exports concurrently, then concatenates the parts (in key order) behind the header.
+     * Parts are removed if any of them fails.
+     */
+    private long runParts(String filePath, String header, List<PartExport> tasks) throws SQLException, IOException {
+        List<Path> partFiles = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            partFiles.add(Paths.get(filePath + ".part" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism(tasks.size()));
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                PartExport task = tasks.get(i);
+                String partPath = partFiles.get(i).toString();
+                results.add(executor.submit(() -> task.export(partPath)));
+            }
+
+            long rows = 0;
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+            CSVExporter.concatenateParts(filePath, header, partFiles);
+            return rows;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deleteParts(partFiles);
+            throw new IOException("Parallel export interrupted.", e);
+        } catch (ExecutionException e) {
+            deleteParts(partFiles);
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new RuntimeException("Unexpected error during parallel export.", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Never more workers than parts, configured parallelism, or pooled connections (one is left for the UI)
+    private int parallelism(int parts) {
+        int workers = ConfigLoader.getIntProperty("export.parallelism", Runtime.getRuntime().availableProcessors());
+        ConnectionPool pool = DBConnection.getPool();
+        if (pool != null) {
+            workers = Math.min(workers, Math.max(1, pool.getMaxSize() - 1));
+        }
+        return Math.max(1, Math.min(workers, parts));
+    }
+
+    private void deleteParts(List<Path> partFiles) {
+        for (Path part : partFiles) {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {
+                // Best effort cleanup
+            }
+        }
+    }
+}
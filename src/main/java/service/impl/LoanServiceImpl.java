@@ -1,19 +1,27 @@
 package service.impl;
 
 import dao.IBookDAO;
+import dao.IIdempotencyDAO;
 import dao.ILoanDAO;
 import dao.IPartnerDAO;
+import dao.IStockMovementDAO;
 import exception.BusinessException;
 import exception.InsufficientStockException;
 import exception.InvalidPartnerException;
 import model.Book;
+import model.IdempotencyKey;
 import model.Loan;
+import model.StockMovement;
 import service.ILoanService;
-import util.DBConnection;
-import java.sql.Connection;
+import util.ConfigLoader;
+import util.FlightEvents;
+import util.RecentKeysCache;
+import util.TransactionTemplate;
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.temporal.ChronoUnit;
 import java.time.LocalDate;
 import java.util.List;
@@ -23,21 +31,50 @@ public class LoanServiceImpl implements ILoanService {
     private final ILoanDAO loanDAO;
     private final IBookDAO bookDAO;
     private final IPartnerDAO partnerDAO;
+    private final IStockMovementDAO stockMovementDAO;
+    private final IIdempotencyDAO idempotencyDAO;
 
     private static final BigDecimal FINE_PER_DAY = new BigDecimal("0.50");
 
-    public LoanServiceImpl(ILoanDAO loanDAO, IBookDAO bookDAO, IPartnerDAO partnerDAO) {
+    // Idempotency operations
+    private static final String OP_REGISTER = "LOAN_REGISTER";
+    private static final String OP_RETURN = "LOAN_RETURN";
+    // Loan ID of a register key claimed by a transaction that has not inserted its loan yet
+    private static final int PENDING_LOAN_ID = 0;
+
+    // Recently completed requests (key -> stored result), checked before the database
+    private final RecentKeysCache<IdempotencyKey> recentKeys;
+    private final long idempotencyTtlMillis;
+
+    public LoanServiceImpl(ILoanDAO loanDAO, IBookDAO bookDAO, IPartnerDAO partnerDAO, IStockMovementDAO stockMovementDAO,
+                           IIdempotencyDAO idempotencyDAO) {
         this.loanDAO = loanDAO;
         this.bookDAO = bookDAO;
         this.partnerDAO = partnerDAO;
+        this.stockMovementDAO = stockMovementDAO;
+        this.idempotencyDAO = idempotencyDAO;
+        this.idempotencyTtlMillis = ConfigLoader.getIntProperty("idempotency.ttlHours", 24) * 3_600_000L;
+        this.recentKeys = new RecentKeysCache<>("idempotency-keys", ConfigLoader.getIntProperty("idempotency.cacheSize", 10000), idempotencyTtlMillis);
     }
 
     @Override
     public Loan registerLoan(Loan loan) throws BusinessException, SQLException, InvalidPartnerException, InsufficientStockException {
-        Connection conn = null;
-        Loan newLoan = null;
+        return registerLoan(loan, null);
+    }
 
+    @Override
+    public Loan registerLoan(Loan loan, String idempotencyKey) throws BusinessException, SQLException, InvalidPartnerException, InsufficientStockException {
+        FlightEvents.LoanRegister event = new FlightEvents.LoanRegister();
+        event.begin();
         try {
+            // Replayed request: answer with the original loan without running the transaction again
+            IdempotencyKey previous = findCompleted(idempotencyKey, OP_REGISTER);
+            if (previous != null) {
+                event.replayed = true;
+                event.loanId = previous.getLoanId();
+                return loanDAO.findById(previous.getLoanId());
+            }
+
             // Validations BEFORE transaction
             if (!partnerDAO.isActive(loan.getPartnerId())) {
                 throw new InvalidPartnerException(loan.getPartnerId());
@@ -51,53 +88,80 @@ public class LoanServiceImpl implements ILoanService {
                 throw new InsufficientStockException(loan.getBookIsbn(), book.getAvailableCopies());
             }
 
-            // Start transaction
-            conn = DBConnection.getConnection();
-            conn.setAutoCommit(false);
+            // Transaction (re-run as a whole on deadlocks / lock wait timeouts)
+            Loan newLoan = TransactionTemplate.execute("registerLoan", conn -> {
+                // Claim the idempotency key first: a concurrent retry of this request waits here until the
+                // original commits, then answers with its loan instead of competing for the stock
+                if (idempotencyKey != null && !idempotencyDAO.insert(newKey(idempotencyKey, OP_REGISTER, PENDING_LOAN_ID), conn)) {
+                    conn.rollback();
+                    int winnerLoanId = findWinner(idempotencyKey, OP_REGISTER, conn).getLoanId();
+                    Loan winner = loanDAO.findById(winnerLoanId, conn);
+                    if (winner == null) {
+                        throw new BusinessException("Loan " + winnerLoanId + " recorded for idempotency key '" + idempotencyKey + "' no longer exists.");
+                    }
+                    return winner;
+                }
 
-            // Insert Loan
-            newLoan = loanDAO.insert(loan, conn);
+                // Insert Loan
+                Loan inserted = loanDAO.insert(loan, conn);
+                if (idempotencyKey != null) {
+                    idempotencyDAO.updateLoanId(idempotencyKey, inserted.getId(), conn);
+                }
 
-            // Update Stock (Decrement -1)
-            boolean stockUpdated = bookDAO.updateStock(loan.getBookIsbn(), -1, conn);
+                // Update Stock (Decrement -1)
+                boolean stockUpdated = bookDAO.updateStock(loan.getBookIsbn(), -1, conn);
 
-            if (!stockUpdated) {
-                throw new BusinessException("Failed to update book stock. Loan failed.");
-            }
+                if (!stockUpdated) {
+                    throw new BusinessException("Failed to update book stock. Loan failed.");
+                }
+
+                // Record the movement in the stock ledger (same transaction)
+                stockMovementDAO.append(new StockMovement(loan.getBookIsbn(), -1, "LOAN", inserted.getId()), conn);
+                return inserted;
+            });
 
-            conn.commit();
+            if (idempotencyKey != null) {
+                recentKeys.put(idempotencyKey, newKey(idempotencyKey, OP_REGISTER, newLoan.getId()));
+            }
+            event.loanId = newLoan.getId();
             return newLoan;
 
         } catch (Exception e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
+            event.failure = e.toString();
             if (e instanceof BusinessException) throw (BusinessException) e;
             if (e instanceof InvalidPartnerException) throw (InvalidPartnerException) e;
             if (e instanceof InsufficientStockException) throw (InsufficientStockException) e;
             if (e instanceof SQLException) throw (SQLException) e;
             throw new RuntimeException("Unexpected error during loan registration.", e);
         } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
+            if (event.shouldCommit()) {
+                event.isbn = loan.getBookIsbn();
+                event.partnerId = loan.getPartnerId();
+                event.commit();
             }
         }
     }
 
     @Override
     public boolean processReturn(int loanId, Date returnDate) throws BusinessException, SQLException {
-        Connection conn = null;
+        return processReturn(loanId, returnDate, null);
+    }
 
+    @Override
+    public boolean processReturn(int loanId, Date returnDate, String idempotencyKey) throws BusinessException, SQLException {
+        FlightEvents.LoanReturn event = new FlightEvents.LoanReturn();
+        event.begin();
         try {
+            // Replayed request: the return already succeeded, do not hit the "already returned" path
+            IdempotencyKey previous = findCompleted(idempotencyKey, OP_RETURN);
+            if (previous != null) {
+                if (previous.getLoanId() != loanId) {
+                    throw new BusinessException("Idempotency key was already used to return loan " + previous.getLoanId() + ".");
+                }
+                event.replayed = true;
+                return true;
+            }
+
             Loan loan = loanDAO.findById(loanId);
 
             if (loan == null) {
@@ -111,47 +175,116 @@ public class LoanServiceImpl implements ILoanService {
             BigDecimal fineAmount = calculateFine(loan.getDueDate(), returnDate);
             loan.setReturnDate(returnDate);
             loan.setFine(fineAmount);
+            event.isbn = loan.getBookIsbn();
+            event.fine = fineAmount.doubleValue();
 
-            // Start transaction
-            conn = DBConnection.getConnection();
-            conn.setAutoCommit(false);
+            // Transaction (re-run as a whole on deadlocks / lock wait timeouts)
+            TransactionTemplate.execute("processReturn", conn -> {
+                // Claim the idempotency key first: a concurrent retry of this request waits here until the
+                // original commits, then reports its result instead of finding the loan already returned
+                if (idempotencyKey != null && !idempotencyDAO.insert(newKey(idempotencyKey, OP_RETURN, loanId), conn)) {
+                    conn.rollback();
+                    IdempotencyKey winner = findWinner(idempotencyKey, OP_RETURN, conn);
+                    if (winner.getLoanId() != loanId) {
+                        throw new BusinessException("Idempotency key was already used to return loan " + winner.getLoanId() + ".");
+                    }
+                    return true;
+                }
 
-            // Update Loan for return
-            boolean loanUpdated = loanDAO.updateForReturn(loan, conn);
+                // Update Loan for return
+                boolean loanUpdated = loanDAO.updateForReturn(loan, conn);
 
-            // Update Stock (Increment +1)
-            boolean stockUpdated = bookDAO.updateStock(loan.getBookIsbn(), 1, conn);
+                // Record the movement in the stock ledger (same transaction). Appended before the stock
+                // change so a return locks the books row (foreign key check) before a stock shard, in the
+                // same order as loans and book updates
+                stockMovementDAO.append(new StockMovement(loan.getBookIsbn(), 1, "RETURN", loanId), conn);
 
-            if (!loanUpdated || !stockUpdated) {
-                throw new BusinessException("Return process failed. Data consistency issue.");
-            }
+                // Update Stock (Increment +1)
+                boolean stockUpdated = bookDAO.updateStock(loan.getBookIsbn(), 1, conn);
+
+                if (!loanUpdated || !stockUpdated) {
+                    throw new BusinessException("Return process failed. Data consistency issue.");
+                }
+                return true;
+            });
 
-            conn.commit();
+            if (idempotencyKey != null) {
+                recentKeys.put(idempotencyKey, newKey(idempotencyKey, OP_RETURN, loanId));
+            }
             return true;
 
         } catch (Exception e) {
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
-            }
+            event.failure = e.toString();
             if (e instanceof BusinessException) throw (BusinessException) e;
             if (e instanceof SQLException) throw (SQLException) e;
             throw new RuntimeException("Unexpected error during return process.", e);
         } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
+            if (event.shouldCommit()) {
+                event.loanId = loanId;
+                event.commit();
             }
         }
     }
 
+    @Override
+    public int purgeExpiredIdempotencyKeys() throws SQLException {
+        return idempotencyDAO.deleteExpired();
+    }
+
+    /**
+     * Looks up a completed request by its idempotency key (in-memory cache first, then the dedup table).
+     * @return The stored result, or null if the key is unknown or no key was given.
+     * @throws BusinessException If the key was used for a different operation.
+     */
+    private IdempotencyKey findCompleted(String idempotencyKey, String operation) throws BusinessException, SQLException {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        IdempotencyKey previous = recentKeys.get(idempotencyKey);
+        if (previous == null) {
+            previous = idempotencyDAO.findActive(idempotencyKey);
+            if (previous == null || isPending(previous)) {
+                return null;
+            }
+            recentKeys.put(idempotencyKey, previous);
+        }
+        if (!previous.getOperation().equals(operation)) {
+            throw new BusinessException("Idempotency key '" + idempotencyKey + "' was already used for " + previous.getOperation() + ".");
+        }
+        return previous;
+    }
+
+    /**
+     * Reads the key stored by a concurrent retry that committed first. Runs on the transaction's
+     * connection after the rollback, so no second pooled connection is borrowed while this one is held.
+     * @return The stored result.
+     * @throws BusinessException If the key expired or was purged in the meantime, or was used for a different operation.
+     */
+    private IdempotencyKey findWinner(String idempotencyKey, String operation, Connection conn) throws BusinessException, SQLException {
+        IdempotencyKey winner = idempotencyDAO.findActive(idempotencyKey, conn);
+        if (winner == null) {
+            throw new BusinessException("A concurrent request with idempotency key '" + idempotencyKey + "' left no result. Please retry.");
+        }
+        if (!winner.getOperation().equals(operation)) {
+            throw new BusinessException("Idempotency key '" + idempotencyKey + "' was already used for " + winner.getOperation() + ".");
+        }
+        if (isPending(winner)) {
+            // Only seen in stores without transaction isolation: the other request has not committed yet
+            throw new BusinessException("A request with idempotency key '" + idempotencyKey + "' is still in progress. Please retry.");
+        }
+        recentKeys.put(idempotencyKey, winner);
+        return winner;
+    }
+
+    private static boolean isPending(IdempotencyKey key) {
+        return key.getOperation().equals(OP_REGISTER) && key.getLoanId() == PENDING_LOAN_ID;
+    }
+
+    private IdempotencyKey newKey(String idempotencyKey, String operation, int loanId) {
+        Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + idempotencyTtlMillis);
+        return new IdempotencyKey(idempotencyKey, operation, loanId, expiresAt);
+    }
+
     @Override
     public BigDecimal calculateFine(Date dueDate, Date returnDate) {
         LocalDate due = dueDate.toLocalDate();
@@ -174,4 +307,14 @@ public class LoanServiceImpl implements ILoanService {
     public List<Loan> findOverdueLoans() throws SQLException {
         return loanDAO.findOverdueLoans();
     }
+
+    @Override
+    public long countActiveLoans() throws SQLException {
+        return loanDAO.countActive();
+    }
+
+    @Override
+    public long countOverdueLoans() throws SQLException {
+        return loanDAO.countOverdue();
+    }
 }
\ No newline at end of file
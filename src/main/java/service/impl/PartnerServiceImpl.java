@@ -2,13 +2,29 @@ package service.impl;
 
 import dao.IPartnerDAO;
 import exception.BusinessException;
+import model.ImportResult;
 import model.Partner;
 import service.IPartnerService;
+import util.CSVExporter;
+import util.CSVImporter;
+import util.ConfigLoader;
+import util.JsonLinesExporter;
+import util.JsonLinesReader;
+import util.TransactionTemplate;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public class PartnerServiceImpl implements IPartnerService {
 
+    private static final String[] IMPORT_HEADER = CSVExporter.PARTNERS_HEADER.trim().split(",");
+    private static final int IMPORT_BATCH_SIZE = ConfigLoader.getIntProperty("import.batchSize", 500);
+
     private final IPartnerDAO partnerDAO;
 
     public PartnerServiceImpl(IPartnerDAO partnerDAO) {
@@ -41,4 +57,132 @@ public class PartnerServiceImpl implements IPartnerService {
     public boolean isActive(int id) throws SQLException {
         return partnerDAO.isActive(id);
     }
-}
\ No newline at end of file
+
+    @Override
+    public ImportResult importPartners(String filePath, String rejectedFilePath, CSVImporter.ProgressListener listener)
+            throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        long[] counts = new long[2]; // inserted, updated
+        Map<String, Long> seenEmails = new HashMap<>(); // email -> first line, to reject duplicates within the file
+
+        try (CSVImporter.RejectedRowWriter rejected = CSVImporter.openRejectedRows(rejectedFilePath)) {
+            long[] processed = new long[1];
+            CSVImporter.ChunkHandler handler = (records, bytesRead, totalBytes) -> {
+                for (int from = 0; from < records.size(); from += IMPORT_BATCH_SIZE) {
+                    List<CSVImporter.CSVRecord> batch = records.subList(from, Math.min(records.size(), from + IMPORT_BATCH_SIZE));
+                    importBatch(batch, seenEmails, rejected, counts);
+                    processed[0] += batch.size();
+                    if (listener != null) {
+                        listener.onProgress(bytesRead, totalBytes, processed[0], rejected.getRows());
+                    }
+                }
+            };
+            if (JsonLinesReader.isJsonLines(filePath)) {
+                JsonLinesReader.read(filePath, JsonLinesExporter.PARTNER_FIELDS, handler);
+            } else {
+                CSVImporter.read(filePath, IMPORT_HEADER, handler);
+            }
+
+            rejected.flush(); // Complete the file before reporting it
+            return new ImportResult(counts[0], counts[1], rejected.getRows(), rejected.getFilePath(),
+                    System.currentTimeMillis() - start);
+
+        } catch (SQLException | IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error during partner import.", e);
+        }
+    }
+
+    // Writes a batch in one transaction; if it fails as a whole, rows are retried one by one to isolate the bad ones
+    private void importBatch(List<CSVImporter.CSVRecord> records, Map<String, Long> seenEmails,
+                             CSVImporter.RejectedRowWriter rejected, long[] counts) throws SQLException, IOException {
+        List<Partner> partners = new ArrayList<>();
+        List<CSVImporter.CSVRecord> accepted = new ArrayList<>();
+        for (CSVImporter.CSVRecord record : records) {
+            try {
+                Partner partner = parseImportRow(record);
+                Long firstLine = seenEmails.putIfAbsent(partner.getEmail().toLowerCase(Locale.ROOT), record.getLineNumber());
+                if (firstLine != null) {
+                    throw new BusinessException("Duplicate email " + partner.getEmail() + " (first seen on line " + firstLine + ").");
+                }
+                partners.add(partner);
+                accepted.add(record);
+            } catch (BusinessException e) {
+                rejected.reject(record, e.getMessage());
+            }
+        }
+
+        try {
+            applyImport(partners, counts);
+        } catch (SQLException e) {
+            for (int i = 0; i < partners.size(); i++) {
+                try {
+                    applyImport(List.of(partners.get(i)), counts);
+                } catch (SQLException rowError) {
+                    rejected.reject(accepted.get(i), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void applyImport(List<Partner> partners, long[] counts) throws SQLException {
+        if (partners.isEmpty()) {
+            return;
+        }
+        int existing = inTransaction("importPartners", conn -> {
+            List<String> emails = new ArrayList<>();
+            for (Partner partner : partners) {
+                emails.add(partner.getEmail());
+            }
+            Set<String> found = partnerDAO.findExistingEmailsForUpdate(emails, conn);
+            partnerDAO.upsertByEmailBatch(partners, conn);
+            return found.size();
+        });
+        counts[0] += partners.size() - existing;
+        counts[1] += existing;
+    }
+
+    // Maps a row of the partners layout (Partner ID,Name,Email,Active). The ID column is ignored:
+    // IDs are assigned by the database and partners are matched by email.
+    private Partner parseImportRow(CSVImporter.CSVRecord record) throws BusinessException {
+        if (record.getError() != null) {
+            throw new BusinessException(record.getError());
+        }
+        String[] fields = record.getFields();
+        if (fields.length != IMPORT_HEADER.length) {
+            throw new BusinessException("Expected " + IMPORT_HEADER.length + " columns, found " + fields.length + ".");
+        }
+        String name = fields[1].trim();
+        String email = fields[2].trim();
+        if (name.isEmpty()) {
+            throw new BusinessException("Name is required.");
+        }
+        if (email.isEmpty() || email.indexOf('@') < 1) {
+            throw new BusinessException("Invalid email: " + email);
+        }
+
+        Partner partner = new Partner();
+        partner.setName(name);
+        partner.setEmail(email);
+        String status = fields[3].trim();
+        if (status.isEmpty() || status.equalsIgnoreCase("ACTIVE") || status.equals("true")) {
+            partner.setActive(true);
+        } else if (status.equalsIgnoreCase("INACTIVE") || status.equals("false")) {
+            partner.setActive(false);
+        } else {
+            throw new BusinessException("Active must be ACTIVE or INACTIVE, found: " + status);
+        }
+        return partner;
+    }
+
+    private <T> T inTransaction(String operation, TransactionTemplate.TransactionCallback<T> work) throws SQLException {
+        try {
+            return TransactionTemplate.execute(operation, work);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected error during " + operation + ".", e);
+        }
+    }
+}
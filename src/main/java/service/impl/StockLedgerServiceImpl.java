@@ -0,0 +1,35 @@
+package service.impl;
+
+import dao.IStockMovementDAO;
+import model.StockMovement;
+import service.IStockLedgerService;
+import util.ConfigLoader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+public class StockLedgerServiceImpl implements IStockLedgerService {
+
+    private final IStockMovementDAO stockMovementDAO;
+
+    public StockLedgerServiceImpl(IStockMovementDAO stockMovementDAO) {
+        this.stockMovementDAO = stockMovementDAO;
+    }
+
+    @Override
+    public List<StockMovement> getHistory(String isbn) throws SQLException {
+        return stockMovementDAO.findByIsbn(isbn);
+    }
+
+    @Override
+    public int getAvailabilityAt(String isbn, Timestamp at) throws SQLException {
+        return stockMovementDAO.findAvailabilityAt(isbn, at);
+    }
+
+    @Override
+    public int compactSnapshots() throws SQLException {
+        // Movements younger than the settle window may belong to transactions that have not committed yet
+        int settleSeconds = ConfigLoader.getIntProperty("stock.snapshot.settleSeconds", 60);
+        return stockMovementDAO.compactSnapshots(settleSeconds);
+    }
+}
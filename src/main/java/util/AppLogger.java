@@ -1,16 +1,35 @@
 package util;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 import java.util.logging.*;
 
 /**
  * Application-wide logger utility.
- * Logs application events to console and app.log file.
+ * Logs application events to console and app.log file, rotated and archived by {@link RollingLogFile}.
+ * With log.async=true the events are handed to an {@link AsyncLogWriter} and written by its own
+ * thread, so callers never wait on file I/O; otherwise they go through java.util.logging on the
+ * caller thread.
+ * Messages can be given as patterns with "{}" placeholders (or suppliers): they are only filled
+ * in when the level is enabled (log.level).
  */
 public class AppLogger {
     private static final Logger LOGGER = Logger.getLogger("NovaBookApp");
+    private static final String LOG_FILE = "app.log";
+    private static final Level LEVEL = parseLevel(ConfigLoader.getProperty("log.level", "INFO"));
+    private static final int THRESHOLD = LEVEL.intValue();
+    private static final RollingLogFile LOG_FILE_CHANNEL = openLogFile();
+    private static final AsyncLogWriter ASYNC = openAsyncWriter();
 
     static {
+        if (ASYNC == null) {
+            initSynchronousHandlers();
+        }
+        // Flushes the queued events and trims the preallocated log on every exit path, System.exit included
+        Runtime.getRuntime().addShutdownHook(new Thread(AppLogger::shutdown, "novabook-log-shutdown"));
+    }
+
+    private static void initSynchronousHandlers() {
         try {
             // Remove default console handler
             LOGGER.setUseParentHandlers(false);
@@ -21,13 +40,15 @@ public class AppLogger {
             consoleHandler.setFormatter(new SimpleFormatter());
             LOGGER.addHandler(consoleHandler);
 
-            // File Handler (app.log)
-            FileHandler fileHandler = new FileHandler("app.log", true);
+            // File Handler (app.log, rotated)
+            Handler fileHandler = LOG_FILE_CHANNEL != null
+                    ? new RollingLogHandler(LOG_FILE_CHANNEL)
+                    : new FileHandler(LOG_FILE, true);
             fileHandler.setLevel(Level.ALL);
             fileHandler.setFormatter(new SimpleFormatter());
             LOGGER.addHandler(fileHandler);
 
-            LOGGER.setLevel(Level.ALL);
+            LOGGER.setLevel(LEVEL);
         } catch (IOException e) {
             System.err.println("Failed to initialize logger: " + e.getMessage());
         }
@@ -36,12 +57,113 @@ public class AppLogger {
     // Private constructor to prevent instantiation
     private AppLogger() {}
 
+    private static Level parseLevel(String name) {
+        try {
+            return Level.parse(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log.level '" + name + "', using INFO");
+            return Level.INFO;
+        }
+    }
+
+    // Rotated app.log; null falls back to an ever-growing FileHandler (synchronous mode only)
+    private static RollingLogFile openLogFile() {
+        try {
+            return RollingLogFile.withConfiguredRotation(LOG_FILE,
+                    ConfigLoader.getIntProperty("log.file.preallocateBytes", 1024 * 1024));
+        } catch (IOException e) {
+            System.err.println("Failed to open " + LOG_FILE + " for rotation: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static AsyncLogWriter openAsyncWriter() {
+        if (LOG_FILE_CHANNEL == null || !Boolean.parseBoolean(ConfigLoader.getProperty("log.async", "false"))) {
+            return null;
+        }
+        try {
+            return AsyncLogWriter.start(LOG_FILE_CHANNEL,
+                    ConfigLoader.getIntProperty("log.async.bufferSize", 8192),
+                    AsyncLogWriter.OverflowPolicy.valueOf(ConfigLoader.getProperty("log.async.overflow", "BLOCK").trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Failed to initialize asynchronous logging, logging synchronously: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void log(Level level, String message, Throwable thrown) {
+        if (ASYNC != null) {
+            ASYNC.publish(level, message, thrown);
+        } else {
+            LOGGER.log(level, message, thrown);
+        }
+    }
+
+    /**
+     * Writes the queued events and closes the log file (called on application shutdown).
+     */
+    public static void shutdown() {
+        if (ASYNC != null) {
+            ASYNC.shutdown(5000);
+        } else if (LOG_FILE_CHANNEL != null) {
+            try {
+                LOG_FILE_CHANNEL.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close " + LOG_FILE + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Whether events of this level are logged (log.level, INFO by default). The parameterized
+     * methods check it before building anything; callers only need it around arguments that are
+     * themselves costly to compute.
+     */
+    public static boolean isEnabled(Level level) {
+        return level.intValue() >= THRESHOLD;
+    }
+
     /**
      * Logs an informational message (simulating HTTP GET/POST).
      * @param message The message to log
      */
     public static void logInfo(String message) {
-        LOGGER.info(message);
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, message, null);
+        }
+    }
+
+    /**
+     * Logs an informational message, filling its "{}" placeholders only if INFO is enabled.
+     * @param pattern Message with "{}" placeholders
+     * @param arg Placeholder value
+     */
+    public static void logInfo(String pattern, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, LogMessageFormatter.format(pattern, new Object[] {arg}), null);
+        }
+    }
+
+    public static void logInfo(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, LogMessageFormatter.format(pattern, new Object[] {arg1, arg2}), null);
+        }
+    }
+
+    public static void logInfo(String pattern, Object... args) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, LogMessageFormatter.format(pattern, args), null);
+        }
+    }
+
+    /**
+     * Logs an informational message built by the supplier, called only if INFO is enabled.
+     * @param message Builds the message
+     */
+    public static void logInfo(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, message.get(), null);
+        }
     }
 
     /**
@@ -50,7 +172,21 @@ public class AppLogger {
      * @param e The exception
      */
     public static void logError(String message, Exception e) {
-        LOGGER.log(Level.SEVERE, message, e);
+        if (isEnabled(Level.SEVERE)) {
+            log(Level.SEVERE, message, e);
+        }
+    }
+
+    /**
+     * Logs an error with exception details, filling the message's "{}" placeholders.
+     * @param pattern Message with "{}" placeholders
+     * @param arg Placeholder value
+     * @param e The exception
+     */
+    public static void logError(String pattern, Object arg, Exception e) {
+        if (isEnabled(Level.SEVERE)) {
+            log(Level.SEVERE, LogMessageFormatter.format(pattern, new Object[] {arg}), e);
+        }
     }
 
     /**
@@ -58,7 +194,27 @@ public class AppLogger {
      * @param message The warning message
      */
     public static void logWarning(String message) {
-        LOGGER.warning(message);
+        if (isEnabled(Level.WARNING)) {
+            log(Level.WARNING, message, null);
+        }
+    }
+
+    public static void logWarning(String pattern, Object arg) {
+        if (isEnabled(Level.WARNING)) {
+            log(Level.WARNING, LogMessageFormatter.format(pattern, new Object[] {arg}), null);
+        }
+    }
+
+    public static void logWarning(String pattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.WARNING)) {
+            log(Level.WARNING, LogMessageFormatter.format(pattern, new Object[] {arg1, arg2}), null);
+        }
+    }
+
+    public static void logWarning(String pattern, Object... args) {
+        if (isEnabled(Level.WARNING)) {
+            log(Level.WARNING, LogMessageFormatter.format(pattern, args), null);
+        }
     }
 
     /**
@@ -68,7 +224,42 @@ public class AppLogger {
      * @param details Additional details
      */
     public static void logHttpRequest(String method, String endpoint, String details) {
-        LOGGER.info(String.format("[HTTP] %s %s - %s", method, endpoint, details));
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, "[HTTP] " + method + " " + endpoint + " - " + details, null);
+        }
+    }
+
+    /**
+     * HTTP request log entry whose endpoint and/or details have "{}" placeholders, filled in that order.
+     * Example: logHttpRequest("GET", "/NovaBook/books/{}", "Fetching book", isbn)
+     * @param method HTTP method (GET, POST, PATCH, DELETE)
+     * @param endpointPattern The endpoint path
+     * @param detailsPattern Additional details
+     * @param arg Placeholder value
+     */
+    public static void logHttpRequest(String method, String endpointPattern, String detailsPattern, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            logHttp(method, endpointPattern, detailsPattern, new Object[] {arg});
+        }
+    }
+
+    public static void logHttpRequest(String method, String endpointPattern, String detailsPattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            logHttp(method, endpointPattern, detailsPattern, new Object[] {arg1, arg2});
+        }
+    }
+
+    public static void logHttpRequest(String method, String endpointPattern, String detailsPattern, Object... args) {
+        if (isEnabled(Level.INFO)) {
+            logHttp(method, endpointPattern, detailsPattern, args);
+        }
+    }
+
+    private static void logHttp(String method, String endpointPattern, String detailsPattern, Object[] args) {
+        StringBuilder sb = new StringBuilder(64).append("[HTTP] ").append(method).append(' ');
+        int next = LogMessageFormatter.append(sb, endpointPattern, args, 0);
+        LogMessageFormatter.append(sb.append(" - "), detailsPattern, args, next);
+        log(Level.INFO, sb.toString(), null);
     }
 
     /**
@@ -77,6 +268,38 @@ public class AppLogger {
      * @param details Additional details
      */
     public static void logSuccess(String operation, String details) {
-        LOGGER.info(String.format("[SUCCESS] %s - %s", operation, details));
+        if (isEnabled(Level.INFO)) {
+            log(Level.INFO, "[SUCCESS] " + operation + " - " + details, null);
+        }
+    }
+
+    /**
+     * Logs successful operations, filling the "{}" placeholders of the details.
+     * @param operation The operation performed
+     * @param detailsPattern Additional details
+     * @param arg Placeholder value
+     */
+    public static void logSuccess(String operation, String detailsPattern, Object arg) {
+        if (isEnabled(Level.INFO)) {
+            logSuccessMessage(operation, detailsPattern, new Object[] {arg});
+        }
+    }
+
+    public static void logSuccess(String operation, String detailsPattern, Object arg1, Object arg2) {
+        if (isEnabled(Level.INFO)) {
+            logSuccessMessage(operation, detailsPattern, new Object[] {arg1, arg2});
+        }
+    }
+
+    public static void logSuccess(String operation, String detailsPattern, Object... args) {
+        if (isEnabled(Level.INFO)) {
+            logSuccessMessage(operation, detailsPattern, args);
+        }
+    }
+
+    private static void logSuccessMessage(String operation, String detailsPattern, Object[] args) {
+        StringBuilder sb = new StringBuilder(64).append("[SUCCESS] ").append(operation).append(" - ");
+        LogMessageFormatter.append(sb, detailsPattern, args, 0);
+        log(Level.INFO, sb.toString(), null);
     }
-}
\ No newline at end of file
+}
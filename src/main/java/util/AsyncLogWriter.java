@@ -0,0 +1,273 @@
+package util;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Asynchronous log output used by {@link AppLogger} when log.async is enabled.
+ * Callers copy the event into a pre-allocated slot of a bounded ring buffer (a CAS on the tail,
+ * no lock) and return; a single writer thread formats the events and writes them to the log file
+ * and the console through {@link ChannelTextWriter}s, flushing whenever the buffer runs empty.
+ *
+ * When the buffer is full the overflow policy decides: BLOCK makes the caller wait for a free
+ * slot, DROP discards the event and the writer reports how many were lost.
+ * {@link #shutdown(long)} drains what is left and flushes the outputs.
+ */
+public final class AsyncLogWriter {
+
+    public enum OverflowPolicy { BLOCK, DROP }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Wait for a caller that has claimed a slot but not filled it yet
+    private static final long CLAIMED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // Slot contents; only the publishing thread writes them, only the writer thread reads them
+    private static final class Event {
+        long timestamp;
+        Level level;
+        String threadName;
+        String message;
+        Throwable thrown;
+    }
+
+    private final Event[] slots;
+    // Per-slot sequence: equals the position when free for that position, position + 1 once published
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Writer thread only
+    private final OverflowPolicy policy;
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported; // Writer thread only
+
+    private final ChannelTextWriter file;
+    private final ChannelTextWriter console;
+    private final Thread writerThread;
+    private volatile boolean waiting;
+    private volatile boolean stopped;
+
+    // Cached "yyyy-MM-dd HH:mm:ss" of the last second formatted
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedSecondText;
+
+    /**
+     * Creates a writer and starts its thread.
+     * @param logFile Log file channel (closed on shutdown), e.g. a {@link RollingLogFile}
+     * @param capacity Ring buffer slots, rounded up to a power of two
+     * @param policy What a caller does when the buffer is full
+     * @return The running writer
+     */
+    public static AsyncLogWriter start(WritableByteChannel logFile, int capacity, OverflowPolicy policy) {
+        AsyncLogWriter writer = new AsyncLogWriter(logFile, capacity, policy);
+        writer.writerThread.start();
+        return writer;
+    }
+
+    private AsyncLogWriter(WritableByteChannel logFile, int capacity, OverflowPolicy policy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Event[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event();
+        }
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.policy = policy;
+        this.file = new ChannelTextWriter(logFile, OUTPUT_BUFFER_SIZE);
+        // Never closed: closing it would close the process' stderr
+        this.console = new ChannelTextWriter(Channels.newChannel(new FileOutputStream(FileDescriptor.err)), OUTPUT_BUFFER_SIZE);
+
+        this.writerThread = new Thread(this::run, "novabook-log-writer");
+        writerThread.setDaemon(true);
+    }
+
+    /**
+     * Queues an event. Never blocks under DROP; under BLOCK waits for a free slot
+     * (except on the writer thread itself, which would wait for itself and drops instead).
+     * After shutdown the event is written to stderr directly.
+     */
+    public void publish(Level level, String message, Throwable thrown) {
+        if (stopped) {
+            System.err.println(level + ": " + message);
+            if (thrown != null) {
+                thrown.printStackTrace();
+            }
+            return;
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // Full: the slot still holds the event from one lap ago
+                if (policy == OverflowPolicy.DROP || Thread.currentThread() == writerThread || stopped) {
+                    dropped.increment();
+                    return;
+                }
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(10_000);
+                position = tail.get();
+            } else {
+                position = tail.get(); // Another caller took this slot
+            }
+        }
+
+        int index = (int) position & mask;
+        Event event = slots[index];
+        event.timestamp = System.currentTimeMillis();
+        event.level = level;
+        event.threadName = Thread.currentThread().getName();
+        event.message = message;
+        event.thrown = thrown;
+        sequences.set(index, position + 1); // Volatile write: pairs with the writer's waiting check
+        if (waiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting events, writes the ones still queued, flushes and closes the log file.
+     * Events from callers that claimed a slot before the stop are written too.
+     * @param timeoutMillis How long to wait for the writer thread
+     */
+    public void shutdown(long timeoutMillis) {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            int written = drain();
+            if (written > 0) {
+                continue;
+            }
+            reportDropped();
+            flush();
+            if (stopped) {
+                // Drain up to the last claimed slot: a caller may still be filling one in
+                if (head == tail.get()) {
+                    break;
+                }
+                LockSupport.parkNanos(this, CLAIMED_PARK_NANOS);
+                continue;
+            }
+            waiting = true;
+            if (!hasPending() && !stopped) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("[AsyncLogWriter] Failed to close the log file: " + e.getMessage());
+        }
+    }
+
+    private boolean hasPending() {
+        return sequences.get((int) head & mask) == head + 1;
+    }
+
+    // Writes the published events in order; returns how many
+    private int drain() {
+        int count = 0;
+        while (hasPending()) {
+            int index = (int) head & mask;
+            Event event = slots[index];
+            write(event.timestamp, event.level, event.threadName, event.message, event.thrown);
+            event.message = null; // Don't keep messages and exceptions reachable from the buffer
+            event.thrown = null;
+            sequences.set(index, head + slots.length);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total > droppedReported) {
+            write(System.currentTimeMillis(), Level.WARNING, writerThread.getName(),
+                    (total - droppedReported) + " log events dropped (log buffer full)", null);
+            droppedReported = total;
+        }
+    }
+
+    private void write(long timestamp, Level level, String threadName, String message, Throwable thrown) {
+        String trace = null;
+        if (thrown != null) {
+            StringWriter stack = new StringWriter();
+            thrown.printStackTrace(new PrintWriter(stack));
+            trace = stack.toString();
+        }
+        writeTo(file, timestamp, level, threadName, message, trace);
+        writeTo(console, timestamp, level, threadName, message, trace);
+    }
+
+    // 2026-01-31 18:04:05.123 INFO [main] message
+    private void writeTo(ChannelTextWriter out, long timestamp, Level level, String threadName, String message,
+                         String trace) {
+        try {
+            long second = Math.floorDiv(timestamp, 1000);
+            if (second != cachedSecond) {
+                cachedSecondText = SECOND_FORMAT.format(Instant.ofEpochSecond(second));
+                cachedSecond = second;
+            }
+            int millis = Math.floorMod(timestamp, 1000);
+            out.append(cachedSecondText).append('.')
+                    .append((char) ('0' + millis / 100)).append((char) ('0' + millis / 10 % 10)).append((char) ('0' + millis % 10))
+                    .append(' ').append(level.getName()).append(" [").append(threadName).append("] ")
+                    .append(String.valueOf(message)).append('\n');
+            if (trace != null) {
+                out.append(trace);
+            }
+        } catch (IOException e) {
+            System.err.println("[AsyncLogWriter] Failed to write log event: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        try {
+            file.flush();
+            console.flush();
+        } catch (IOException e) {
+            System.err.println("[AsyncLogWriter] Failed to flush the log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler for periodic maintenance jobs (ledger compaction, purges...).
+ * Runs on a single daemon thread so it never keeps the application alive.
+ */
+public class BackgroundScheduler {
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "novabook-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Prevents instantiation
+    private BackgroundScheduler() {}
+
+    // A periodic job; checked exceptions are logged by the scheduler
+    @FunctionalInterface
+    public interface Job {
+        void run() throws Exception;
+    }
+
+    /**
+     * Schedules a job at a fixed delay. Failures are logged and do not cancel later runs.
+     * @param name Job name used in the logs
+     * @param job The job to run
+     * @param intervalMinutes Minutes between the end of one run and the start of the next
+     */
+    public static void scheduleEvery(String name, Job job, long intervalMinutes) {
+        EXECUTOR.scheduleWithFixedDelay(() -> {
+            try {
+                job.run();
+            } catch (Exception e) {
+                AppLogger.logError("Background job '{}' failed", name, e);
+            }
+        }, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the scheduler (called on application shutdown).
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+}
@@ -2,12 +2,42 @@ package util;
 
 import model.Book;
 import model.Loan;
-import java.io.FileWriter;
+import model.Partner;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 public class CSVExporter {
 
+    public static final String BOOKS_HEADER = "ISBN,Title,Author,Category,Total Copies,Available Copies,Reference Price,Active\n";
+    public static final String OVERDUE_LOANS_HEADER = "Loan ID,Book ISBN,Partner ID,Loan Date,Due Date,Days Overdue,Fine\n";
+    public static final String LOANS_HEADER = "Loan ID,Book ISBN,Partner ID,Loan Date,Due Date,Return Date,Fine,Returned\n";
+    public static final String PARTNERS_HEADER = "Partner ID,Name,Email,Active\n";
+
+    // Delta exports prefix every line with an operation: U (insert/update) or D (tombstone: deactivated record)
+    public static final String DELTA_OP_COLUMN = "Op,";
+
+    // Size of the byte buffer flushed to the file channel in one write
+    private static final int BUFFER_SIZE = ConfigLoader.getIntProperty("export.bufferSize", 1 << 20);
+
+    // Compressed exports: deflate level (1 = fastest, 9 = smallest) and size of the deflater output buffer
+    private static final int GZIP_LEVEL = ConfigLoader.getIntProperty("export.gzip.level", 6);
+    private static final int GZIP_BUFFER_SIZE = ConfigLoader.getIntProperty("export.gzip.bufferSize", 64 * 1024);
+
+    public static final String GZIP_SUFFIX = ".gz";
+
     /**
      * Exports a list of books to a CSV file.
      * @param books List of books to export
@@ -15,20 +45,25 @@ public class CSVExporter {
      * @throws IOException If file writing fails
      */
     public static void exportBooks(List<Book> books, String filePath) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
+        exportBooks(books, filePath, false);
+    }
+
+    /**
+     * Exports a list of books to a CSV file, optionally gzip-compressed on the fly.
+     * @param books List of books to export
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @throws IOException If file writing fails
+     */
+    public static void exportBooks(List<Book> books, String filePath, boolean compress) throws IOException {
+        try (ChannelTextWriter writer = openFile(filePath, compress)) {
             // CSV Header
-            writer.append("ISBN,Title,Author,Category,Total Copies,Available Copies,Reference Price,Active\n");
+            writer.append(BOOKS_HEADER);
 
             // CSV Data
             for (Book book : books) {
-                writer.append(book.getIsbn()).append(",");
-                writer.append(escapeCsv(book.getTitle())).append(",");
-                writer.append(escapeCsv(book.getAuthor())).append(",");
-                writer.append(escapeCsv(book.getCategory())).append(",");
-                writer.append(String.valueOf(book.getTotalCopies())).append(",");
-                writer.append(String.valueOf(book.getAvailableCopies())).append(",");
-                writer.append(book.getReferencePrice().toString()).append(",");
-                writer.append(book.isActive() ? "ACTIVE" : "INACTIVE").append("\n");
+                writeBook(writer, book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                        book.getTotalCopies(), book.getAvailableCopies(), book.getReferencePrice().toString(), book.isActive());
             }
         }
     }
@@ -40,40 +75,457 @@ public class CSVExporter {
      * @throws IOException If file writing fails
      */
     public static void exportOverdueLoans(List<Loan> loans, String filePath) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
+        exportOverdueLoans(loans, filePath, false);
+    }
+
+    /**
+     * Exports a list of overdue loans to a CSV file, optionally gzip-compressed on the fly.
+     * @param loans List of overdue loans to export
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @throws IOException If file writing fails
+     */
+    public static void exportOverdueLoans(List<Loan> loans, String filePath, boolean compress) throws IOException {
+        long today = LocalDate.now().toEpochDay();
+        try (ChannelTextWriter writer = openFile(filePath, compress)) {
             // CSV Header
-            writer.append("Loan ID,Book ISBN,Partner ID,Loan Date,Due Date,Days Overdue,Fine\n");
+            writer.append(OVERDUE_LOANS_HEADER);
 
             // CSV Data
             for (Loan loan : loans) {
-                long daysOverdue = java.time.temporal.ChronoUnit.DAYS.between(
-                        loan.getDueDate().toLocalDate(),
-                        java.time.LocalDate.now()
-                );
-
-                writer.append(String.valueOf(loan.getId())).append(",");
-                writer.append(loan.getBookIsbn()).append(",");
-                writer.append(String.valueOf(loan.getPartnerId())).append(",");
-                writer.append(loan.getLoanDate().toString()).append(",");
-                writer.append(loan.getDueDate().toString()).append(",");
-                writer.append(String.valueOf(daysOverdue)).append(",");
-                writer.append(loan.getFine() != null ? loan.getFine().toString() : "0.00").append("\n");
+                writeOverdueLoan(writer, loan.getId(), loan.getBookIsbn(), loan.getPartnerId(), loan.getLoanDate().toString(),
+                        loan.getDueDate().toLocalDate(), today, loan.getFine() != null ? loan.getFine().toString() : null);
+            }
+        }
+    }
+
+    // --- Streaming export (rows come straight from a forward-only cursor) ---
+
+    /**
+     * Opens a streaming book export: writes the header now and one line per row handed to
+     * {@link BookRowWriter#handle(ResultSet)}. Pass it to a DAO streaming query.
+     * @param filePath Path where the CSV will be saved
+     * @return The row writer (close it to flush the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static BookRowWriter openBookStream(String filePath) throws IOException {
+        return openBookStream(filePath, false);
+    }
+
+    /**
+     * Opens a streaming book export, optionally gzip-compressed on the fly (no uncompressed copy is staged).
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @return The row writer (close it to finish the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static BookRowWriter openBookStream(String filePath, boolean compress) throws IOException {
+        ChannelTextWriter writer = openFile(filePath, compress);
+        writer.append(BOOKS_HEADER);
+        return new BookRowWriter(writer);
+    }
+
+    /**
+     * Opens a streaming overdue-loans export (same layout as {@link #exportOverdueLoans(List, String)}).
+     * @param filePath Path where the CSV will be saved
+     * @return The row writer (close it to flush the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static OverdueLoanRowWriter openOverdueLoanStream(String filePath) throws IOException {
+        return openOverdueLoanStream(filePath, false);
+    }
+
+    /**
+     * Opens a streaming overdue-loans export, optionally gzip-compressed on the fly.
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @return The row writer (close it to finish the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static OverdueLoanRowWriter openOverdueLoanStream(String filePath, boolean compress) throws IOException {
+        ChannelTextWriter writer = openFile(filePath, compress);
+        writer.append(OVERDUE_LOANS_HEADER);
+        return new OverdueLoanRowWriter(writer);
+    }
+
+    // --- Delta export (only rows changed since the last run, with an Op column) ---
+
+    /**
+     * Opens a delta book export: "Op," followed by the books layout; inactive books are written as D.
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @return The row writer (close it to finish the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static BookRowWriter openBookDelta(String filePath, boolean compress) throws IOException {
+        ChannelTextWriter writer = openFile(filePath, compress);
+        writer.append(DELTA_OP_COLUMN).append(BOOKS_HEADER);
+        return new BookRowWriter(writer, true);
+    }
+
+    /**
+     * Opens a delta partner export: "Op," followed by the partners layout; inactive partners are written as D.
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @return The row writer (close it to finish the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static PartnerRowWriter openPartnerDelta(String filePath, boolean compress) throws IOException {
+        ChannelTextWriter writer = openFile(filePath, compress);
+        writer.append(DELTA_OP_COLUMN).append(PARTNERS_HEADER);
+        return new PartnerRowWriter(writer, true);
+    }
+
+    /**
+     * Opens a delta loan export: "Op," followed by the full loans layout (loans are never deleted, always U).
+     * @param filePath Path where the CSV (or .csv.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @return The row writer (close it to finish the file)
+     * @throws IOException If the file cannot be opened
+     */
+    public static LoanRowWriter openLoanDelta(String filePath, boolean compress) throws IOException {
+        ChannelTextWriter writer = openFile(filePath, compress);
+        writer.append(DELTA_OP_COLUMN).append(LOANS_HEADER);
+        return new LoanRowWriter(writer, true);
+    }
+
+    // --- Parallel export (part files without header, concatenated at the end) ---
+
+    /**
+     * Opens a book part file: same lines as {@link #openBookStream(String)} but no header.
+     * @param partPath Path of the part file
+     * @return The row writer (close it to flush the part)
+     * @throws IOException If the file cannot be opened
+     */
+    public static BookRowWriter openBookPart(String partPath) throws IOException {
+        return new BookRowWriter(openFile(partPath, false));
+    }
+
+    /**
+     * Opens a loan part file (full loans layout, see {@link #LOANS_HEADER}), without header.
+     * @param partPath Path of the part file
+     * @return The row writer (close it to flush the part)
+     * @throws IOException If the file cannot be opened
+     */
+    public static LoanRowWriter openLoanPart(String partPath) throws IOException {
+        return new LoanRowWriter(openFile(partPath, false));
+    }
+
+    /**
+     * Opens a partner part file (see {@link #PARTNERS_HEADER}), without header.
+     * @param partPath Path of the part file
+     * @return The row writer (close it to flush the part)
+     * @throws IOException If the file cannot be opened
+     */
+    public static PartnerRowWriter openPartnerPart(String partPath) throws IOException {
+        return new PartnerRowWriter(openFile(partPath, false), false);
+    }
+
+    /**
+     * Writes the header and appends the part files in order with zero-copy
+     * FileChannel.transferTo, then deletes the parts.
+     * @param filePath Final file
+     * @param header Header line (with its line break)
+     * @param parts Part files in key order
+     * @throws IOException If reading a part or writing the final file fails
+     */
+    public static void concatenateParts(String filePath, String header, List<Path> parts) throws IOException {
+        try (FileChannel out = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            ByteBuffer headerBytes = ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8));
+            while (headerBytes.hasRemaining()) {
+                out.write(headerBytes);
+            }
+
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
             }
         }
     }
 
     /**
-     * Escapes special characters in CSV fields (commas, quotes, newlines).
+     * Writes each books row of a ResultSet as one CSV line.
+     */
+    public static class BookRowWriter implements RowHandler, AutoCloseable {
+        private final ChannelTextWriter writer;
+        private final boolean delta;
+        private long rows;
+
+        BookRowWriter(ChannelTextWriter writer) {
+            this(writer, false);
+        }
+
+        BookRowWriter(ChannelTextWriter writer, boolean delta) {
+            this.writer = writer;
+            this.delta = delta;
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException, IOException {
+            if (delta) {
+                writer.append(rs.getBoolean("is_active") ? 'U' : 'D').append(',');
+            }
+            writeBook(writer, rs.getString("isbn"), rs.getString("title"), rs.getString("author"), rs.getString("category"),
+                    rs.getInt("total_copies"), rs.getInt("available_copies"), rs.getString("reference_price"), rs.getBoolean("is_active"));
+            rows++;
+        }
+
+        // Same line from a model object (generated datasets)
+        public void write(Book book) throws IOException {
+            if (delta) {
+                writer.append(book.isActive() ? 'U' : 'D').append(',');
+            }
+            writeBook(writer, book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                    book.getTotalCopies(), book.getAvailableCopies(), book.getReferencePrice().toString(), book.isActive());
+            rows++;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return writer.getBytesWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes each loans row of a ResultSet as one overdue-loan CSV line.
+     */
+    public static class OverdueLoanRowWriter implements RowHandler, AutoCloseable {
+        private final ChannelTextWriter writer;
+        private final long today = LocalDate.now().toEpochDay();
+        private long rows;
+
+        OverdueLoanRowWriter(ChannelTextWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException, IOException {
+            writeOverdueLoan(writer, rs.getInt("id"), rs.getString("book_isbn"), rs.getInt("partner_id"),
+                    rs.getTimestamp("loan_date").toString(), rs.getDate("due_date").toLocalDate(), today, rs.getString("fine"));
+            rows++;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return writer.getBytesWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes each loans row of a ResultSet as one CSV line (full loans layout).
+     */
+    public static class LoanRowWriter implements RowHandler, AutoCloseable {
+        private final ChannelTextWriter writer;
+        private final boolean delta;
+        private long rows;
+
+        LoanRowWriter(ChannelTextWriter writer) {
+            this(writer, false);
+        }
+
+        LoanRowWriter(ChannelTextWriter writer, boolean delta) {
+            this.writer = writer;
+            this.delta = delta;
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException, IOException {
+            if (delta) {
+                writer.append('U').append(',');
+            }
+            writeLoan(writer, rs.getInt("id"), rs.getString("book_isbn"), rs.getInt("partner_id"),
+                    rs.getTimestamp("loan_date").toString(), rs.getString("due_date"), rs.getString("return_date"),
+                    rs.getString("fine"), rs.getBoolean("is_returned"));
+            rows++;
+        }
+
+        // Same line from a model object (generated datasets)
+        public void write(Loan loan) throws IOException {
+            if (delta) {
+                writer.append('U').append(',');
+            }
+            writeLoan(writer, loan.getId(), loan.getBookIsbn(), loan.getPartnerId(), loan.getLoanDate().toString(),
+                    loan.getDueDate().toString(), loan.getReturnDate() != null ? loan.getReturnDate().toString() : null,
+                    loan.getFine() != null ? loan.getFine().toString() : null, loan.isReturned());
+            rows++;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return writer.getBytesWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes each partners row of a ResultSet as one CSV line.
+     */
+    public static class PartnerRowWriter implements RowHandler, AutoCloseable {
+        private final ChannelTextWriter writer;
+        private final boolean delta;
+        private long rows;
+
+        PartnerRowWriter(ChannelTextWriter writer, boolean delta) {
+            this.writer = writer;
+            this.delta = delta;
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException, IOException {
+            boolean active = rs.getBoolean("is_active");
+            if (delta) {
+                writer.append(active ? 'U' : 'D').append(',');
+            }
+            writePartner(writer, rs.getInt("id"), rs.getString("name"), rs.getString("email"), active);
+            rows++;
+        }
+
+        // Same line from a model object (generated datasets)
+        public void write(Partner partner) throws IOException {
+            if (delta) {
+                writer.append(partner.isActive() ? 'U' : 'D').append(',');
+            }
+            writePartner(writer, partner.getId(), partner.getName(), partner.getEmail(), partner.isActive());
+            rows++;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return writer.getBytesWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    // --- Row encoding (shared by the list and streaming exports) ---
+
+    private static void writeBook(ChannelTextWriter writer, String isbn, String title, String author, String category,
+                                  int totalCopies, int availableCopies, String referencePrice, boolean active) throws IOException {
+        writer.append(isbn).append(',');
+        appendEscaped(writer, title).append(',');
+        appendEscaped(writer, author).append(',');
+        appendEscaped(writer, category).append(',');
+        writer.append(totalCopies).append(',');
+        writer.append(availableCopies).append(',');
+        writer.append(referencePrice).append(',');
+        writer.append(active ? "ACTIVE" : "INACTIVE").append('\n');
+    }
+
+    private static void writeLoan(ChannelTextWriter writer, int id, String bookIsbn, int partnerId, String loanDate,
+                                  String dueDate, String returnDate, String fine, boolean returned) throws IOException {
+        writer.append(id).append(',');
+        writer.append(bookIsbn).append(',');
+        writer.append(partnerId).append(',');
+        writer.append(loanDate).append(',');
+        writer.append(dueDate).append(',');
+        writer.append(returnDate != null ? returnDate : "").append(',');
+        writer.append(fine != null ? fine : "0.00").append(',');
+        writer.append(returned ? "YES" : "NO").append('\n');
+    }
+
+    private static void writePartner(ChannelTextWriter writer, int id, String name, String email, boolean active) throws IOException {
+        writer.append(id).append(',');
+        appendEscaped(writer, name).append(',');
+        appendEscaped(writer, email).append(',');
+        writer.append(active ? "ACTIVE" : "INACTIVE").append('\n');
+    }
+
+    private static void writeOverdueLoan(ChannelTextWriter writer, int id, String bookIsbn, int partnerId, String loanDate,
+                                         LocalDate dueDate, long todayEpochDay, String fine) throws IOException {
+        writer.append(id).append(',');
+        writer.append(bookIsbn).append(',');
+        writer.append(partnerId).append(',');
+        writer.append(loanDate).append(',');
+        writer.append(dueDate.toString()).append(',');
+        writer.append(todayEpochDay - dueDate.toEpochDay()).append(',');
+        writer.append(fine != null ? fine : "0.00").append('\n');
+    }
+
+    static ChannelTextWriter openFile(String filePath, boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!compress) {
+            return new ChannelTextWriter(channel, BUFFER_SIZE);
+        }
+        try {
+            // Encoded text -> deflater -> file; closing the writer finishes the gzip trailer and closes the file
+            OutputStream gzip = new LeveledGzipOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_SIZE, GZIP_LEVEL);
+            return new ChannelTextWriter(Channels.newChannel(gzip), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * GZIPOutputStream with a configurable deflate level (the JDK class always uses the default level).
+     */
+    private static class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int bufferSize, int level) throws IOException {
+            super(out, bufferSize);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * Escapes special characters in CSV fields (commas, quotes, newlines) while appending.
+     * Values without special characters are copied as they are.
+     * @param writer Destination
      * @param value The string to escape
-     * @return Escaped string
+     * @return The writer
      */
-    private static String escapeCsv(String value) {
+    static ChannelTextWriter appendEscaped(ChannelTextWriter writer, String value) throws IOException {
         if (value == null) {
-            return "";
+            return writer;
         }
-        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return writer.append(value);
+        }
+        writer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.append('"');
+            }
+            writer.append(c);
         }
-        return value;
+        return writer.append('"');
     }
-}
\ No newline at end of file
+}
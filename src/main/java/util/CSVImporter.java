@@ -0,0 +1,352 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel reader for bulk CSV imports (same dialect as {@link CSVExporter}).
+ * {@link JsonLinesReader} delivers JSON Lines input through the same record and handler types.
+ * The file is memory-mapped and cut into chunks at record boundaries (line breaks outside quotes).
+ * Chunks are parsed on a fork-join pool and handed to the caller in file order, never more than a
+ * few chunks ahead of it, so memory stays bounded however large the file is.
+ */
+public class CSVImporter {
+
+    // Target chunk size; a chunk always ends at the end of a record
+    private static final int CHUNK_SIZE = ConfigLoader.getIntProperty("import.chunkSize", 4 << 20);
+    private static final int PARALLELISM = ConfigLoader.getIntProperty("import.parallelism",
+            Runtime.getRuntime().availableProcessors());
+    // Window mapped at a time while looking for chunk boundaries
+    private static final int SCAN_WINDOW = 64 << 20;
+
+    public static final String REJECTED_HEADER = "Line,Error,Record\n";
+
+    /**
+     * One parsed record.
+     */
+    public static class CSVRecord {
+        private final long lineNumber;
+        private final String[] fields;
+        private final ByteBuffer raw;
+        private final String error;
+
+        CSVRecord(long lineNumber, String[] fields, ByteBuffer raw) {
+            this(lineNumber, fields, raw, null);
+        }
+
+        CSVRecord(long lineNumber, String[] fields, ByteBuffer raw, String error) {
+            this.lineNumber = lineNumber;
+            this.fields = fields;
+            this.raw = raw;
+            this.error = error;
+        }
+
+        // 1-based line where the record starts
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String[] getFields() {
+            return fields;
+        }
+
+        // The record as it appears in the file (decoded on demand, used for error reports)
+        public String getRawText() {
+            return StandardCharsets.UTF_8.decode(raw.duplicate()).toString();
+        }
+
+        // Why the record could not be parsed (JSON Lines input), null for a well-formed record
+        public String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Receives the records of each chunk, in file order, on the thread that called {@link #read}.
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+        void handle(List<CSVRecord> records, long bytesRead, long totalBytes) throws Exception;
+    }
+
+    /**
+     * Progress of an import, reported after each batch.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long bytesRead, long totalBytes, long rowsProcessed, long rowsRejected);
+    }
+
+    /**
+     * Reads a CSV file, checking its header.
+     * @param filePath File to read
+     * @param expectedHeader Header columns the file must start with
+     * @param handler Receives the data records chunk by chunk
+     * @return The number of data records read
+     * @throws IOException If the file cannot be read or its header does not match
+     * @throws Exception Whatever the handler throws
+     */
+    public static long read(String filePath, String[] expectedHeader, ChunkHandler handler) throws Exception {
+        return read(filePath, expectedHeader, handler, CHUNK_SIZE);
+    }
+
+    // Same with an explicit chunk size (tests use tiny chunks to put boundaries everywhere)
+    static long read(String filePath, String[] expectedHeader, ChunkHandler handler, int chunkSize) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> chunks = findChunks(channel, size, chunkSize);
+
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, PARALLELISM));
+            try {
+                Deque<Future<List<CSVRecord>>> inFlight = new ArrayDeque<>();
+                int next = 0;
+                int delivered = 0;
+                long records = 0;
+                while (delivered < chunks.size()) {
+                    while (next < chunks.size() && inFlight.size() < 2 * pool.getParallelism()) {
+                        long[] chunk = chunks.get(next++);
+                        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                        inFlight.add(pool.submit(() -> parseChunk(buffer, chunk[2])));
+                    }
+
+                    List<CSVRecord> parsed = await(inFlight.poll());
+                    long bytesRead = chunks.get(delivered)[1];
+                    if (delivered++ == 0) {
+                        checkHeader(parsed, expectedHeader, filePath);
+                        parsed = parsed.subList(1, parsed.size());
+                    }
+                    records += parsed.size();
+                    handler.handle(parsed, bytesRead, size);
+                }
+                if (chunks.isEmpty()) {
+                    throw new IOException("Empty file: " + filePath);
+                }
+                return records;
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Error file used for an input file: the input name without its extension plus "_rejected.csv".
+     * @param inputPath The imported file (.csv, .jsonl, optionally .gz)
+     * @return Path of the error file
+     */
+    public static String rejectedFilePath(String inputPath) {
+        String base = inputPath;
+        for (String extension : new String[]{CSVExporter.GZIP_SUFFIX, ".csv", JsonLinesExporter.FILE_EXTENSION}) {
+            if (base.endsWith(extension)) {
+                base = base.substring(0, base.length() - extension.length());
+            }
+        }
+        return base + "_rejected.csv";
+    }
+
+    /**
+     * Opens a writer for rejected records (created on the first rejection).
+     * @param filePath Path of the error file
+     * @return The writer
+     */
+    public static RejectedRowWriter openRejectedRows(String filePath) {
+        return new RejectedRowWriter(filePath);
+    }
+
+    /**
+     * Writes rejected records as "Line,Error,Record" CSV lines.
+     */
+    public static class RejectedRowWriter implements Closeable {
+        private final String filePath;
+        private ChannelTextWriter writer;
+        private long rows;
+
+        RejectedRowWriter(String filePath) {
+            this.filePath = filePath;
+        }
+
+        public void reject(CSVRecord record, String reason) throws IOException {
+            if (writer == null) {
+                writer = new ChannelTextWriter(FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 64 * 1024);
+                writer.append(REJECTED_HEADER);
+            }
+            writer.append(record.getLineNumber()).append(',');
+            CSVExporter.appendEscaped(writer, reason).append(',');
+            CSVExporter.appendEscaped(writer, record.getRawText()).append('\n');
+            rows++;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // Path of the error file, or null when nothing was rejected
+        public String getFilePath() {
+            return writer != null ? filePath : null;
+        }
+
+        // Writes out buffered rows, so the file is complete before it is reported
+        public void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    // --- Chunking and parsing ---
+
+    /**
+     * Sequential scan for chunk boundaries: a chunk ends at the first line break outside quotes
+     * after chunkSize bytes. Quote state is tracked by toggling on every quote character, which is
+     * exact for RFC 4180 files (escaped quotes come in pairs).
+     * @return [start, end, first line number] per chunk
+     */
+    private static List<long[]> findChunks(FileChannel channel, long size, int chunkSize) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = 0;
+        long chunkLine = 1;
+        long line = 1;
+        boolean inQuotes = false;
+
+        for (long windowStart = 0; windowStart < size; windowStart += SCAN_WINDOW) {
+            int length = (int) Math.min(SCAN_WINDOW, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n') {
+                    line++;
+                    long end = windowStart + i + 1;
+                    if (!inQuotes && end - chunkStart >= chunkSize) {
+                        chunks.add(new long[]{chunkStart, end, chunkLine});
+                        chunkStart = end;
+                        chunkLine = line;
+                    }
+                }
+            }
+        }
+        if (chunkStart < size) {
+            chunks.add(new long[]{chunkStart, size, chunkLine});
+        }
+        return chunks;
+    }
+
+    private static List<CSVRecord> parseChunk(ByteBuffer buffer, long firstLine) {
+        List<CSVRecord> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        byte[] field = new byte[256];
+        int fieldLength = 0;
+        boolean inQuotes = false;
+        boolean quoted = false;
+        long line = firstLine;
+        long recordLine = firstLine;
+        int recordStart = 0;
+        int limit = buffer.limit();
+
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (inQuotes) {
+                if (b == '"') {
+                    if (i + 1 < limit && buffer.get(i + 1) == '"') {
+                        i++; // Escaped quote
+                    } else {
+                        inQuotes = false;
+                        continue;
+                    }
+                } else if (b == '\n') {
+                    line++;
+                }
+            } else if (b == '"' && fieldLength == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+                continue;
+            } else if (b == ',') {
+                fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+                fieldLength = 0;
+                quoted = false;
+                continue;
+            } else if (b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+                continue;
+            } else if (b == '\n') {
+                fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+                addRecord(records, fields, quoted, buffer, recordStart, i, recordLine);
+                fields.clear();
+                fieldLength = 0;
+                quoted = false;
+                line++;
+                recordLine = line;
+                recordStart = i + 1;
+                continue;
+            }
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, field.length * 2);
+            }
+            field[fieldLength++] = b;
+        }
+        if (recordStart < limit) {
+            fields.add(new String(field, 0, fieldLength, StandardCharsets.UTF_8));
+            addRecord(records, fields, quoted, buffer, recordStart, limit, recordLine);
+        }
+        return records;
+    }
+
+    private static void addRecord(List<CSVRecord> records, List<String> fields, boolean quoted, ByteBuffer buffer,
+                                  int start, int end, long line) {
+        if (fields.size() == 1 && fields.get(0).isEmpty() && !quoted) {
+            return; // Blank line
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        ByteBuffer raw = buffer.slice(start, end - start);
+        records.add(new CSVRecord(line, fields.toArray(new String[0]), raw));
+    }
+
+    private static void checkHeader(List<CSVRecord> records, String[] expectedHeader, String filePath) throws IOException {
+        if (records.isEmpty() || !Arrays.equals(trim(records.get(0).getFields()), expectedHeader)) {
+            throw new IOException("Unexpected header in " + filePath + ", expected: " + String.join(",", expectedHeader));
+        }
+    }
+
+    private static String[] trim(String[] fields) {
+        String[] trimmed = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            trimmed[i] = fields[i].trim();
+        }
+        if (trimmed.length > 0 && trimmed[0].startsWith("\uFEFF")) {
+            trimmed[0] = trimmed[0].substring(1); // Byte order mark written by spreadsheet tools
+        }
+        return trimmed;
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+}
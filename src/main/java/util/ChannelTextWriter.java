@@ -0,0 +1,160 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 text writer on top of a byte channel.
+ * Text is collected in a reusable char buffer, encoded into a reusable direct byte buffer
+ * and written to the channel in large blocks, so streaming exports allocate almost nothing per row.
+ * Not thread-safe.
+ */
+public class ChannelTextWriter implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final char[] chars;
+    private final CharBuffer charView;
+    private final ByteBuffer bytes;
+    private int charCount;
+    private long bytesWritten;
+
+    /**
+     * @param channel Destination channel (closed by {@link #close()})
+     * @param byteBufferSize Size of the byte buffer written to the channel in one call
+     */
+    public ChannelTextWriter(WritableByteChannel channel, int byteBufferSize) {
+        this.channel = channel;
+        this.chars = new char[Math.max(1024, byteBufferSize / 4)];
+        this.charView = CharBuffer.wrap(chars);
+        this.bytes = ByteBuffer.allocateDirect(byteBufferSize);
+    }
+
+    public ChannelTextWriter append(char c) throws IOException {
+        if (charCount == chars.length) {
+            encodeChars(false);
+        }
+        chars[charCount++] = c;
+        return this;
+    }
+
+    public ChannelTextWriter append(String value) throws IOException {
+        return append(value, 0, value.length());
+    }
+
+    // Appends value[start, end) without creating a substring
+    public ChannelTextWriter append(String value, int start, int end) throws IOException {
+        int length = end;
+        int offset = start;
+        while (offset < length) {
+            if (charCount == chars.length) {
+                encodeChars(false);
+            }
+            int n = Math.min(length - offset, chars.length - charCount);
+            value.getChars(offset, offset + n, chars, charCount);
+            charCount += n;
+            offset += n;
+        }
+        return this;
+    }
+
+    public ChannelTextWriter append(int value) throws IOException {
+        return append((long) value);
+    }
+
+    // Writes the decimal digits directly into the char buffer (no String allocation)
+    public ChannelTextWriter append(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        if (chars.length - charCount < 20) {
+            encodeChars(false);
+        }
+        if (value < 0) {
+            chars[charCount++] = '-';
+            value = -value;
+        }
+        int end = charCount + digits(value);
+        int pos = end;
+        do {
+            chars[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        charCount = end;
+        return this;
+    }
+
+    private static int digits(long value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return Bytes handed to the channel so far (excludes data still buffered)
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Encodes and writes everything buffered so far.
+     * @throws IOException If the channel write fails
+     */
+    public void flush() throws IOException {
+        encodeChars(true);
+        drainBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void encodeChars(boolean endOfInput) throws IOException {
+        charView.limit(charCount).position(0);
+        while (true) {
+            CoderResult result = encoder.encode(charView, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drainBytes();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                drainBytes();
+            }
+            encoder.reset();
+        }
+        // Keep an unpaired high surrogate for the next round
+        int remaining = charView.remaining();
+        if (remaining > 0) {
+            System.arraycopy(chars, charView.position(), chars, 0, remaining);
+        }
+        charCount = remaining;
+    }
+
+    private void drainBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
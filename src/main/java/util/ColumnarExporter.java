@@ -0,0 +1,140 @@
+package util;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Columnar snapshots (see {@link ColumnarWriter}) of books and loans for analytics jobs.
+ * The row writers are handed to DAO streaming queries just like the CSV ones.
+ */
+public class ColumnarExporter {
+
+    public static final String FILE_EXTENSION = ".nbc";
+
+    public static BookColumnWriter openBookSnapshot(String filePath) {
+        return new BookColumnWriter(new ColumnarWriter(filePath));
+    }
+
+    public static LoanColumnWriter openLoanSnapshot(String filePath) {
+        return new LoanColumnWriter(new ColumnarWriter(filePath));
+    }
+
+    /**
+     * Book columns: isbn, title (text), author, category (dictionary), total_copies,
+     * available_copies (int32), reference_price (decimal, scale 2), is_active (boolean).
+     */
+    public static class BookColumnWriter implements RowHandler, AutoCloseable {
+        private final ColumnarWriter writer;
+        private final ColumnarWriter.StringColumn isbn;
+        private final ColumnarWriter.StringColumn title;
+        private final ColumnarWriter.DictionaryColumn author;
+        private final ColumnarWriter.DictionaryColumn category;
+        private final ColumnarWriter.IntColumn totalCopies;
+        private final ColumnarWriter.IntColumn availableCopies;
+        private final ColumnarWriter.DecimalColumn referencePrice;
+        private final ColumnarWriter.BooleanColumn active;
+
+        BookColumnWriter(ColumnarWriter writer) {
+            this.writer = writer;
+            this.isbn = writer.stringColumn("isbn");
+            this.title = writer.stringColumn("title");
+            this.author = writer.dictionaryColumn("author");
+            this.category = writer.dictionaryColumn("category");
+            this.totalCopies = writer.intColumn("total_copies");
+            this.availableCopies = writer.intColumn("available_copies");
+            this.referencePrice = writer.decimalColumn("reference_price", 2);
+            this.active = writer.booleanColumn("is_active");
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException {
+            isbn.add(rs.getString("isbn"));
+            title.add(rs.getString("title"));
+            author.add(rs.getString("author"));
+            category.add(rs.getString("category"));
+            totalCopies.add(rs.getInt("total_copies"));
+            availableCopies.add(rs.getInt("available_copies"));
+            referencePrice.add(rs.getBigDecimal("reference_price"));
+            active.add(rs.getBoolean("is_active"));
+        }
+
+        public long getRows() {
+            return writer.getRowCount();
+        }
+
+        // Writes the file (after the last row)
+        public void finish() throws IOException {
+            writer.finish();
+        }
+
+        // Without finish(), discards the rows and deletes the target
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Loan columns: id, partner_id (int32), book_isbn (text), loan_date, due_date,
+     * return_date (epoch day), fine (decimal, scale 2), is_returned (boolean).
+     */
+    public static class LoanColumnWriter implements RowHandler, AutoCloseable {
+        private final ColumnarWriter writer;
+        private final ColumnarWriter.IntColumn id;
+        private final ColumnarWriter.StringColumn bookIsbn;
+        private final ColumnarWriter.IntColumn partnerId;
+        private final ColumnarWriter.DateColumn loanDate;
+        private final ColumnarWriter.DateColumn dueDate;
+        private final ColumnarWriter.DateColumn returnDate;
+        private final ColumnarWriter.DecimalColumn fine;
+        private final ColumnarWriter.BooleanColumn returned;
+
+        LoanColumnWriter(ColumnarWriter writer) {
+            this.writer = writer;
+            this.id = writer.intColumn("id");
+            this.bookIsbn = writer.stringColumn("book_isbn");
+            this.partnerId = writer.intColumn("partner_id");
+            this.loanDate = writer.dateColumn("loan_date");
+            this.dueDate = writer.dateColumn("due_date");
+            this.returnDate = writer.dateColumn("return_date");
+            this.fine = writer.decimalColumn("fine", 2);
+            this.returned = writer.booleanColumn("is_returned");
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException {
+            id.add(rs.getInt("id"));
+            bookIsbn.add(rs.getString("book_isbn"));
+            partnerId.add(rs.getInt("partner_id"));
+            Timestamp loaned = rs.getTimestamp("loan_date");
+            loanDate.add(loaned != null ? loaned.toLocalDateTime().toLocalDate() : null);
+            dueDate.add(toLocalDate(rs.getDate("due_date")));
+            returnDate.add(toLocalDate(rs.getDate("return_date")));
+            fine.add(rs.getBigDecimal("fine"));
+            returned.add(rs.getBoolean("is_returned"));
+        }
+
+        public long getRows() {
+            return writer.getRowCount();
+        }
+
+        // Writes the file (after the last row)
+        public void finish() throws IOException {
+            writer.finish();
+        }
+
+        // Without finish(), discards the rows and deletes the target
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
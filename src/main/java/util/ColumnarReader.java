@@ -0,0 +1,267 @@
+package util;
+
+import util.ColumnarWriter.ColumnType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader for files written by {@link ColumnarWriter}.
+ * Only the directory is read on open; a column block is memory-mapped the first time that column
+ * is requested, so scanning a few columns never touches the bytes of the others.
+ * Column views read straight from the mapping (nothing is copied except dictionary entries).
+ */
+public class ColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final int rowCount;
+    private final Map<String, ColumnInfo> columns = new LinkedHashMap<>();
+
+    private static class ColumnInfo {
+        final ColumnType type;
+        final long offset;
+        final long length;
+
+        ColumnInfo(ColumnType type, long offset, long length) {
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Opens a columnar file and reads its directory.
+     * @param filePath File written by {@link ColumnarWriter}
+     * @throws IOException If the file cannot be read or is not a columnar snapshot
+     */
+    public ColumnarReader(String filePath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            if (channel.size() < ColumnarWriter.HEADER_FIXED_BYTES) {
+                throw new IOException("Not a columnar snapshot: " + filePath);
+            }
+            ByteBuffer fixed = map(0, ColumnarWriter.HEADER_FIXED_BYTES);
+            if (fixed.getInt() != ColumnarWriter.MAGIC) {
+                throw new IOException("Not a columnar snapshot: " + filePath);
+            }
+            int version = fixed.getInt();
+            if (version != ColumnarWriter.VERSION) {
+                throw new IOException("Unsupported columnar snapshot version " + version + ": " + filePath);
+            }
+            this.rowCount = fixed.getInt();
+            int columnCount = fixed.getInt();
+            int headerLength = fixed.getInt();
+
+            ByteBuffer directory = map(0, headerLength).position(ColumnarWriter.HEADER_FIXED_BYTES);
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[directory.getShort()];
+                directory.get(name);
+                ColumnType type = ColumnType.fromCode(directory.get());
+                columns.put(new String(name, StandardCharsets.UTF_8),
+                        new ColumnInfo(type, directory.getLong(), directory.getLong()));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return new ArrayList<>(columns.keySet());
+    }
+
+    public ColumnType getColumnType(String name) {
+        return info(name).type;
+    }
+
+    public IntVector intColumn(String name) throws IOException {
+        return new IntVector(block(name, ColumnType.INT32));
+    }
+
+    public DateVector dateColumn(String name) throws IOException {
+        return new DateVector(block(name, ColumnType.EPOCH_DAY));
+    }
+
+    public DecimalVector decimalColumn(String name) throws IOException {
+        return new DecimalVector(block(name, ColumnType.DECIMAL));
+    }
+
+    public BooleanVector booleanColumn(String name) throws IOException {
+        return new BooleanVector(block(name, ColumnType.BOOLEAN));
+    }
+
+    public StringVector stringColumn(String name) throws IOException {
+        return new StringVector(block(name, ColumnType.STRING), rowCount);
+    }
+
+    public DictionaryVector dictionaryColumn(String name) throws IOException {
+        return new DictionaryVector(block(name, ColumnType.DICTIONARY));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mappings stay valid after the channel is closed
+        channel.close();
+    }
+
+    private ColumnInfo info(String name) {
+        ColumnInfo info = columns.get(name);
+        if (info == null) {
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+        return info;
+    }
+
+    private ByteBuffer block(String name, ColumnType expected) throws IOException {
+        ColumnInfo info = info(name);
+        if (info.type != expected) {
+            throw new IllegalArgumentException("Column " + name + " is " + info.type + ", not " + expected);
+        }
+        return map(info.offset, info.length);
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // --- Column views ---
+
+    public static class IntVector {
+        private final ByteBuffer block;
+
+        IntVector(ByteBuffer block) {
+            this.block = block;
+        }
+
+        public int get(int row) {
+            return block.getInt(row * 4);
+        }
+    }
+
+    public static class DateVector {
+        private final ByteBuffer block;
+
+        DateVector(ByteBuffer block) {
+            this.block = block;
+        }
+
+        public boolean isNull(int row) {
+            return getEpochDay(row) == ColumnarWriter.DateColumn.NULL;
+        }
+
+        public int getEpochDay(int row) {
+            return block.getInt(row * 4);
+        }
+
+        public LocalDate get(int row) {
+            int day = getEpochDay(row);
+            return day == ColumnarWriter.DateColumn.NULL ? null : LocalDate.ofEpochDay(day);
+        }
+    }
+
+    public static class DecimalVector {
+        private final ByteBuffer block;
+        private final int scale;
+
+        DecimalVector(ByteBuffer block) {
+            this.block = block;
+            this.scale = block.getInt(0);
+        }
+
+        public int getScale() {
+            return scale;
+        }
+
+        public boolean isNull(int row) {
+            return getUnscaled(row) == ColumnarWriter.DecimalColumn.NULL;
+        }
+
+        public long getUnscaled(int row) {
+            return block.getLong(4 + row * 8);
+        }
+
+        public BigDecimal get(int row) {
+            long unscaled = getUnscaled(row);
+            return unscaled == ColumnarWriter.DecimalColumn.NULL ? null : BigDecimal.valueOf(unscaled, scale);
+        }
+    }
+
+    public static class BooleanVector {
+        private final ByteBuffer block;
+
+        BooleanVector(ByteBuffer block) {
+            this.block = block;
+        }
+
+        public boolean get(int row) {
+            return block.get(row) != 0;
+        }
+    }
+
+    public static class StringVector {
+        private final ByteBuffer block;
+        private final int dataStart;
+
+        StringVector(ByteBuffer block, int rowCount) {
+            this.block = block;
+            this.dataStart = 4 * (rowCount + 1);
+        }
+
+        public String get(int row) {
+            int start = block.getInt(row * 4);
+            int end = block.getInt(row * 4 + 4);
+            byte[] bytes = new byte[end - start];
+            block.get(dataStart + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static class DictionaryVector {
+        private final ByteBuffer block;
+        private final String[] dictionary;
+        private final int codesStart;
+
+        DictionaryVector(ByteBuffer block) {
+            this.block = block;
+            int position = 0;
+            this.dictionary = new String[block.getInt(position)];
+            position += 4;
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] bytes = new byte[block.getInt(position)];
+                block.get(position + 4, bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += 4 + bytes.length;
+            }
+            this.codesStart = position;
+        }
+
+        // Distinct values; a row's code indexes into this array
+        public String[] getDictionary() {
+            return dictionary.clone();
+        }
+
+        public int getCode(int row) {
+            return block.getInt(codesStart + row * 4);
+        }
+
+        public String get(int row) {
+            int code = getCode(row);
+            return code == ColumnarWriter.DictionaryColumn.NULL ? null : dictionary[code];
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer for the NovaBook columnar snapshot format (.nbc), read back by {@link ColumnarReader}.
+ *
+ * Layout (little-endian):
+ * <pre>
+ * header:    magic int, version int, rowCount int, columnCount int, headerLength int
+ * directory: per column: nameLength short, name (UTF-8), type byte, blockOffset long, blockLength long
+ * blocks:    one per column, 8-byte aligned
+ *   INT32      rowCount x int
+ *   EPOCH_DAY  rowCount x int (days since 1970-01-01, Integer.MIN_VALUE = null)
+ *   DECIMAL    scale int, rowCount x long unscaled value (Long.MIN_VALUE = null)
+ *   BOOLEAN    rowCount x byte
+ *   STRING     (rowCount + 1) x int offsets, then UTF-8 data (null is stored as "")
+ *   DICTIONARY entryCount int, per entry length int + UTF-8, then rowCount x int code (-1 = null)
+ * </pre>
+ *
+ * Values are collected per column in primitive arrays while rows are added; {@link #finish()}
+ * lays the file out and writes every block through a memory mapping. Closing a writer that was not
+ * finished (the rows could not all be read) writes nothing and deletes the target, so a partial
+ * snapshot is never taken for a complete one. Not thread-safe.
+ */
+public class ColumnarWriter implements Closeable {
+
+    public static final int MAGIC = 0x4C43424E; // "NBCL"
+    public static final int VERSION = 1;
+    public static final int HEADER_FIXED_BYTES = 20;
+
+    public enum ColumnType {
+        INT32(1), EPOCH_DAY(2), DECIMAL(3), BOOLEAN(4), STRING(5), DICTIONARY(6);
+
+        private final byte code;
+
+        ColumnType(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        public static ColumnType fromCode(byte code) {
+            for (ColumnType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown column type code: " + code);
+        }
+    }
+
+    private final String filePath;
+    private final List<Column> columns = new ArrayList<>();
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * @param filePath Destination file (created or truncated on {@link #finish()})
+     */
+    public ColumnarWriter(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public IntColumn intColumn(String name) {
+        return addColumn(new IntColumn(name, ColumnType.INT32));
+    }
+
+    public DateColumn dateColumn(String name) {
+        return addColumn(new DateColumn(name));
+    }
+
+    public DecimalColumn decimalColumn(String name, int scale) {
+        return addColumn(new DecimalColumn(name, scale));
+    }
+
+    public BooleanColumn booleanColumn(String name) {
+        return addColumn(new BooleanColumn(name));
+    }
+
+    public StringColumn stringColumn(String name) {
+        return addColumn(new StringColumn(name));
+    }
+
+    // For low-cardinality text (categories, authors): each distinct value is stored once
+    public DictionaryColumn dictionaryColumn(String name) {
+        return addColumn(new DictionaryColumn(name));
+    }
+
+    private <C extends Column> C addColumn(C column) {
+        if (!columns.isEmpty() && columns.get(0).size() > 0) {
+            throw new IllegalStateException("Columns must be declared before the first row.");
+        }
+        for (Column existing : columns) {
+            if (existing.name.equals(column.name)) {
+                throw new IllegalArgumentException("Duplicate column: " + column.name);
+            }
+        }
+        columns.add(column);
+        return column;
+    }
+
+    /**
+     * @return Rows added so far (all columns must have the same count when the file is written)
+     */
+    public int getRowCount() {
+        return columns.isEmpty() ? 0 : columns.get(0).size();
+    }
+
+    /**
+     * Lays out and writes the file, once every row has been added.
+     * @throws IOException If the file cannot be written
+     * @throws IllegalStateException If the columns have different lengths or the writer is closed
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Writer is closed.");
+        }
+
+        int rowCount = getRowCount();
+        for (Column column : columns) {
+            if (column.size() != rowCount) {
+                throw new IllegalStateException("Column " + column.name + " has " + column.size()
+                        + " values, expected " + rowCount);
+            }
+        }
+
+        // Directory size first, then block offsets
+        List<byte[]> names = new ArrayList<>();
+        int headerLength = HEADER_FIXED_BYTES;
+        for (Column column : columns) {
+            byte[] name = column.name.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            headerLength += 2 + name.length + 1 + 8 + 8;
+        }
+        long[] offsets = new long[columns.size()];
+        long[] lengths = new long[columns.size()];
+        long position = align(headerLength);
+        for (int i = 0; i < columns.size(); i++) {
+            offsets[i] = position;
+            lengths[i] = columns.get(i).blockLength();
+            if (lengths[i] > Integer.MAX_VALUE) {
+                throw new IOException("Column " + columns.get(i).name + " exceeds 2 GB.");
+            }
+            position = align(position + lengths[i]);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer header = map(channel, 0, headerLength);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(columns.size()).putInt(headerLength);
+            for (int i = 0; i < columns.size(); i++) {
+                header.putShort((short) names.get(i).length).put(names.get(i));
+                header.put(columns.get(i).type.getCode()).putLong(offsets[i]).putLong(lengths[i]);
+            }
+
+            for (int i = 0; i < columns.size(); i++) {
+                columns.get(i).writeBlock(map(channel, offsets[i], lengths[i]));
+            }
+            // Trailing alignment so the file length matches the layout
+            channel.truncate(position);
+        }
+        finished = true;
+    }
+
+    /**
+     * Releases the collected values. If {@link #finish()} did not complete, nothing is written and
+     * the target file is deleted (it would hold an older or partial snapshot).
+     * @throws IOException If the target file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        columns.clear();
+        if (!finished) {
+            Files.deleteIfExists(Paths.get(filePath));
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    // --- Columns ---
+
+    public abstract static class Column {
+        final String name;
+        final ColumnType type;
+
+        Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        abstract int size();
+
+        abstract long blockLength();
+
+        abstract void writeBlock(MappedByteBuffer block);
+    }
+
+    public static class IntColumn extends Column {
+        int[] values = new int[1024];
+        int size;
+
+        IntColumn(String name, ColumnType type) {
+            super(name, type);
+        }
+
+        public void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long blockLength() {
+            return 4L * size;
+        }
+
+        @Override
+        void writeBlock(MappedByteBuffer block) {
+            block.asIntBuffer().put(values, 0, size);
+        }
+    }
+
+    public static class DateColumn extends IntColumn {
+        public static final int NULL = Integer.MIN_VALUE;
+
+        DateColumn(String name) {
+            super(name, ColumnType.EPOCH_DAY);
+        }
+
+        /**
+         * @throws IllegalArgumentException If the date is outside the int range of epoch days (or would read back as null)
+         */
+        public void add(LocalDate date) {
+            if (date == null) {
+                add(NULL);
+                return;
+            }
+            long epochDay = date.toEpochDay();
+            if (epochDay <= NULL || epochDay > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Date out of range for column " + name + ": " + date);
+            }
+            add((int) epochDay);
+        }
+    }
+
+    public static class DecimalColumn extends Column {
+        public static final long NULL = Long.MIN_VALUE;
+
+        private final int scale;
+        private long[] values = new long[1024];
+        private int size;
+
+        DecimalColumn(String name, int scale) {
+            super(name, ColumnType.DECIMAL);
+            this.scale = scale;
+        }
+
+        /**
+         * @throws ArithmeticException If the value at this scale does not fit in a long
+         * @throws IllegalArgumentException If the value at this scale would read back as null
+         */
+        public void add(BigDecimal value) {
+            long unscaled = NULL;
+            if (value != null) {
+                unscaled = value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+                if (unscaled == NULL) {
+                    throw new IllegalArgumentException("Value out of range for column " + name + ": " + value);
+                }
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = unscaled;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long blockLength() {
+            return 4 + 8L * size;
+        }
+
+        @Override
+        void writeBlock(MappedByteBuffer block) {
+            block.putInt(scale);
+            block.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(values, 0, size);
+        }
+    }
+
+    public static class BooleanColumn extends Column {
+        private byte[] values = new byte[1024];
+        private int size;
+
+        BooleanColumn(String name) {
+            super(name, ColumnType.BOOLEAN);
+        }
+
+        public void add(boolean value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = (byte) (value ? 1 : 0);
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long blockLength() {
+            return size;
+        }
+
+        @Override
+        void writeBlock(MappedByteBuffer block) {
+            block.put(values, 0, size);
+        }
+    }
+
+    public static class StringColumn extends Column {
+        private int[] ends = new int[1024];
+        private byte[] data = new byte[16 * 1024];
+        private int size;
+        private int dataLength;
+
+        StringColumn(String name) {
+            super(name, ColumnType.STRING);
+        }
+
+        public void add(String value) {
+            byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            if (dataLength + bytes.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + bytes.length));
+            }
+            System.arraycopy(bytes, 0, data, dataLength, bytes.length);
+            dataLength += bytes.length;
+            ends[size++] = dataLength;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long blockLength() {
+            return 4L * (size + 1) + dataLength;
+        }
+
+        @Override
+        void writeBlock(MappedByteBuffer block) {
+            block.putInt(0);
+            for (int i = 0; i < size; i++) {
+                block.putInt(ends[i]);
+            }
+            block.put(data, 0, dataLength);
+        }
+    }
+
+    public static class DictionaryColumn extends Column {
+        public static final int NULL = -1;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private long entryBytes;
+        private int[] values = new int[1024];
+        private int size;
+
+        DictionaryColumn(String name) {
+            super(name, ColumnType.DICTIONARY);
+        }
+
+        public void add(String value) {
+            int code = NULL;
+            if (value != null) {
+                code = codes.computeIfAbsent(value, v -> {
+                    byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                    entries.add(bytes);
+                    entryBytes += 4 + bytes.length;
+                    return entries.size() - 1;
+                });
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = code;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long blockLength() {
+            return 4 + entryBytes + 4L * size;
+        }
+
+        @Override
+        void writeBlock(MappedByteBuffer block) {
+            block.putInt(entries.size());
+            for (byte[] entry : entries) {
+                block.putInt(entry.length).put(entry);
+            }
+            for (int i = 0; i < size; i++) {
+                block.putInt(values[i]);
+            }
+        }
+    }
+}
@@ -6,7 +6,8 @@ import java.util.Properties;
 
 /**
  * Utility class to load and access configuration properties from config.properties file.
- * Properties are loaded once at class initialization.
+ * Properties are loaded once at class initialization; a JVM system property with the same key
+ * (-Dkey=value) takes precedence over the file.
  */
 public class ConfigLoader {
     private static final Properties PROPERTIES = new Properties();
@@ -32,7 +33,7 @@ public class ConfigLoader {
      * @return The property value, or null if not found
      */
     public static String getProperty(String key) {
-        return PROPERTIES.getProperty(key);
+        return lookup(key);
     }
 
     /**
@@ -42,7 +43,8 @@ public class ConfigLoader {
      * @return The property value, or defaultValue if not found
      */
     public static String getProperty(String key, String defaultValue) {
-        return PROPERTIES.getProperty(key, defaultValue);
+        String value = lookup(key);
+        return value != null ? value : defaultValue;
     }
 
     /**
@@ -52,7 +54,7 @@ public class ConfigLoader {
      * @throws NumberFormatException if value cannot be parsed
      */
     public static int getIntProperty(String key) {
-        String value = PROPERTIES.getProperty(key);
+        String value = lookup(key);
         if (value == null) {
             throw new IllegalArgumentException("Property '" + key + "' not found in config.properties");
         }
@@ -67,7 +69,7 @@ public class ConfigLoader {
      */
     public static int getIntProperty(String key, int defaultValue) {
         try {
-            String value = PROPERTIES.getProperty(key);
+            String value = lookup(key);
             return value != null ? Integer.parseInt(value) : defaultValue;
         } catch (NumberFormatException e) {
             return defaultValue;
@@ -80,6 +82,12 @@ public class ConfigLoader {
      * @return true if the property exists, false otherwise
      */
     public static boolean hasProperty(String key) {
-        return PROPERTIES.containsKey(key);
+        return lookup(key) != null;
+    }
+
+    // System property first (command-line override), then config.properties
+    private static String lookup(String key) {
+        String override = System.getProperty(key);
+        return override != null ? override : PROPERTIES.getProperty(key);
     }
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small bounded JDBC connection pool.
+ * Hands out proxies whose close() returns the physical connection to the pool
+ * (rolled back and back in auto-commit mode) instead of closing it.
+ * A connection that sat idle longer than validateAfterMillis is checked with isValid before it is
+ * handed out, and one idle longer than maxIdleMillis is closed, so sockets dropped by the server
+ * (MySQL wait_timeout) or the network are replaced instead of failing the next statement.
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long timeoutMillis;
+    private final long validateAfterNanos;
+    private final long maxIdleNanos;
+
+    private final BlockingQueue<IdleConnection> idle;
+    private final Semaphore permits;
+
+    private record IdleConnection(Connection physical, long idleSinceNanos) {}
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param maxSize Maximum number of connections
+     * @param timeoutMillis Maximum wait for a connection when all of them are in use
+     * @param validateAfterMillis Idle time after which a connection is validated before reuse (0 = always)
+     * @param maxIdleMillis Idle time after which a connection is closed instead of reused
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long timeoutMillis,
+                          long validateAfterMillis, long maxIdleMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.validateAfterNanos = TimeUnit.MILLISECONDS.toNanos(validateAfterMillis);
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured timeout when all of them are in use.
+     * @return A pooled connection (close it to give it back)
+     * @throws SQLException If no connection became available in time or a new one can't be opened
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + timeoutMillis + " ms waiting for a database connection (pool size " + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrows.increment();
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, user, password);
+            }
+            active.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Next reusable idle connection (stale ones are closed on the way), or null
+    private Connection takeIdle() {
+        IdleConnection entry;
+        while ((entry = idle.poll()) != null) {
+            if (isUsable(entry)) {
+                return entry.physical();
+            }
+            discarded.increment();
+            try {
+                entry.physical().close();
+            } catch (SQLException ignored) {
+                // Already unusable
+            }
+        }
+        return null;
+    }
+
+    private boolean isUsable(IdleConnection entry) {
+        long idleNanos = System.nanoTime() - entry.idleSinceNanos();
+        try {
+            if (idleNanos > maxIdleNanos || entry.physical().isClosed()) {
+                return false;
+            }
+            return idleNanos < validateAfterNanos || entry.physical().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void giveBack(Connection physical) {
+        try {
+            if (!physical.isClosed()) {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (!idle.offer(new IdleConnection(physical, System.nanoTime()))) {
+                    physical.close();
+                }
+            }
+        } catch (SQLException e) {
+            // Broken connection: drop it, a new one is opened on demand
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Already unusable
+            }
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            giveBack(physical);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || physical.isClosed();
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(physical)) {
+                            return physical;
+                        }
+                        break;
+                    default:
+                        if (closed) {
+                            throw new SQLException("Connection has been returned to the pool.");
+                        }
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Closes the idle connections (called on application shutdown).
+     */
+    public void shutdown() {
+        IdleConnection entry;
+        while ((entry = idle.poll()) != null) {
+            try {
+                entry.physical().close();
+            } catch (SQLException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    // --- Metrics ---
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    // Threads currently waiting for a connection
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    // Idle connections closed on borrow because they were stale or failed validation
+    public long getDiscardedCount() {
+        return discarded.sum();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+}
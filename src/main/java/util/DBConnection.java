@@ -2,19 +2,104 @@ package util;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DBConnection {
 
+    // Shared pool (null when db.pool.size is 0: every call opens a new connection)
+    private static final ConnectionPool POOL = createPool();
+
     // Prevents instantiation
     private DBConnection() {}
 
-    // Returns a new database connection
+    private static ConnectionPool createPool() {
+        int size = ConfigLoader.getIntProperty("db.pool.size", 10);
+        if (size <= 0) {
+            return null;
+        }
+        ConnectionPool pool = new ConnectionPool(
+                ConfigLoader.getProperty("db.url"),
+                ConfigLoader.getProperty("db.user"),
+                ConfigLoader.getProperty("db.password"),
+                size,
+                ConfigLoader.getIntProperty("db.pool.timeoutMs", 5000),
+                ConfigLoader.getIntProperty("db.pool.validateAfterMs", 30000),
+                ConfigLoader.getIntProperty("db.pool.maxIdleMs", 1800000));
+        registerMetrics(pool);
+        return pool;
+    }
+
+    // novabook:type=ConnectionPool (JMX)
+    private static void registerMetrics(ConnectionPool pool) {
+        MetricsRegistry.group("type=ConnectionPool")
+                .gauge("MaxSize", "Maximum number of connections", pool::getMaxSize)
+                .gauge("ActiveConnections", "Connections currently borrowed", pool::getActiveCount)
+                .gauge("IdleConnections", "Open connections waiting in the pool", pool::getIdleCount)
+                .gauge("WaitingThreads", "Threads waiting for a connection", pool::getWaitingCount)
+                .gaugeDouble("Utilization", "Borrowed connections / maximum size (1.0 = saturated)",
+                        () -> (double) pool.getActiveCount() / pool.getMaxSize())
+                .gauge("BorrowCount", "Connections handed out since startup", pool::getBorrowCount)
+                .gauge("TimeoutCount", "Borrows that timed out waiting for a connection", pool::getTimeoutCount)
+                .gauge("DiscardedCount", "Stale idle connections closed and replaced on borrow", pool::getDiscardedCount)
+                .gauge("TotalWaitMillis", "Time spent waiting for connections since startup", pool::getTotalWaitMillis)
+                .gauge("MaxWaitMillis", "Longest wait for a connection", pool::getMaxWaitMillis)
+                .gaugeDouble("MeanWaitMillis", "Mean wait per borrow", () -> pool.getBorrowCount() == 0
+                        ? 0 : (double) pool.getTotalWaitMillis() / pool.getBorrowCount());
+    }
+
+    // Returns a database connection (pooled when the pool is enabled; closing it gives it back),
+    // instrumented when db.instrumentation.enabled is true
     public static Connection getConnection() throws SQLException {
-        String url = ConfigLoader.getProperty("db.url");
-        String user = ConfigLoader.getProperty("db.user");
-        String password = ConfigLoader.getProperty("db.password");
+        Tracer.Span span = Tracer.span("getConnection");
+        try {
+            if (POOL != null) {
+                return QueryInstrumentation.wrap(POOL.borrow());
+            }
+            String url = ConfigLoader.getProperty("db.url");
+            String user = ConfigLoader.getProperty("db.user");
+            String password = ConfigLoader.getProperty("db.password");
+
+            return QueryInstrumentation.wrap(DriverManager.getConnection(url, user, password));
+        } catch (SQLException | RuntimeException e) {
+            span.error(); // Pool timeout or failed connect
+            throw e;
+        } finally {
+            span.close();
+        }
+    }
+
+    /**
+     * @return The connection pool, or null if pooling is disabled
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+
+    /**
+     * Closes the pooled connections, the slow-query log and the trace log (application shutdown).
+     */
+    public static void shutdown() {
+        if (POOL != null) {
+            POOL.shutdown();
+        }
+        QueryInstrumentation.shutdown();
+        Tracer.shutdown();
+    }
 
-        return DriverManager.getConnection(url, user, password);
+    /**
+     * Prepares a forward-only, read-only statement whose rows are streamed one by one
+     * instead of being buffered in memory by the driver (MySQL streaming mode).
+     * The connection can't run other statements until the ResultSet is closed.
+     * @param conn The connection
+     * @param sql The query
+     * @return The prepared statement
+     * @throws SQLException Database access error
+     */
+    public static PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(Integer.MIN_VALUE);
+        return ps;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+package util;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency per logical endpoint ("POST /NovaBook/books", "GET /NovaBook/books/{isbn}") and outcome.
+ * Controllers time each call with an {@link EndpointTimer}:
+ *
+ *     try (EndpointTimer timer = EndpointMetrics.start("GET /NovaBook/books")) {
+ *         List<Book> books = bookService.findAll();
+ *         timer.success();
+ *         return books;
+ *     }
+ *
+ * A call that leaves the block without success() (an exception) counts as an error.
+ * Endpoint names are templates, never concrete ISBNs or IDs, so the set of histograms stays small.
+ * Disabled with metrics.endpoints.enabled=false (timers then record nothing).
+ */
+public class EndpointMetrics {
+
+    public enum Outcome { OK, ERROR }
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(ConfigLoader.getProperty("metrics.endpoints.enabled", "true"));
+    private static final ConcurrentMap<String, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+
+    static {
+        if (ENABLED) {
+            MetricsRegistry.group("type=Endpoints")
+                    .gauge("EndpointCount", "Endpoints called since startup", ENDPOINTS::size)
+                    .operation("resetCounters", "Starts a new measurement interval for every endpoint",
+                            EndpointMetrics::snapshotAndReset);
+        }
+    }
+
+    // Prevents instantiation
+    private EndpointMetrics() {}
+
+    /**
+     * Starts timing one call.
+     * @param endpoint Logical endpoint: HTTP method and path template
+     */
+    public static EndpointTimer start(String endpoint) {
+        return start(endpoint, NPlusOneDetector.scope(endpoint));
+    }
+
+    /**
+     * Starts timing a batched bulk call (import, sync), which the N+1 detector leaves out.
+     * @param endpoint Logical endpoint: HTTP method and path template
+     */
+    public static EndpointTimer startBatch(String endpoint) {
+        return start(endpoint, NPlusOneDetector.batchScope(endpoint));
+    }
+
+    private static EndpointTimer start(String endpoint, NPlusOneDetector.Scope queries) {
+        Tracer.Span trace = Tracer.startTrace(endpoint);
+        if (!ENABLED) {
+            return trace == Tracer.Span.NOOP && queries == NPlusOneDetector.Scope.NOOP
+                    ? EndpointTimer.NOOP : new EndpointTimer(null, trace, queries);
+        }
+        Endpoint metrics = ENDPOINTS.get(endpoint);
+        if (metrics == null) {
+            metrics = ENDPOINTS.computeIfAbsent(endpoint, EndpointMetrics::newEndpoint);
+        }
+        return new EndpointTimer(metrics, trace, queries);
+    }
+
+    /**
+     * Statistics since the last reset (or startup), one entry per endpoint and outcome
+     * (ERROR entries only for endpoints that failed), sorted by endpoint.
+     */
+    public static List<EndpointStats> snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * Same as {@link #snapshot()}, then starts a new interval for every endpoint.
+     */
+    public static List<EndpointStats> snapshotAndReset() {
+        return collect(true);
+    }
+
+    // Creates the histograms and publishes them as novabook:type=Endpoint,name="<endpoint>" (JMX)
+    private static Endpoint newEndpoint(String name) {
+        Endpoint endpoint = new Endpoint(name);
+        MetricsRegistry.group("type=Endpoint,name=" + ObjectName.quote(name))
+                .gauge("Calls", "Successful calls since the last reset", () -> endpoint.ok.snapshot().getCount())
+                .gauge("Errors", "Failed calls since the last reset", () -> endpoint.errors.snapshot().getCount())
+                .gaugeDouble("MeanMillis", "Mean latency of successful calls", () -> endpoint.ok.snapshot().getMeanNanos() / 1e6)
+                .gaugeDouble("P50Millis", "Median latency of successful calls", () -> percentileMillis(endpoint, 50))
+                .gaugeDouble("P99Millis", "99th percentile latency of successful calls", () -> percentileMillis(endpoint, 99))
+                .gaugeDouble("P999Millis", "99.9th percentile latency of successful calls", () -> percentileMillis(endpoint, 99.9))
+                .gaugeDouble("MaxMillis", "Slowest successful call", () -> endpoint.ok.snapshot().getMaxNanos() / 1e6);
+        return endpoint;
+    }
+
+    private static double percentileMillis(Endpoint endpoint, double percentile) {
+        return endpoint.ok.snapshot().getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static List<EndpointStats> collect(boolean reset) {
+        List<EndpointStats> stats = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Endpoint endpoint : ENDPOINTS.values()) {
+            long intervalStart = endpoint.intervalStart;
+            LatencyHistogram.Snapshot ok = reset ? endpoint.ok.snapshotAndReset() : endpoint.ok.snapshot();
+            LatencyHistogram.Snapshot errors = reset ? endpoint.errors.snapshotAndReset() : endpoint.errors.snapshot();
+            if (reset) {
+                endpoint.intervalStart = now;
+            }
+            double seconds = Math.max(1e-3, (now - intervalStart) / 1e9);
+            stats.add(new EndpointStats(endpoint.name, Outcome.OK, ok, seconds));
+            if (errors.getCount() > 0) {
+                stats.add(new EndpointStats(endpoint.name, Outcome.ERROR, errors, seconds));
+            }
+        }
+        stats.sort((a, b) -> a.getEndpoint().equals(b.getEndpoint())
+                ? a.getOutcome().compareTo(b.getOutcome())
+                : a.getEndpoint().compareTo(b.getEndpoint()));
+        return stats;
+    }
+
+    static final class Endpoint {
+        final String name;
+        final LatencyHistogram ok = new LatencyHistogram();
+        final LatencyHistogram errors = new LatencyHistogram();
+        volatile long intervalStart = System.nanoTime();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean success) {
+            (success ? ok : errors).record(nanos);
+        }
+    }
+
+    /**
+     * Latency and throughput of one endpoint and outcome over an interval. Latencies in milliseconds.
+     */
+    public static class EndpointStats {
+        private final String endpoint;
+        private final Outcome outcome;
+        private final long count;
+        private final double intervalSeconds;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p90Millis;
+        private final double p99Millis;
+        private final double p999Millis;
+        private final double maxMillis;
+
+        EndpointStats(String endpoint, Outcome outcome, LatencyHistogram.Snapshot histogram, double intervalSeconds) {
+            this.endpoint = endpoint;
+            this.outcome = outcome;
+            this.count = histogram.getCount();
+            this.intervalSeconds = intervalSeconds;
+            this.meanMillis = histogram.getMeanNanos() / 1e6;
+            this.p50Millis = histogram.getValueAtPercentile(50) / 1e6;
+            this.p90Millis = histogram.getValueAtPercentile(90) / 1e6;
+            this.p99Millis = histogram.getValueAtPercentile(99) / 1e6;
+            this.p999Millis = histogram.getValueAtPercentile(99.9) / 1e6;
+            this.maxMillis = histogram.getMaxNanos() / 1e6;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getIntervalSeconds() {
+            return intervalSeconds;
+        }
+
+        // Calls per second over the interval
+        public double getThroughput() {
+            return count / intervalSeconds;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getP999Millis() {
+            return p999Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
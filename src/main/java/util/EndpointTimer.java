@@ -0,0 +1,46 @@
+package util;
+
+/**
+ * Times one controller call for {@link EndpointMetrics}; meant for try-with-resources.
+ * The latency is recorded on close, as OK if {@link #success()} was called, as ERROR otherwise.
+ * Also the root span of the request's trace when the request is sampled by {@link Tracer}, and
+ * the request scope of the {@link NPlusOneDetector} unless the call is part of a larger one.
+ * Not shared between threads.
+ */
+public class EndpointTimer implements AutoCloseable {
+
+    // Returned when endpoint metrics are disabled
+    static final EndpointTimer NOOP = new EndpointTimer(null, Tracer.Span.NOOP, NPlusOneDetector.Scope.NOOP);
+
+    private final EndpointMetrics.Endpoint endpoint;
+    private final Tracer.Span trace;
+    private final NPlusOneDetector.Scope queries;
+    private final long start;
+    private boolean success;
+
+    EndpointTimer(EndpointMetrics.Endpoint endpoint, Tracer.Span trace, NPlusOneDetector.Scope queries) {
+        this.endpoint = endpoint;
+        this.trace = trace;
+        this.queries = queries;
+        this.start = endpoint != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Marks the call as successful (call it right before returning).
+     */
+    public void success() {
+        success = true;
+    }
+
+    @Override
+    public void close() {
+        if (endpoint != null) {
+            endpoint.record(System.nanoTime() - start, success);
+        }
+        if (!success) {
+            trace.error();
+        }
+        trace.close();
+        queries.close(); // Last: throws in the detector's FAIL mode
+    }
+}
@@ -0,0 +1,223 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+
+/**
+ * Java Flight Recorder events of NovaBook's own code (category "NovaBook" in JDK Mission Control).
+ * Record them with e.g. {@code java -XX:StartFlightRecording=filename=novabook.jfr ...} or
+ * {@code jcmd <pid> JFR.start}. When no recording is running, begin/commit are no-ops and the
+ * event objects are usually optimized away, so the instrumented paths cost next to nothing.
+ * DAO events need a proxy around every DAO, which is only installed when jfr.daoEvents.enabled is true.
+ *
+ * Usage follows the JFR pattern: create the event, {@code begin()}, fill in the fields, {@code commit()}.
+ */
+public final class FlightEvents {
+
+    // DAO proxies are installed at startup, so DAO events can only be recorded if this was set then
+    private static final boolean DAO_EVENTS = FlightRecorder.isAvailable()
+            && Boolean.parseBoolean(ConfigLoader.getProperty("jfr.daoEvents.enabled", "false"));
+
+    // Prevents instantiation
+    private FlightEvents() {}
+
+    @Name("novabook.LoanRegister")
+    @Label("Loan Registration")
+    @Category({"NovaBook", "Loans"})
+    public static class LoanRegister extends Event {
+        @Label("ISBN")
+        public String isbn;
+
+        @Label("Partner ID")
+        public int partnerId;
+
+        @Label("Loan ID")
+        @Description("ID of the registered loan, 0 if the registration failed")
+        public int loanId;
+
+        @Label("Replayed")
+        @Description("Answered from a completed request with the same idempotency key")
+        public boolean replayed;
+
+        @Label("Failure")
+        public String failure;
+    }
+
+    @Name("novabook.LoanReturn")
+    @Label("Loan Return")
+    @Category({"NovaBook", "Loans"})
+    public static class LoanReturn extends Event {
+        @Label("Loan ID")
+        public int loanId;
+
+        @Label("ISBN")
+        public String isbn;
+
+        @Label("Fine")
+        public double fine;
+
+        @Label("Replayed")
+        @Description("Answered from a completed request with the same idempotency key")
+        public boolean replayed;
+
+        @Label("Failure")
+        public String failure;
+    }
+
+    @Name("novabook.DaoOperation")
+    @Label("DAO Operation")
+    @Description("One DAO method call, including the JDBC work it does")
+    @Category({"NovaBook", "Data Access"})
+    public static class DaoOperation extends Event {
+        @Label("DAO")
+        public String dao;
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("Key")
+        @Description("First ISBN, ID or name argument, if any")
+        public String key;
+
+        @Label("Rows")
+        @Description("Size of the returned list, count or affected rows (1/0 for single results), -1 if the call failed")
+        public long rows;
+
+        @Label("Failure")
+        public String failure;
+    }
+
+    @Name("novabook.CacheLookup")
+    @Label("Cache Lookup")
+    @Category({"NovaBook", "Cache"})
+    @StackTrace(false)
+    public static class CacheLookup extends Event {
+        @Label("Cache")
+        public String cache;
+
+        @Label("Key")
+        public String key;
+
+        @Label("Hit")
+        public boolean hit;
+
+        @Label("Expired")
+        @Description("The key was found but its time-to-live had passed")
+        public boolean expired;
+    }
+
+    @Name("novabook.ExportJob")
+    @Label("Export Job")
+    @Description("A background export, from the start of its query to the last byte written")
+    @Category({"NovaBook", "Exports"})
+    @StackTrace(false)
+    public static class ExportJobRun extends Event {
+        @Label("Job ID")
+        public int jobId;
+
+        @Label("Description")
+        public String description;
+
+        @Label("File")
+        public String filePath;
+
+        @Label("Rows")
+        public long rows;
+
+        @Label("Bytes")
+        public long bytes;
+
+        @Label("Status")
+        public String status;
+    }
+
+    /**
+     * Wraps a DAO so that every call of its interface methods emits a {@link DaoOperation} event.
+     * @param type The DAO interface
+     * @param dao The implementation
+     * @return The implementation itself when jfr.daoEvents.enabled is false or JFR is unavailable;
+     *         otherwise a proxy implementing the interface (no event is created while the event is not
+     *         enabled in a running recording)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T instrument(Class<T> type, T dao) {
+        if (!DAO_EVENTS) {
+            return dao;
+        }
+        String daoName = type.getSimpleName();
+        EventType eventType = EventType.getEventType(DaoOperation.class);
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("equals") ? proxy == args[0] : method.invoke(dao, args);
+            }
+            if (!eventType.isEnabled()) {
+                try {
+                    return method.invoke(dao, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            DaoOperation event = new DaoOperation();
+            event.rows = -1;
+            event.begin();
+            try {
+                Object result = method.invoke(dao, args);
+                if (event.shouldCommit()) {
+                    event.rows = rowCount(result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                event.failure = e.getCause().toString();
+                throw e.getCause();
+            } finally {
+                if (event.shouldCommit()) {
+                    event.dao = daoName;
+                    event.operation = method.getName();
+                    event.key = keyOf(args);
+                    event.commit();
+                }
+            }
+        });
+    }
+
+    private static long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        if (result instanceof Boolean flag) {
+            return flag ? 1 : 0;
+        }
+        if (result instanceof int[] counts) {
+            return counts.length;
+        }
+        return 1;
+    }
+
+    // First String or numeric argument (ISBN, ID, name), also used as the detail of trace spans
+    static String keyOf(Object[] args) {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof String || arg instanceof Number) {
+                    return arg.toString();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package util;
+
+import model.Book;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JSON Lines exports (one object per line, see {@link JsonLinesWriter}) of books, partners, loans
+ * and users. Field names are the database column names, as in the columnar snapshots.
+ * The row writers are handed to DAO streaming queries just like the CSV ones, and the files can be
+ * gzip-compressed on the fly the same way. {@link JsonLinesReader} reads them back for imports.
+ */
+public class JsonLinesExporter {
+
+    public static final String FILE_EXTENSION = ".jsonl";
+
+    // Import layouts: same order as the CSV columns, so both formats map to the same row parser
+    public static final String[] BOOK_FIELDS = {"isbn", "title", "author", "category", "total_copies",
+            "available_copies", "reference_price", "is_active"};
+    public static final String[] PARTNER_FIELDS = {"id", "name", "email", "is_active"};
+
+    /**
+     * Exports a list of books (same objects as the streaming export).
+     * @param books List of books to export
+     * @param filePath Path where the .jsonl (or .jsonl.gz) will be saved
+     * @param compress Whether to write the file through the gzip encoder
+     * @throws IOException If file writing fails
+     */
+    public static void exportBooks(List<Book> books, String filePath, boolean compress) throws IOException {
+        try (JsonLinesWriter writer = new JsonLinesWriter(CSVExporter.openFile(filePath, compress))) {
+            for (Book book : books) {
+                // BigDecimal caches toString (toPlainString would build a new String per row)
+                writer.beginObject();
+                writeBook(writer, book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(),
+                        book.getTotalCopies(), book.getAvailableCopies(), book.getReferencePrice().toString(), book.isActive());
+                writer.endObject();
+            }
+        }
+    }
+
+    public static BookJsonWriter openBookStream(String filePath, boolean compress) throws IOException {
+        return new BookJsonWriter(new JsonLinesWriter(CSVExporter.openFile(filePath, compress)));
+    }
+
+    public static PartnerJsonWriter openPartnerStream(String filePath, boolean compress) throws IOException {
+        return new PartnerJsonWriter(new JsonLinesWriter(CSVExporter.openFile(filePath, compress)));
+    }
+
+    public static LoanJsonWriter openLoanStream(String filePath, boolean compress) throws IOException {
+        return new LoanJsonWriter(new JsonLinesWriter(CSVExporter.openFile(filePath, compress)));
+    }
+
+    public static UserJsonWriter openUserStream(String filePath, boolean compress) throws IOException {
+        return new UserJsonWriter(new JsonLinesWriter(CSVExporter.openFile(filePath, compress)));
+    }
+
+    /**
+     * Base class of the row writers: wraps each row in an object and counts rows.
+     */
+    public abstract static class RowWriter implements RowHandler, AutoCloseable {
+        final JsonLinesWriter writer;
+        private long rows;
+
+        RowWriter(JsonLinesWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void handle(ResultSet rs) throws SQLException, IOException {
+            writer.beginObject();
+            writeRow(rs);
+            writer.endObject();
+            rows++;
+        }
+
+        abstract void writeRow(ResultSet rs) throws SQLException, IOException;
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytesWritten() {
+            return writer.getBytesWritten();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    public static class BookJsonWriter extends RowWriter {
+        BookJsonWriter(JsonLinesWriter writer) {
+            super(writer);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            writeBook(writer, rs.getString("isbn"), rs.getString("title"), rs.getString("author"), rs.getString("category"),
+                    rs.getInt("total_copies"), rs.getInt("available_copies"), rs.getString("reference_price"), rs.getBoolean("is_active"));
+        }
+    }
+
+    public static class PartnerJsonWriter extends RowWriter {
+        PartnerJsonWriter(JsonLinesWriter writer) {
+            super(writer);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            writer.field("id", rs.getInt("id"));
+            writer.field("name", rs.getString("name"));
+            writer.field("email", rs.getString("email"));
+            writer.field("is_active", rs.getBoolean("is_active"));
+            writer.field("created_at", timestamp(rs.getTimestamp("created_at")));
+        }
+    }
+
+    public static class LoanJsonWriter extends RowWriter {
+        LoanJsonWriter(JsonLinesWriter writer) {
+            super(writer);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            writer.field("id", rs.getInt("id"));
+            writer.field("book_isbn", rs.getString("book_isbn"));
+            writer.field("partner_id", rs.getInt("partner_id"));
+            writer.field("loan_date", timestamp(rs.getTimestamp("loan_date")));
+            writer.field("due_date", rs.getString("due_date"));
+            writer.field("return_date", rs.getString("return_date"));
+            writer.numberField("fine", rs.getString("fine"));
+            writer.field("is_returned", rs.getBoolean("is_returned"));
+        }
+    }
+
+    /**
+     * Users without their password hash.
+     */
+    public static class UserJsonWriter extends RowWriter {
+        UserJsonWriter(JsonLinesWriter writer) {
+            super(writer);
+        }
+
+        @Override
+        void writeRow(ResultSet rs) throws SQLException, IOException {
+            writer.field("id", rs.getInt("id"));
+            writer.field("username", rs.getString("username"));
+            writer.field("role", rs.getString("role"));
+            writer.field("is_active", rs.getBoolean("is_active"));
+            writer.field("created_at", timestamp(rs.getTimestamp("created_at")));
+        }
+    }
+
+    private static void writeBook(JsonLinesWriter writer, String isbn, String title, String author, String category,
+                                  int totalCopies, int availableCopies, String referencePrice, boolean active) throws IOException {
+        writer.field("isbn", isbn);
+        writer.field("title", title);
+        writer.field("author", author);
+        writer.field("category", category);
+        writer.field("total_copies", totalCopies);
+        writer.field("available_copies", availableCopies);
+        writer.numberField("reference_price", referencePrice);
+        writer.field("is_active", active);
+    }
+
+    private static String timestamp(Timestamp value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,401 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for JSON Lines imports (the layout written by {@link JsonLinesExporter}).
+ * The file (gzip-compressed when it ends in .gz) is read through one reusable buffer and every
+ * line is parsed in place; only the values of the requested fields become Strings.
+ * Records reach the caller as {@link CSVImporter.CSVRecord}s with the fields in the requested
+ * order, so an importer handles CSV and JSON Lines input the same way. A line that is not valid
+ * JSON becomes a record with {@link CSVImporter.CSVRecord#getError()} set instead of failing the file.
+ *
+ * Only flat objects are accepted: strings, numbers, true/false and null. Unknown fields are
+ * ignored; missing fields and nulls read as "". Numbers are passed on as written.
+ */
+public class JsonLinesReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    // Records are handed over in batches of about this many input bytes
+    private static final int BATCH_BYTES = ConfigLoader.getIntProperty("import.chunkSize", 4 << 20);
+
+    // Importers pick the reader by extension: .jsonl or .jsonl.gz, anything else is CSV
+    public static boolean isJsonLines(String filePath) {
+        return filePath.endsWith(JsonLinesExporter.FILE_EXTENSION)
+                || filePath.endsWith(JsonLinesExporter.FILE_EXTENSION + CSVExporter.GZIP_SUFFIX);
+    }
+
+    /**
+     * Reads a JSON Lines file.
+     * @param filePath File to read (.jsonl or .jsonl.gz)
+     * @param fieldNames Fields to extract, in the order the records should have them
+     * @param handler Receives the records batch by batch
+     * @return The number of records read (blank lines are skipped)
+     * @throws IOException If the file cannot be read
+     * @throws Exception Whatever the handler throws
+     */
+    public static long read(String filePath, String[] fieldNames, CSVImporter.ChunkHandler handler) throws Exception {
+        return read(filePath, fieldNames, handler, BUFFER_SIZE);
+    }
+
+    // Same with an explicit read buffer size (tests use a tiny buffer so lines straddle refills)
+    static long read(String filePath, String[] fieldNames, CSVImporter.ChunkHandler handler, int bufferSize)
+            throws Exception {
+        LineParser parser = new LineParser(fieldNames);
+        try (FileChannel file = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = file.size();
+            LineSource lines = new LineSource(filePath.endsWith(CSVExporter.GZIP_SUFFIX)
+                    ? Channels.newChannel(new GZIPInputStream(Channels.newInputStream(file), 64 * 1024))
+                    : file, bufferSize);
+
+            List<CSVImporter.CSVRecord> batch = new ArrayList<>();
+            long batchBytes = 0;
+            long records = 0;
+            long line = 0;
+            while (lines.next()) {
+                line++;
+                CSVImporter.CSVRecord record = parser.parse(lines.bytes(), lines.start, lines.end, line);
+                if (record != null) {
+                    batch.add(record);
+                    batchBytes += lines.end - lines.start + 1;
+                }
+                if (batchBytes >= BATCH_BYTES) {
+                    records += batch.size();
+                    // Compressed input: progress is measured on the compressed file
+                    handler.handle(batch, Math.min(file.position(), size), size);
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+
+            records += batch.size();
+            handler.handle(batch, size, size);
+            return records;
+        }
+    }
+
+    /**
+     * Splits the input into lines inside one reusable buffer (grown only for a line longer than it).
+     * After {@link #next()} returns true, the line is bytes()[start, end), without its line break.
+     */
+    private static class LineSource {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer;
+        private boolean eof;
+        int start;
+        int end;
+
+        LineSource(ReadableByteChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(bufferSize).flip();
+        }
+
+        byte[] bytes() {
+            return buffer.array();
+        }
+
+        boolean next() throws IOException {
+            while (true) {
+                int from = buffer.position();
+                int newline = indexOf(buffer.array(), from, buffer.limit(), (byte) '\n');
+                if (newline >= 0) {
+                    start = from;
+                    end = newline > from && buffer.get(newline - 1) == '\r' ? newline - 1 : newline;
+                    buffer.position(newline + 1);
+                    return true;
+                }
+                if (eof) {
+                    if (from == buffer.limit()) {
+                        return false;
+                    }
+                    start = from; // Last line without a line break
+                    end = buffer.limit();
+                    buffer.position(end);
+                    return true;
+                }
+                fill();
+            }
+        }
+
+        private void fill() throws IOException {
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+                bigger.put(buffer.flip());
+                buffer = bigger;
+            }
+            eof = channel.read(buffer) < 0;
+            buffer.flip();
+        }
+
+        private static int indexOf(byte[] bytes, int from, int to, byte b) {
+            for (int i = from; i < to; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Parses one line into the requested fields. Field names are matched as bytes; since lines
+     * usually list fields in the same order, the field after the last match is tried first.
+     */
+    private static class LineParser {
+        private final String[] fieldNames;
+        private final byte[][] names;
+        private int hint;
+
+        LineParser(String[] fieldNames) {
+            this.fieldNames = fieldNames;
+            this.names = new byte[fieldNames.length][];
+            for (int i = 0; i < fieldNames.length; i++) {
+                names[i] = fieldNames[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        // Returns null for a blank line
+        CSVImporter.CSVRecord parse(byte[] a, int start, int end, long line) {
+            int i = skipWhitespace(a, start, end);
+            if (i == end) {
+                return null;
+            }
+            String[] values = new String[names.length];
+            try {
+                if (a[i] != '{') {
+                    throw new ParseException(i - start, "expected '{'");
+                }
+                i = skipWhitespace(a, i + 1, end);
+                if (i < end && a[i] == '}') {
+                    i++;
+                } else {
+                    while (true) {
+                        if (i >= end || a[i] != '"') {
+                            throw new ParseException(i - start, "expected a field name");
+                        }
+                        int nameEnd = stringEnd(a, i + 1, end, start);
+                        int field = match(a, i + 1, nameEnd);
+                        i = skipWhitespace(a, nameEnd + 1, end);
+                        if (i >= end || a[i] != ':') {
+                            throw new ParseException(i - start, "expected ':'");
+                        }
+                        i = parseValue(a, skipWhitespace(a, i + 1, end), end, start, field, values);
+                        i = skipWhitespace(a, i, end);
+                        if (i < end && a[i] == ',') {
+                            i = skipWhitespace(a, i + 1, end);
+                        } else if (i < end && a[i] == '}') {
+                            i++;
+                            break;
+                        } else {
+                            throw new ParseException(i - start, "expected ',' or '}'");
+                        }
+                    }
+                }
+                if (skipWhitespace(a, i, end) != end) {
+                    throw new ParseException(i - start, "unexpected text after the object");
+                }
+            } catch (ParseException e) {
+                // The buffer is reused for the next lines: keep a copy of the line for the error report
+                ByteBuffer raw = ByteBuffer.wrap(Arrays.copyOfRange(a, start, end));
+                return new CSVImporter.CSVRecord(line, new String[0], raw, e.getMessage());
+            }
+
+            for (int k = 0; k < values.length; k++) {
+                if (values[k] == null) {
+                    values[k] = "";
+                }
+            }
+            return new JsonRecord(line, values, fieldNames);
+        }
+
+        // Stores the value in values[field] (field -1: unknown field, value skipped); returns the index after it
+        private int parseValue(byte[] a, int i, int end, int lineStart, int field, String[] values) throws ParseException {
+            if (i >= end) {
+                throw new ParseException(i - lineStart, "expected a value");
+            }
+            byte b = a[i];
+            if (b == '"') {
+                int valueEnd = stringEnd(a, i + 1, end, lineStart);
+                if (field >= 0) {
+                    values[field] = decodeString(a, i + 1, valueEnd, lineStart);
+                }
+                return valueEnd + 1;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                int numberEnd = i + 1;
+                while (numberEnd < end && isNumberChar(a[numberEnd])) {
+                    numberEnd++;
+                }
+                if (field >= 0) {
+                    values[field] = new String(a, i, numberEnd - i, StandardCharsets.ISO_8859_1);
+                }
+                return numberEnd;
+            }
+            if (literal(a, i, end, "true")) {
+                if (field >= 0) {
+                    values[field] = "true";
+                }
+                return i + 4;
+            }
+            if (literal(a, i, end, "false")) {
+                if (field >= 0) {
+                    values[field] = "false";
+                }
+                return i + 5;
+            }
+            if (literal(a, i, end, "null")) {
+                return i + 4;
+            }
+            if (b == '{' || b == '[') {
+                throw new ParseException(i - lineStart, "nested objects and arrays are not supported"
+                        + (field >= 0 ? " (field " + fieldNames[field] + ")" : ""));
+            }
+            throw new ParseException(i - lineStart, "unexpected character '" + (char) b + "'");
+        }
+
+        private int match(byte[] a, int from, int to) {
+            int length = to - from;
+            for (int n = 0; n < names.length; n++) {
+                int k = (hint + n) % names.length;
+                byte[] name = names[k];
+                if (name.length == length && Arrays.equals(a, from, to, name, 0, length)) {
+                    hint = k + 1;
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        // Index of the closing quote of a string starting at from
+        private static int stringEnd(byte[] a, int from, int end, int lineStart) throws ParseException {
+            for (int i = from; i < end; i++) {
+                if (a[i] == '\\') {
+                    i++;
+                } else if (a[i] == '"') {
+                    return i;
+                }
+            }
+            throw new ParseException(from - 1 - lineStart, "unterminated string");
+        }
+
+        private static String decodeString(byte[] a, int from, int to, int lineStart) throws ParseException {
+            int escape = from;
+            while (escape < to && a[escape] != '\\') {
+                escape++;
+            }
+            if (escape == to) {
+                return new String(a, from, to - from, StandardCharsets.UTF_8); // No escapes: the common case
+            }
+
+            StringBuilder sb = new StringBuilder(to - from);
+            int plainStart = from;
+            for (int i = escape; i < to; i++) {
+                if (a[i] != '\\') {
+                    continue;
+                }
+                sb.append(new String(a, plainStart, i - plainStart, StandardCharsets.UTF_8));
+                byte c = a[++i];
+                switch (c) {
+                    case '"': case '\\': case '/': sb.append((char) c); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        // Surrogate pairs arrive as two escapes and combine in the builder
+                        if (i + 4 >= to) {
+                            throw new ParseException(i - lineStart, "truncated \\u escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(new String(a, i + 1, 4, StandardCharsets.ISO_8859_1), 16));
+                        } catch (NumberFormatException e) {
+                            throw new ParseException(i - lineStart, "invalid \\u escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        throw new ParseException(i - lineStart, "invalid escape '\\" + (char) c + "'");
+                }
+                plainStart = i + 1;
+            }
+            sb.append(new String(a, plainStart, to - plainStart, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+
+        private static boolean literal(byte[] a, int i, int end, String word) {
+            if (end - i < word.length()) {
+                return false;
+            }
+            for (int k = 0; k < word.length(); k++) {
+                if (a[i + k] != word.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isNumberChar(byte b) {
+            return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+        }
+
+        private static int skipWhitespace(byte[] a, int i, int end) {
+            while (i < end && (a[i] == ' ' || a[i] == '\t' || a[i] == '\r')) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * A well-formed line. Its text is only needed when the importer rejects the record, so it is not
+     * kept: {@link #getRawText()} renders the extracted fields as an object instead (values as strings,
+     * which read back the same). Unknown fields of the original line are not part of it.
+     */
+    private static class JsonRecord extends CSVImporter.CSVRecord {
+        private final String[] fieldNames;
+
+        JsonRecord(long lineNumber, String[] values, String[] fieldNames) {
+            super(lineNumber, values, null);
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        public String getRawText() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            try (JsonLinesWriter writer = new JsonLinesWriter(new ChannelTextWriter(Channels.newChannel(bytes), 1024))) {
+                writer.beginObject();
+                String[] values = getFields();
+                for (int i = 0; i < values.length; i++) {
+                    writer.field(fieldNames[i], values[i]);
+                }
+                writer.endObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // In-memory channel
+            }
+            String text = bytes.toString(StandardCharsets.UTF_8);
+            return text.substring(0, text.length() - 1); // Without the line break
+        }
+    }
+
+    // Malformed line; reported as the record's error. No stack trace: it is expected input, not a bug.
+    private static class ParseException extends Exception {
+        ParseException(int offset, String message) {
+            super("Invalid JSON at column " + (offset + 1) + ": " + message, null, false, false);
+        }
+    }
+}
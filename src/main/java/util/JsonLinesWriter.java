@@ -0,0 +1,113 @@
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streaming JSON Lines encoder: one flat object per line, written straight into a
+ * {@link ChannelTextWriter}. Names and values are appended as they come (strings are escaped
+ * char by char only when they contain something to escape), so no String is built per object.
+ * Not thread-safe.
+ */
+public class JsonLinesWriter implements Closeable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ChannelTextWriter writer;
+    private boolean firstField;
+
+    public JsonLinesWriter(ChannelTextWriter writer) {
+        this.writer = writer;
+    }
+
+    public JsonLinesWriter beginObject() throws IOException {
+        writer.append('{');
+        firstField = true;
+        return this;
+    }
+
+    public JsonLinesWriter endObject() throws IOException {
+        writer.append('}').append('\n');
+        return this;
+    }
+
+    // Names are the constants of the exporters and are written as they are (no escaping)
+    private ChannelTextWriter name(String name) throws IOException {
+        if (!firstField) {
+            writer.append(',');
+        }
+        firstField = false;
+        return writer.append('"').append(name).append('"').append(':');
+    }
+
+    public JsonLinesWriter field(String name, String value) throws IOException {
+        name(name);
+        if (value == null) {
+            writer.append("null");
+        } else {
+            appendString(value);
+        }
+        return this;
+    }
+
+    public JsonLinesWriter field(String name, long value) throws IOException {
+        name(name).append(value);
+        return this;
+    }
+
+    public JsonLinesWriter field(String name, boolean value) throws IOException {
+        name(name).append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a number from its text form, e.g. a DECIMAL column read with getString (no BigDecimal).
+     * @param name Field name
+     * @param number Decimal text as BigDecimal.toString writes it (exponent form is valid JSON too), or null
+     */
+    public JsonLinesWriter numberField(String name, String number) throws IOException {
+        name(name).append(number != null ? number : "null");
+        return this;
+    }
+
+    public long getBytesWritten() {
+        return writer.getBytesWritten();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void appendString(String value) throws IOException {
+        writer.append('"');
+        int length = value.length();
+        int plainStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > plainStart) {
+                writer.append(value, plainStart, i);
+            }
+            plainStart = i + 1;
+            switch (c) {
+                case '"': writer.append('\\').append('"'); break;
+                case '\\': writer.append('\\').append('\\'); break;
+                case '\n': writer.append('\\').append('n'); break;
+                case '\r': writer.append('\\').append('r'); break;
+                case '\t': writer.append('\\').append('t'); break;
+                default:
+                    writer.append('\\').append('u').append('0').append('0')
+                            .append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+        if (plainStart == 0) {
+            writer.append(value); // Nothing escaped: the common case
+        } else if (plainStart < length) {
+            writer.append(value, plainStart, length);
+        }
+        writer.append('"');
+    }
+}
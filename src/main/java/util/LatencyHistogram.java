@@ -0,0 +1,133 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (the HDR histogram layout): values below
+ * 64 ns get a bucket each, above that every power of two is split into 32 equal sub-buckets, so a
+ * recorded value is known within ~3% from 64 ns up to 2^41 ns (~36 minutes; longer values are
+ * counted in the last bucket). Recording is one atomic increment plus two adders, no lock and no
+ * allocation, so it can sit on every request path.
+ *
+ * {@link #snapshot()} copies the counts; {@link #snapshotAndReset()} moves them out, so successive
+ * snapshots cover disjoint intervals and no recording is lost in between.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HIGHEST_BIT = 41;
+    static final long MAX_TRACKABLE = (1L << (HIGHEST_BIT + 1)) - 1;
+    static final int BUCKET_COUNT = (HIGHEST_BIT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one value.
+     * @param nanos Latency in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(Math.min(value, MAX_TRACKABLE)));
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Returns the counts recorded since the last reset and starts over from zero.
+     * A value recorded concurrently lands in this snapshot or in the next one, never in neither.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] moved = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                moved[i] = counts.getAndSet(i, 0);
+            }
+        }
+        return new Snapshot(moved, totalNanos.sumThenReset(), maxNanos.getThenReset());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // Largest value that falls in the bucket
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Immutable copy of a histogram's counts. Percentiles are reported as the upper bound of the
+     * bucket they fall in (never below the true value), capped at the recorded maximum.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * @param percentile e.g. 99.9
+         * @return The latency below which that percentage of the values fall, 0 when empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // The last bucket also counts the values above the trackable range
+                    return i == counts.length - 1 ? maxNanos : Math.min(bucketUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
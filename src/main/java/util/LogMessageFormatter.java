@@ -0,0 +1,45 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Fills "{}" placeholders for {@link AppLogger}: a left-to-right scan with indexOf, no regex and
+ * no format-string parsing. Arguments are rendered with String.valueOf (object arrays with Arrays.deepToString).
+ * A placeholder without an argument is kept as "{}"; arguments without a placeholder are ignored.
+ */
+final class LogMessageFormatter {
+
+    private static final String PLACEHOLDER = "{}";
+
+    private LogMessageFormatter() {}
+
+    static String format(String pattern, Object[] args) {
+        StringBuilder sb = new StringBuilder(pattern.length() + 16 * args.length);
+        append(sb, pattern, args, 0);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the pattern with its placeholders filled from args[argIndex...].
+     * @return The index of the first argument not consumed, so several patterns can share one args array
+     */
+    static int append(StringBuilder sb, String pattern, Object[] args, int argIndex) {
+        int start = 0;
+        int placeholder;
+        while (argIndex < args.length && (placeholder = pattern.indexOf(PLACEHOLDER, start)) >= 0) {
+            sb.append(pattern, start, placeholder);
+            appendArg(sb, args[argIndex++]);
+            start = placeholder + PLACEHOLDER.length();
+        }
+        sb.append(pattern, start, pattern.length());
+        return argIndex;
+    }
+
+    private static void appendArg(StringBuilder sb, Object arg) {
+        if (arg instanceof Object[] array) {
+            sb.append(Arrays.deepToString(array));
+        } else {
+            sb.append(arg);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package util;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runtime metrics published as platform MBeans under the "novabook" domain, so a running
+ * instance can be watched (and alerted on) with jconsole, VisualVM, jmxterm or any JMX exporter.
+ * Each component registers a group (one MBean, e.g. "novabook:type=ConnectionPool") and adds
+ * read-only attributes backed by suppliers that are evaluated only when a client reads them:
+ *
+ *     MetricsRegistry.group("type=ConnectionPool")
+ *             .gauge("ActiveConnections", "Connections currently borrowed", pool::getActiveCount);
+ *
+ * Attributes that need a query use {@link Group#cachedGauge} so that polling can't load the
+ * database. Disabled with metrics.jmx.enabled=false (groups are then created but never registered).
+ */
+public class MetricsRegistry {
+
+    public static final String DOMAIN = "novabook";
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(ConfigLoader.getProperty("metrics.jmx.enabled", "true"));
+    private static final ConcurrentMap<String, Group> GROUPS = new ConcurrentHashMap<>();
+
+    // Prevents instantiation
+    private MetricsRegistry() {}
+
+    /**
+     * Returns the group (MBean) with the given key properties, registering it on first use.
+     * @param keyProperties ObjectName key properties, e.g. "type=Cache,name=idempotency-keys"
+     *                      (quote values with {@link ObjectName#quote} if they may contain , = : " *)
+     * @return The group, to which gauges and operations can be added
+     */
+    public static Group group(String keyProperties) {
+        return GROUPS.computeIfAbsent(keyProperties, MetricsRegistry::register);
+    }
+
+    /**
+     * Unregisters every group (application shutdown).
+     */
+    public static void shutdown() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Group group : GROUPS.values()) {
+            if (group.registered) {
+                try {
+                    server.unregisterMBean(group.name);
+                } catch (JMException e) {
+                    System.err.println("[MetricsRegistry] Failed to unregister " + group.name + ": " + e.getMessage());
+                }
+            }
+        }
+        GROUPS.clear();
+    }
+
+    private static Group register(String keyProperties) {
+        ObjectName name;
+        try {
+            name = new ObjectName(DOMAIN + ":" + keyProperties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metrics group: " + keyProperties, e);
+        }
+        Group group = new Group(name);
+        if (ENABLED) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                try {
+                    server.registerMBean(group, name);
+                } catch (InstanceAlreadyExistsException e) {
+                    // Left over from a previous registry in this JVM (tests, restarts): replace it
+                    server.unregisterMBean(name);
+                    server.registerMBean(group, name);
+                }
+                group.registered = true;
+            } catch (JMException e) {
+                // Metrics must never break the application
+                System.err.println("[MetricsRegistry] Failed to register " + name + ": " + e.getMessage());
+            }
+        }
+        return group;
+    }
+
+    /**
+     * One MBean: named read-only attributes and no-argument operations, both added at runtime.
+     */
+    public static final class Group implements DynamicMBean {
+        private final ObjectName name;
+        private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+        private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+        private volatile MBeanInfo info;
+        private volatile boolean registered;
+
+        private record Gauge(String description, Class<?> type, Supplier<?> value) {}
+
+        private record Operation(String description, Runnable action) {}
+
+        private Group(ObjectName name) {
+            this.name = name;
+            rebuildInfo();
+        }
+
+        /**
+         * Adds (or replaces) a read-only attribute of type long.
+         * @param attribute Attribute name (UpperCamelCase by JMX convention)
+         * @param description Shown by JMX clients
+         * @param value Read on every attribute access
+         */
+        public Group gauge(String attribute, String description, LongSupplier value) {
+            return add(attribute, new Gauge(description, Long.class, value::getAsLong));
+        }
+
+        /**
+         * Adds (or replaces) a read-only attribute of type double (ratios, milliseconds).
+         */
+        public Group gaugeDouble(String attribute, String description, DoubleSupplier value) {
+            return add(attribute, new Gauge(description, Double.class, value::getAsDouble));
+        }
+
+        /**
+         * Adds (or replaces) a read-only attribute of type String.
+         */
+        public Group gaugeText(String attribute, String description, Supplier<String> value) {
+            return add(attribute, new Gauge(description, String.class, value));
+        }
+
+        /**
+         * Adds a long attribute whose value is computed at most once per ttlMillis (for database counts).
+         * A failed computation is logged and reported as -1 until the next attempt.
+         */
+        public Group cachedGauge(String attribute, String description, long ttlMillis, Callable<Long> value) {
+            return add(attribute, new Gauge(description, Long.class, new CachedValue(attribute, ttlMillis, value)));
+        }
+
+        /**
+         * Adds (or replaces) an operation without parameters, e.g. a counter reset.
+         */
+        public Group operation(String operation, String description, Runnable action) {
+            operations.put(operation, new Operation(description, action));
+            rebuildInfo();
+            return this;
+        }
+
+        private Group add(String attribute, Gauge gauge) {
+            gauges.put(attribute, gauge);
+            rebuildInfo();
+            return this;
+        }
+
+        private synchronized void rebuildInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            gauges.forEach((attribute, gauge) -> attributes.add(new MBeanAttributeInfo(
+                    attribute, gauge.type.getName(), gauge.description, true, false, false)));
+            attributes.sort((a, b) -> a.getName().compareTo(b.getName()));
+            List<MBeanOperationInfo> ops = new ArrayList<>();
+            operations.forEach((operation, op) -> ops.add(new MBeanOperationInfo(
+                    operation, op.description, null, "void", MBeanOperationInfo.ACTION)));
+            info = new MBeanInfo(Group.class.getName(), "NovaBook metrics " + name.getKeyPropertyListString(),
+                    attributes.toArray(new MBeanAttributeInfo[0]), null,
+                    ops.toArray(new MBeanOperationInfo[0]), null);
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException {
+            Gauge gauge = gauges.get(attribute);
+            if (gauge == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            try {
+                return gauge.value.get();
+            } catch (RuntimeException e) {
+                throw new MBeanException(e, "Failed to read " + attribute);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (JMException e) {
+                    // Omitted from the result, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+            Operation operation = operations.get(actionName);
+            if (operation == null || (params != null && params.length > 0)) {
+                throw new ReflectionException(new NoSuchMethodException(actionName));
+            }
+            try {
+                operation.action.run();
+                return null;
+            } catch (RuntimeException e) {
+                throw new MBeanException(e, "Operation " + actionName + " failed");
+            }
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList(); // Read-only: nothing set
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+    }
+
+    // Value recomputed at most once per TTL; concurrent readers share the last value
+    private static final class CachedValue implements Supplier<Long> {
+        private final String attribute;
+        private final long ttlNanos;
+        private final Callable<Long> source;
+        private long value;
+        private long computedAt;
+        private boolean computed;
+
+        CachedValue(String attribute, long ttlMillis, Callable<Long> source) {
+            this.attribute = attribute;
+            this.ttlNanos = ttlMillis * 1_000_000L;
+            this.source = source;
+        }
+
+        @Override
+        public synchronized Long get() {
+            long now = System.nanoTime();
+            if (!computed || now - computedAt >= ttlNanos) {
+                try {
+                    value = source.call();
+                } catch (Exception e) {
+                    AppLogger.logWarning("Metric {} could not be computed: {}", attribute, e.getMessage());
+                    value = -1;
+                }
+                computedAt = now;
+                computed = true;
+            }
+            return value;
+        }
+    }
+}
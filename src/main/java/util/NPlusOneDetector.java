@@ -0,0 +1,268 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Detects N+1 query patterns: the same SQL shape executed many times within one logical request
+ * (a list fetched, then one query per row). A request is a {@link Scope}: every controller call
+ * opens one through {@link EndpointTimer}, and a view action or a test can open an outer scope so
+ * that all the controller calls it makes count together:
+ *
+ *     try (NPlusOneDetector.Scope scope = NPlusOneDetector.scope("LoanView.viewActiveLoans")) {
+ *         ...
+ *     }
+ *
+ * Batched bulk operations open a {@link #batchScope} instead, which counts nothing.
+ * Statements are counted by {@link QueryInstrumentation} (db.instrumentation.enabled must be true).
+ * When a shape reaches detector.nPlusOne.threshold executions, the call site is captured (once per
+ * shape and scope); on close the findings are logged (mode LOG) or thrown as a {@link Violation}
+ * (mode FAIL, for test runs that should break on regressions). Mode OFF, the default, disables the detector.
+ * Per statement the cost is a thread-local read and a map increment, so LOG can stay on in staging.
+ */
+public final class NPlusOneDetector {
+
+    public enum Mode { OFF, LOG, FAIL }
+
+    private static final Mode MODE =
+            Mode.valueOf(ConfigLoader.getProperty("detector.nPlusOne.mode", "OFF").trim().toUpperCase());
+    private static final int THRESHOLD = ConfigLoader.getIntProperty("detector.nPlusOne.threshold", 5);
+    private static final int CALL_SITE_FRAMES = 6;
+    private static final int MAX_KEPT_FINDINGS = 100;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final Deque<Finding> RECENT = new ArrayDeque<>();
+    private static final LongAdder TOTAL_FINDINGS = new LongAdder();
+
+    static {
+        if (MODE != Mode.OFF) {
+            MetricsRegistry.group("type=NPlusOneDetector")
+                    .gauge("Findings", "Repeated statement shapes flagged since startup", TOTAL_FINDINGS::sum)
+                    .gauge("Threshold", "Executions of one shape per request that are flagged", () -> THRESHOLD);
+        }
+    }
+
+    // Prevents instantiation
+    private NPlusOneDetector() {}
+
+    public static boolean isEnabled() {
+        return MODE != Mode.OFF && QueryInstrumentation.isEnabled();
+    }
+
+    /**
+     * Opens a request scope on this thread. Inside another scope it returns a no-op scope,
+     * so the statements count toward the outermost one.
+     * @param name Request name shown in the findings (endpoint, view action, test name)
+     */
+    public static Scope scope(String name) {
+        if (!isEnabled() || CURRENT.get() != null) {
+            return Scope.NOOP;
+        }
+        Scope scope = new Scope(name, null, false);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Opens a scope for batched bulk work (imports, syncs), where one statement shape per batch is
+     * the design rather than an N+1: nothing executed inside it is counted, also when it is nested
+     * in another scope, which resumes counting when this one closes.
+     * @param name Request name, e.g. the endpoint
+     */
+    public static Scope batchScope(String name) {
+        if (!isEnabled()) {
+            return Scope.NOOP;
+        }
+        Scope scope = new Scope(name, CURRENT.get(), true);
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // Called by QueryInstrumentation for every execution
+    static void record(QueryStats shape) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.record(shape);
+        }
+    }
+
+    /**
+     * @return The most recent findings (up to 100), oldest first
+     */
+    public static List<Finding> getRecentFindings() {
+        synchronized (RECENT) {
+            return new ArrayList<>(RECENT);
+        }
+    }
+
+    public static long getFindingCount() {
+        return TOTAL_FINDINGS.sum();
+    }
+
+    public static void clearFindings() {
+        synchronized (RECENT) {
+            RECENT.clear();
+        }
+    }
+
+    // First application frames below the instrumentation (DAO, service, controller, view)
+    private static String captureCallSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> !isInfrastructure(f.getClassName()))
+                .limit(CALL_SITE_FRAMES)
+                .map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .collect(Collectors.joining(" <- ")));
+    }
+
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.")
+                || className.startsWith("com.sun.") || className.startsWith("util.");
+    }
+
+    /**
+     * A logical request. Confined to the thread that opened it; close it with try-with-resources.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        // Returned when disabled or nested: records nothing
+        static final Scope NOOP = new Scope(null, null, false);
+
+        private final String name;
+        // Batch scopes only: the scope to restore on close (null if none)
+        private final Scope outer;
+        private final boolean batch;
+        private final Map<QueryStats, int[]> counts = new IdentityHashMap<>();
+        private final Map<QueryStats, String> callSites = new IdentityHashMap<>();
+        private int total;
+        private boolean closed;
+
+        private Scope(String name, Scope outer, boolean batch) {
+            this.name = name;
+            this.outer = outer;
+            this.batch = batch;
+        }
+
+        private void record(QueryStats shape) {
+            total++;
+            if (batch) {
+                return;
+            }
+            int[] count = counts.computeIfAbsent(shape, s -> new int[1]);
+            if (++count[0] == THRESHOLD) {
+                callSites.put(shape, captureCallSite());
+            }
+        }
+
+        /**
+         * @return Statements executed in this scope so far
+         */
+        public int getQueryCount() {
+            return total;
+        }
+
+        /**
+         * Ends the scope and reports the repeated shapes.
+         * @throws Violation In FAIL mode, if any shape reached the threshold
+         */
+        @Override
+        public void close() {
+            if (this == NOOP || closed) {
+                return;
+            }
+            closed = true;
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+            if (callSites.isEmpty()) {
+                return;
+            }
+            List<Finding> findings = new ArrayList<>();
+            callSites.forEach((shape, callSite) ->
+                    findings.add(new Finding(name, shape.getSql(), counts.get(shape)[0], total, callSite)));
+            TOTAL_FINDINGS.add(findings.size());
+            synchronized (RECENT) {
+                for (Finding finding : findings) {
+                    RECENT.addLast(finding);
+                    if (RECENT.size() > MAX_KEPT_FINDINGS) {
+                        RECENT.removeFirst();
+                    }
+                }
+            }
+            for (Finding finding : findings) {
+                AppLogger.logWarning("{}", finding);
+            }
+            if (MODE == Mode.FAIL) {
+                throw new Violation(findings);
+            }
+        }
+    }
+
+    /**
+     * One repeated statement shape in one request.
+     */
+    public static final class Finding {
+        private final String request;
+        private final String sql;
+        private final int executions;
+        private final int requestQueries;
+        private final String callSite;
+
+        Finding(String request, String sql, int executions, int requestQueries, String callSite) {
+            this.request = request;
+            this.sql = sql;
+            this.executions = executions;
+            this.requestQueries = requestQueries;
+            this.callSite = callSite;
+        }
+
+        public String getRequest() {
+            return request;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getExecutions() {
+            return executions;
+        }
+
+        public int getRequestQueries() {
+            return requestQueries;
+        }
+
+        public String getCallSite() {
+            return callSite;
+        }
+
+        @Override
+        public String toString() {
+            return "N+1 suspected in " + request + ": \"" + sql + "\" executed " + executions + " times ("
+                    + requestQueries + " statements in the request), at " + callSite;
+        }
+    }
+
+    /**
+     * Thrown when a scope closes with findings in FAIL mode.
+     */
+    public static final class Violation extends RuntimeException {
+        private final List<Finding> findings;
+
+        Violation(List<Finding> findings) {
+            super(findings.stream().map(Finding::toString).collect(Collectors.joining("\n")));
+            this.findings = findings;
+        }
+
+        public List<Finding> getFindings() {
+            return findings;
+        }
+    }
+}
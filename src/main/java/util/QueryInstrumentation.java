@@ -0,0 +1,358 @@
+package util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC instrumentation: when db.instrumentation.enabled is true, {@link DBConnection} wraps every
+ * connection it hands out in a proxy (like the pool does) whose statements time each execution.
+ * Executions are aggregated per SQL shape in {@link QueryStats}, and those slower than
+ * db.slowQuery.thresholdMs are written with their bound parameters to slow-query.log
+ * (rotated like app.log). When disabled, connections are returned unwrapped: no cost at all.
+ *
+ * The shape is the SQL with whitespace collapsed, literals replaced by ? and IN lists of
+ * placeholders folded to (?+), so "IN (?, ?)" and "IN (?, ?, ?)" count as one statement.
+ * Parameters of statements mentioning a password column are not logged.
+ */
+public class QueryInstrumentation {
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(ConfigLoader.getProperty("db.instrumentation.enabled", "false"));
+    private static final long SLOW_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(ConfigLoader.getIntProperty("db.slowQuery.thresholdMs", 200));
+    private static final String SLOW_LOG_FILE = ConfigLoader.getProperty("db.slowQuery.file", "slow-query.log");
+    private static final int MAX_CACHED_SQL = 10_000;
+    private static final int MAX_PARAM_LENGTH = 200;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\(\\?\\+?\\))(?:\\s*,\\s*\\(\\?\\+?\\))+");
+
+    // Shape -> stats, and the raw SQL -> stats cache that saves normalizing on every prepare
+    private static final ConcurrentMap<String, QueryStats> SHAPES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, QueryStats> BY_SQL = new ConcurrentHashMap<>();
+
+    private static RollingLogFile slowLog;
+    private static boolean slowLogFailed;
+
+    // Prevents instantiation
+    private QueryInstrumentation() {}
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Wraps a connection so that its statements are timed (returns it unchanged when disabled).
+     * @param connection Connection to instrument
+     * @return The instrumented connection; closing it closes (or returns to the pool) the original
+     */
+    public static Connection wrap(Connection connection) {
+        if (!ENABLED) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * @return Statistics per SQL shape since startup (or the last reset), highest total time first
+     */
+    public static List<QueryStats> getStats() {
+        List<QueryStats> stats = new ArrayList<>(SHAPES.values());
+        stats.sort(Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+        return stats;
+    }
+
+    public static void reset() {
+        SHAPES.clear();
+        BY_SQL.clear();
+    }
+
+    /**
+     * Closes the slow-query log (called on application shutdown).
+     */
+    public static synchronized void shutdown() {
+        if (slowLog != null) {
+            try {
+                slowLog.close();
+            } catch (IOException e) {
+                System.err.println("[QueryInstrumentation] Failed to close " + SLOW_LOG_FILE + ": " + e.getMessage());
+            }
+            slowLog = null;
+        }
+    }
+
+    static String normalize(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("(?+)");
+        return REPEATED_ROWS.matcher(shape).replaceAll("$1, ...");
+    }
+
+    private static QueryStats statsFor(String sql) {
+        QueryStats stats = BY_SQL.get(sql);
+        if (stats == null) {
+            stats = SHAPES.computeIfAbsent(normalize(sql), QueryStats::new);
+            if (BY_SQL.size() < MAX_CACHED_SQL) {
+                BY_SQL.put(sql, stats);
+            }
+        }
+        return stats;
+    }
+
+    private static synchronized void writeSlowQuery(QueryStats stats, long nanos, long rows, int batchSize,
+                                                    List<Object> parameters, boolean failed) {
+        if (slowLogFailed) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(256)
+                .append(LocalDateTime.now().format(TIMESTAMP))
+                .append(" [").append(Thread.currentThread().getName()).append("] ")
+                .append(String.format("%.1f ms", nanos / 1e6));
+        if (rows >= 0) {
+            line.append(" rows=").append(rows);
+        }
+        if (batchSize > 0) {
+            line.append(" batch=").append(batchSize);
+        }
+        if (failed) {
+            line.append(" FAILED");
+        }
+        line.append(" | ").append(stats.getSql());
+        if (parameters != null && !parameters.isEmpty()) {
+            line.append(" | params=");
+            if (stats.getSql().toLowerCase().contains("password")) {
+                line.append("<redacted>");
+            } else {
+                appendParameters(line, parameters);
+            }
+        }
+        line.append('\n');
+
+        try {
+            if (slowLog == null) {
+                slowLog = RollingLogFile.withConfiguredRotation(SLOW_LOG_FILE, 0);
+            }
+            slowLog.write(ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            slowLogFailed = true; // Reported once; the statistics keep working
+            AppLogger.logError("Slow-query log disabled: cannot write " + SLOW_LOG_FILE, e);
+        }
+    }
+
+    private static void appendParameters(StringBuilder line, List<Object> parameters) {
+        line.append('[');
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                line.append(", ");
+            }
+            Object value = parameters.get(i);
+            if (value == null) {
+                line.append("NULL");
+            } else if (value instanceof String || value instanceof java.util.Date) {
+                String text = value.toString();
+                line.append('\'').append(text.length() > MAX_PARAM_LENGTH ? text.substring(0, MAX_PARAM_LENGTH) + "..." : text).append('\'');
+            } else if (value instanceof Number || value instanceof Boolean) {
+                line.append(value);
+            } else {
+                line.append('<').append(value.getClass().getSimpleName()).append('>');
+            }
+        }
+        line.append(']');
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryInstrumentation.invoke(target, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    return wrapStatement(method, result, statsFor((String) args[0]));
+                case "createStatement":
+                    return wrapStatement(method, result, null);
+                default:
+                    return result;
+            }
+        }
+
+        private static Object wrapStatement(Method method, Object statement, QueryStats stats) {
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                    new StatementHandler((Statement) statement, stats));
+        }
+    }
+
+    /**
+     * Times executions; for prepared statements also records the bound parameters (for the slow-query log).
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final QueryStats preparedStats; // null for plain statements: the SQL comes with each call
+        private final List<Object> parameters = new ArrayList<>();
+        private QueryStats batchStats;
+        private QueryStats lastStats; // Of the last execution, for getResultSet
+        private int batchSize;
+
+        StatementHandler(Statement target, QueryStats preparedStats) {
+            this.target = target;
+            this.preparedStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute":
+                    return execute(method, args, statsForCall(args), 0);
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    QueryStats stats = preparedStats != null ? preparedStats : batchStats;
+                    int size = batchSize;
+                    batchSize = 0;
+                    batchStats = null;
+                    return execute(method, args, stats, Math.max(size, 1));
+                }
+                case "addBatch":
+                    batchSize++;
+                    if (preparedStats == null && batchStats == null && args != null) {
+                        batchStats = statsFor((String) args[0]);
+                    }
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    batchStats = null;
+                    break;
+                case "clearParameters":
+                    parameters.clear();
+                    break;
+                case "getResultSet": {
+                    Object result = QueryInstrumentation.invoke(target, method, args);
+                    return result != null && lastStats != null ? wrapResultSet((ResultSet) result, lastStats) : result;
+                }
+                default:
+                    if (preparedStats != null && name.startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer) {
+                        recordParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+            }
+            return QueryInstrumentation.invoke(target, method, args);
+        }
+
+        private QueryStats statsForCall(Object[] args) {
+            if (preparedStats != null) {
+                return preparedStats;
+            }
+            return args != null && args.length > 0 && args[0] instanceof String ? statsFor((String) args[0]) : null;
+        }
+
+        private Object execute(Method method, Object[] args, QueryStats stats, int batch) throws Throwable {
+            lastStats = stats;
+            if (stats == null) {
+                return QueryInstrumentation.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = QueryInstrumentation.invoke(target, method, args);
+            } catch (Throwable e) {
+                finish(stats, System.nanoTime() - start, -1, batch, true);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long rows = -1; // Unknown until read for queries
+            if (result instanceof Integer || result instanceof Long) {
+                rows = ((Number) result).longValue();
+            } else if (result instanceof int[] counts) {
+                rows = Arrays.stream(counts).filter(c -> c > 0).asLongStream().sum();
+            } else if (result instanceof long[] counts) {
+                rows = Arrays.stream(counts).filter(c -> c > 0).sum();
+            }
+            finish(stats, elapsed, rows, batch, false);
+            return result instanceof ResultSet ? wrapResultSet((ResultSet) result, stats) : result;
+        }
+
+        private void finish(QueryStats stats, long nanos, long rows, int batch, boolean failed) {
+            stats.recordExecution(nanos, failed);
+            NPlusOneDetector.record(stats);
+            if (rows > 0) {
+                stats.addRows(rows);
+            }
+            if (nanos >= SLOW_NANOS) {
+                writeSlowQuery(stats, nanos, rows, batch, preparedStats != null ? parameters : null, failed);
+            }
+        }
+
+        private void recordParameter(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private static Object wrapResultSet(ResultSet resultSet, QueryStats stats) {
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(resultSet, stats));
+        }
+    }
+
+    // Counts the rows read from a query result
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final QueryStats stats;
+
+        ResultSetHandler(ResultSet target, QueryStats stats) {
+            this.target = target;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryInstrumentation.invoke(target, method, args);
+            if (result == Boolean.TRUE && method.getName().equals("next")) {
+                stats.addRows(1);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution statistics of one SQL shape (the statement text with literals and IN lists folded,
+ * see {@link QueryInstrumentation}). Updated concurrently by every connection; read without locking.
+ * Times cover the execute call only, not the fetching of streamed rows.
+ */
+public class QueryStats {
+
+    private final String sql;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rows = new LongAdder();
+
+    QueryStats(String sql) {
+        this.sql = sql;
+    }
+
+    void recordExecution(long nanos, boolean failed) {
+        executions.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    void addRows(long count) {
+        rows.add(count);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    public double getMeanMillis() {
+        long count = executions.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    // Rows returned by queries (as they are read) plus rows affected by updates and batches
+    public long getRows() {
+        return rows.sum();
+    }
+
+    long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d executions, %.1f ms total, %.1f ms max, %d rows",
+                sql, getExecutions(), getTotalMillis(), getMaxMillis(), getRows());
+    }
+}
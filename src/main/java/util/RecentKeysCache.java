@@ -0,0 +1,115 @@
+package util;
+
+import javax.management.ObjectName;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of recently seen keys with a time-to-live.
+ * Evicts the least recently used entry once the capacity is reached.
+ * @param <V> Type of the value stored for each key
+ */
+public final class RecentKeysCache<V> {
+
+    private final String name;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry<V>> entries;
+
+    private long hits;
+    private long misses;
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param name Name reported in the cache lookup JFR events
+     * @param capacity Maximum number of keys
+     * @param ttlMillis Time-to-live of each key
+     */
+    public RecentKeysCache(String name, int capacity, long ttlMillis) {
+        this.name = name;
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        // Access order = LRU eviction
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > RecentKeysCache.this.capacity;
+            }
+        };
+        MetricsRegistry.group("type=Cache,name=" + ObjectName.quote(name))
+                .gauge("Size", "Keys currently cached", this::size)
+                .gauge("Capacity", "Maximum number of keys", () -> capacity)
+                .gauge("Hits", "Lookups answered from the cache", this::getHits)
+                .gauge("Misses", "Lookups not found or expired", this::getMisses)
+                .gaugeDouble("HitRatio", "Hits / lookups since startup", this::getHitRatio);
+    }
+
+    /**
+     * Returns the value of a key that has not expired, or null.
+     * @param key The key to look up
+     * @return The cached value or null
+     */
+    public V get(String key) {
+        FlightEvents.CacheLookup event = new FlightEvents.CacheLookup();
+        event.begin();
+        V value = lookup(key, event);
+        if (event.shouldCommit()) {
+            event.cache = name;
+            event.key = key;
+            event.hit = value != null;
+            event.commit();
+        }
+        return value;
+    }
+
+    private synchronized V lookup(String key, FlightEvents.CacheLookup event) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            misses++;
+            event.expired = true;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Stores a key with the configured time-to-live.
+     * @param key The key
+     * @param value The value
+     */
+    public synchronized void put(String key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
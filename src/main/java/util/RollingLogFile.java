@@ -0,0 +1,384 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file channel with size- and time-based rotation.
+ * The active segment (e.g. app.log) is rolled over once it would exceed maxBytes or when the
+ * rotation interval ends: it is renamed to app-yyyyMMdd-HHmmss.log and a fresh segment is opened.
+ * Rotations happen on line boundaries, so a log line is never split across two files.
+ * Rolled segments are gzip-compressed by a background thread, which then deletes the oldest
+ * archives beyond the retention limits (count and total size).
+ *
+ * The active segment is grown in preallocated blocks of zeros rather than a few bytes at a time,
+ * which keeps it contiguous on disk; it is truncated to its real length when rolled or closed.
+ * After a crash the trailing zeros are found and writing resumes after the last logged byte.
+ *
+ * Writers are the async log thread or the synchronous {@link RollingLogHandler}; failures are
+ * reported on stderr, never through {@link AppLogger}.
+ */
+public class RollingLogFile implements WritableByteChannel {
+
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int ARCHIVE_TIMESTAMP_LENGTH = "yyyyMMdd-HHmmss".length();
+    private static final Pattern ARCHIVE_KEY = Pattern.compile("\\d{8}-\\d{6}(-\\d+)?");
+    private static final String ARCHIVE_SUFFIX = ".log";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(64 * 1024).asReadOnlyBuffer();
+
+    private final Path activeFile;
+    private final String archivePrefix; // "app-" for app.log
+    private final long maxBytes;
+    private final long intervalMillis;
+    private final int maxArchives;
+    private final long maxArchiveBytes;
+    private final boolean compress;
+    private final long preallocateBytes;
+    private final ExecutorService archiver = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "novabook-log-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel channel;
+    private long position;  // End of the logged data
+    private long allocated; // File length, including preallocated zeros
+    private long nextRollMillis;
+    private boolean open = true;
+
+    /**
+     * Opens (or resumes) the active segment.
+     * @param filePath Active log file, e.g. app.log
+     * @param maxBytes Size at which the segment is rolled over
+     * @param intervalMinutes Rotation interval, aligned on local midnight (0 = size-based only)
+     * @param maxArchives Rolled segments kept (0 = unlimited)
+     * @param maxArchiveBytes Total size of the rolled segments kept (0 = unlimited)
+     * @param compress Whether rolled segments are gzip-compressed
+     * @param preallocateBytes Block by which the active segment grows (0 = no preallocation)
+     * @throws IOException If the active segment cannot be opened
+     */
+    public RollingLogFile(String filePath, long maxBytes, int intervalMinutes, int maxArchives, long maxArchiveBytes,
+                          boolean compress, long preallocateBytes) throws IOException {
+        this.activeFile = Paths.get(filePath).toAbsolutePath();
+        String name = activeFile.getFileName().toString();
+        this.archivePrefix = (name.endsWith(ARCHIVE_SUFFIX) ? name.substring(0, name.length() - ARCHIVE_SUFFIX.length()) : name) + "-";
+        this.maxBytes = maxBytes;
+        this.intervalMillis = TimeUnit.MINUTES.toMillis(intervalMinutes);
+        this.maxArchives = maxArchives;
+        this.maxArchiveBytes = maxArchiveBytes;
+        this.compress = compress;
+        this.preallocateBytes = preallocateBytes;
+
+        openSegment();
+        // Segments rolled but not yet compressed when the application last stopped
+        archiver.execute(this::archivePending);
+    }
+
+    /**
+     * Opens a log file rotated with the log.rotation.* settings of config.properties.
+     * @param filePath Active log file
+     * @param preallocateBytes Block by which the active segment grows (0 = no preallocation)
+     * @throws IOException If the active segment cannot be opened
+     */
+    public static RollingLogFile withConfiguredRotation(String filePath, long preallocateBytes) throws IOException {
+        return new RollingLogFile(filePath,
+                ConfigLoader.getIntProperty("log.rotation.maxBytes", 10 * 1024 * 1024),
+                ConfigLoader.getIntProperty("log.rotation.intervalMinutes", 1440),
+                ConfigLoader.getIntProperty("log.rotation.maxArchives", 10),
+                ConfigLoader.getIntProperty("log.rotation.maxArchiveBytes", 100 * 1024 * 1024),
+                Boolean.parseBoolean(ConfigLoader.getProperty("log.rotation.compress", "true")),
+                preallocateBytes);
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new IOException("Log file is closed");
+        }
+        int total = src.remaining();
+        while (src.hasRemaining()) {
+            boolean timeDue = intervalMillis > 0 && System.currentTimeMillis() >= nextRollMillis;
+            if (timeDue && position == 0) {
+                nextRollMillis = nextRollMillis(System.currentTimeMillis()); // Nothing to roll
+                continue;
+            }
+            long room = Math.max(0, maxBytes - position);
+            if (!timeDue && src.remaining() <= room) {
+                append(src, src.remaining());
+                break;
+            }
+
+            // Roll over after the last complete line that still belongs in this segment
+            int cut = lastLineEnd(src, timeDue ? src.remaining() : (int) Math.min(room, src.remaining()));
+            if (cut > 0) {
+                append(src, cut);
+                rollOver();
+            } else if (timeDue) {
+                append(src, src.remaining()); // Mid-line: roll on a later write
+            } else if (position > 0) {
+                rollOver(); // The next line does not fit: start it in a new segment
+            } else {
+                int lineEnd = firstLineEnd(src); // A single line longer than a segment
+                append(src, lineEnd > 0 ? lineEnd : src.remaining());
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Truncates the active segment to its data and closes it; waits briefly for pending compressions.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            closeSegment();
+        } finally {
+            archiver.shutdown();
+            try {
+                archiver.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(activeFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        allocated = channel.size();
+        position = dataEnd(channel, allocated);
+        nextRollMillis = nextRollMillis(System.currentTimeMillis());
+    }
+
+    private void closeSegment() throws IOException {
+        try {
+            channel.truncate(position);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void rollOver() throws IOException {
+        closeSegment();
+        Path archive = archivePath();
+        Files.move(activeFile, archive, StandardCopyOption.ATOMIC_MOVE);
+        openSegment();
+        archiver.execute(() -> archive(archive));
+    }
+
+    private void append(ByteBuffer src, int length) throws IOException {
+        if (preallocateBytes > 0 && position + length > allocated) {
+            preallocate(position + length);
+        }
+        int limit = src.limit();
+        src.limit(src.position() + length);
+        try {
+            while (src.hasRemaining()) {
+                position += channel.write(src, position);
+            }
+        } finally {
+            src.limit(limit);
+        }
+        allocated = Math.max(allocated, position);
+    }
+
+    // Extends the file with zeros, in preallocateBytes blocks, until it can hold up to `required` bytes
+    private void preallocate(long required) throws IOException {
+        long target = Math.max(required, Math.min(allocated + preallocateBytes, Math.max(maxBytes, required)));
+        while (allocated < target) {
+            ByteBuffer zeros = ZEROS.duplicate();
+            zeros.limit((int) Math.min(zeros.capacity(), target - allocated));
+            allocated += channel.write(zeros, allocated);
+        }
+    }
+
+    // Length of the logged data: the file size minus trailing preallocated zeros
+    private static long dataEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(64 * 1024);
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - block.capacity());
+            block.clear().limit((int) (end - start));
+            while (block.hasRemaining() && channel.read(block, start + block.position()) >= 0) {
+                // Fill the block
+            }
+            for (int i = (int) (end - start) - 1; i >= 0; i--) {
+                if (block.get(i) != 0) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    // Bytes up to and including the last '\n' among the next `within` bytes, 0 if none
+    private static int lastLineEnd(ByteBuffer src, int within) {
+        for (int i = src.position() + within - 1; i >= src.position(); i--) {
+            if (src.get(i) == '\n') {
+                return i - src.position() + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int firstLineEnd(ByteBuffer src) {
+        for (int i = src.position(); i < src.limit(); i++) {
+            if (src.get(i) == '\n') {
+                return i - src.position() + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Next multiple of the interval counted from local midnight
+    private long nextRollMillis(long now) {
+        if (intervalMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long midnight = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return midnight + ((now - midnight) / intervalMillis + 1) * intervalMillis;
+    }
+
+    private Path archivePath() {
+        String base = archivePrefix + LocalDateTime.now().format(ARCHIVE_TIMESTAMP);
+        Path archive = activeFile.resolveSibling(base + ARCHIVE_SUFFIX);
+        for (int n = 1; Files.exists(archive) || Files.exists(archive.resolveSibling(archive.getFileName() + GZIP_SUFFIX)); n++) {
+            archive = activeFile.resolveSibling(base + "-" + n + ARCHIVE_SUFFIX);
+        }
+        return archive;
+    }
+
+    // Archiver thread: compresses a rolled segment, then applies retention
+    private void archive(Path segment) {
+        if (compress && Files.exists(segment)) {
+            Path gzip = segment.resolveSibling(segment.getFileName() + GZIP_SUFFIX);
+            Path partial = segment.resolveSibling(gzip.getFileName() + ".tmp");
+            try {
+                try (InputStream in = Files.newInputStream(segment);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+                Files.move(partial, gzip, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(segment);
+            } catch (IOException e) {
+                System.err.println("[RollingLogFile] Failed to compress " + segment + ": " + e.getMessage());
+                try {
+                    Files.deleteIfExists(partial);
+                } catch (IOException ignored) {
+                    // Left for the next attempt at startup
+                }
+            }
+        }
+        applyRetention();
+    }
+
+    private void archivePending() {
+        for (Path archive : listArchives()) {
+            if (compress && archive.getFileName().toString().endsWith(ARCHIVE_SUFFIX)) {
+                archive(archive);
+            }
+        }
+        applyRetention();
+    }
+
+    // Deletes the oldest archives until both limits hold; names sort by their timestamp
+    private void applyRetention() {
+        List<Path> archives = listArchives();
+        long totalBytes = 0;
+        long[] sizes = new long[archives.size()];
+        for (int i = 0; i < archives.size(); i++) {
+            try {
+                sizes[i] = Files.size(archives.get(i));
+            } catch (IOException e) {
+                sizes[i] = 0;
+            }
+            totalBytes += sizes[i];
+        }
+        int count = archives.size();
+        for (int i = 0; i < archives.size(); i++) {
+            boolean overCount = maxArchives > 0 && count > maxArchives;
+            boolean overSize = maxArchiveBytes > 0 && totalBytes > maxArchiveBytes;
+            if (!overCount && !overSize) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(archives.get(i));
+                count--;
+                totalBytes -= sizes[i];
+            } catch (IOException e) {
+                System.err.println("[RollingLogFile] Failed to delete " + archives.get(i) + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Rolled segments of this log, oldest first
+    private List<Path> listArchives() {
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(activeFile.getParent(), archivePrefix + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if ((name.endsWith(ARCHIVE_SUFFIX) || name.endsWith(ARCHIVE_SUFFIX + GZIP_SUFFIX))
+                        && ARCHIVE_KEY.matcher(archiveKey(file)).matches()) {
+                    archives.add(file); // Other files sharing the prefix are left alone
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[RollingLogFile] Failed to list log archives: " + e.getMessage());
+        }
+        archives.sort(this::compareArchives);
+        return archives;
+    }
+
+    // app-20260131-180405.log.gz < app-20260131-180405-2.log < app-20260131-180405-10.log
+    private int compareArchives(Path a, Path b) {
+        String keyA = archiveKey(a);
+        String keyB = archiveKey(b);
+        int byTime = keyA.substring(0, ARCHIVE_TIMESTAMP_LENGTH).compareTo(keyB.substring(0, ARCHIVE_TIMESTAMP_LENGTH));
+        return byTime != 0 ? byTime : Integer.compare(collisionCounter(keyA), collisionCounter(keyB));
+    }
+
+    // "20260131-180405-2" for app-20260131-180405-2.log.gz
+    private String archiveKey(Path archive) {
+        String name = archive.getFileName().toString();
+        if (name.endsWith(GZIP_SUFFIX)) {
+            name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+        }
+        int end = name.length() - ARCHIVE_SUFFIX.length();
+        return end > archivePrefix.length() ? name.substring(archivePrefix.length(), end) : "";
+    }
+
+    private static int collisionCounter(String key) {
+        return key.length() > ARCHIVE_TIMESTAMP_LENGTH ? Integer.parseInt(key.substring(ARCHIVE_TIMESTAMP_LENGTH + 1)) : 0;
+    }
+}
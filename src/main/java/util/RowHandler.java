@@ -0,0 +1,22 @@
+package util;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Callback for streaming queries: invoked once per row while the cursor is open.
+ * The ResultSet is positioned on the current row and must not be advanced or closed.
+ */
+@FunctionalInterface
+public interface RowHandler {
+    void handle(ResultSet rs) throws SQLException, IOException;
+
+    /**
+     * Called with the streaming statement just before it is executed, e.g. to keep a reference
+     * for {@link Statement#cancel()} from another thread.
+     */
+    default void beforeExecute(Statement statement) throws SQLException {
+    }
+}
@@ -0,0 +1,261 @@
+package util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lightweight request tracing. Each controller call ({@link EndpointTimer}) may start a trace
+ * (sampled with probability trace.sampleRate); while it runs, the current span is kept in a
+ * thread-local so that services, DAOs, connection borrowing and commits open nested spans
+ * without passing anything through the method signatures:
+ *
+ *     try (Tracer.Span span = Tracer.span("commit")) {
+ *         conn.commit();
+ *     }
+ *
+ * When the trace finishes and took at least trace.slowThresholdMs, its span tree is written to
+ * trace.log (rotated like app.log). Outside a sampled trace, span() returns a shared no-op span,
+ * so unsampled requests pay one thread-local read per span. Spans opened on other threads
+ * (background exports) are not part of the request's trace.
+ */
+public final class Tracer {
+
+    private static final double SAMPLE_RATE =
+            Double.parseDouble(ConfigLoader.getProperty("trace.sampleRate", "0.1"));
+    private static final long SLOW_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(ConfigLoader.getIntProperty("trace.slowThresholdMs", 500));
+    private static final int MAX_SPANS = ConfigLoader.getIntProperty("trace.maxSpans", 1000);
+    private static final String TRACE_FILE = ConfigLoader.getProperty("trace.file", "trace.log");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static RollingLogFile traceLog;
+    private static boolean traceLogFailed;
+
+    // Prevents instantiation
+    private Tracer() {}
+
+    public static boolean isEnabled() {
+        return SAMPLE_RATE > 0;
+    }
+
+    /**
+     * Starts a trace for a request, if the request is sampled.
+     * Inside a running trace this is an ordinary nested span.
+     * @param name Request name, e.g. the endpoint
+     * @return The root span (close it when the request ends), or the no-op span
+     */
+    public static Span startTrace(String name) {
+        if (CURRENT.get() != null) {
+            return span(name);
+        }
+        if (SAMPLE_RATE <= 0 || (SAMPLE_RATE < 1 && ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE)) {
+            return Span.NOOP;
+        }
+        Span root = new Span(name, null, null);
+        CURRENT.set(root);
+        return root;
+    }
+
+    /**
+     * Opens a span nested in the current one (no-op outside a sampled trace).
+     */
+    public static Span span(String name) {
+        return span(name, null);
+    }
+
+    /**
+     * @param detail Shown next to the name, e.g. the ISBN or ID involved (may be null)
+     */
+    public static Span span(String name, String detail) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        Span root = parent.root();
+        if (root.spanCount >= MAX_SPANS) {
+            root.droppedSpans++; // Bounded memory for loops issuing thousands of calls
+            return Span.NOOP;
+        }
+        root.spanCount++;
+        Span span = new Span(name, detail, parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Wraps a service or DAO so that every call of its interface methods is a span named
+     * "Interface.method", with the first ISBN/ID/name argument as detail.
+     * @param type The interface
+     * @param target The implementation
+     * @return A proxy implementing the interface
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T traced(Class<T> type, T target) {
+        if (!isEnabled()) {
+            return target;
+        }
+        String prefix = type.getSimpleName() + ".";
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("equals") ? proxy == args[0] : method.invoke(target, args);
+            }
+            if (CURRENT.get() == null) {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            try (Span span = span(prefix + method.getName(), FlightEvents.keyOf(args))) {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    span.error();
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    // Writes a finished trace if it was slow
+    private static void finish(Span root) {
+        if (root.endNanos - root.startNanos < SLOW_NANOS) {
+            return;
+        }
+        StringBuilder text = new StringBuilder(512)
+                .append(LocalDateTime.now().format(TIMESTAMP))
+                .append(" [").append(Thread.currentThread().getName()).append("] slow trace ")
+                .append(String.format("%.1f ms", (root.endNanos - root.startNanos) / 1e6))
+                .append(": ").append(root.name).append('\n');
+        appendTree(text, root, root.startNanos, 0);
+        if (root.droppedSpans > 0) {
+            text.append("    (").append(root.droppedSpans).append(" more spans not recorded, trace.maxSpans reached)\n");
+        }
+        write(text.toString());
+    }
+
+    //     812.4 ms  @+0.0    POST /NovaBook/loans
+    //       2.1 ms  @+0.4      IPartnerDAO.isActive [12]
+    private static void appendTree(StringBuilder text, Span span, long traceStart, int depth) {
+        text.append(String.format("%12.1f ms  @+%-8.1f", (span.endNanos - span.startNanos) / 1e6,
+                (span.startNanos - traceStart) / 1e6));
+        text.append("  ".repeat(depth)).append(span.name);
+        if (span.detail != null) {
+            text.append(" [").append(span.detail).append(']');
+        }
+        if (span.error) {
+            text.append(" ERROR");
+        }
+        text.append('\n');
+        if (span.children != null) {
+            for (Span child : span.children) {
+                appendTree(text, child, traceStart, depth + 1);
+            }
+        }
+    }
+
+    private static synchronized void write(String text) {
+        if (traceLogFailed) {
+            return;
+        }
+        try {
+            if (traceLog == null) {
+                traceLog = RollingLogFile.withConfiguredRotation(TRACE_FILE, 0);
+            }
+            traceLog.write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            traceLogFailed = true; // Reported once; tracing keeps running without output
+            AppLogger.logError("Trace log disabled: cannot write " + TRACE_FILE, e);
+        }
+    }
+
+    /**
+     * Closes the trace log (called on application shutdown).
+     */
+    public static synchronized void shutdown() {
+        if (traceLog != null) {
+            try {
+                traceLog.close();
+            } catch (IOException e) {
+                System.err.println("[Tracer] Failed to close " + TRACE_FILE + ": " + e.getMessage());
+            }
+            traceLog = null;
+        }
+    }
+
+    /**
+     * A timed section of a trace; close it in the order spans were opened (try-with-resources).
+     * Confined to the thread that opened it.
+     */
+    public static final class Span implements AutoCloseable {
+
+        // Returned outside sampled traces: every method does nothing
+        static final Span NOOP = new Span(null, null, null);
+
+        private final String name;
+        private final String detail;
+        private final Span parent;
+        private final long startNanos;
+        private long endNanos;
+        private boolean error;
+        private List<Span> children;
+        // Root only
+        private int spanCount;
+        private int droppedSpans;
+
+        private Span(String name, String detail, Span parent) {
+            this.name = name;
+            this.detail = detail;
+            this.parent = parent;
+            this.startNanos = name != null ? System.nanoTime() : 0;
+            if (parent != null) {
+                if (parent.children == null) {
+                    parent.children = new ArrayList<>(4);
+                }
+                parent.children.add(this);
+            }
+        }
+
+        /**
+         * Marks the span as failed (shown as ERROR in the trace).
+         */
+        public void error() {
+            if (this != NOOP) {
+                error = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (this == NOOP || endNanos != 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            if (parent != null) {
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+                finish(this);
+            }
+        }
+
+        private Span root() {
+            Span span = this;
+            while (span.parent != null) {
+                span = span.parent;
+            }
+            return span;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a unit of work in a JDBC transaction (commit on success, rollback on failure).
+ * Transient failures (MySQL deadlock 1213, lock wait timeout 1205, serialization failures)
+ * roll back and re-run the whole unit of work with jittered exponential backoff.
+ * Retries are limited per call (tx.retry.maxAttempts) and globally by a retry budget, so a
+ * database in trouble is not hammered with retries.
+ */
+public class TransactionTemplate {
+
+    // MySQL error codes
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private static final int MAX_ATTEMPTS = ConfigLoader.getIntProperty("tx.retry.maxAttempts", 4);
+    private static final int BASE_DELAY_MS = ConfigLoader.getIntProperty("tx.retry.baseDelayMs", 20);
+    private static final int MAX_DELAY_MS = ConfigLoader.getIntProperty("tx.retry.maxDelayMs", 500);
+
+    // Retry budget (token bucket, in thousandths of a token): every transaction earns
+    // tx.retry.budgetPercent / 100 tokens, every retry spends one, capped at tx.retry.budgetMax.
+    private static final long TOKEN = 1000;
+    private static final long EARN_PER_TX = ConfigLoader.getIntProperty("tx.retry.budgetPercent", 10) * TOKEN / 100;
+    private static final long BUDGET_MAX = ConfigLoader.getIntProperty("tx.retry.budgetMax", 50) * TOKEN;
+    private static final AtomicLong BUDGET = new AtomicLong(BUDGET_MAX);
+
+    // Metrics
+    private static final Map<String, LongAdder> RETRIES = new ConcurrentHashMap<>();
+    private static final LongAdder TRANSACTIONS = new LongAdder();
+    private static final LongAdder EXHAUSTED = new LongAdder();
+    private static final LongAdder BUDGET_REJECTED = new LongAdder();
+    private static final MetricsRegistry.Group METRICS = registerMetrics();
+
+    // Prevents instantiation
+    private TransactionTemplate() {}
+
+    /**
+     * A unit of work executed on the transaction's connection.
+     * It must not commit; it may roll back and return early to abandon its changes.
+     * @param <T> Result type
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T doInTransaction(Connection conn) throws Exception;
+    }
+
+    /**
+     * Executes the unit of work in a transaction, retrying transient SQL failures.
+     * @param operation Name of the operation (used for logs and retry metrics)
+     * @param work The unit of work
+     * @return The result of the unit of work
+     * @throws Exception The exception thrown by the unit of work, or the last transient failure
+     */
+    public static <T> T execute(String operation, TransactionCallback<T> work) throws Exception {
+        TRANSACTIONS.increment();
+        earnBudget();
+
+        for (int attempt = 1; ; attempt++) {
+            Connection conn = null;
+            // Operation as the detail: nothing is concatenated on the first attempt, traced or not
+            Tracer.Span span = Tracer.span("transaction", attempt > 1 ? operation + " (attempt " + attempt + ")" : operation);
+            try {
+                conn = DBConnection.getConnection();
+                conn.setAutoCommit(false);
+
+                T result = work.doInTransaction(conn);
+                Tracer.Span commit = Tracer.span("commit");
+                try {
+                    conn.commit();
+                } catch (SQLException e) {
+                    commit.error();
+                    throw e;
+                } finally {
+                    commit.close();
+                }
+                return result;
+
+            } catch (Exception e) {
+                span.error();
+                rollbackQuietly(conn);
+
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    EXHAUSTED.increment();
+                    throw e;
+                }
+                if (!spendBudget()) {
+                    BUDGET_REJECTED.increment();
+                    throw e;
+                }
+
+                RETRIES.computeIfAbsent(operation, TransactionTemplate::newRetryCounter).increment();
+                long delay = backoffMillis(attempt);
+                AppLogger.logWarning("Transient SQL failure in {} (attempt {}/{}, retrying in {} ms): {}",
+                        operation, attempt, MAX_ATTEMPTS, delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    // Give up on the retry, keeping the interrupt for the caller
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(interrupted);
+                    throw e;
+                }
+
+            } finally {
+                closeQuietly(conn);
+                span.close();
+            }
+        }
+    }
+
+    /**
+     * Classifies an exception as transient: retrying the whole transaction may succeed.
+     * @param e The exception (its cause chain and chained SQLExceptions are inspected)
+     * @return true for deadlocks, lock wait timeouts and serialization failures
+     */
+    public static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException sql = (SQLException) t; sql != null; sql = sql.getNextException()) {
+                    if (sql instanceof SQLTransactionRollbackException
+                            || sql.getErrorCode() == ER_LOCK_DEADLOCK
+                            || sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                            || "40001".equals(sql.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Full jitter: random delay between 0 and min(max, base * 2^(attempt-1))
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, (long) BASE_DELAY_MS << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void earnBudget() {
+        BUDGET.getAndUpdate(tokens -> Math.min(BUDGET_MAX, tokens + EARN_PER_TX));
+    }
+
+    private static boolean spendBudget() {
+        while (true) {
+            long tokens = BUDGET.get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+            if (BUDGET.compareAndSet(tokens, tokens - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    // --- Metrics ---
+
+    // novabook:type=Transactions (JMX); a <Operation>Retries attribute is added when an operation first retries
+    private static MetricsRegistry.Group registerMetrics() {
+        return MetricsRegistry.group("type=Transactions")
+                .gauge("TransactionCount", "Transactions started since startup", TransactionTemplate::getTransactionCount)
+                .gauge("RetryCount", "Retries of transient failures, all operations", () -> RETRIES.values().stream().mapToLong(LongAdder::sum).sum())
+                .gauge("ExhaustedCount", "Transactions that failed after using all their attempts", TransactionTemplate::getExhaustedCount)
+                .gauge("BudgetRejectedCount", "Retries refused because the retry budget was empty", TransactionTemplate::getBudgetRejectedCount)
+                .gauge("RetryBudget", "Retries the budget currently allows", () -> BUDGET.get() / TOKEN);
+    }
+
+    private static LongAdder newRetryCounter(String operation) {
+        LongAdder retries = new LongAdder();
+        METRICS.gauge(Character.toUpperCase(operation.charAt(0)) + operation.substring(1) + "Retries",
+                "Retries of " + operation + " since startup", retries::sum);
+        return retries;
+    }
+
+    /**
+     * @return Retries performed so far, per operation name
+     */
+    public static Map<String, Long> getRetryCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        RETRIES.forEach((operation, count) -> counts.put(operation, count.sum()));
+        return counts;
+    }
+
+    public static long getTransactionCount() {
+        return TRANSACTIONS.sum();
+    }
+
+    // Transactions that failed after using all their attempts
+    public static long getExhaustedCount() {
+        return EXHAUSTED.sum();
+    }
+
+    // Retries refused because the retry budget was empty
+    public static long getBudgetRejectedCount() {
+        return BUDGET_REJECTED.sum();
+    }
+}
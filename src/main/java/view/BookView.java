@@ -2,9 +2,14 @@ package view;
 
 import controller.BookController;
 import model.Book;
+import model.ImportResult;
 import util.AppLogger;
+import util.CSVImporter;
+import util.NPlusOneDetector;
 
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -31,7 +36,9 @@ public class BookView {
                             "Find Book by ISBN",
                             "Filter by Category",
                             "Filter by Author",
-                            "Deactivate Book"
+                            "Deactivate Book",
+                            "Import Books from CSV",
+                            "Sync Catalog from Supplier Feed"
                     );
 
             String input = JOptionPane.showInputDialog(null, menu, "Books Menu", JOptionPane.PLAIN_MESSAGE);
@@ -44,19 +51,29 @@ public class BookView {
             try {
                 int option = Integer.parseInt(input.trim());
 
-                switch (option) {
-                    case 1: registerBook(); break;
-                    case 2: listAllBooks(); break;
-                    case 3: updateBook(); break;
-                    case 4: findBookByIsbn(); break;
-                    case 5: filterByCategory(); break;
-                    case 6: filterByAuthor(); break;
-                    case 7: deactivateBook(); break;
-                    default:
-                        JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                NPlusOneDetector.Scope scope = NPlusOneDetector.scope("BookView option " + option);
+                try {
+                    switch (option) {
+                        case 1: registerBook(); break;
+                        case 2: listAllBooks(); break;
+                        case 3: updateBook(); break;
+                        case 4: findBookByIsbn(); break;
+                        case 5: filterByCategory(); break;
+                        case 6: filterByAuthor(); break;
+                        case 7: deactivateBook(); break;
+                        case 8: importBooks(false); break;
+                        case 9: importBooks(true); break;
+                        default:
+                            JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                    }
+                } finally {
+                    scope.close();
                 }
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(null, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (NPlusOneDetector.Violation e) {
+                // detector.nPlusOne.mode=FAIL: report it and keep the menu running
+                JOptionPane.showMessageDialog(null, e.getMessage(), "N+1 Query Pattern", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
@@ -266,4 +283,55 @@ public class BookView {
             JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+
+    // Bulk import (every row written) or supplier sync (only changed rows, missing titles deactivated)
+    private void importBooks(boolean sync) {
+        String title = sync ? "Sync Catalog" : "Import Books";
+        String filename = JOptionPane.showInputDialog(
+                null,
+                "Enter CSV or JSON Lines file to " + (sync ? "sync" : "import") + " (same layout as the books export):",
+                title,
+                JOptionPane.PLAIN_MESSAGE
+        );
+        if (filename == null || filename.trim().isEmpty()) return;
+
+        ProgressMonitor monitor = new ProgressMonitor(null, title + ": " + filename.trim(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        CSVImporter.ProgressListener listener = (bytesRead, totalBytes, rows, rejected) -> {
+            int percent = totalBytes > 0 ? (int) (bytesRead * 100 / totalBytes) : 100;
+            String note = rows + " rows processed, " + rejected + " rejected";
+            SwingUtilities.invokeLater(() -> {
+                monitor.setProgress(percent);
+                monitor.setNote(note);
+            });
+        };
+        try {
+            ImportResult result = sync
+                    ? bookController.syncCatalog(filename.trim(), listener)
+                    : bookController.importBooks(filename.trim(), listener);
+            SwingUtilities.invokeLater(monitor::close);
+
+            String message = title + " finished in " + result.getElapsedMillis() + " ms.\n\n" +
+                    "Inserted: " + result.getInserted() + "\n" +
+                    "Updated: " + result.getUpdated() + "\n" +
+                    (sync ? "Unchanged: " + result.getUnchanged() + "\n" +
+                            "Deactivated: " + result.getDeactivated() + "\n" : "") +
+                    "Rejected: " + result.getRejected();
+            if (result.getDeactivationsSkipped() > 0) {
+                message += "\n\nWARNING: " + result.getDeactivationsSkipped() + " titles missing from the feed were " +
+                        "left active (too many to deactivate safely).";
+            }
+            if (result.getRejectedFile() != null) {
+                message += "\n\nRejected rows written to: " + result.getRejectedFile();
+            }
+            boolean warn = result.getRejected() > 0 || result.getDeactivationsSkipped() > 0;
+            JOptionPane.showMessageDialog(null, message, title,
+                    warn ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(monitor::close);
+            AppLogger.logError("Failed to " + (sync ? "sync catalog" : "import books"), e);
+            JOptionPane.showMessageDialog(null, title + " failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
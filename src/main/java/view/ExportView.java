@@ -1,26 +1,21 @@
 package view;
 
-import controller.BookController;
-import controller.LoanController;
-import model.Book;
-import model.Loan;
+import controller.ExportController;
+import model.ExportJob;
 import util.AppLogger;
 import util.CSVExporter;
 
 import javax.swing.JOptionPane;
-import java.util.List;
 
 /**
  * View for data export operations (CSV files).
  */
 public class ExportView {
 
-    private final BookController bookController;
-    private final LoanController loanController;
+    private final ExportController exportController;
 
-    public ExportView(BookController bookController, LoanController loanController) {
-        this.bookController = bookController;
-        this.loanController = loanController;
+    public ExportView(ExportController exportController) {
+        this.exportController = exportController;
     }
 
     public void showExportMenu() {
@@ -30,7 +25,12 @@ public class ExportView {
             String menu = "=== Export Data ===\n\n" +
                     UIHelper.createMenu(
                             "Export All Books to CSV",
-                            "Export Overdue Loans to CSV"
+                            "Export Overdue Loans to CSV",
+                            "Nightly Extract (books + loans, parallel)",
+                            "Analytics Snapshot (columnar)",
+                            "Delta Export (changes since last run)",
+                            "Export Jobs (status / cancel)",
+                            "JSON Lines Export (all entities)"
                     );
 
             String input = JOptionPane.showInputDialog(null, menu, "Export Menu", JOptionPane.PLAIN_MESSAGE);
@@ -46,6 +46,11 @@ public class ExportView {
                 switch (option) {
                     case 1: exportBooks(); break;
                     case 2: exportOverdueLoans(); break;
+                    case 3: exportNightlyExtract(); break;
+                    case 4: exportAnalyticsSnapshot(); break;
+                    case 5: exportDelta(); break;
+                    case 6: showExportJobs(); break;
+                    case 7: exportJsonLines(); break;
                     default:
                         JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
                 }
@@ -55,6 +60,17 @@ public class ExportView {
         }
     }
 
+    // Compressed files are written through the gzip encoder directly (no uncompressed copy on disk)
+    private boolean askCompress(String title) {
+        int choice = JOptionPane.showConfirmDialog(
+                null,
+                "Compress the file (gzip)?",
+                title,
+                JOptionPane.YES_NO_OPTION
+        );
+        return choice == JOptionPane.YES_OPTION;
+    }
+
     private void exportBooks() {
         try {
             String filename = JOptionPane.showInputDialog(
@@ -68,34 +84,19 @@ public class ExportView {
 
             if (filename.trim().isEmpty()) {
                 filename = "books_export.csv";
-            } else if (!filename.endsWith(".csv")) {
+            } else if (!filename.endsWith(".csv") && !filename.endsWith(".csv" + CSVExporter.GZIP_SUFFIX)) {
                 filename += ".csv";
             }
 
-            List<Book> books = bookController.getAllBooks();
-
-            if (books.isEmpty()) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "No books to export.",
-                        "Export Books",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-                return;
+            // A .csv.gz name asks for compression: a plain file must not be written under it
+            boolean compress = filename.endsWith(CSVExporter.GZIP_SUFFIX) || askCompress("Export Books");
+            if (compress && !filename.endsWith(CSVExporter.GZIP_SUFFIX)) {
+                filename += CSVExporter.GZIP_SUFFIX;
             }
 
-            CSVExporter.exportBooks(books, filename);
-
-            JOptionPane.showMessageDialog(
-                    null,
-                    "Books exported successfully!\n\n" +
-                            "File: " + filename + "\n" +
-                            "Total books: " + books.size(),
-                    "Export Successful",
-                    JOptionPane.INFORMATION_MESSAGE
-            );
-
-            AppLogger.logSuccess("Books Export", "Exported " + books.size() + " books to " + filename);
+            // Runs in the background; progress is shown under "Export Jobs"
+            ExportJob job = exportController.submitBooksExport(filename, compress);
+            showQueued(job, "Export Books");
 
         } catch (Exception e) {
             AppLogger.logError("Failed to export books", e);
@@ -108,6 +109,17 @@ public class ExportView {
         }
     }
 
+    private void showQueued(ExportJob job, String title) {
+        JOptionPane.showMessageDialog(
+                null,
+                "Export job #" + job.getId() + " queued.\n\n" +
+                        "File: " + job.getFilePath() + "\n" +
+                        "Follow its progress under \"Export Jobs\".",
+                title,
+                JOptionPane.INFORMATION_MESSAGE
+        );
+    }
+
     private void exportOverdueLoans() {
         try {
             String filename = JOptionPane.showInputDialog(
@@ -121,37 +133,97 @@ public class ExportView {
 
             if (filename.trim().isEmpty()) {
                 filename = "overdue_loans.csv";
-            } else if (!filename.endsWith(".csv")) {
+            } else if (!filename.endsWith(".csv") && !filename.endsWith(".csv" + CSVExporter.GZIP_SUFFIX)) {
                 filename += ".csv";
             }
 
-            List<Loan> loans = loanController.getOverdueLoans();
+            // A .csv.gz name asks for compression: a plain file must not be written under it
+            boolean compress = filename.endsWith(CSVExporter.GZIP_SUFFIX) || askCompress("Export Overdue Loans");
+            if (compress && !filename.endsWith(CSVExporter.GZIP_SUFFIX)) {
+                filename += CSVExporter.GZIP_SUFFIX;
+            }
+
+            ExportJob job = exportController.submitOverdueLoansExport(filename, compress);
+            showQueued(job, "Export Overdue Loans");
 
-            if (loans.isEmpty()) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "No overdue loans to export.",
-                        "Export Overdue Loans",
-                        JOptionPane.INFORMATION_MESSAGE
-                );
-                return;
+        } catch (Exception e) {
+            AppLogger.logError("Failed to export overdue loans", e);
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Export failed: " + e.getMessage(),
+                    "Export Error",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+
+    private void exportNightlyExtract() {
+        try {
+            String directory = JOptionPane.showInputDialog(
+                    null,
+                    "Enter directory (default: nightly_extract):",
+                    "Nightly Extract",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (directory == null) return; // User cancelled
+
+            if (directory.trim().isEmpty()) {
+                directory = "nightly_extract";
             }
 
-            CSVExporter.exportOverdueLoans(loans, filename);
+            long[] exported = exportController.exportNightlyExtract(directory.trim());
 
             JOptionPane.showMessageDialog(
                     null,
-                    "Overdue loans exported successfully!\n\n" +
-                            "File: " + filename + "\n" +
-                            "Total overdue: " + loans.size(),
+                    "Nightly extract completed!\n\n" +
+                            "Directory: " + directory.trim() + "\n" +
+                            "Books: " + exported[0] + "\n" +
+                            "Loans: " + exported[1],
                     "Export Successful",
                     JOptionPane.INFORMATION_MESSAGE
             );
 
-            AppLogger.logSuccess("Overdue Loans Export", "Exported " + loans.size() + " overdue loans to " + filename);
+        } catch (Exception e) {
+            AppLogger.logError("Failed to run nightly extract", e);
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Export failed: " + e.getMessage(),
+                    "Export Error",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+
+    private void exportAnalyticsSnapshot() {
+        try {
+            String directory = JOptionPane.showInputDialog(
+                    null,
+                    "Enter directory (default: analytics_snapshot):",
+                    "Analytics Snapshot",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (directory == null) return; // User cancelled
+
+            if (directory.trim().isEmpty()) {
+                directory = "analytics_snapshot";
+            }
+
+            long[] exported = exportController.exportAnalyticsSnapshot(directory.trim());
+
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Analytics snapshot completed!\n\n" +
+                            "Directory: " + directory.trim() + "\n" +
+                            "Books: " + exported[0] + "\n" +
+                            "Loans: " + exported[1],
+                    "Export Successful",
+                    JOptionPane.INFORMATION_MESSAGE
+            );
 
         } catch (Exception e) {
-            AppLogger.logError("Failed to export overdue loans", e);
+            AppLogger.logError("Failed to export analytics snapshot", e);
             JOptionPane.showMessageDialog(
                     null,
                     "Export failed: " + e.getMessage(),
@@ -160,4 +232,118 @@ public class ExportView {
             );
         }
     }
-}
\ No newline at end of file
+
+    private void exportDelta() {
+        try {
+            String directory = JOptionPane.showInputDialog(
+                    null,
+                    "Enter directory (default: delta_exports):",
+                    "Delta Export",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (directory == null) return; // User cancelled
+
+            if (directory.trim().isEmpty()) {
+                directory = "delta_exports";
+            }
+
+            boolean compress = askCompress("Delta Export");
+            long[] exported = exportController.exportDelta(directory.trim(), compress);
+
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Delta export completed!\n\n" +
+                            "Directory: " + directory.trim() + "\n" +
+                            "Books changed: " + exported[0] + "\n" +
+                            "Partners changed: " + exported[1] + "\n" +
+                            "Loans changed: " + exported[2],
+                    "Export Successful",
+                    JOptionPane.INFORMATION_MESSAGE
+            );
+
+        } catch (Exception e) {
+            AppLogger.logError("Failed to run delta export", e);
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Export failed: " + e.getMessage(),
+                    "Export Error",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+
+    private void exportJsonLines() {
+        try {
+            String directory = JOptionPane.showInputDialog(
+                    null,
+                    "Enter directory (default: jsonl_export):",
+                    "JSON Lines Export",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (directory == null) return; // User cancelled
+
+            if (directory.trim().isEmpty()) {
+                directory = "jsonl_export";
+            }
+
+            boolean compress = askCompress("JSON Lines Export");
+            long[] exported = exportController.exportJsonLines(directory.trim(), compress);
+
+            JOptionPane.showMessageDialog(
+                    null,
+                    "JSON Lines export completed!\n\n" +
+                            "Directory: " + directory.trim() + "\n" +
+                            "Books: " + exported[0] + "\n" +
+                            "Partners: " + exported[1] + "\n" +
+                            "Loans: " + exported[2] + "\n" +
+                            "Users: " + exported[3],
+                    "Export Successful",
+                    JOptionPane.INFORMATION_MESSAGE
+            );
+
+        } catch (Exception e) {
+            AppLogger.logError("Failed to run JSON Lines export", e);
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Export failed: " + e.getMessage(),
+                    "Export Error",
+                    JOptionPane.ERROR_MESSAGE
+            );
+        }
+    }
+
+    // Status screen: blank input refreshes, a job ID cancels that job
+    private void showExportJobs() {
+        while (true) {
+            String input = JOptionPane.showInputDialog(
+                    null,
+                    UIHelper.formatExportJobsTable(exportController.listExportJobs()) +
+                            "\nEnter a job ID to cancel it, leave blank to refresh (0 to go back):",
+                    "Export Jobs",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (input == null || input.trim().equals("0")) {
+                return;
+            }
+            if (input.trim().isEmpty()) {
+                continue;
+            }
+
+            try {
+                exportController.cancelExportJob(Integer.parseInt(input.trim()));
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(null, "Please enter a valid job ID.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (Exception e) {
+                JOptionPane.showMessageDialog(
+                        null,
+                        "Cancel failed: " + e.getMessage(),
+                        "Export Jobs",
+                        JOptionPane.WARNING_MESSAGE
+                );
+            }
+        }
+    }
+}
@@ -8,11 +8,14 @@ import model.Book;
 import model.Partner;
 import util.AppLogger;
 import util.ConfigLoader;
+import util.NPlusOneDetector;
 
 import javax.swing.JOptionPane;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * View for Loan management operations.
@@ -51,16 +54,24 @@ public class LoanView {
             try {
                 int option = Integer.parseInt(input.trim());
 
-                switch (option) {
-                    case 1: registerLoan(); break;
-                    case 2: processReturn(); break;
-                    case 3: viewActiveLoans(); break;
-                    case 4: viewOverdueLoans(); break;
-                    default:
-                        JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                NPlusOneDetector.Scope scope = NPlusOneDetector.scope("LoanView option " + option);
+                try {
+                    switch (option) {
+                        case 1: registerLoan(); break;
+                        case 2: processReturn(); break;
+                        case 3: viewActiveLoans(); break;
+                        case 4: viewOverdueLoans(); break;
+                        default:
+                            JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                    }
+                } finally {
+                    scope.close();
                 }
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(null, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (NPlusOneDetector.Violation e) {
+                // detector.nPlusOne.mode=FAIL: report it and keep the menu running
+                JOptionPane.showMessageDialog(null, e.getMessage(), "N+1 Query Pattern", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
@@ -113,7 +124,10 @@ public class LoanView {
             loan.setPartnerId(partnerId);
             loan.setDueDate(dueDate);
 
-            Loan registered = loanController.registerLoan(loan);
+            // One idempotency key per submitted form, reused when the user retries, so a retried request can't create a second loan
+            String idempotencyKey = UUID.randomUUID().toString();
+            Loan registered = submitWithRetry("Loan Registration Failed", () -> loanController.registerLoan(loan, idempotencyKey));
+            if (registered == null) return;
 
             JOptionPane.showMessageDialog(
                     null,
@@ -145,7 +159,10 @@ public class LoanView {
             LocalDate today = LocalDate.now();
             Date returnDate = Date.valueOf(today);
 
-            boolean processed = loanController.processReturn(loanId, returnDate);
+            // Same key on every retry of this return, so a retried request doesn't fail as "already returned"
+            String idempotencyKey = UUID.randomUUID().toString();
+            Boolean processed = submitWithRetry("Return Failed", () -> loanController.processReturn(loanId, returnDate, idempotencyKey));
+            if (processed == null) return;
 
             if (processed) {
                 JOptionPane.showMessageDialog(
@@ -166,6 +183,33 @@ public class LoanView {
         }
     }
 
+    @FunctionalInterface
+    private interface Submission<T> {
+        T submit() throws Exception;
+    }
+
+    /**
+     * Sends a request, offering to send it again when it fails in the database (connection lost,
+     * timeout, deadlock). The submission reuses its idempotency key, so a request that did commit
+     * before the failure is not applied twice. Business errors are not retried.
+     * @return The result, or null if the user chose not to retry.
+     */
+    private <T> T submitWithRetry(String title, Submission<T> submission) throws Exception {
+        while (true) {
+            try {
+                return submission.submit();
+            } catch (SQLException e) {
+                AppLogger.logError(title, e);
+                int choice = JOptionPane.showConfirmDialog(null,
+                        "Error: " + e.getMessage() + "\n\nRetry? The same request is sent again and cannot be applied twice.",
+                        title, JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) {
+                    return null;
+                }
+            }
+        }
+    }
+
     private void viewActiveLoans() {
         try {
             List<Loan> loans = loanController.getActiveLoans();
@@ -1,10 +1,15 @@
 package view;
 
 import controller.PartnerController;
+import model.ImportResult;
 import model.Partner;
 import util.AppLogger;
+import util.CSVImporter;
+import util.NPlusOneDetector;
 
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
 import java.util.List;
 
 /**
@@ -27,7 +32,8 @@ public class PartnerView {
                             "Register New Partner",
                             "List All Partners",
                             "Update Partner",
-                            "Find Partner by ID"
+                            "Find Partner by ID",
+                            "Import Partners (CSV / JSON Lines)"
                     );
 
             String input = JOptionPane.showInputDialog(null, menu, "Partners Menu", JOptionPane.PLAIN_MESSAGE);
@@ -40,16 +46,25 @@ public class PartnerView {
             try {
                 int option = Integer.parseInt(input.trim());
 
-                switch (option) {
-                    case 1: registerPartner(); break;
-                    case 2: listAllPartners(); break;
-                    case 3: updatePartner(); break;
-                    case 4: findPartnerById(); break;
-                    default:
-                        JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                NPlusOneDetector.Scope scope = NPlusOneDetector.scope("PartnerView option " + option);
+                try {
+                    switch (option) {
+                        case 1: registerPartner(); break;
+                        case 2: listAllPartners(); break;
+                        case 3: updatePartner(); break;
+                        case 4: findPartnerById(); break;
+                        case 5: importPartners(); break;
+                        default:
+                            JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                    }
+                } finally {
+                    scope.close();
                 }
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(null, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (NPlusOneDetector.Violation e) {
+                // detector.nPlusOne.mode=FAIL: report it and keep the menu running
+                JOptionPane.showMessageDialog(null, e.getMessage(), "N+1 Query Pattern", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
@@ -161,4 +176,44 @@ public class PartnerView {
             JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+
+    private void importPartners() {
+        String filename = JOptionPane.showInputDialog(
+                null,
+                "Enter CSV or JSON Lines file to import (Partner ID,Name,Email,Active / id,name,email,is_active):",
+                "Import Partners",
+                JOptionPane.PLAIN_MESSAGE
+        );
+        if (filename == null || filename.trim().isEmpty()) return;
+
+        ProgressMonitor monitor = new ProgressMonitor(null, "Import Partners: " + filename.trim(), "", 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        CSVImporter.ProgressListener listener = (bytesRead, totalBytes, rows, rejected) -> {
+            int percent = totalBytes > 0 ? (int) (bytesRead * 100 / totalBytes) : 100;
+            String note = rows + " rows processed, " + rejected + " rejected";
+            SwingUtilities.invokeLater(() -> {
+                monitor.setProgress(percent);
+                monitor.setNote(note);
+            });
+        };
+        try {
+            ImportResult result = partnerController.importPartners(filename.trim(), listener);
+            SwingUtilities.invokeLater(monitor::close);
+
+            String message = "Import Partners finished in " + result.getElapsedMillis() + " ms.\n\n" +
+                    "Inserted: " + result.getInserted() + "\n" +
+                    "Updated: " + result.getUpdated() + "\n" +
+                    "Rejected: " + result.getRejected();
+            if (result.getRejectedFile() != null) {
+                message += "\n\nRejected rows written to: " + result.getRejectedFile();
+            }
+            JOptionPane.showMessageDialog(null, message, "Import Partners",
+                    result.getRejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+
+        } catch (Exception e) {
+            SwingUtilities.invokeLater(monitor::close);
+            AppLogger.logError("Failed to import partners", e);
+            JOptionPane.showMessageDialog(null, "Import Partners failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package view;
 import controller.*;
 import model.User;
 import util.AppLogger;
+import util.EndpointMetrics;
+import util.QueryInstrumentation;
 
 import javax.swing.JOptionPane;
 
@@ -16,6 +18,7 @@ public class PrincipalMenuView {
     private final UserController userController;
     private final PartnerController partnerController;
     private final LoanController loanController;
+    private final ExportController exportController;
 
     // Sub-views
     private BookView bookView;
@@ -29,20 +32,22 @@ public class PrincipalMenuView {
             BookController bookController,
             UserController userController,
             PartnerController partnerController,
-            LoanController loanController
+            LoanController loanController,
+            ExportController exportController
     ) {
         this.currentUser = currentUser;
         this.bookController = bookController;
         this.userController = userController;
         this.partnerController = partnerController;
         this.loanController = loanController;
+        this.exportController = exportController;
 
         // Initialize sub-views
         this.bookView = new BookView(bookController);
         this.userView = new UserView(userController, currentUser);
         this.partnerView = new PartnerView(partnerController);
         this.loanView = new LoanView(loanController, bookController, partnerController);
-        this.exportView = new ExportView(bookController, loanController);
+        this.exportView = new ExportView(exportController);
     }
 
     /**
@@ -59,7 +64,8 @@ public class PrincipalMenuView {
                             "Partners Management",
                             "Loans Management",
                             "Users Management" + (currentUser.getRole().equals("ADMIN") ? "" : " [ADMIN ONLY]"),
-                            "Export Data"
+                            "Export Data",
+                            "Performance Metrics" + (currentUser.getRole().equals("ADMIN") ? "" : " [ADMIN ONLY]")
                     );
 
             String input = JOptionPane.showInputDialog(
@@ -110,10 +116,22 @@ public class PrincipalMenuView {
                     case 5:
                         exportView.showExportMenu();
                         break;
+                    case 6:
+                        if (currentUser.getRole().equals("ADMIN")) {
+                            showEndpointMetrics();
+                        } else {
+                            JOptionPane.showMessageDialog(
+                                    null,
+                                    "Access Denied: ADMIN role required.",
+                                    "Permission Error",
+                                    JOptionPane.ERROR_MESSAGE
+                            );
+                        }
+                        break;
                     default:
                         JOptionPane.showMessageDialog(
                                 null,
-                                "Invalid option. Please select 1-5 or 0 to exit.",
+                                "Invalid option. Please select 1-6 or 0 to exit.",
                                 "Invalid Input",
                                 JOptionPane.WARNING_MESSAGE
                         );
@@ -136,4 +154,42 @@ public class PrincipalMenuView {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Shows latency per endpoint since the last reset; "R" starts a new measurement interval,
+     * "S" shows the SQL statements with the highest total time.
+     */
+    private void showEndpointMetrics() {
+        boolean showQueries = false;
+        while (true) {
+            String input = JOptionPane.showInputDialog(
+                    null,
+                    (showQueries
+                            ? UIHelper.formatQueryStatsTable(QueryInstrumentation.getStats(), 15) +
+                                    "\nLeave blank to refresh, E for endpoints, R to reset the counters (0 to go back):"
+                            : UIHelper.formatEndpointStatsTable(EndpointMetrics.snapshot()) +
+                                    "\nLeave blank to refresh, S for SQL statements, R to reset the counters (0 to go back):"),
+                    "Performance Metrics",
+                    JOptionPane.PLAIN_MESSAGE
+            );
+
+            if (input == null || input.trim().equals("0")) {
+                return;
+            }
+            switch (input.trim().toUpperCase()) {
+                case "R":
+                    EndpointMetrics.snapshotAndReset();
+                    QueryInstrumentation.reset();
+                    break;
+                case "S":
+                    showQueries = true;
+                    break;
+                case "E":
+                    showQueries = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
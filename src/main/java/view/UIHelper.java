@@ -1,9 +1,12 @@
 package view;
 
 import model.Book;
+import model.ExportJob;
 import model.Loan;
 import model.Partner;
 import model.User;
+import util.EndpointMetrics;
+import util.QueryStats;
 import java.util.List;
 
 /**
@@ -129,6 +132,119 @@ public class UIHelper {
         return sb.toString();
     }
 
+    /**
+     * Formats background export jobs with their progress.
+     * @param jobs Jobs to format
+     * @return Formatted table string
+     */
+    public static String formatExportJobsTable(List<ExportJob> jobs) {
+        if (jobs == null || jobs.isEmpty()) {
+            return "No export jobs.";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-5s %-20s %-10s %-20s %-10s %-8s %s\n",
+                "ID", "Export", "Status", "Rows", "Size", "ETA", "File"));
+        sb.append("=".repeat(100)).append("\n");
+
+        for (ExportJob job : jobs) {
+            String rows = job.getEstimatedRows() >= 0
+                    ? job.getRowsWritten() + "/" + job.getEstimatedRows()
+                    : String.valueOf(job.getRowsWritten());
+            long eta = job.getEtaSeconds();
+            String etaText = eta >= 0 ? String.format("%d:%02d", eta / 60, eta % 60) : "-";
+
+            sb.append(String.format("%-5d %-20s %-10s %-20s %-10s %-8s %s\n",
+                    job.getId(),
+                    truncate(job.getDescription(), 20),
+                    job.getStatus(),
+                    rows,
+                    formatBytes(job.getBytesWritten()),
+                    etaText,
+                    job.getFilePath()
+            ));
+            if (job.getErrorMessage() != null) {
+                sb.append("      Error: ").append(job.getErrorMessage()).append("\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Formats endpoint latency statistics (milliseconds) for display.
+     * @param stats Statistics per endpoint and outcome
+     * @return Formatted table string
+     */
+    public static String formatEndpointStatsTable(List<EndpointMetrics.EndpointStats> stats) {
+        if (stats == null || stats.isEmpty()) {
+            return "No requests recorded yet.";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-45s %-6s %8s %8s %9s %9s %9s %9s %9s\n",
+                "Endpoint", "Result", "Calls", "Rate/s", "p50", "p90", "p99", "p99.9", "Max"));
+        sb.append("=".repeat(120)).append("\n");
+
+        for (EndpointMetrics.EndpointStats stat : stats) {
+            sb.append(String.format("%-45s %-6s %8d %8.2f %9.2f %9.2f %9.2f %9.2f %9.2f\n",
+                    truncate(stat.getEndpoint(), 45),
+                    stat.getOutcome(),
+                    stat.getCount(),
+                    stat.getThroughput(),
+                    stat.getP50Millis(),
+                    stat.getP90Millis(),
+                    stat.getP99Millis(),
+                    stat.getP999Millis(),
+                    stat.getMaxMillis()
+            ));
+        }
+        sb.append(String.format("\nLatencies in ms over the last %.0f s.\n", stats.get(0).getIntervalSeconds()));
+
+        return sb.toString();
+    }
+
+    /**
+     * Formats SQL statement statistics for display (the first entries, highest total time first).
+     * @param stats Statistics per SQL shape
+     * @param limit Maximum number of statements to show
+     * @return Formatted table string
+     */
+    public static String formatQueryStatsTable(List<QueryStats> stats, int limit) {
+        if (stats == null || stats.isEmpty()) {
+            return "No SQL statements recorded yet.";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%8s %6s %10s %9s %9s %9s  %s\n",
+                "Execs", "Errors", "Total ms", "Mean ms", "Max ms", "Rows", "Statement"));
+        sb.append("=".repeat(120)).append("\n");
+
+        for (QueryStats stat : stats.subList(0, Math.min(limit, stats.size()))) {
+            sb.append(String.format("%8d %6d %10.1f %9.2f %9.2f %9d  %s\n",
+                    stat.getExecutions(),
+                    stat.getErrors(),
+                    stat.getTotalMillis(),
+                    stat.getMeanMillis(),
+                    stat.getMaxMillis(),
+                    stat.getRows(),
+                    truncate(stat.getSql(), 60)
+            ));
+        }
+
+        return sb.toString();
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
     /**
      * Formats a single book's details for display.
      * @param book Book to format
@@ -3,6 +3,7 @@ package view;
 import controller.UserController;
 import model.User;
 import util.AppLogger;
+import util.NPlusOneDetector;
 
 import javax.swing.JOptionPane;
 import java.util.List;
@@ -51,14 +52,22 @@ public class UserView {
             try {
                 int option = Integer.parseInt(input.trim());
 
-                switch (option) {
-                    case 1: registerUser(); break;
-                    case 2: listAllUsers(); break;
-                    default:
-                        JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                NPlusOneDetector.Scope scope = NPlusOneDetector.scope("UserView option " + option);
+                try {
+                    switch (option) {
+                        case 1: registerUser(); break;
+                        case 2: listAllUsers(); break;
+                        default:
+                            JOptionPane.showMessageDialog(null, "Invalid option.", "Error", JOptionPane.WARNING_MESSAGE);
+                    }
+                } finally {
+                    scope.close();
                 }
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(null, "Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (NPlusOneDetector.Violation e) {
+                // detector.nPlusOne.mode=FAIL: report it and keep the menu running
+                JOptionPane.showMessageDialog(null, e.getMessage(), "N+1 Query Pattern", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
@@ -10,7 +10,11 @@ CREATE TABLE IF NOT EXISTS books (
     available_copies INT NOT NULL,
     reference_price DECIMAL(10, 2) NOT NULL,
     is_active BOOLEAN DEFAULT TRUE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    stock_sharded BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    content_hash CHAR(64) NULL,
+    INDEX idx_books_updated (updated_at)
 );
 
 CREATE TABLE IF NOT EXISTS users (
@@ -27,7 +31,9 @@ CREATE TABLE IF NOT EXISTS partners (
     name VARCHAR(255) NOT NULL,
     email VARCHAR(100) UNIQUE NOT NULL,
     is_active BOOLEAN DEFAULT TRUE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_partners_updated (updated_at)
 );
 
 CREATE TABLE IF NOT EXISTS loans (
@@ -39,6 +45,78 @@ CREATE TABLE IF NOT EXISTS loans (
     return_date DATE,
     fine DECIMAL(10, 2) DEFAULT 0,
     is_returned BOOLEAN DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_loans_updated (updated_at),
     FOREIGN KEY (book_isbn) REFERENCES books(isbn),
     FOREIGN KEY (partner_id) REFERENCES partners(id)
-);
\ No newline at end of file
+);
+
+-- Append-only stock ledger: one row per loan, return or manual adjustment.
+CREATE TABLE IF NOT EXISTS stock_movements (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    delta INT NOT NULL,
+    reason ENUM('LOAN', 'RETURN', 'ADJUSTMENT') NOT NULL,
+    loan_id INT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_stock_movements_isbn (book_isbn, id),
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn)
+);
+
+-- Periodic snapshots of the ledger (availability after last_movement_id).
+CREATE TABLE IF NOT EXISTS stock_snapshots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    book_isbn VARCHAR(20) NOT NULL,
+    available_copies INT NOT NULL,
+    last_movement_id BIGINT NOT NULL,
+    snapshot_at TIMESTAMP NOT NULL,
+    INDEX idx_stock_snapshots_isbn (book_isbn, snapshot_at),
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn)
+);
+
+-- Opening balance for books that existed before the ledger was introduced.
+INSERT INTO stock_movements (book_isbn, delta, reason)
+SELECT b.isbn, b.available_copies, 'ADJUSTMENT'
+FROM books b
+WHERE NOT EXISTS (SELECT 1 FROM stock_movements m WHERE m.book_isbn = b.isbn);
+
+
+-- Striped stock for hot titles: when books.stock_sharded is TRUE the available copies
+-- live here, split across N rows, and books.available_copies is kept at 0.
+-- Existing databases: ALTER TABLE books ADD COLUMN stock_sharded BOOLEAN DEFAULT FALSE AFTER is_active;
+CREATE TABLE IF NOT EXISTS book_stock_shards (
+    book_isbn VARCHAR(20) NOT NULL,
+    shard_no INT NOT NULL,
+    available_copies INT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (book_isbn, shard_no),
+    INDEX idx_book_stock_shards_updated (updated_at),
+    FOREIGN KEY (book_isbn) REFERENCES books(isbn)
+);
+
+-- Idempotency keys for loan registration and returns (deduplicates client retries).
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idem_key VARCHAR(64) PRIMARY KEY,
+    operation VARCHAR(30) NOT NULL,
+    loan_id INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_idempotency_expires (expires_at)
+);
+
+-- Change tracking for delta exports: every row carries updated_at (maintained by MySQL),
+-- and each export feed remembers the database time its last successful run covered.
+-- Existing databases:
+--   ALTER TABLE books ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, ADD INDEX idx_books_updated (updated_at);
+--   ALTER TABLE partners ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, ADD INDEX idx_partners_updated (updated_at);
+--   ALTER TABLE loans ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, ADD INDEX idx_loans_updated (updated_at);
+--   ALTER TABLE book_stock_shards ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, ADD INDEX idx_book_stock_shards_updated (updated_at);
+CREATE TABLE IF NOT EXISTS export_watermarks (
+    feed VARCHAR(50) PRIMARY KEY,
+    watermark TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Catalog sync: books.content_hash is the SHA-256 of the supplier fields as last synced
+-- (NULL after a manual edit, so the next sync rewrites the row).
+-- Existing databases: ALTER TABLE books ADD COLUMN content_hash CHAR(64) NULL AFTER updated_at;
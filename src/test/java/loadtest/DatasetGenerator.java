@@ -0,0 +1,488 @@
+package loadtest;
+
+import dao.BookDAOImpl;
+import dao.IBookDAO;
+import dao.IStockMovementDAO;
+import dao.StockMovementDAOImpl;
+import model.Book;
+import model.Loan;
+import model.Partner;
+import model.StockMovement;
+import service.impl.LoanServiceImpl;
+import util.CSVExporter;
+import util.ConfigLoader;
+import util.DBConnection;
+import util.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Synthetic dataset for scale tests: books, partners and loans built from the model classes,
+ * written to the database in batched inserts or to CSV files in the CSVExporter layouts
+ * (books.csv can be fed to the catalog import).
+ *
+ * Every row is derived from (seed, table, row number) alone, so a dataset is reproducible whatever
+ * the number of threads: the same seed, counts and asOf date give the same rows (and byte-identical
+ * CSV files). Rows are generated in parallel chunks; CSV chunks go to part files that are
+ * concatenated in order.
+ *
+ * Distributions: titles and partners are picked with Zipf popularity (a few bestsellers and heavy
+ * readers), loan dates are spread over the last {@code days} days in ID order, 80% of the loans come
+ * back on time, 17% late (exponential tail) and 3% very late; loans whose return date would fall after
+ * asOf are still out. Fines use LoanServiceImpl.calculateFine. A title owns the copies it has on
+ * loan plus up to 2 spare ones (popular titles get more copies), and available_copies is what is left.
+ *
+ * target=db needs empty books, partners and loans tables (a fresh schema.sql): IDs are written
+ * explicitly, and every title gets its opening balance in the stock ledger. Any config property can
+ * be overridden with -Dkey=value (e.g. -Ddb.pool.size=16).
+ *
+ * Usage: DatasetGenerator [target=csv|db] [out=dataset] [books=1000000] [partners=200000]
+ *                         [loans=10000000] [days=730] [asOf=today] [bookZipf=0.9] [partnerZipf=0.6]
+ *                         [seed=42] [threads=cores] [chunk=100000] [batch=import.batchSize]
+ */
+public class DatasetGenerator {
+
+    private static final int BOOKS = 1;
+    private static final int PARTNERS = 2;
+    private static final int LOANS = 3;
+
+    // target=db: IDs are written explicitly so loans can reference the generated partners
+    private static final String INSERT_PARTNER_SQL = "INSERT INTO partners (id, name, email, is_active) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_LOAN_SQL = "INSERT INTO loans (id, book_isbn, partner_id, loan_date, due_date, return_date, fine, is_returned) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] FIRST_NAMES = {"Ana", "Luis", "María", "Carlos", "Lucía", "Jorge", "Sofía", "Pedro",
+            "Elena", "Diego", "Valentina", "Andrés", "Camila", "Miguel", "Isabel", "Javier", "Paula", "Daniel",
+            "Laura", "Tomás", "Sara", "Felipe", "Natalia", "Sebastián"};
+    private static final String[] LAST_NAMES = {"García", "Rodríguez", "Martínez", "López", "González", "Pérez",
+            "Sánchez", "Ramírez", "Torres", "Flores", "Rivera", "Gómez", "Díaz", "Vargas", "Castro", "Ortiz",
+            "Morales", "Jiménez", "Herrera", "Medina", "Rojas", "Navarro", "Silva", "Mendoza"};
+    private static final String[] TITLE_WORDS = {"Shadow", "River", "Silent", "Garden", "Empire", "Winter", "Last",
+            "Secret", "Stone", "Light", "Ocean", "City", "Night", "Fire", "Glass", "Memory", "Storm", "Road",
+            "Iron", "Forest", "Dream", "House", "Star", "Song", "War", "Island", "Mirror", "Crown"};
+    private static final String[] CATEGORIES = {"Fiction", "Mystery", "Science Fiction", "Fantasy", "Romance",
+            "History", "Biography", "Science", "Children", "Poetry", "Business", "Philosophy", "Travel", "Art"};
+
+    private final Map<String, String> options;
+    private final String target;
+    private final int books;
+    private final int partners;
+    private final int loans;
+    private final int days;
+    private final LocalDate asOf;
+    private final long seed;
+    private final int threads;
+    private final int chunk;
+    private final int batch;
+    private final int loanDays;
+
+    private final ZipfDistribution bookPopularity;
+    private final ZipfDistribution partnerActivity;
+    private final ZipfDistribution categoryPopularity = new ZipfDistribution(CATEGORIES.length, 0.8);
+    private final int bookStride;
+    private final int partnerStride;
+    private final LocalDateTime windowStart;
+    private final LoanServiceImpl fineRules = new LoanServiceImpl(null, null, null, null, null);
+
+    // Filled by the counting pass: copies on loan per title, and the figures for the summary
+    private AtomicIntegerArray onLoan;
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder returnedLate = new LongAdder();
+    private final LongAdder overdue = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        new DatasetGenerator(LoadGenerator.parseOptions(args)).run();
+        System.exit(0);
+    }
+
+    DatasetGenerator(Map<String, String> options) {
+        this.options = options;
+        this.target = options.getOrDefault("target", "csv");
+        this.books = intOption("books", 1_000_000);
+        this.partners = intOption("partners", 200_000);
+        this.loans = intOption("loans", 10_000_000);
+        this.days = intOption("days", 730);
+        this.asOf = options.containsKey("asOf") ? LocalDate.parse(options.get("asOf")) : LocalDate.now();
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.threads = intOption("threads", Runtime.getRuntime().availableProcessors());
+        this.chunk = intOption("chunk", 100_000);
+        this.batch = intOption("batch", ConfigLoader.getIntProperty("import.batchSize", 500));
+        this.loanDays = ConfigLoader.getIntProperty("loan.days", 7);
+
+        this.bookPopularity = new ZipfDistribution(books, Double.parseDouble(options.getOrDefault("bookZipf", "0.9")));
+        this.partnerActivity = new ZipfDistribution(partners, Double.parseDouble(options.getOrDefault("partnerZipf", "0.6")));
+        this.bookStride = stride(books);
+        this.partnerStride = stride(partners);
+        this.windowStart = asOf.minusDays(days).atStartOfDay();
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    void run() throws Exception {
+        System.out.printf("target=%s books=%,d partners=%,d loans=%,d days=%d asOf=%s seed=%d threads=%d%n",
+                target, books, partners, loans, days, asOf, seed, threads);
+
+        ExecutorService pool = Executors.newFixedThreadPool(target.equals("db") ? dbThreads() : threads);
+        try {
+            long start = System.nanoTime();
+            countLoans(pool);
+            phase("loan counting pass", loans, start);
+
+            if (target.equals("csv")) {
+                writeCsv(pool);
+            } else if (target.equals("db")) {
+                writeDb(pool);
+            } else {
+                throw new IllegalArgumentException("target must be csv or db");
+            }
+
+            long active = loans - returned.sum();
+            System.out.printf("loans returned: %,d (%,d late), still out: %,d (%,d overdue)%n",
+                    returned.sum(), returnedLate.sum(), active, overdue.sum());
+            System.out.printf("done in %.1f s (pass asOf=%s seed=%d to reproduce this dataset)%n",
+                    (System.nanoTime() - start) / 1e9, asOf, seed);
+        } finally {
+            pool.shutdown();
+            DBConnection.shutdown();
+        }
+    }
+
+    // --- Rows ---
+
+    // Independent stream per row: the row does not depend on which thread or chunk generates it
+    private SplittableRandom random(int table, long row) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + table * 0xBF58476D1CE4E5B9L + row);
+    }
+
+    // Popularity rank -> row number, scattered so the bestsellers are not the first ISBNs
+    private static int scatter(int rank, int stride, int n) {
+        return (int) ((long) rank * stride % n);
+    }
+
+    private static int stride(int n) {
+        int stride = 1_000_003;
+        while (gcd(stride, n) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // ISBN-13 in the 979 range with a valid check digit
+    static String isbn(int book) {
+        char[] digits = {'9', '7', '9', '0', '0', '0', '0', '0', '0', '0', '0', '0', '0'};
+        for (int i = 11, value = book; value > 0; i--, value /= 10) {
+            digits[i] = (char) ('0' + value % 10);
+        }
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits[i] - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        digits[12] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(digits);
+    }
+
+    Book book(int index) {
+        SplittableRandom random = random(BOOKS, index);
+        StringBuilder title = new StringBuilder(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        for (int words = 1 + random.nextInt(3); words > 0; words--) {
+            title.append(' ').append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        String author = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String category = CATEGORIES[categoryPopularity.sample(random)];
+        // Prices from 5.00 to 150.00, most of them cheap
+        double u = random.nextDouble();
+        long cents = 500 + (long) (14_500 * u * u * u);
+        // Most titles have 1 to 3 copies; a title always owns the copies it has on loan
+        int baseCopies = 1 + (int) (-StrictMath.log(1 - random.nextDouble()) * 1.5);
+        int spareCopies = random.nextInt(3);
+        boolean active = random.nextInt(100) >= 3;
+
+        int loaned = onLoan.get(index);
+        int copies = Math.max(baseCopies, loaned + spareCopies);
+        return new Book(isbn(index), title.toString(), author, category, BigDecimal.valueOf(cents, 2),
+                copies, copies - loaned, active, null);
+    }
+
+    Partner partner(int index) {
+        SplittableRandom random = random(PARTNERS, index);
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        int id = index + 1;
+        String email = Normalizer.normalize(first + "." + last, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT) + "." + id + "@example.com";
+        return new Partner(id, first + " " + last, email, random.nextInt(100) >= 5, null);
+    }
+
+    Loan loan(int index) {
+        SplittableRandom random = random(LOANS, index);
+        int book = scatter(bookPopularity.sample(random), bookStride, books);
+        int partnerId = scatter(partnerActivity.sample(random), partnerStride, partners) + 1;
+
+        // Loan dates follow the IDs through the window, to the second
+        long windowSeconds = days * 86_400L;
+        long offset = (long) ((index + random.nextDouble()) / loans * windowSeconds);
+        LocalDateTime loanDate = windowStart.plusSeconds(Math.min(offset, windowSeconds - 1));
+        LocalDate dueDate = loanDate.toLocalDate().plusDays(loanDays);
+
+        int keptDays;
+        int outcome = random.nextInt(100);
+        if (outcome < 80) {
+            keptDays = 1 + random.nextInt(loanDays);
+        } else if (outcome < 97) {
+            keptDays = loanDays + 1 + (int) (-StrictMath.log(1 - random.nextDouble()) * 5);
+        } else {
+            keptDays = loanDays + 15 + random.nextInt(90);
+        }
+        LocalDate returnDate = loanDate.toLocalDate().plusDays(keptDays);
+
+        Loan loan = new Loan(index + 1, isbn(book), partnerId, Timestamp.valueOf(loanDate), Date.valueOf(dueDate),
+                null, BigDecimal.ZERO.setScale(2), false);
+        if (!returnDate.isAfter(asOf)) {
+            loan.setReturnDate(Date.valueOf(returnDate));
+            loan.setFine(fineRules.calculateFine(loan.getDueDate(), loan.getReturnDate()).setScale(2));
+            loan.setReturned(true);
+        }
+        return loan;
+    }
+
+    // --- Counting pass: copies on loan per title (titles are written before the loans that reference them) ---
+
+    private void countLoans(ExecutorService pool) throws Exception {
+        onLoan = new AtomicIntegerArray(books);
+        Date today = Date.valueOf(asOf);
+        forEachChunk(pool, loans, (part, from, to) -> {
+            for (int i = from; i < to; i++) {
+                Loan loan = loan(i);
+                if (loan.isReturned()) {
+                    returned.increment();
+                    if (loan.getReturnDate().after(loan.getDueDate())) {
+                        returnedLate.increment();
+                    }
+                } else {
+                    onLoan.incrementAndGet(bookIndex(loan.getBookIsbn()));
+                    if (loan.getDueDate().before(today)) {
+                        overdue.increment();
+                    }
+                }
+            }
+        });
+    }
+
+    private static int bookIndex(String isbn) {
+        return Integer.parseInt(isbn.substring(3, 12));
+    }
+
+    // --- CSV ---
+
+    private void writeCsv(ExecutorService pool) throws Exception {
+        File dir = new File(options.getOrDefault("out", "dataset"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        long start = System.nanoTime();
+        writeCsvTable(pool, new File(dir, "books.csv"), CSVExporter.BOOKS_HEADER, books, (path, from, to) -> {
+            try (CSVExporter.BookRowWriter writer = CSVExporter.openBookPart(path)) {
+                for (int i = from; i < to; i++) {
+                    writer.write(book(i));
+                }
+            }
+        });
+        phase("books.csv", books, start);
+
+        start = System.nanoTime();
+        writeCsvTable(pool, new File(dir, "partners.csv"), CSVExporter.PARTNERS_HEADER, partners, (path, from, to) -> {
+            try (CSVExporter.PartnerRowWriter writer = CSVExporter.openPartnerPart(path)) {
+                for (int i = from; i < to; i++) {
+                    writer.write(partner(i));
+                }
+            }
+        });
+        phase("partners.csv", partners, start);
+
+        start = System.nanoTime();
+        writeCsvTable(pool, new File(dir, "loans.csv"), CSVExporter.LOANS_HEADER, loans, (path, from, to) -> {
+            try (CSVExporter.LoanRowWriter writer = CSVExporter.openLoanPart(path)) {
+                for (int i = from; i < to; i++) {
+                    writer.write(loan(i));
+                }
+            }
+        });
+        phase("loans.csv", loans, start);
+    }
+
+    @FunctionalInterface
+    private interface PartWriter {
+        void write(String partPath, int from, int to) throws Exception;
+    }
+
+    private void writeCsvTable(ExecutorService pool, File file, String header, int rows, PartWriter partWriter) throws Exception {
+        int parts = (rows + chunk - 1) / chunk;
+        List<Path> partPaths = new ArrayList<>();
+        for (int part = 0; part < parts; part++) {
+            partPaths.add(Paths.get(file.getPath() + String.format(".part%05d", part)));
+        }
+        forEachChunk(pool, rows, (part, from, to) -> partWriter.write(partPaths.get(part).toString(), from, to));
+        CSVExporter.concatenateParts(file.getPath(), header, partPaths);
+    }
+
+    // --- Database ---
+
+    // One connection per worker: no more workers than pooled connections
+    private int dbThreads() {
+        int poolSize = ConfigLoader.getIntProperty("db.pool.size", 10);
+        return poolSize > 0 ? Math.min(threads, poolSize) : threads;
+    }
+
+    private void writeDb(ExecutorService pool) throws Exception {
+        requireEmpty("books", "partners", "loans");
+        IBookDAO bookDAO = new BookDAOImpl();
+        IStockMovementDAO stockMovementDAO = new StockMovementDAOImpl();
+
+        // Titles with their opening balance in the stock ledger, one transaction per batch
+        long start = System.nanoTime();
+        forEachBatch(pool, books, (from, to) -> TransactionTemplate.execute("generateBooks", conn -> {
+            List<Book> rows = new ArrayList<>(to - from);
+            List<StockMovement> openingBalances = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Book book = book(i);
+                rows.add(book);
+                openingBalances.add(new StockMovement(book.getIsbn(), book.getAvailableCopies(), "ADJUSTMENT", null));
+            }
+            bookDAO.insertBatch(rows, conn);
+            stockMovementDAO.appendBatch(openingBalances, conn);
+            return null;
+        }));
+        phase("books", books, start);
+
+        start = System.nanoTime();
+        forEachBatch(pool, partners, (from, to) -> TransactionTemplate.execute("generatePartners", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_PARTNER_SQL)) {
+                for (int i = from; i < to; i++) {
+                    Partner partner = partner(i);
+                    ps.setInt(1, partner.getId());
+                    ps.setString(2, partner.getName());
+                    ps.setString(3, partner.getEmail());
+                    ps.setBoolean(4, partner.isActive());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        }));
+        phase("partners", partners, start);
+
+        start = System.nanoTime();
+        forEachBatch(pool, loans, (from, to) -> TransactionTemplate.execute("generateLoans", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_LOAN_SQL)) {
+                for (int i = from; i < to; i++) {
+                    Loan loan = loan(i);
+                    ps.setInt(1, loan.getId());
+                    ps.setString(2, loan.getBookIsbn());
+                    ps.setInt(3, loan.getPartnerId());
+                    ps.setTimestamp(4, loan.getLoanDate());
+                    ps.setDate(5, loan.getDueDate());
+                    ps.setDate(6, loan.getReturnDate());
+                    ps.setBigDecimal(7, loan.getFine());
+                    ps.setBoolean(8, loan.isReturned());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        }));
+        phase("loans", loans, start);
+    }
+
+    private void requireEmpty(String... tables) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String table : tables) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM " + table + " LIMIT 1");
+                     ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        throw new IllegalStateException("target=db needs empty books, partners and loans tables; "
+                                + table + " has rows (load schema.sql into a new database).");
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchTask {
+        void run(int from, int to) throws Exception;
+    }
+
+    private void forEachBatch(ExecutorService pool, int rows, BatchTask task) throws Exception {
+        forEachChunk(pool, rows, (part, from, to) -> {
+            for (int start = from; start < to; start += batch) {
+                task.run(start, Math.min(start + batch, to));
+            }
+        });
+    }
+
+    // --- Parallel chunks ---
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int part, int from, int to) throws Exception;
+    }
+
+    private void forEachChunk(ExecutorService pool, int rows, ChunkTask task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int part = 0, from = 0; from < rows; part++, from += chunk) {
+            int p = part;
+            int f = from;
+            int t = (int) Math.min((long) from + chunk, rows);
+            futures.add(pool.submit(() -> {
+                task.run(p, f, t);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static void phase(String name, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-20s %,12d rows in %6.1f s (%,.0f rows/s)%n", name, rows, seconds, rows / seconds);
+    }
+}
@@ -0,0 +1,213 @@
+package loadtest;
+
+import dao.IBookDAO;
+import model.Book;
+import util.RowHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * IBookDAO over the in-memory store: the catalog and stock operations the load generator drives, and
+ * the row writes of imports. Deactivation by catalog sync, exports and striped stock are not supported.
+ */
+public class InMemoryBookDAO implements IBookDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryBookDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public Book insert(Book book) throws SQLException {
+        return insert(book, null);
+    }
+
+    @Override
+    public Book insert(Book book, Connection conn) throws SQLException {
+        if (db.books.putIfAbsent(book.getIsbn(), InMemoryDatabase.copy(book)) != null) {
+            throw new SQLException("Duplicate entry '" + book.getIsbn() + "' for key 'books.PRIMARY'", "23000", 1062);
+        }
+        db.onRollback(conn, () -> db.books.remove(book.getIsbn()));
+        return book;
+    }
+
+    @Override
+    public Book findByIsbn(String isbn) {
+        return InMemoryDatabase.copy(db.books.get(isbn));
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return filter(book -> true);
+    }
+
+    @Override
+    public boolean update(Book book) throws SQLException {
+        return update(book, null);
+    }
+
+    @Override
+    public boolean update(Book book, Connection conn) throws SQLException {
+        Book[] previous = {null};
+        db.books.computeIfPresent(book.getIsbn(), (isbn, stored) -> {
+            previous[0] = stored;
+            return InMemoryDatabase.copy(book);
+        });
+        if (previous[0] == null) {
+            return false;
+        }
+        db.onRollback(conn, () -> db.books.put(book.getIsbn(), previous[0]));
+        return true;
+    }
+
+    @Override
+    public List<Book> filterByCategory(String category) {
+        return filter(book -> book.isActive() && book.getCategory().equals(category));
+    }
+
+    @Override
+    public List<Book> filterByAuthor(String author) {
+        return filter(book -> book.isActive() && book.getAuthor().equals(author));
+    }
+
+    @Override
+    public boolean updateStatus(String isbn, boolean isActive) {
+        return db.books.computeIfPresent(isbn, (key, stored) -> {
+            Book updated = InMemoryDatabase.copy(stored);
+            updated.setActive(isActive);
+            return updated;
+        }) != null;
+    }
+
+    // Same guard as the SQL: available_copies + change must not go below zero
+    @Override
+    public boolean updateStock(String isbn, int change, Connection conn) throws SQLException {
+        boolean[] updated = {false};
+        db.books.computeIfPresent(isbn, (key, stored) -> {
+            if (stored.getAvailableCopies() + change < 0) {
+                return stored;
+            }
+            Book book = InMemoryDatabase.copy(stored);
+            book.setAvailableCopies(stored.getAvailableCopies() + change);
+            updated[0] = true;
+            return book;
+        });
+        if (updated[0]) {
+            db.onRollback(conn, () -> db.books.computeIfPresent(isbn, (key, stored) -> {
+                Book book = InMemoryDatabase.copy(stored);
+                book.setAvailableCopies(stored.getAvailableCopies() - change);
+                return book;
+            }));
+        }
+        return updated[0];
+    }
+
+    @Override
+    public long countAll() {
+        return db.books.size();
+    }
+
+    private List<Book> filter(Predicate<Book> predicate) {
+        List<Book> result = new ArrayList<>();
+        for (Book book : db.books.values()) {
+            if (predicate.test(book)) {
+                result.add(InMemoryDatabase.copy(book));
+            }
+        }
+        return result;
+    }
+
+    // Bulk import: the store has no row locks, so the rows are only read
+    @Override
+    public Map<String, Book> findByIsbnsForUpdate(Collection<String> isbns, Connection conn) {
+        Map<String, Book> found = new HashMap<>();
+        for (String isbn : isbns) {
+            Book book = db.books.get(isbn);
+            if (book != null) {
+                found.put(isbn, InMemoryDatabase.copy(book));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void insertBatch(List<Book> books, Connection conn) throws SQLException {
+        for (Book book : books) {
+            insert(book, conn);
+        }
+    }
+
+    @Override
+    public void updateBatch(List<Book> books, Connection conn) throws SQLException {
+        for (Book book : books) {
+            update(book, conn);
+        }
+    }
+
+    @Override
+    public Map<String, String> findContentHashes(Collection<String> isbns) {
+        Map<String, String> hashes = new HashMap<>();
+        for (String isbn : isbns) {
+            Book book = db.books.get(isbn);
+            if (book != null && book.getContentHash() != null) {
+                hashes.put(isbn, book.getContentHash());
+            }
+        }
+        return hashes;
+    }
+
+    // --- Not supported by the in-memory store ---
+
+    @Override
+    public long streamActiveIsbns(RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public int updateStatusBatch(List<String> isbns, boolean isActive) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean enableStockSharding(String isbn, int shards) {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean disableStockSharding(String isbn) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamAll(RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public List<String[]> findIsbnRanges(int parts) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamRange(String fromIsbn, String toIsbn, RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by the in-memory store.");
+    }
+}
@@ -0,0 +1,189 @@
+package loadtest;
+
+import model.Book;
+import model.IdempotencyKey;
+import model.Loan;
+import model.Partner;
+import model.StockMovement;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Tables of the in-memory store used by the load generator (no MySQL needed).
+ * Each DAO write is atomic on its own, like a single-row UPDATE with its WHERE guard. Writes made
+ * through a transaction's Connection are undone if the transaction rolls back: TransactionTemplate
+ * still borrows connections from DBConnection, so {@link #install()} registers a JDBC driver for
+ * {@link #URL} whose connections run no SQL and only commit or roll back the calling thread's undo log.
+ * Uncommitted writes are visible to other threads (the store has no isolation).
+ */
+public class InMemoryDatabase {
+
+    public static final String URL = "jdbc:novabook:memory";
+
+    final Map<String, Book> books = new ConcurrentHashMap<>();
+    final Map<Integer, Loan> loans = new ConcurrentHashMap<>();
+    final Map<Integer, Partner> partners = new ConcurrentHashMap<>();
+    final Map<String, IdempotencyKey> idempotencyKeys = new ConcurrentHashMap<>();
+    final Queue<StockMovement> stockMovements = new ConcurrentLinkedQueue<>();
+
+    final AtomicInteger loanIds = new AtomicInteger();
+    final AtomicInteger partnerIds = new AtomicInteger();
+    final AtomicLong movementIds = new AtomicLong();
+
+    // Undo actions of the transaction running on this thread (newest first)
+    private final ThreadLocal<Deque<Runnable>> undoLog = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Registers the driver for {@link #URL}. Set db.url to it (ConfigLoader honours -Ddb.url) before
+     * DBConnection is first used.
+     */
+    public void install() throws SQLException {
+        DriverManager.registerDriver(new MemoryDriver());
+    }
+
+    /**
+     * Records how to revert a write. Ignored outside a transaction (conn == null, auto-commit).
+     */
+    void onRollback(Connection conn, Runnable undo) throws SQLException {
+        if (conn != null && !conn.getAutoCommit()) {
+            undoLog.get().push(undo);
+        }
+    }
+
+    private void commit() {
+        undoLog.get().clear();
+    }
+
+    private void rollback() {
+        Deque<Runnable> undo = undoLog.get();
+        while (!undo.isEmpty()) {
+            undo.pop().run();
+        }
+    }
+
+    // Copies: callers may modify what they get, as they may with rows mapped from a ResultSet
+    static Book copy(Book book) {
+        if (book == null) {
+            return null;
+        }
+        Book copy = new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getCategory(), book.getReferencePrice(),
+                book.getTotalCopies(), book.getAvailableCopies(), book.isActive(), book.getCreatedAt());
+        copy.setContentHash(book.getContentHash());
+        return copy;
+    }
+
+    static Loan copy(Loan loan) {
+        if (loan == null) {
+            return null;
+        }
+        return new Loan(loan.getId(), loan.getBookIsbn(), loan.getPartnerId(), loan.getLoanDate(), loan.getDueDate(),
+                loan.getReturnDate(), loan.getFine(), loan.isReturned());
+    }
+
+    static Partner copy(Partner partner) {
+        if (partner == null) {
+            return null;
+        }
+        return new Partner(partner.getId(), partner.getName(), partner.getEmail(), partner.isActive(), partner.getCreatedAt());
+    }
+
+    // Connection state: auto-commit and closed; everything that would run SQL is refused
+    private Connection newConnection() {
+        boolean[] autoCommit = {true};
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(InMemoryDatabase.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "setAutoCommit":
+                            // JDBC: switching auto-commit on commits the open transaction
+                            if ((Boolean) args[0] && !autoCommit[0]) {
+                                commit();
+                            }
+                            autoCommit[0] = (Boolean) args[0];
+                            return null;
+                        case "commit":
+                            commit();
+                            return null;
+                        case "rollback":
+                            rollback();
+                            return null;
+                        case "close":
+                            if (!closed[0] && !autoCommit[0]) {
+                                rollback();
+                            }
+                            closed[0] = true;
+                            return null;
+                        case "isClosed":
+                            return closed[0];
+                        case "isValid":
+                            return !closed[0];
+                        case "isWrapperFor":
+                            return false;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "InMemoryConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                        default:
+                            throw new SQLFeatureNotSupportedException("The in-memory store runs no SQL (" + method.getName() + ").");
+                    }
+                });
+    }
+
+    private class MemoryDriver implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? newConnection() : null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
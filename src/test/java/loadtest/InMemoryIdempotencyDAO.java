@@ -0,0 +1,78 @@
+package loadtest;
+
+import dao.IIdempotencyDAO;
+import model.IdempotencyKey;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * IIdempotencyDAO over the in-memory store.
+ */
+public class InMemoryIdempotencyDAO implements IIdempotencyDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryIdempotencyDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public IdempotencyKey findActive(String key) {
+        IdempotencyKey stored = db.idempotencyKeys.get(key);
+        return stored != null && !isExpired(stored) ? stored : null;
+    }
+
+    @Override
+    public IdempotencyKey findActive(String key, Connection conn) {
+        return findActive(key);
+    }
+
+    @Override
+    public boolean insert(IdempotencyKey idempotencyKey, Connection conn) throws SQLException {
+        // An expired leftover of the same key does not block the insert
+        IdempotencyKey[] replaced = {null};
+        boolean[] inserted = {false};
+        db.idempotencyKeys.compute(idempotencyKey.getKey(), (key, stored) -> {
+            if (stored != null && !isExpired(stored)) {
+                return stored;
+            }
+            replaced[0] = stored;
+            inserted[0] = true;
+            return idempotencyKey;
+        });
+        if (inserted[0]) {
+            db.onRollback(conn, () -> {
+                if (replaced[0] != null) {
+                    db.idempotencyKeys.put(idempotencyKey.getKey(), replaced[0]);
+                } else {
+                    db.idempotencyKeys.remove(idempotencyKey.getKey(), idempotencyKey);
+                }
+            });
+        }
+        return inserted[0];
+    }
+
+    @Override
+    public boolean updateLoanId(String key, int loanId, Connection conn) throws SQLException {
+        IdempotencyKey stored = db.idempotencyKeys.get(key);
+        if (stored == null) {
+            return false;
+        }
+        int previous = stored.getLoanId();
+        stored.setLoanId(loanId);
+        db.onRollback(conn, () -> stored.setLoanId(previous));
+        return true;
+    }
+
+    @Override
+    public int deleteExpired() {
+        int before = db.idempotencyKeys.size();
+        db.idempotencyKeys.values().removeIf(InMemoryIdempotencyDAO::isExpired);
+        return before - db.idempotencyKeys.size();
+    }
+
+    private static boolean isExpired(IdempotencyKey key) {
+        return key.getExpiresAt().getTime() <= System.currentTimeMillis();
+    }
+}
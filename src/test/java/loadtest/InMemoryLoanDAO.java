@@ -0,0 +1,140 @@
+package loadtest;
+
+import dao.ILoanDAO;
+import model.Loan;
+import util.RowHandler;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * ILoanDAO over the in-memory store. Streaming exports are not supported.
+ */
+public class InMemoryLoanDAO implements ILoanDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryLoanDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public Loan insert(Loan loan, Connection conn) throws SQLException {
+        int id = db.loanIds.incrementAndGet();
+        loan.setId(id);
+        db.loans.put(id, new Loan(id, loan.getBookIsbn(), loan.getPartnerId(), new Timestamp(System.currentTimeMillis()),
+                loan.getDueDate(), null, BigDecimal.ZERO, false));
+        db.onRollback(conn, () -> db.loans.remove(id));
+        return loan;
+    }
+
+    @Override
+    public Loan findById(int id) {
+        return InMemoryDatabase.copy(db.loans.get(id));
+    }
+
+    @Override
+    public Loan findById(int id, Connection conn) {
+        return findById(id);
+    }
+
+    // Same guard as the SQL: only a loan that is not returned yet is updated
+    @Override
+    public boolean updateForReturn(Loan loan, Connection conn) throws SQLException {
+        Loan[] previous = {null};
+        db.loans.computeIfPresent(loan.getId(), (id, stored) -> {
+            if (stored.isReturned()) {
+                return stored;
+            }
+            previous[0] = stored;
+            Loan returned = InMemoryDatabase.copy(stored);
+            returned.setReturnDate(loan.getReturnDate());
+            returned.setFine(loan.getFine());
+            returned.setReturned(true);
+            return returned;
+        });
+        if (previous[0] == null) {
+            return false;
+        }
+        db.onRollback(conn, () -> db.loans.put(loan.getId(), previous[0]));
+        return true;
+    }
+
+    @Override
+    public List<Loan> findActiveLoans() {
+        return filter(loan -> !loan.isReturned());
+    }
+
+    @Override
+    public List<Loan> findOverdueLoans() {
+        Date today = Date.valueOf(LocalDate.now());
+        return filter(loan -> !loan.isReturned() && loan.getDueDate().before(today));
+    }
+
+    @Override
+    public long countOverdue() {
+        return findOverdueLoans().size();
+    }
+
+    @Override
+    public long countActive() {
+        return findActiveLoans().size();
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        return filter(loan -> true);
+    }
+
+    @Override
+    public int[] findIdBounds() {
+        if (db.loans.isEmpty()) {
+            return null;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int id : db.loans.keySet()) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        return new int[]{min, max};
+    }
+
+    private List<Loan> filter(Predicate<Loan> predicate) {
+        List<Loan> result = new ArrayList<>();
+        for (Loan loan : db.loans.values()) {
+            if (predicate.test(loan)) {
+                result.add(InMemoryDatabase.copy(loan));
+            }
+        }
+        return result;
+    }
+
+    // --- Not supported by the in-memory store ---
+
+    @Override
+    public long streamOverdueLoans(RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamRange(int fromId, int toId, RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by the in-memory store.");
+    }
+}
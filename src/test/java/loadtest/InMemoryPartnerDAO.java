@@ -0,0 +1,84 @@
+package loadtest;
+
+import dao.IPartnerDAO;
+import model.Partner;
+import util.RowHandler;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * IPartnerDAO over the in-memory store. Bulk imports and exports are not supported.
+ */
+public class InMemoryPartnerDAO implements IPartnerDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryPartnerDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public Partner insert(Partner partner) {
+        int id = db.partnerIds.incrementAndGet();
+        partner.setId(id);
+        db.partners.put(id, new Partner(id, partner.getName(), partner.getEmail(), true, new Timestamp(System.currentTimeMillis())));
+        return partner;
+    }
+
+    @Override
+    public Partner findById(int id) {
+        return InMemoryDatabase.copy(db.partners.get(id));
+    }
+
+    @Override
+    public List<Partner> findAll() {
+        List<Partner> result = new ArrayList<>();
+        for (Partner partner : db.partners.values()) {
+            result.add(InMemoryDatabase.copy(partner));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean update(Partner partner) {
+        return db.partners.computeIfPresent(partner.getId(), (id, stored) ->
+                new Partner(id, partner.getName(), partner.getEmail(), partner.isActive(), stored.getCreatedAt())) != null;
+    }
+
+    @Override
+    public boolean isActive(int id) {
+        Partner partner = db.partners.get(id);
+        return partner != null && partner.isActive();
+    }
+
+    // --- Not supported by the in-memory store ---
+
+    @Override
+    public long streamChangedSince(Timestamp from, Timestamp to, RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public long streamAll(RowHandler handler) {
+        throw unsupported();
+    }
+
+    @Override
+    public Set<String> findExistingEmailsForUpdate(Collection<String> emails, Connection conn) {
+        throw unsupported();
+    }
+
+    @Override
+    public void upsertByEmailBatch(List<Partner> partners, Connection conn) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Not supported by the in-memory store.");
+    }
+}
@@ -0,0 +1,68 @@
+package loadtest;
+
+import dao.IStockMovementDAO;
+import model.StockMovement;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * IStockMovementDAO over the in-memory store. The ledger keeps every movement (no snapshots), so
+ * availability is the sum of the deltas and compaction has nothing to do.
+ */
+public class InMemoryStockMovementDAO implements IStockMovementDAO {
+
+    private final InMemoryDatabase db;
+
+    public InMemoryStockMovementDAO(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public StockMovement append(StockMovement movement, Connection conn) throws SQLException {
+        movement.setId(db.movementIds.incrementAndGet());
+        movement.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        db.stockMovements.add(movement);
+        db.onRollback(conn, () -> db.stockMovements.remove(movement));
+        return movement;
+    }
+
+    @Override
+    public void appendBatch(List<StockMovement> movements, Connection conn) throws SQLException {
+        for (StockMovement movement : movements) {
+            append(movement, conn);
+        }
+    }
+
+    @Override
+    public List<StockMovement> findByIsbn(String isbn) {
+        List<StockMovement> result = new ArrayList<>();
+        for (StockMovement movement : db.stockMovements) {
+            if (movement.getBookIsbn().equals(isbn)) {
+                result.add(movement);
+            }
+        }
+        result.sort(Comparator.comparingLong(StockMovement::getId));
+        return result;
+    }
+
+    @Override
+    public int findAvailabilityAt(String isbn, Timestamp at) {
+        int available = 0;
+        for (StockMovement movement : db.stockMovements) {
+            if (movement.getBookIsbn().equals(isbn) && !movement.getCreatedAt().after(at)) {
+                available += movement.getDelta();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public int compactSnapshots(int settleSeconds) {
+        return 0;
+    }
+}
@@ -0,0 +1,485 @@
+package loadtest;
+
+import dao.BookDAOImpl;
+import dao.IBookDAO;
+import dao.IIdempotencyDAO;
+import dao.ILoanDAO;
+import dao.IPartnerDAO;
+import dao.IStockMovementDAO;
+import dao.IdempotencyDAOImpl;
+import dao.LoanDAOImpl;
+import dao.PartnerDAOImpl;
+import dao.StockMovementDAOImpl;
+import exception.BusinessException;
+import exception.InsufficientStockException;
+import exception.InvalidPartnerException;
+import model.Book;
+import model.Loan;
+import model.Partner;
+import service.IBookService;
+import service.ILoanService;
+import service.impl.BookServiceImpl;
+import service.impl.LoanServiceImpl;
+import util.ConfigLoader;
+import util.DBConnection;
+import util.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the loan workflow: N virtual-thread clients call LoanServiceImpl and
+ * BookServiceImpl with a configurable mix of loans, returns, ISBN lookups and overdue reports.
+ * Titles are picked with Zipf-distributed popularity, so the hot ones run out of stock and their
+ * rows are contended.
+ *
+ * Closed loop (rate=0): each client sends its next request as soon as the previous one answers.
+ * Open loop (rate=R): requests are due at R per second whatever the response times; latency is
+ * measured from the time a request was due, so a stalled system shows up as queueing delay instead
+ * of fewer samples (no coordinated omission).
+ *
+ * Reported: throughput and latency percentiles per operation, and invariant violations (negative or
+ * excess stock, stock that does not match the loans made, ledger disagreeing with the stock, a loan
+ * returned twice). A share of the returns re-submit a loan that is already returned or being
+ * returned by another client; those must be rejected. Exit status 1 if an invariant was violated.
+ *
+ * store=memory runs on in-memory DAOs (no database; uncommitted writes are visible to other
+ * threads, so it checks the service logic, not isolation). store=db runs against the database in
+ * config.properties, on titles LOAD-0000001.. and partners *@load.novabook.test it creates on first
+ * use; the stock checks assume nothing else changes those titles during the run. Any config
+ * property can be overridden with -Dkey=value (e.g. -Ddb.pool.size=64).
+ *
+ * Usage: LoadGenerator [store=memory|db] [clients=64] [seconds=30] [warmup=5] [rate=0]
+ *                      [mix=register:35,return:35,find:25,overdue:5] [books=1000] [copies=5]
+ *                      [partners=500] [zipf=1.0] [overduePercent=10] [doubleReturnPercent=2] [seed=42]
+ */
+public class LoadGenerator {
+
+    private static final String ISBN_PREFIX = "LOAD-";
+    private static final String PARTNER_EMAIL_DOMAIN = "@load.novabook.test";
+    private static final int RECENT_RETURNS = 1024;
+    private static final int MAX_REPORTED_VIOLATIONS = 20;
+
+    enum Operation { REGISTER, RETURN, FIND, OVERDUE }
+
+    // A loan made by the generator; returns counts the successful returns (more than 1 is a violation)
+    private static class IssuedLoan {
+        final int loanId;
+        final int book;
+        final AtomicInteger returns = new AtomicInteger();
+
+        IssuedLoan(int loanId, int book) {
+            this.loanId = loanId;
+            this.book = book;
+        }
+    }
+
+    private static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<String, String> options;
+    private final int clients;
+    private final long seconds;
+    private final long warmupSeconds;
+    private final double rate;
+    private final int books;
+    private final int copies;
+    private final int partners;
+    private final int overduePercent;
+    private final int doubleReturnPercent;
+    private final long seed;
+    private final Operation[] mixTable;
+    private final ZipfDistribution zipf;
+
+    private IBookDAO bookDAO;
+    private IStockMovementDAO stockMovementDAO;
+    private IBookService bookService;
+    private ILoanService loanService;
+    private int[] partnerIds;
+    private int[] startAvailable;
+
+    // Workload state shared by the clients
+    private final Queue<IssuedLoan> outstanding = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<IssuedLoan> recentReturns = new AtomicReferenceArray<>(RECENT_RETURNS);
+    private final AtomicLong recentCursor = new AtomicLong();
+    private AtomicIntegerArray loansOut;
+    private final Map<Operation, OperationStats> stats = new HashMap<>();
+    private final Map<String, LongAdder> errorSamples = new ConcurrentHashMap<>();
+    private final Queue<String> violations = new ConcurrentLinkedQueue<>();
+    private final LongAdder duplicateReturns = new LongAdder();
+    private final LongAccumulator maxLagNanos = new LongAccumulator(Math::max, 0);
+
+    public static void main(String[] args) throws Exception {
+        int exitStatus = new LoadGenerator(parseOptions(args)).run();
+        System.exit(exitStatus);
+    }
+
+    // key=value arguments (a leading "--" is accepted)
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got '" + arg + "'");
+            }
+            options.put(pair[0], pair[1]);
+        }
+        return options;
+    }
+
+    LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.clients = intOption("clients", 64);
+        this.seconds = intOption("seconds", 30);
+        this.warmupSeconds = intOption("warmup", 5);
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        this.books = intOption("books", 1000);
+        this.copies = intOption("copies", 5);
+        this.partners = intOption("partners", 500);
+        this.overduePercent = intOption("overduePercent", 10);
+        this.doubleReturnPercent = intOption("doubleReturnPercent", 2);
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        this.mixTable = parseMix(options.getOrDefault("mix", "register:35,return:35,find:25,overdue:5"));
+        this.zipf = new ZipfDistribution(books, Double.parseDouble(options.getOrDefault("zipf", "1.0")));
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    private int intOption(String key, int defaultValue) {
+        return Integer.parseInt(options.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    // "register:35,return:35,..." -> 100-slot table (weights are relative, they need not add up to 100)
+    private static Operation[] parseMix(String mix) {
+        Map<Operation, Integer> weights = new HashMap<>();
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split(":");
+            int weight = Integer.parseInt(pair[1]);
+            weights.merge(Operation.valueOf(pair[0].toUpperCase()), weight, Integer::sum);
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+        List<Operation> table = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            long slots = Math.round(weights.getOrDefault(operation, 0) * 100.0 / total);
+            for (long i = 0; i < slots; i++) {
+                table.add(operation);
+            }
+        }
+        return table.toArray(new Operation[0]);
+    }
+
+    int run() throws Exception {
+        String store = options.getOrDefault("store", "memory");
+        try {
+            wire(store);
+            prepare();
+            System.out.printf("store=%s clients=%d seconds=%d warmup=%d %s books=%d copies=%d partners=%d " +
+                            "zipf=%s (top 1%% of titles get %.0f%% of the picks) pool=%s%n",
+                    store, clients, seconds, warmupSeconds, rate > 0 ? "open loop at " + rate + " ops/s" : "closed loop",
+                    books, copies, partners, options.getOrDefault("zipf", "1.0"),
+                    100 * zipf.topShare(Math.max(1, books / 100)), ConfigLoader.getProperty("db.pool.size", "10"));
+
+            long measuredNanos = drive();
+            checkStock();
+            report(measuredNanos);
+        } finally {
+            DBConnection.shutdown();
+        }
+        return violations.isEmpty() ? 0 : 1;
+    }
+
+    private void wire(String store) throws Exception {
+        ILoanDAO loanDAO;
+        IPartnerDAO partnerDAO;
+        IIdempotencyDAO idempotencyDAO;
+        if (store.equals("memory")) {
+            InMemoryDatabase db = new InMemoryDatabase();
+            System.setProperty("db.url", InMemoryDatabase.URL);
+            db.install();
+            bookDAO = new InMemoryBookDAO(db);
+            loanDAO = new InMemoryLoanDAO(db);
+            partnerDAO = new InMemoryPartnerDAO(db);
+            stockMovementDAO = new InMemoryStockMovementDAO(db);
+            idempotencyDAO = new InMemoryIdempotencyDAO(db);
+        } else if (store.equals("db")) {
+            bookDAO = new BookDAOImpl();
+            loanDAO = new LoanDAOImpl();
+            partnerDAO = new PartnerDAOImpl();
+            stockMovementDAO = new StockMovementDAOImpl();
+            idempotencyDAO = new IdempotencyDAOImpl();
+        } else {
+            throw new IllegalArgumentException("store must be memory or db");
+        }
+        bookService = new BookServiceImpl(bookDAO, stockMovementDAO);
+        loanService = new LoanServiceImpl(loanDAO, bookDAO, partnerDAO, stockMovementDAO, idempotencyDAO);
+        partnerIds = preparePartners(partnerDAO);
+    }
+
+    // Titles (registered through the service, so the ledger gets their opening balance) and baseline stock
+    private void prepare() throws Exception {
+        startAvailable = new int[books];
+        loansOut = new AtomicIntegerArray(books);
+        for (int i = 0; i < books; i++) {
+            Book book = bookService.findByIsbn(isbn(i));
+            if (book == null) {
+                book = bookService.register(new Book(isbn(i), "Load Test Title " + i, "Author " + (i % 97),
+                        "Category " + (i % 13), new BigDecimal("10.00"), copies, copies, true, null));
+            }
+            startAvailable[i] = book.getAvailableCopies();
+        }
+    }
+
+    private int[] preparePartners(IPartnerDAO partnerDAO) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (Partner partner : partnerDAO.findAll()) {
+            if (partner.isActive() && partner.getEmail().endsWith(PARTNER_EMAIL_DOMAIN) && ids.size() < partners) {
+                ids.add(partner.getId());
+            }
+        }
+        for (int i = ids.size(); i < partners; i++) {
+            Partner partner = partnerDAO.insert(new Partner(0, "Load Partner " + i,
+                    "partner" + i + "-" + System.nanoTime() + PARTNER_EMAIL_DOMAIN, true, null));
+            ids.add(partner.getId());
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String isbn(int book) {
+        return String.format("%s%07d", ISBN_PREFIX, book + 1);
+    }
+
+    /**
+     * Runs the clients for warmup + seconds.
+     * @return Length of the measured interval in nanoseconds
+     */
+    private long drive() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        long intervalNanos = rate > 0 ? (long) (1e9 / rate) : 0;
+        AtomicLong tickets = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            SplittableRandom random = new SplittableRandom(seed + c);
+            threads.add(Thread.ofVirtual().name("load-client-" + c).start(() -> {
+                while (true) {
+                    long due;
+                    if (intervalNanos > 0) {
+                        // Open loop: take the next arrival slot and wait for it
+                        due = start + tickets.getAndIncrement() * intervalNanos;
+                        if (due >= end) {
+                            return;
+                        }
+                        long wait;
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        maxLagNanos.accumulate(System.nanoTime() - due);
+                    } else {
+                        due = System.nanoTime();
+                        if (due >= end) {
+                            return;
+                        }
+                    }
+                    Operation operation = mixTable[random.nextInt(mixTable.length)];
+                    execute(operation, random, due >= measureFrom, due);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return end - measureFrom;
+    }
+
+    private void execute(Operation operation, SplittableRandom random, boolean measured, long due) {
+        IssuedLoan toReturn = null;
+        if (operation == Operation.RETURN) {
+            toReturn = pickLoanToReturn(random);
+            if (toReturn == null) {
+                operation = Operation.REGISTER;   // nothing on loan yet: keep the system busy with a loan
+            }
+        }
+        OperationStats operationStats = stats.get(operation);
+        try {
+            switch (operation) {
+                case REGISTER:
+                    register(random);
+                    break;
+                case RETURN:
+                    processReturn(toReturn);
+                    break;
+                case FIND:
+                    find(random);
+                    break;
+                case OVERDUE:
+                    loanService.findOverdueLoans();
+                    break;
+            }
+            if (measured) {
+                operationStats.ok.increment();
+            }
+        } catch (BusinessException | InsufficientStockException | InvalidPartnerException e) {
+            if (measured) {
+                operationStats.rejected.increment();
+            }
+        } catch (Exception e) {
+            if (measured) {
+                operationStats.errors.increment();
+            }
+            errorSamples.computeIfAbsent(operation + ": " + e, k -> new LongAdder()).increment();
+        } finally {
+            if (measured) {
+                operationStats.latency.record(System.nanoTime() - due);
+            }
+        }
+    }
+
+    private void register(SplittableRandom random) throws Exception {
+        int book = zipf.sample(random);
+        LocalDate today = LocalDate.now();
+        LocalDate dueDate = random.nextInt(100) < overduePercent
+                ? today.minusDays(1 + random.nextInt(30))
+                : today.plusDays(ConfigLoader.getIntProperty("loan.days", 7));
+
+        Loan loan = new Loan();
+        loan.setBookIsbn(isbn(book));
+        loan.setPartnerId(partnerIds[random.nextInt(partnerIds.length)]);
+        loan.setDueDate(Date.valueOf(dueDate));
+        Loan registered = loanService.registerLoan(loan);
+
+        loansOut.incrementAndGet(book);
+        outstanding.add(new IssuedLoan(registered.getId(), book));
+    }
+
+    // A loan on loan (oldest first) or, for doubleReturnPercent of the returns, one returned recently
+    private IssuedLoan pickLoanToReturn(SplittableRandom random) {
+        if (random.nextInt(100) < doubleReturnPercent) {
+            IssuedLoan recent = recentReturns.get(random.nextInt(RECENT_RETURNS));
+            if (recent != null) {
+                duplicateReturns.increment();
+                return recent;
+            }
+        }
+        IssuedLoan loan = outstanding.poll();
+        if (loan != null) {
+            // Published before it is returned, so a duplicate may race the original
+            recentReturns.set((int) (recentCursor.getAndIncrement() % RECENT_RETURNS), loan);
+        }
+        return loan;
+    }
+
+    private void processReturn(IssuedLoan loan) throws Exception {
+        loanService.processReturn(loan.loanId, Date.valueOf(LocalDate.now()));
+        loansOut.decrementAndGet(loan.book);
+        if (loan.returns.incrementAndGet() > 1) {
+            violation("Loan " + loan.loanId + " (" + isbn(loan.book) + ") returned " + loan.returns.get() + " times");
+        }
+    }
+
+    private void find(SplittableRandom random) throws Exception {
+        String isbn = isbn(zipf.sample(random));
+        Book book = bookService.findByIsbn(isbn);
+        if (book == null) {
+            violation(isbn + " not found");
+        } else if (book.getAvailableCopies() < 0 || book.getAvailableCopies() > book.getTotalCopies()) {
+            violation(isbn + " read with " + book.getAvailableCopies() + " of " + book.getTotalCopies() + " copies available");
+        }
+    }
+
+    // After the run: stock within bounds, equal to the baseline minus the loans still out, and equal to the ledger
+    private void checkStock() throws Exception {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < books; i++) {
+            Book book = bookDAO.findByIsbn(isbn(i));
+            int available = book.getAvailableCopies();
+            if (available < 0) {
+                violation(book.getIsbn() + " has negative stock: " + available);
+            } else if (available > book.getTotalCopies()) {
+                violation(book.getIsbn() + " has " + available + " copies available of " + book.getTotalCopies());
+            }
+            int expected = startAvailable[i] - loansOut.get(i);
+            if (available != expected) {
+                violation(book.getIsbn() + " stock is " + available + ", expected " + expected
+                        + " (" + startAvailable[i] + " before the run, " + loansOut.get(i) + " still on loan)");
+            }
+            int ledger = stockMovementDAO.findAvailabilityAt(book.getIsbn(), now);
+            if (ledger != available) {
+                violation(book.getIsbn() + " stock is " + available + " but the ledger says " + ledger);
+            }
+        }
+    }
+
+    private void violation(String message) {
+        violations.add(message);
+    }
+
+    private void report(long measuredNanos) {
+        double measuredSeconds = measuredNanos / 1e9;
+        long total = 0;
+        System.out.println();
+        System.out.printf("%-10s %10s %10s %8s %10s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "ok", "rejected", "errors", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            LatencyHistogram.Snapshot latency = operationStats.latency.snapshot();
+            total += latency.getCount();
+            System.out.printf("%-10s %,10d %,10d %,8d %,10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(), operationStats.ok.sum(), operationStats.rejected.sum(),
+                    operationStats.errors.sum(), latency.getCount() / measuredSeconds, latency.getMeanNanos() / 1e6,
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(90) / 1e6,
+                    latency.getValueAtPercentile(99) / 1e6, latency.getValueAtPercentile(99.9) / 1e6,
+                    latency.getMaxNanos() / 1e6);
+        }
+        System.out.printf("total      %,.0f ops/s over %.0f s", total / measuredSeconds, measuredSeconds);
+        if (rate > 0) {
+            System.out.printf(" (target %,.0f ops/s, max start lag %.1f ms)", rate, maxLagNanos.get() / 1e6);
+        }
+        System.out.printf("%nduplicate returns sent: %,d, loans still out: %,d%n", duplicateReturns.sum(), outstanding.size());
+
+        if (!errorSamples.isEmpty()) {
+            System.out.println();
+            System.out.println("Errors:");
+            errorSamples.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(10)
+                    .forEach(e -> System.out.printf("  %,8d  %s%n", e.getValue().sum(), e.getKey()));
+        }
+
+        System.out.println();
+        if (violations.isEmpty()) {
+            System.out.println("Invariants: OK");
+        } else {
+            System.out.println("Invariant violations: " + violations.size());
+            violations.stream().limit(MAX_REPORTED_VIOLATIONS).forEach(v -> System.out.println("  " + v));
+        }
+    }
+}
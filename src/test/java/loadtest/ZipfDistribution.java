@@ -0,0 +1,40 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed ranks over [0, n): rank k is drawn with probability proportional to 1 / (k+1)^s,
+ * so a few titles get most of the traffic (s = 0 is uniform, s around 1 is typical of catalogs).
+ * The cumulative distribution is computed once (with StrictMath, so the same on every JVM); a draw is a
+ * binary search.
+ */
+public class ZipfDistribution {
+
+    private final double[] cdf;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be at least 1");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / StrictMath.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+
+    // Share of the draws that fall on the top ranks (for the report)
+    public double topShare(int ranks) {
+        return cdf[Math.min(ranks, cdf.length) - 1];
+    }
+}
@@ -0,0 +1,100 @@
+package service.impl;
+
+import loadtest.InMemoryBookDAO;
+import loadtest.InMemoryStockMovementDAO;
+import model.Book;
+import model.ImportResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.RowHandler;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookServiceImplTest {
+
+    private static final String HEADER = "ISBN,Title,Author,Category,Total Copies,Available Copies,Reference Price,Active\n";
+
+    @TempDir
+    Path dir;
+
+    private InMemoryBookDAO bookDAO;
+    private BookServiceImpl bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookDAO = new InMemoryBookDAO(TestDatabase.DB) {
+            // Deactivation of titles missing from the feed is not under test: no active titles are reported
+            @Override
+            public long streamActiveIsbns(RowHandler handler) {
+                return 0;
+            }
+        };
+        bookService = new BookServiceImpl(bookDAO, new InMemoryStockMovementDAO(TestDatabase.DB));
+    }
+
+    @Test
+    void syncUpdatesTitlesWithMoreCopiesOnLoanThanOnTheShelf() throws Exception {
+        String isbn = newBookWithLoans(3, 2);
+
+        ImportResult renamed = sync(isbn + ",New Title,Author,Test,3,3,10.00,ACTIVE\n");
+        assertEquals(1, renamed.getUpdated());
+        assertEquals(0, renamed.getRejected());
+        assertBook(isbn, "New Title", 3, 1);
+
+        ImportResult grown = sync(isbn + ",New Title,Author,Test,5,0,10.00,ACTIVE\n"); // Available column is ignored
+        assertEquals(1, grown.getUpdated());
+        assertBook(isbn, "New Title", 5, 3);
+    }
+
+    @Test
+    void syncRejectsTotalBelowCopiesOnLoan() throws Exception {
+        String isbn = newBookWithLoans(3, 2);
+
+        ImportResult result = sync(isbn + ",New Title,Author,Test,1,1,10.00,ACTIVE\n");
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getRejected());
+        assertTrue(Files.readString(Path.of(result.getRejectedFile())).contains("Cannot reduce total copies below 2"));
+        assertBook(isbn, "Test Title", 3, 1);
+    }
+
+    @Test
+    void importStillRequiresAvailableCopiesToCoverLoans() throws Exception {
+        String isbn = newBookWithLoans(3, 2);
+
+        ImportResult result = bookService.importBooks(csv(isbn + ",New Title,Author,Test,3,1,10.00,ACTIVE\n"),
+                dir.resolve("rejected.csv").toString(), null);
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getRejected());
+        assertBook(isbn, "Test Title", 3, 1);
+    }
+
+    private String newBookWithLoans(int copies, int loaned) throws SQLException {
+        String isbn = "TEST-" + System.nanoTime();
+        bookDAO.insert(new Book(isbn, "Test Title", "Author", "Test", BigDecimal.TEN, copies, copies, true, null));
+        assertTrue(bookDAO.updateStock(isbn, -loaned, null));
+        return isbn;
+    }
+
+    private ImportResult sync(String rows) throws Exception {
+        return bookService.syncCatalog(csv(rows), dir.resolve("rejected.csv").toString(), null);
+    }
+
+    private String csv(String rows) throws Exception {
+        Path file = Files.createTempFile(dir, "books", ".csv");
+        Files.writeString(file, HEADER + rows);
+        return file.toString();
+    }
+
+    private void assertBook(String isbn, String title, int total, int available) {
+        Book book = bookDAO.findByIsbn(isbn);
+        assertEquals(title, book.getTitle());
+        assertEquals(total, book.getTotalCopies());
+        assertEquals(available, book.getAvailableCopies());
+    }
+}
@@ -0,0 +1,242 @@
+package service.impl;
+
+import loadtest.InMemoryBookDAO;
+import loadtest.InMemoryDatabase;
+import loadtest.InMemoryIdempotencyDAO;
+import loadtest.InMemoryLoanDAO;
+import loadtest.InMemoryPartnerDAO;
+import loadtest.InMemoryStockMovementDAO;
+import model.Book;
+import model.IdempotencyKey;
+import model.Loan;
+import model.Partner;
+import model.StockMovement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrent retries of one request (same idempotency key) on the in-memory store: the retry starts
+ * while the original is paused inside its transaction, and must answer with the original's result.
+ * Runs with db.url pointing at the in-memory driver (set for the test JVM in the pom).
+ */
+class LoanServiceImplTest {
+
+    private static final InMemoryDatabase DB = TestDatabase.DB;
+
+    private PausingBookDAO bookDAO;
+    private PausingLoanDAO loanDAO;
+    private InMemoryStockMovementDAO stockMovementDAO;
+    private IsolatedIdempotencyDAO idempotencyDAO;
+    private LoanServiceImpl loanService;
+    private int partnerId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        bookDAO = new PausingBookDAO(DB);
+        loanDAO = new PausingLoanDAO(DB);
+        stockMovementDAO = new InMemoryStockMovementDAO(DB);
+        idempotencyDAO = new IsolatedIdempotencyDAO(DB);
+        InMemoryPartnerDAO partnerDAO = new InMemoryPartnerDAO(DB);
+        loanService = new LoanServiceImpl(loanDAO, bookDAO, partnerDAO, stockMovementDAO, idempotencyDAO);
+        partnerId = partnerDAO.insert(new Partner(0, "Test Partner", "partner-" + System.nanoTime() + "@test", true, null)).getId();
+    }
+
+    @Test
+    void retryOfRegistrationForTheLastCopyGetsTheOriginalLoan() throws Exception {
+        String isbn = newBook(1);
+        String key = "register-" + System.nanoTime();
+
+        List<Loan> loans = race(bookDAO.pause, () -> loanService.registerLoan(newLoan(isbn), key),
+                () -> loanService.registerLoan(newLoan(isbn), key));
+
+        assertEquals(loans.get(0).getId(), loans.get(1).getId());
+        assertEquals(0, bookDAO.findByIsbn(isbn).getAvailableCopies());
+        assertEquals(1, loanDAO.findAll().stream().filter(loan -> loan.getBookIsbn().equals(isbn)).count());
+        assertEquals(1, movements(isbn, "LOAN"));
+    }
+
+    @Test
+    void retryOfReturnGetsTheOriginalResult() throws Exception {
+        String isbn = newBook(1);
+        Loan loan = loanService.registerLoan(newLoan(isbn));
+        String key = "return-" + System.nanoTime();
+        Date today = Date.valueOf(LocalDate.now());
+
+        List<Boolean> results = race(loanDAO.pause, () -> loanService.processReturn(loan.getId(), today, key),
+                () -> loanService.processReturn(loan.getId(), today, key));
+
+        assertEquals(List.of(true, true), results);
+        assertTrue(loanDAO.findById(loan.getId()).isReturned());
+        assertEquals(1, bookDAO.findByIsbn(isbn).getAvailableCopies());
+        assertEquals(1, movements(isbn, "RETURN"));
+    }
+
+    @Test
+    void keyOfAReturnCannotReturnAnotherLoan() throws Exception {
+        String isbn = newBook(2);
+        Loan first = loanService.registerLoan(newLoan(isbn));
+        Loan second = loanService.registerLoan(newLoan(isbn));
+        String key = "return-" + System.nanoTime();
+        Date today = Date.valueOf(LocalDate.now());
+
+        assertTrue(loanService.processReturn(first.getId(), today, key));
+        assertTrue(loanService.processReturn(first.getId(), today, key)); // Replay
+        assertThrows(exception.BusinessException.class, () -> loanService.processReturn(second.getId(), today, key));
+        assertFalse(loanDAO.findById(second.getId()).isReturned());
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Runs the original until it reaches the pause point inside its transaction, then starts the retry.
+     * Until the original commits, its key is invisible to the retry's reads and the retry's insert of the
+     * same key waits for it, as with InnoDB (READ COMMITTED reads, unique index lock on insert).
+     * @return The results of the original and of the retry
+     */
+    private <T> List<T> race(Pause pause, Call<T> original, Call<T> retry) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch committed = new CountDownLatch(1);
+        try {
+            pause.arm();
+            Future<T> first = executor.submit(() -> {
+                try {
+                    return original.run();
+                } finally {
+                    idempotencyDAO.original = null;
+                    committed.countDown();
+                }
+            });
+            assertTrue(pause.reached.await(5, TimeUnit.SECONDS), "original never reached the pause point");
+
+            idempotencyDAO.original = () -> {
+                pause.release.countDown();
+                awaitQuietly(committed);
+            };
+            T second;
+            try {
+                second = executor.submit(retry::run).get(5, TimeUnit.SECONDS);
+            } finally {
+                pause.release.countDown();
+            }
+            T result = first.get(5, TimeUnit.SECONDS);
+            return List.of(result, second);
+        } finally {
+            idempotencyDAO.original = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String newBook(int copies) throws SQLException {
+        String isbn = "TEST-" + System.nanoTime();
+        bookDAO.insert(new Book(isbn, "Test Title", "Test Author", "Test", BigDecimal.TEN, copies, copies, true, null));
+        return isbn;
+    }
+
+    private Loan newLoan(String isbn) {
+        LocalDate today = LocalDate.now();
+        return new Loan(0, isbn, partnerId, null, Date.valueOf(today.plusDays(14)), null, null, false);
+    }
+
+    private long movements(String isbn, String reason) throws SQLException {
+        List<StockMovement> movements = stockMovementDAO.findByIsbn(isbn);
+        return movements.stream().filter(movement -> movement.getReason().equals(reason)).count();
+    }
+
+    // Holds the first thread that reaches it until released
+    private static final class Pause {
+        private final AtomicBoolean armed = new AtomicBoolean();
+        private CountDownLatch reached = new CountDownLatch(1);
+        private CountDownLatch release = new CountDownLatch(1);
+
+        void arm() {
+            reached = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            armed.set(true);
+        }
+
+        void here() {
+            if (armed.compareAndSet(true, false)) {
+                reached.countDown();
+                awaitQuietly(release);
+            }
+        }
+    }
+
+    private static final class PausingBookDAO extends InMemoryBookDAO {
+        final Pause pause = new Pause();
+
+        PausingBookDAO(InMemoryDatabase db) {
+            super(db);
+        }
+
+        @Override
+        public boolean updateStock(String isbn, int change, Connection conn) throws SQLException {
+            pause.here();
+            return super.updateStock(isbn, change, conn);
+        }
+    }
+
+    private static final class PausingLoanDAO extends InMemoryLoanDAO {
+        final Pause pause = new Pause();
+
+        PausingLoanDAO(InMemoryDatabase db) {
+            super(db);
+        }
+
+        @Override
+        public boolean updateForReturn(Loan loan, Connection conn) throws SQLException {
+            pause.here();
+            return super.updateForReturn(loan, conn);
+        }
+    }
+
+    // Emulates isolation for the original's open transaction (the in-memory store has none)
+    private static final class IsolatedIdempotencyDAO extends InMemoryIdempotencyDAO {
+        // While the original's transaction is open: lets it go on and waits for its commit
+        volatile Runnable original;
+
+        IsolatedIdempotencyDAO(InMemoryDatabase db) {
+            super(db);
+        }
+
+        @Override
+        public IdempotencyKey findActive(String key) {
+            return original != null ? null : super.findActive(key);
+        }
+
+        @Override
+        public boolean insert(IdempotencyKey idempotencyKey, Connection conn) throws SQLException {
+            Runnable waitForOriginal = original;
+            if (waitForOriginal != null) {
+                waitForOriginal.run();
+            }
+            return super.insert(idempotencyKey, conn);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package service.impl;
+
+import loadtest.InMemoryDatabase;
+
+import java.sql.SQLException;
+
+/**
+ * The in-memory store shared by the service tests. Connections come from the one driver registered
+ * per JVM (db.url is set for the test JVM in the pom), so every test class must use the same store.
+ */
+final class TestDatabase {
+
+    static final InMemoryDatabase DB = install();
+
+    // Prevents instantiation
+    private TestDatabase() {}
+
+    private static InMemoryDatabase install() {
+        InMemoryDatabase db = new InMemoryDatabase();
+        try {
+            db.install();
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        return db;
+    }
+}
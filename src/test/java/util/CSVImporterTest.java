@@ -0,0 +1,132 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CSVImporterTest {
+
+    private static final String[] HEADER = {"ISBN", "Title", "Stock"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedFieldsSurviveEveryChunkBoundary() throws Exception {
+        String csv = "ISBN,Title,Stock\n"
+                + "1,\"Two\nlines, and a comma\",3\n"
+                + "2,\"He said \"\"hi\"\"\",4\n"
+                + "\n"
+                + "3,\"\"\"\n\"\"\",5\n"
+                + "4,Plain,6\n";
+        Path file = write(csv);
+
+        for (int chunkSize = 1; chunkSize <= csv.length(); chunkSize++) {
+            List<CSVImporter.CSVRecord> records = read(file, chunkSize);
+            String at = "chunk size " + chunkSize;
+            assertEquals(4, records.size(), at);
+            assertRecord(records.get(0), 2, at, "1", "Two\nlines, and a comma", "3");
+            assertRecord(records.get(1), 4, at, "2", "He said \"hi\"", "4");
+            assertRecord(records.get(2), 6, at, "3", "\"\n\"", "5");
+            assertRecord(records.get(3), 8, at, "4", "Plain", "6");
+            assertEquals("2,\"He said \"\"hi\"\"\",4", records.get(1).getRawText(), at);
+        }
+    }
+
+    @Test
+    void crlfLineBreaksAreNotPartOfTheFields() throws Exception {
+        String csv = "ISBN,Title,Stock\r\n1,\"A\r\nB\",3\r\n2,C,4\r\n";
+        Path file = write(csv);
+
+        for (int chunkSize = 1; chunkSize <= csv.length(); chunkSize++) {
+            List<CSVImporter.CSVRecord> records = read(file, chunkSize);
+            String at = "chunk size " + chunkSize;
+            assertEquals(2, records.size(), at);
+            assertRecord(records.get(0), 2, at, "1", "A\r\nB", "3");
+            assertRecord(records.get(1), 4, at, "2", "C", "4");
+            assertEquals("2,C,4", records.get(1).getRawText(), at);
+        }
+    }
+
+    @Test
+    void lastLineWithoutLineBreakIsRead() throws Exception {
+        String csv = "ISBN,Title,Stock\n1,A,3\n2,\"B\nC\",4";
+        Path file = write(csv);
+
+        for (int chunkSize = 1; chunkSize <= csv.length(); chunkSize++) {
+            List<CSVImporter.CSVRecord> records = read(file, chunkSize);
+            String at = "chunk size " + chunkSize;
+            assertEquals(2, records.size(), at);
+            assertRecord(records.get(1), 3, at, "2", "B\nC", "4");
+            assertEquals("2,\"B\nC\",4", records.get(1).getRawText(), at);
+        }
+    }
+
+    @Test
+    void headerWithByteOrderMarkAndSpacesIsAccepted() throws Exception {
+        Path file = write("\uFEFFISBN, Title ,Stock\n1,A,3\n");
+        assertEquals(1, read(file, 1 << 20).size());
+    }
+
+    @Test
+    void unexpectedHeaderFailsTheFile() throws Exception {
+        Path file = write("ISBN,Name,Stock\n1,A,3\n");
+        assertThrows(IOException.class, () -> read(file, 1 << 20));
+    }
+
+    @Test
+    void emptyFileFails() throws Exception {
+        Path file = write("");
+        assertThrows(IOException.class, () -> read(file, 1 << 20));
+    }
+
+    @Test
+    void rejectedFileIsCompleteAfterFlush() throws Exception {
+        Path file = write("ISBN,Title,Stock\n1,\"A, B\",x\n");
+        Path errors = dir.resolve("books_rejected.csv");
+        CSVImporter.CSVRecord record = read(file, 1 << 20).get(0);
+
+        try (CSVImporter.RejectedRowWriter rejected = CSVImporter.openRejectedRows(errors.toString())) {
+            assertNull(rejected.getFilePath());
+            rejected.reject(record, "Invalid stock");
+            rejected.flush();
+            assertEquals(errors.toString(), rejected.getFilePath());
+            assertEquals(1, rejected.getRows());
+            assertEquals(CSVImporter.REJECTED_HEADER + "2,Invalid stock,\"1,\"\"A, B\"\",x\"\n",
+                    Files.readString(errors));
+        }
+    }
+
+    @Test
+    void rejectedFilePathDropsTheInputExtension() {
+        assertEquals("in/books_rejected.csv", CSVImporter.rejectedFilePath("in/books.csv"));
+        assertEquals("in/books_rejected.csv", CSVImporter.rejectedFilePath("in/books.csv.gz"));
+        assertEquals("in/books_rejected.csv", CSVImporter.rejectedFilePath("in/books.jsonl.gz"));
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(dir.resolve("books.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<CSVImporter.CSVRecord> read(Path file, int chunkSize) throws Exception {
+        List<CSVImporter.CSVRecord> records = new ArrayList<>();
+        long count = CSVImporter.read(file.toString(), HEADER, (chunk, bytesRead, totalBytes) -> records.addAll(chunk),
+                chunkSize);
+        assertEquals(records.size(), count);
+        return records;
+    }
+
+    private static void assertRecord(CSVImporter.CSVRecord record, long line, String at, String... fields) {
+        assertEquals(line, record.getLineNumber(), at);
+        assertArrayEquals(fields, record.getFields(), at);
+        assertNull(record.getError(), at);
+    }
+}
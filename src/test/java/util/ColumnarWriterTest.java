@@ -0,0 +1,271 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarWriterTest {
+
+    private static final int ROWS = 100_000;
+    private static final String[] CATEGORIES = {"Fiction", "Science", "History", "Poetry", "Ciencia ficci\u00f3n"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyColumnTypeRoundTrips() throws Exception {
+        Path file = dir.resolve("all.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            ColumnarWriter.IntColumn ints = writer.intColumn("int");
+            ColumnarWriter.DateColumn dates = writer.dateColumn("date");
+            ColumnarWriter.DecimalColumn decimals = writer.decimalColumn("decimal", 2);
+            ColumnarWriter.BooleanColumn booleans = writer.booleanColumn("boolean");
+            ColumnarWriter.StringColumn strings = writer.stringColumn("string");
+            ColumnarWriter.DictionaryColumn dictionary = writer.dictionaryColumn("dictionary");
+            for (int row = 0; row < ROWS; row++) {
+                ints.add(intAt(row));
+                dates.add(dateAt(row));
+                decimals.add(decimalAt(row));
+                booleans.add(row % 3 == 0);
+                strings.add(stringAt(row));
+                dictionary.add(categoryAt(row));
+            }
+            assertEquals(ROWS, writer.getRowCount());
+            writer.finish();
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            assertEquals(ROWS, reader.getRowCount());
+            assertEquals(List.of("int", "date", "decimal", "boolean", "string", "dictionary"), reader.getColumnNames());
+            assertEquals(ColumnarWriter.ColumnType.DICTIONARY, reader.getColumnType("dictionary"));
+
+            ColumnarReader.IntVector ints = reader.intColumn("int");
+            ColumnarReader.DateVector dates = reader.dateColumn("date");
+            ColumnarReader.DecimalVector decimals = reader.decimalColumn("decimal");
+            ColumnarReader.BooleanVector booleans = reader.booleanColumn("boolean");
+            ColumnarReader.StringVector strings = reader.stringColumn("string");
+            ColumnarReader.DictionaryVector dictionary = reader.dictionaryColumn("dictionary");
+            assertEquals(2, decimals.getScale());
+            assertEquals(Set.of(CATEGORIES), Set.of(dictionary.getDictionary())); // Each distinct value once
+            for (int row = 0; row < ROWS; row++) {
+                String at = "row " + row;
+                assertEquals(intAt(row), ints.get(row), at);
+                assertEquals(dateAt(row), dates.get(row), at);
+                assertEquals(dateAt(row) == null, dates.isNull(row), at);
+                BigDecimal decimal = decimalAt(row);
+                assertEquals(decimal == null ? null : decimal.setScale(2, RoundingMode.HALF_UP), decimals.get(row), at);
+                assertEquals(row % 3 == 0, booleans.get(row), at);
+                String string = stringAt(row);
+                assertEquals(string == null ? "" : string, strings.get(row), at); // Null is stored as ""
+                assertEquals(categoryAt(row), dictionary.get(row), at);
+            }
+        }
+    }
+
+    @Test
+    void snapshotWithoutRowsKeepsItsColumns() throws Exception {
+        Path file = dir.resolve("empty.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            writer.intColumn("int");
+            writer.dateColumn("date");
+            writer.decimalColumn("decimal", 3);
+            writer.booleanColumn("boolean");
+            writer.stringColumn("string");
+            writer.dictionaryColumn("dictionary");
+            writer.finish();
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            assertEquals(0, reader.getRowCount());
+            assertEquals(List.of("int", "date", "decimal", "boolean", "string", "dictionary"), reader.getColumnNames());
+            reader.intColumn("int");
+            reader.dateColumn("date");
+            assertEquals(3, reader.decimalColumn("decimal").getScale());
+            reader.booleanColumn("boolean");
+            reader.stringColumn("string");
+            assertEquals(0, reader.dictionaryColumn("dictionary").getDictionary().length);
+        }
+    }
+
+    @Test
+    void snapshotWithoutColumnsIsReadable() throws Exception {
+        Path file = dir.resolve("none.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            writer.finish();
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            assertEquals(0, reader.getRowCount());
+            assertTrue(reader.getColumnNames().isEmpty());
+        }
+    }
+
+    @Test
+    void nullSentinelsReadBackAsNull() throws Exception {
+        Path file = dir.resolve("nulls.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            ColumnarWriter.DateColumn dates = writer.dateColumn("date");
+            ColumnarWriter.DecimalColumn decimals = writer.decimalColumn("decimal", 2);
+            ColumnarWriter.StringColumn strings = writer.stringColumn("string");
+            ColumnarWriter.DictionaryColumn dictionary = writer.dictionaryColumn("dictionary");
+
+            dates.add((LocalDate) null);
+            decimals.add(null);
+            strings.add(null);
+            dictionary.add(null);
+
+            dates.add(ColumnarWriter.DateColumn.NULL); // The sentinel written as a raw epoch day
+            decimals.add(BigDecimal.ZERO);
+            strings.add("");
+            dictionary.add("");
+            writer.finish();
+        }
+
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            ColumnarReader.DateVector dates = reader.dateColumn("date");
+            ColumnarReader.DecimalVector decimals = reader.decimalColumn("decimal");
+            ColumnarReader.StringVector strings = reader.stringColumn("string");
+            ColumnarReader.DictionaryVector dictionary = reader.dictionaryColumn("dictionary");
+
+            assertTrue(dates.isNull(0));
+            assertNull(dates.get(0));
+            assertEquals(Integer.MIN_VALUE, dates.getEpochDay(0));
+            assertTrue(decimals.isNull(0));
+            assertNull(decimals.get(0));
+            assertEquals(Long.MIN_VALUE, decimals.getUnscaled(0));
+            assertEquals("", strings.get(0));
+            assertNull(dictionary.get(0));
+            assertEquals(-1, dictionary.getCode(0));
+
+            assertNull(dates.get(1));
+            assertFalse(decimals.isNull(1));
+            assertEquals(new BigDecimal("0.00"), decimals.get(1));
+            assertEquals("", strings.get(1));
+            assertEquals("", dictionary.get(1));
+            assertEquals(0, dictionary.getCode(1));
+        }
+    }
+
+    @Test
+    void valuesThatWouldReadBackAsNullAreRejected() throws Exception {
+        try (ColumnarWriter writer = new ColumnarWriter(dir.resolve("sentinels.nbc").toString())) {
+            ColumnarWriter.DateColumn dates = writer.dateColumn("date");
+            ColumnarWriter.DecimalColumn decimals = writer.decimalColumn("decimal", 0);
+
+            assertThrows(IllegalArgumentException.class, () -> dates.add(LocalDate.ofEpochDay(Integer.MIN_VALUE)));
+            assertThrows(IllegalArgumentException.class, () -> dates.add(LocalDate.MIN)); // Beyond an int
+            assertThrows(IllegalArgumentException.class, () -> decimals.add(BigDecimal.valueOf(Long.MIN_VALUE)));
+            assertThrows(ArithmeticException.class, () -> decimals.add(new BigDecimal("1e30")));
+
+            dates.add(LocalDate.ofEpochDay(Integer.MIN_VALUE + 1L));
+            decimals.add(BigDecimal.valueOf(Long.MIN_VALUE + 1));
+            assertEquals(1, writer.getRowCount());
+        }
+    }
+
+    @Test
+    void closeWithoutFinishDeletesTheTarget() throws Exception {
+        Path file = dir.resolve("partial.nbc");
+        Files.writeString(file, "older snapshot");
+
+        ColumnarWriter writer = new ColumnarWriter(file.toString());
+        ColumnarWriter.IntColumn ints = writer.intColumn("int");
+        for (int row = 0; row < 10; row++) {
+            ints.add(row);
+        }
+        writer.close();
+
+        assertFalse(Files.exists(file));
+        assertThrows(IllegalStateException.class, writer::finish);
+    }
+
+    @Test
+    void closeAfterFinishKeepsTheFile() throws Exception {
+        Path file = dir.resolve("complete.nbc");
+        ColumnarWriter writer = new ColumnarWriter(file.toString());
+        writer.intColumn("int").add(42);
+        writer.finish();
+        writer.close();
+
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            assertEquals(42, reader.intColumn("int").get(0));
+        }
+    }
+
+    @Test
+    void columnsMustHaveTheSameLength() throws Exception {
+        Path file = dir.resolve("ragged.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            ColumnarWriter.IntColumn first = writer.intColumn("first");
+            ColumnarWriter.IntColumn second = writer.intColumn("second");
+            first.add(1);
+            first.add(2);
+            second.add(1);
+            assertThrows(IllegalStateException.class, writer::finish);
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void readerRejectsOtherFilesAndWrongColumnTypes() throws Exception {
+        Path other = dir.resolve("other.nbc");
+        Files.writeString(other, "ISBN,Title,Stock\n1,Plain,6\n");
+        assertThrows(IOException.class, () -> new ColumnarReader(other.toString()));
+
+        Path file = dir.resolve("typed.nbc");
+        try (ColumnarWriter writer = new ColumnarWriter(file.toString())) {
+            writer.intColumn("int").add(1);
+            writer.finish();
+        }
+        try (ColumnarReader reader = new ColumnarReader(file.toString())) {
+            assertThrows(IllegalArgumentException.class, () -> reader.dateColumn("int"));
+            assertThrows(IllegalArgumentException.class, () -> reader.intColumn("missing"));
+        }
+    }
+
+    // Full int range, sentinels included: INT32 has no null
+    private static int intAt(int row) {
+        return switch (row % 4) {
+            case 0 -> Integer.MIN_VALUE + row;
+            case 1 -> Integer.MAX_VALUE - row;
+            case 2 -> -row;
+            default -> row;
+        };
+    }
+
+    private static LocalDate dateAt(int row) {
+        return row % 7 == 0 ? null : LocalDate.of(1900, 1, 1).plusDays(row);
+    }
+
+    // Scale 3 and 1 values are rounded to the column's scale of 2
+    private static BigDecimal decimalAt(int row) {
+        if (row % 5 == 0) {
+            return null;
+        }
+        return row % 2 == 0 ? BigDecimal.valueOf(row * 37L - 1_000_000, 3) : BigDecimal.valueOf(-row, 1);
+    }
+
+    private static String stringAt(int row) {
+        return switch (row % 6) {
+            case 0 -> null;
+            case 1 -> "";
+            case 2 -> "978-" + row;
+            case 3 -> "T\u00edtulo \u00ab" + row + "\u00bb \uD83D\uDCDA";
+            default -> "x".repeat(row % 50);
+        };
+    }
+
+    private static String categoryAt(int row) {
+        return row % 3 == 2 ? null : CATEGORIES[row % CATEGORIES.length];
+    }
+}
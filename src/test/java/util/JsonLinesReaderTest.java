@@ -0,0 +1,124 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonLinesReaderTest {
+
+    private static final String[] FIELDS = {"isbn", "title", "stock"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void linesSurviveEveryBufferBoundary() throws Exception {
+        String jsonl = "{\"isbn\":\"1\",\"title\":\"Two\\nlines, \\\"quoted\\\"\",\"stock\":3}\n"
+                + "\n"
+                + "{\"stock\":-4,\"extra\":true,\"isbn\":\"2\",\"title\":\"\\u00e9t\\u00e9\"}\n"
+                + "{\"isbn\":\"3\",\"title\":null}\n";
+        Path file = write("books.jsonl", jsonl);
+
+        for (int bufferSize = 1; bufferSize <= jsonl.length(); bufferSize++) {
+            List<CSVImporter.CSVRecord> records = read(file, bufferSize);
+            String at = "buffer size " + bufferSize;
+            assertEquals(3, records.size(), at);
+            assertRecord(records.get(0), 1, at, "1", "Two\nlines, \"quoted\"", "3");
+            assertRecord(records.get(1), 3, at, "2", "été", "-4");
+            assertRecord(records.get(2), 4, at, "3", "", "");
+        }
+    }
+
+    @Test
+    void crlfAndMissingFinalLineBreak() throws Exception {
+        String jsonl = "{\"isbn\":\"1\",\"title\":\"A\",\"stock\":1}\r\n{\"isbn\":\"2\",\"title\":\"B\",\"stock\":2}";
+        Path file = write("books.jsonl", jsonl);
+
+        for (int bufferSize = 1; bufferSize <= jsonl.length(); bufferSize++) {
+            List<CSVImporter.CSVRecord> records = read(file, bufferSize);
+            String at = "buffer size " + bufferSize;
+            assertEquals(2, records.size(), at);
+            assertRecord(records.get(0), 1, at, "1", "A", "1");
+            assertRecord(records.get(1), 2, at, "2", "B", "2");
+        }
+    }
+
+    @Test
+    void wellFormedRecordsRenderTheirFieldsForErrorReports() throws Exception {
+        Path file = write("books.jsonl", "{\"stock\":7,\"unknown\":false,\"title\":\"Say \\\"hi\\\"\\n\"}\n");
+
+        CSVImporter.CSVRecord record = read(file, 1 << 20).get(0);
+        assertNull(record.getError());
+        assertEquals("{\"isbn\":\"\",\"title\":\"Say \\\"hi\\\"\\n\",\"stock\":\"7\"}", record.getRawText());
+
+        // The rendering reads back as the same record
+        Path again = write("again.jsonl", record.getRawText());
+        assertArrayEquals(record.getFields(), read(again, 1 << 20).get(0).getFields());
+    }
+
+    @Test
+    void malformedLinesBecomeRecordsWithAnError() throws Exception {
+        Path file = write("books.jsonl", "{\"isbn\":\"1\",\"title\":\"A\",\"stock\":1}\n"
+                + "{\"isbn\":\"2\",\"title\":\"B\n"
+                + "{\"isbn\":\"3\",\"title\":{\"nested\":1}}\n"
+                + "[1,2]\n");
+
+        List<CSVImporter.CSVRecord> records = read(file, 8);
+        assertEquals(4, records.size());
+        assertNull(records.get(0).getError());
+        for (int i = 1; i < records.size(); i++) {
+            CSVImporter.CSVRecord record = records.get(i);
+            assertNotNull(record.getError(), "line " + record.getLineNumber());
+            assertTrue(record.getError().startsWith("Invalid JSON at column "), record.getError());
+            assertEquals(0, record.getFields().length);
+        }
+        assertEquals("{\"isbn\":\"2\",\"title\":\"B", records.get(1).getRawText());
+        assertTrue(records.get(2).getError().contains("field title"), records.get(2).getError());
+    }
+
+    @Test
+    void gzipInputIsDecompressed() throws Exception {
+        Path file = dir.resolve("books.jsonl.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write("{\"isbn\":\"1\",\"title\":\"A\",\"stock\":1}\n".getBytes(StandardCharsets.UTF_8));
+        }
+        List<CSVImporter.CSVRecord> records = read(file, 16);
+        assertEquals(1, records.size());
+        assertRecord(records.get(0), 1, "gzip", "1", "A", "1");
+    }
+
+    @Test
+    void extensionSelectsTheReader() {
+        assertTrue(JsonLinesReader.isJsonLines("books.jsonl"));
+        assertTrue(JsonLinesReader.isJsonLines("books.jsonl.gz"));
+        assertFalse(JsonLinesReader.isJsonLines("books.csv.gz"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<CSVImporter.CSVRecord> read(Path file, int bufferSize) throws Exception {
+        List<CSVImporter.CSVRecord> records = new ArrayList<>();
+        long count = JsonLinesReader.read(file.toString(), FIELDS, (batch, bytesRead, totalBytes) -> records.addAll(batch),
+                bufferSize);
+        assertEquals(records.size(), count);
+        return records;
+    }
+
+    private static void assertRecord(CSVImporter.CSVRecord record, long line, String at, String... fields) {
+        assertEquals(line, record.getLineNumber(), at);
+        assertArrayEquals(fields, record.getFields(), at);
+        assertNull(record.getError(), at);
+    }
+}
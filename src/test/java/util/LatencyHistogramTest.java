@@ -0,0 +1,138 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valuesBelow64HaveABucketEach() {
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));
+            assertEquals(value, LatencyHistogram.bucketUpperBound(value));
+        }
+    }
+
+    @Test
+    void firstSplitBucketStartsAt64() {
+        assertEquals(63, LatencyHistogram.bucketIndex(63));
+        assertEquals(64, LatencyHistogram.bucketIndex(64));
+        assertEquals(64, LatencyHistogram.bucketIndex(65));
+        assertEquals(65, LatencyHistogram.bucketIndex(66));
+        assertEquals(65, LatencyHistogram.bucketUpperBound(64));
+    }
+
+    @Test
+    void bucketsAreContiguousAndWithinThreePercent() {
+        long lower = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long upper = LatencyHistogram.bucketUpperBound(i);
+            assertEquals(i, LatencyHistogram.bucketIndex(lower), "lower bound of bucket " + i);
+            assertEquals(i, LatencyHistogram.bucketIndex(upper), "upper bound of bucket " + i);
+            assertTrue(upper - lower <= lower / 32, "width of bucket " + i);
+            lower = upper + 1;
+        }
+        assertEquals(LatencyHistogram.MAX_TRACKABLE + 1, lower);
+    }
+
+    @Test
+    void powersOfTwoStartABucket() {
+        for (int bit = 6; bit <= 41; bit++) {
+            long power = 1L << bit;
+            int index = LatencyHistogram.bucketIndex(power);
+            assertEquals(power - 1, LatencyHistogram.bucketUpperBound(index - 1), "2^" + bit);
+            assertEquals(index - 1, LatencyHistogram.bucketIndex(power - 1), "2^" + bit + " - 1");
+        }
+    }
+
+    @Test
+    void valuesAboveTheTrackableRangeLandInTheLastBucket() {
+        int last = LatencyHistogram.BUCKET_COUNT - 1;
+        assertEquals(last, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE));
+        assertEquals(LatencyHistogram.MAX_TRACKABLE, LatencyHistogram.bucketUpperBound(last));
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(Long.MAX_VALUE, snapshot.getMaxNanos());
+        assertEquals(Long.MAX_VALUE, snapshot.getValueAtPercentile(50));
+    }
+
+    @Test
+    void percentilesUseTheNearestRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+
+        for (int value = 1; value <= 50; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5); // Counts as 0
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(51, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+        assertEquals(0, snapshot.getValueAtPercentile(1));
+        assertEquals(25, snapshot.getValueAtPercentile(50));
+        assertEquals(45, snapshot.getValueAtPercentile(90)); // Rank 46 of 0..50
+        assertEquals(50, snapshot.getValueAtPercentile(99));
+        assertEquals(50, snapshot.getValueAtPercentile(100));
+        assertEquals(25.0, snapshot.getMeanNanos(), 1e-9);
+    }
+
+    @Test
+    void percentilesAreNeverBelowTheTrueValueAndCappedAtTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(42);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong(1, 10_000_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 99.99}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = snapshot.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact, percentile + "th: " + reported + " < " + exact);
+            assertTrue(reported <= exact + exact / 32, percentile + "th: " + reported + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    void snapshotsAndResetsAreDisjoint() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 200_000;
+        Thread[] recorders = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            recorders[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i % 1000);
+                }
+            });
+            recorders[t].start();
+        }
+
+        long counted = 0;
+        AtomicBoolean running = new AtomicBoolean(true);
+        while (running.get()) {
+            counted += histogram.snapshotAndReset().getCount();
+            running.set(Arrays.stream(recorders).anyMatch(Thread::isAlive));
+        }
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+        counted += histogram.snapshotAndReset().getCount();
+
+        assertEquals((long) threads * perThread, counted);
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getMaxNanos());
+    }
+}
@@ -0,0 +1,117 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs with detector.nPlusOne.mode=FAIL (set for the test JVM in the pom). Statements are fed to
+ * the detector directly, as QueryInstrumentation does for every execution.
+ */
+class NPlusOneDetectorTest {
+
+    private static final int THRESHOLD = ConfigLoader.getIntProperty("detector.nPlusOne.threshold", 5);
+
+    @BeforeAll
+    static void requireDetector() {
+        assertTrue(NPlusOneDetector.isEnabled(), "db.instrumentation.enabled must be true for the detector");
+    }
+
+    @AfterEach
+    void clear() {
+        NPlusOneDetector.clearFindings();
+    }
+
+    @Test
+    void repeatedShapeFailsTheScope() {
+        QueryStats perRow = new QueryStats("SELECT * FROM loans WHERE book_isbn = ?");
+        QueryStats list = new QueryStats("SELECT * FROM books");
+
+        NPlusOneDetector.Scope scope = NPlusOneDetector.scope("test list with loans");
+        NPlusOneDetector.record(list);
+        for (int i = 0; i < THRESHOLD; i++) {
+            NPlusOneDetector.record(perRow);
+        }
+        assertEquals(THRESHOLD + 1, scope.getQueryCount());
+        NPlusOneDetector.Violation violation = assertThrows(NPlusOneDetector.Violation.class, scope::close);
+
+        List<NPlusOneDetector.Finding> findings = violation.getFindings();
+        assertEquals(1, findings.size());
+        NPlusOneDetector.Finding finding = findings.get(0);
+        assertEquals("test list with loans", finding.getRequest());
+        assertEquals(perRow.getSql(), finding.getSql());
+        assertEquals(THRESHOLD, finding.getExecutions());
+        assertEquals(THRESHOLD + 1, finding.getRequestQueries());
+        assertFalse(finding.getCallSite().isEmpty()); // Frames below util.* (here the test runner)
+        assertEquals(findings, NPlusOneDetector.getRecentFindings());
+
+        // The failed scope is gone: the thread can open a new one
+        NPlusOneDetector.Scope next = NPlusOneDetector.scope("test next");
+        assertNotSame(scope, next);
+        next.close();
+    }
+
+    @Test
+    void shapesBelowTheThresholdPass() {
+        QueryStats perRow = new QueryStats("SELECT * FROM partners WHERE id = ?");
+        NPlusOneDetector.Scope scope = NPlusOneDetector.scope("test below threshold");
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            NPlusOneDetector.record(perRow);
+        }
+        assertDoesNotThrow(scope::close);
+        assertTrue(NPlusOneDetector.getRecentFindings().isEmpty());
+    }
+
+    @Test
+    void nestedScopesCountTowardTheOutermost() {
+        QueryStats perRow = new QueryStats("SELECT * FROM users WHERE id = ?");
+        NPlusOneDetector.Scope outer = NPlusOneDetector.scope("test view action");
+        for (int call = 0; call < THRESHOLD; call++) {
+            NPlusOneDetector.Scope endpoint = NPlusOneDetector.scope("test endpoint");
+            NPlusOneDetector.record(perRow);
+            assertDoesNotThrow(endpoint::close);
+        }
+        NPlusOneDetector.Violation violation = assertThrows(NPlusOneDetector.Violation.class, outer::close);
+        assertEquals("test view action", violation.getFindings().get(0).getRequest());
+    }
+
+    @Test
+    void batchScopesAreLeftOutEvenInsideAnotherScope() {
+        QueryStats batch = new QueryStats("INSERT INTO books (isbn, title) VALUES (?, ?)");
+        QueryStats lookup = new QueryStats("SELECT isbn FROM books WHERE isbn IN (?+)");
+
+        NPlusOneDetector.Scope outer = NPlusOneDetector.scope("test import option");
+        NPlusOneDetector.Scope bulk = NPlusOneDetector.batchScope("test import endpoint");
+        for (int i = 0; i < 10 * THRESHOLD; i++) {
+            NPlusOneDetector.record(lookup);
+            NPlusOneDetector.record(batch);
+            assertSame(NPlusOneDetector.Scope.NOOP, NPlusOneDetector.scope("test nested endpoint"));
+        }
+        assertDoesNotThrow(bulk::close);
+
+        // The outer scope counts again once the batch scope is closed
+        for (int i = 0; i < THRESHOLD; i++) {
+            NPlusOneDetector.record(lookup);
+        }
+        assertEquals(THRESHOLD, outer.getQueryCount());
+        NPlusOneDetector.Violation violation = assertThrows(NPlusOneDetector.Violation.class, outer::close);
+        assertEquals(THRESHOLD, violation.getFindings().get(0).getExecutions());
+    }
+
+    @Test
+    void batchEndpointInsideAViewScopeDoesNotFail() {
+        QueryStats batch = new QueryStats("INSERT INTO partners (name, email) VALUES (?, ?)");
+        NPlusOneDetector.Scope view = NPlusOneDetector.scope("test PartnerView option 5");
+        try (EndpointTimer timer = EndpointMetrics.startBatch("POST /test/partners/import")) {
+            for (int i = 0; i < 10 * THRESHOLD; i++) {
+                NPlusOneDetector.record(batch);
+            }
+            timer.success();
+        }
+        assertDoesNotThrow(view::close);
+    }
+}